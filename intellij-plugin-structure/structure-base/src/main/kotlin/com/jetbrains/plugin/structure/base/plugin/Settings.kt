@@ -21,7 +21,11 @@ enum class Settings(private val key: String, private val defaultValue: () -> Str
   HUB_PLUGIN_MAX_FILES_NUMBER("intellij.structure.hub.plugin.max.files.number", { 1000.toString() }),
   EDU_PLUGIN_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
   YOUTRACK_PLUGIN_SIZE_LIMIT("intellij.structure.youtrack.plugin.size.limit", { (100 * FileUtils.ONE_MB).toString() }),
-  KTOR_FEATURE_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() });
+  KTOR_FEATURE_SIZE_LIMIT("intellij.structure.edu.plugin.size.limit", { FileUtils.ONE_GB.toString() }),
+  JAR_INDEX_CACHE_DIRECTORY("intellij.structure.jar.index.cache.dir", { "" }),
+  JAR_CENTRAL_DIRECTORY_READER("intellij.structure.jar.central.directory.reader", { "false" }),
+  CLASS_BYTES_DIGESTS("intellij.structure.class.bytes.digests", { "false" }),
+  RESOLVER_CREATION_PARALLELISM("intellij.structure.resolver.creation.parallelism", { Runtime.getRuntime().availableProcessors().toString() });
 
   fun get(): String = System.getProperty(key) ?: defaultValue()
 
@@ -31,6 +35,8 @@ enum class Settings(private val key: String, private val defaultValue: () -> Str
 
   fun getAsInt(): Int = get().toInt()
 
+  fun getAsBoolean(): Boolean = get().toBoolean()
+
   fun set(value: String) {
     System.setProperty(key, value)
   }
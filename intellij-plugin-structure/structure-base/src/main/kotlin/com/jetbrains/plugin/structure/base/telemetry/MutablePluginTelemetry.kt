@@ -12,6 +12,11 @@ const val ARCHIVE_FILE_SIZE = "plugin.archive.file.size"
 const val PARSING_DURATION = "plugin.parsing.duration"
 const val PLUGIN_VERIFICATION_TIME = "plugin.verification.duration"
 const val PLUGIN_VERIFIED_CLASSES_COUNT = "plugin.verification.verified.classes.count"
+const val MEMBER_RESOLUTION_CACHE_HITS = "plugin.verification.member.resolution.cache.hits"
+const val MEMBER_RESOLUTION_CACHE_MISSES = "plugin.verification.member.resolution.cache.misses"
+const val CLASS_FINDINGS_MEMO_HITS = "plugin.verification.class.findings.memo.hits"
+const val CLASS_FINDINGS_MEMO_MISSES = "plugin.verification.class.findings.memo.misses"
+const val VERIFICATION_RESULT_CACHE_HIT = "plugin.verification.result.cache.hit"
 const val UNKNOWN_SIZE: Bytes = -1
 
 class MutablePluginTelemetry : PluginTelemetry() {
@@ -44,78 +44,97 @@ class ExecutorWithProgress<T>(
 
   @Throws(InterruptedException::class)
   fun executeTasks(tasks: List<Task<T>>): List<T> {
+    val results = arrayListOf<T>()
+    executeTasks(tasks, maxOf(tasks.size, 1)) { results += it }
+    return results
+  }
+
+  /**
+   * Executes the [tasks] and passes their results to the [resultConsumer] as soon as they finish,
+   * without accumulating the results. At most [maxTasksInFlight] tasks are submitted at a time,
+   * the next tasks are submitted as the previous ones finish.
+   *
+   * The [resultConsumer] is invoked on the calling thread in the order the tasks finish.
+   */
+  @Throws(InterruptedException::class)
+  fun executeTasks(tasks: List<Task<T>>, maxTasksInFlight: Int, resultConsumer: (T) -> Unit) {
+    require(maxTasksInFlight > 0) { "Invalid number of tasks in flight: $maxTasksInFlight" }
     val completionService = ExecutorCompletionService<TimedResult<T>>(executor)
-    val futures = arrayListOf<Future<TimedResult<T>>>()
+    val futures = hashSetOf<Future<TimedResult<T>>>()
+    val exceptions = arrayListOf<Throwable>()
     try {
-      for (task in tasks) {
-        val timedCallable = TimedCallable(task)
-        val future = try {
-          completionService.submit(timedCallable)
-        } catch (e: RejectedExecutionException) {
-          if (executor.isShutdown) {
-            throw InterruptedException()
+      val remainingTasks = tasks.iterator()
+      for (finished in 1..tasks.size) {
+        while (futures.size < maxTasksInFlight && remainingTasks.hasNext()) {
+          futures += submitTask(completionService, remainingTasks.next())
+        }
+        val future = waitNextFuture(completionService)
+        futures -= future
+        val timedResult = getTimedResult(future)
+
+        val exception = timedResult.exception
+        if (exception != null) {
+          if (failFastOnException) {
+            throw RuntimeException("Worker '${timedResult.presentableTaskName}' finished with error", exception)
+          } else {
+            exceptions += exception
+            progress(ProgressData(timedResult.task, finished, tasks.size, null, exception, timedResult.elapsedTime))
           }
-          throw RuntimeException("Failed to schedule task ${task.presentableName}", e)
+        } else {
+          val result = timedResult.result!!
+          progress(ProgressData(timedResult.task, finished, tasks.size, result, null, timedResult.elapsedTime))
+          resultConsumer(result)
         }
-        futures.add(future)
       }
-      return waitAllFutures(futures.size, completionService)
     } catch (e: Throwable) {
       for (worker in futures) {
         worker.cancel(true)
       }
       throw e
     }
-  }
-
-  private fun waitAllFutures(futuresNumber: Int, completionService: ExecutorCompletionService<TimedResult<T>>): List<T> {
-    val results = arrayListOf<T>()
-    val exceptions = arrayListOf<Throwable>()
-    for (finished in 1..futuresNumber) {
-      while (true) {
-        checkIfInterrupted()
-        val future = completionService.poll(100, TimeUnit.MILLISECONDS)
-        if (future != null) {
-          val timedResult = try {
-            future.get()
-          } catch (e: InterruptedException) {
-            throw e
-          } catch (e: CancellationException) {
-            throw InterruptedException("Worker has been cancelled")
-          } catch (e: ExecutionException) {
-            val workerException = e.cause!!
-            if (workerException is InterruptedException) {
-              throw InterruptedException("Worker has been interrupted")
-            }
-            throw e.cause!!
-          }
-
-          val exception = timedResult.exception
-          if (exception != null) {
-            if (failFastOnException) {
-              throw RuntimeException("Worker '${timedResult.presentableTaskName}' finished with error", exception)
-            } else {
-              exceptions += exception
-              progress(ProgressData(timedResult.task, finished, futuresNumber, null, exception, timedResult.elapsedTime))
-            }
-          } else {
-            val result = timedResult.result!!
-            progress(ProgressData(timedResult.task, finished, futuresNumber, result, null, timedResult.elapsedTime))
-            results += result
-          }
-          break
-        }
-      }
-    }
     check(exceptions.isEmpty() || !failFastOnException)
     if (exceptions.isNotEmpty()) {
       val error = RuntimeException("Some workers finished with error")
       exceptions.forEach { error.addSuppressed(it) }
       throw error
     }
-    return results
   }
 
+  private fun submitTask(completionService: ExecutorCompletionService<TimedResult<T>>, task: Task<T>): Future<TimedResult<T>> =
+    try {
+      completionService.submit(TimedCallable(task))
+    } catch (e: RejectedExecutionException) {
+      if (executor.isShutdown) {
+        throw InterruptedException()
+      }
+      throw RuntimeException("Failed to schedule task ${task.presentableName}", e)
+    }
+
+  private fun waitNextFuture(completionService: ExecutorCompletionService<TimedResult<T>>): Future<TimedResult<T>> {
+    while (true) {
+      checkIfInterrupted()
+      val future = completionService.poll(100, TimeUnit.MILLISECONDS)
+      if (future != null) {
+        return future
+      }
+    }
+  }
+
+  private fun getTimedResult(future: Future<TimedResult<T>>): TimedResult<T> =
+    try {
+      future.get()
+    } catch (e: InterruptedException) {
+      throw e
+    } catch (e: CancellationException) {
+      throw InterruptedException("Worker has been cancelled")
+    } catch (e: ExecutionException) {
+      val workerException = e.cause!!
+      if (workerException is InterruptedException) {
+        throw InterruptedException("Worker has been interrupted")
+      }
+      throw e.cause!!
+    }
+
   private data class TimedResult<T>(
     val task: Task<T>,
     val result: T?,
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.base.utils
+
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Pool of shared resources, such as open file systems, with per-entry reference counting.
+ *
+ * Values are kept in a concurrent map, so acquiring and releasing different values,
+ * as well as acquiring an already open value, does not take any global lock.
+ * A value is opened outside of the map by the first acquirer of its entry,
+ * so only acquirers of the same key wait for the opening.
+ * When the pool grows above [maxSize], no more than [evictionBatchSize] unused values are closed,
+ * least recently acquired first. Eviction is performed by the thread that overflowed the pool;
+ * concurrent acquirers don't wait for it.
+ *
+ * A value is removed from the pool only after it has been closed, and acquirers of a value being closed
+ * wait until the closing completes before opening the value anew. This matters for values registered globally
+ * while they are open, such as zip file systems, which would otherwise be reused by [acquire] while being closed.
+ */
+class ReferenceCountingPool<K : Any, V : Any>(
+  private val maxSize: Int,
+  private val evictionBatchSize: Int,
+  private val closeValue: (K, V) -> Unit
+) {
+
+  private val entries = ConcurrentHashMap<K, Entry<K, V>>()
+
+  private val evictionInProgress = AtomicBoolean()
+
+  val size: Int
+    get() = entries.size
+
+  /**
+   * Returns the value associated with the [key] opening it with [open] if necessary.
+   * The value is guaranteed to stay open until it is [released][release].
+   */
+  fun acquire(key: K, open: (K) -> V): V {
+    while (true) {
+      val entry = entries.computeIfAbsent(key) { Entry(it) }
+      if (entry.tryAcquire()) {
+        val value = try {
+          entry.open(open)
+        } catch (e: Throwable) {
+          entry.release()
+          throw e
+        }
+        if (value != null) {
+          if (entries.size > maxSize) {
+            evictUnused()
+          }
+          return value
+        }
+      }
+      //The entry is being closed by another thread.
+      entry.closed.await()
+      entries.remove(key, entry)
+    }
+  }
+
+  /**
+   * Decrements the reference count of the value associated with the [key].
+   * If [closeIfUnused] is `true` and there are no more users, the value is closed immediately.
+   */
+  fun release(key: K, closeIfUnused: Boolean = false) {
+    val entry = entries[key] ?: return
+    if (entry.release() == 0 && closeIfUnused) {
+      tryClose(entry)
+    }
+  }
+
+  /**
+   * Closes the value associated with the [key] unless somebody is still using it.
+   */
+  fun closeIfUnused(key: K) {
+    val entry = entries[key] ?: return
+    tryClose(entry)
+  }
+
+  /**
+   * Closes all values regardless of their users.
+   */
+  fun closeAll() {
+    for (entry in entries.values) {
+      if (entry.forceClose()) {
+        closeAndRemove(entry)
+      }
+    }
+  }
+
+  private fun tryClose(entry: Entry<K, V>) {
+    if (entry.tryClose()) {
+      closeAndRemove(entry)
+    }
+  }
+
+  private fun closeAndRemove(entry: Entry<K, V>) {
+    try {
+      entry.takeOpenValue()?.let { closeValue(entry.key, it) }
+    } finally {
+      entries.remove(entry.key, entry)
+      entry.closed.countDown()
+    }
+  }
+
+  private fun evictUnused() {
+    if (!evictionInProgress.compareAndSet(false, true)) {
+      return
+    }
+    try {
+      //Select the least recently used entries without sorting all of them.
+      val oldestFirst = compareBy<Entry<K, V>> { it.lastAccessTime }
+      val candidates = PriorityQueue(evictionBatchSize, oldestFirst.reversed())
+      for (entry in entries.values) {
+        if (!entry.isUnused) {
+          continue
+        }
+        if (candidates.size < evictionBatchSize) {
+          candidates += entry
+        } else if (entry.lastAccessTime < candidates.peek().lastAccessTime) {
+          candidates.poll()
+          candidates += entry
+        }
+      }
+      candidates.forEach { tryClose(it) }
+    } finally {
+      evictionInProgress.set(false)
+    }
+  }
+
+  private class Entry<K, V : Any>(val key: K) {
+    /**
+     * Number of current users or [CLOSED] if the value has been closed.
+     */
+    private val users = AtomicInteger()
+
+    /**
+     * Released when the value has been closed and removed from the pool.
+     */
+    val closed = CountDownLatch(1)
+
+    @Volatile
+    private var value: V? = null
+
+    @Volatile
+    var lastAccessTime: Long = System.nanoTime()
+      private set
+
+    val isUnused: Boolean
+      get() = users.get() == 0
+
+    fun tryAcquire(): Boolean {
+      while (true) {
+        val current = users.get()
+        if (current == CLOSED) {
+          return false
+        }
+        if (users.compareAndSet(current, current + 1)) {
+          lastAccessTime = System.nanoTime()
+          return true
+        }
+      }
+    }
+
+    fun release(): Int {
+      while (true) {
+        val current = users.get()
+        if (current <= 0) {
+          return current
+        }
+        if (users.compareAndSet(current, current - 1)) {
+          return current - 1
+        }
+      }
+    }
+
+    /**
+     * Returns the value opening it with [open] if this is the first user of the entry,
+     * or `null` if the entry has been closed before the value was opened.
+     */
+    fun open(open: (K) -> V): V? {
+      value?.let { return it }
+      synchronized(this) {
+        value?.let { return it }
+        if (users.get() == CLOSED) {
+          return null
+        }
+        return open(key).also { value = it }
+      }
+    }
+
+    /**
+     * Returns the value to be closed, waiting for its opening in progress.
+     * Must be called after the entry has been marked closed, so that the value is not opened afterward.
+     */
+    fun takeOpenValue(): V? = synchronized(this) { value }
+
+    fun tryClose(): Boolean = users.compareAndSet(0, CLOSED)
+
+    fun forceClose(): Boolean = users.getAndSet(CLOSED) != CLOSED
+  }
+
+  private companion object {
+    const val CLOSED = -1
+  }
+}
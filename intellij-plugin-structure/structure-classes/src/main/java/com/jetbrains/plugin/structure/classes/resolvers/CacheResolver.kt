@@ -8,25 +8,52 @@ import com.github.benmanes.caffeine.cache.Caffeine
 import com.github.benmanes.caffeine.cache.LoadingCache
 import org.objectweb.asm.tree.ClassNode
 import java.util.*
-import java.util.concurrent.ExecutionException
 
-class CacheResolver(
+/**
+ * [Resolver] that caches classes and property bundles resolved by the [delegate].
+ *
+ * The cache keeps at most [cacheSize] classes, or classes weighing at most [maximumWeight] if it is specified,
+ * see [weighted]. Hits, misses and evictions of classes are recorded and available via [statistics].
+ */
+class CacheResolver private constructor(
   private val delegate: Resolver,
-  cacheSize: Int = DEFAULT_CACHE_SIZE
+  cacheSize: Int,
+  maximumWeight: Long?,
+  private val closesDelegate: Boolean
 ) : Resolver() {
 
+  constructor(
+    delegate: Resolver,
+    cacheSize: Int = DEFAULT_CACHE_SIZE
+  ) : this(delegate, cacheSize, null, true)
+
   private data class BundleCacheKey(val baseName: String, val locale: Locale)
 
   private val classCache: LoadingCache<String, ResolutionResult<ClassNode>> =
-    Caffeine.newBuilder()
-      .maximumSize(cacheSize.toLong())
-      .build { key -> delegate.resolveClass(key) }
+    if (maximumWeight != null) {
+      Caffeine.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher<String, ResolutionResult<ClassNode>> { _, result -> estimateWeight(result) }
+        .recordStats()
+        .build { key -> delegate.resolveClass(key) }
+    } else {
+      Caffeine.newBuilder()
+        .maximumSize(cacheSize.toLong())
+        .recordStats()
+        .build { key -> delegate.resolveClass(key) }
+    }
 
   private val propertyBundleCache: LoadingCache<BundleCacheKey, ResolutionResult<PropertyResourceBundle>> =
     Caffeine.newBuilder()
       .maximumSize(cacheSize.toLong())
       .build { key -> delegate.resolveExactPropertyResourceBundle(key.baseName, key.locale) }
 
+  val statistics: Statistics
+    get() {
+      val stats = classCache.stats()
+      return Statistics(stats.hitCount(), stats.missCount(), stats.evictionCount(), classCache.estimatedSize())
+    }
+
   override val allClasses
     get() = delegate.allClasses
 
@@ -39,17 +66,11 @@ class CacheResolver(
   override val readMode
     get() = delegate.readMode
 
-  override fun resolveClass(className: String): ResolutionResult<ClassNode> = try {
+  override fun resolveClass(className: String): ResolutionResult<ClassNode> =
     classCache.get(className)
-  } catch (e: ExecutionException) {
-    throw e.cause ?: e
-  }
 
-  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> = try {
+  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> =
     propertyBundleCache.get(BundleCacheKey(baseName, locale))
-  } catch (e: ExecutionException) {
-    throw e.cause ?: e
-  }
 
   override fun toString() = "Caching resolver for $delegate"
 
@@ -60,13 +81,56 @@ class CacheResolver(
     delegate.containsPackage(packageName)
 
   override fun close() {
-    delegate.close()
+    classCache.invalidateAll()
+    propertyBundleCache.invalidateAll()
+    if (closesDelegate) {
+      delegate.close()
+    }
   }
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean) =
     delegate.processAllClasses(processor)
 
-  private companion object {
+  data class Statistics(
+    val hitCount: Long,
+    val missCount: Long,
+    val evictionCount: Long,
+    val cachedClassesCount: Long
+  ) {
+    val hitRate: Double
+      get() = if (hitCount + missCount == 0L) 1.0 else hitCount.toDouble() / (hitCount + missCount)
+
+    override fun toString() =
+      "hits: $hitCount, misses: $missCount, evictions: $evictionCount, cached classes: $cachedClassesCount"
+  }
+
+  companion object {
     private const val DEFAULT_CACHE_SIZE = 1024
+
+    private const val EMPTY_RESULT_WEIGHT = 64
+
+    /**
+     * Creates a long-lived cache of the [delegate] that may be shared by many threads and many verifications.
+     * It is bounded by the [maximumWeight], which is the estimated memory footprint of cached classes in bytes.
+     * The cache doesn't own the [delegate], so it doesn't close the [delegate] when it is closed.
+     */
+    @JvmStatic
+    fun weighted(delegate: Resolver, maximumWeight: Long): CacheResolver =
+      CacheResolver(delegate, DEFAULT_CACHE_SIZE, maximumWeight, false)
+
+    /**
+     * Roughly estimates the retained size of a [ClassNode] from the number of its members and instructions.
+     */
+    private fun estimateWeight(result: ResolutionResult<ClassNode>): Int {
+      val classNode = (result as? ResolutionResult.Found)?.value ?: return EMPTY_RESULT_WEIGHT
+      var weight = 256L + classNode.name.length * 2
+      weight += classNode.fields.size * 96L
+      for (method in classNode.methods) {
+        weight += 160L + method.instructions.size() * 48L
+        weight += (method.tryCatchBlocks?.size ?: 0) * 48L
+        weight += (method.localVariables?.size ?: 0) * 64L
+      }
+      return weight.coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    }
   }
 }
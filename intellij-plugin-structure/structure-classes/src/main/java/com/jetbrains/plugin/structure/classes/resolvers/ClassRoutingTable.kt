@@ -0,0 +1,77 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+/**
+ * Maps binary class names to indexes of resolvers that contain them,
+ * where the first resolver containing a class wins as in the Java classpath search strategy.
+ *
+ * The table is an open-addressing hash table of class names and an array of resolver indexes.
+ * Class names are shared with the `allClasses` sets of the resolvers,
+ * so the table costs a couple of array slots per class instead of a map entry.
+ */
+internal class ClassRoutingTable private constructor(
+  private val classNames: Array<String?>,
+  private val resolverIndexes: IntArray,
+  val size: Int
+) {
+
+  private val mask = classNames.size - 1
+
+  /**
+   * Returns the index of the resolver containing the class [className], or `-1` if there is no such resolver.
+   */
+  operator fun get(className: String): Int {
+    var slot = spread(className.hashCode()) and mask
+    while (true) {
+      val name = classNames[slot] ?: return -1
+      if (name == className) {
+        return resolverIndexes[slot]
+      }
+      slot = (slot + 1) and mask
+    }
+  }
+
+  companion object {
+    fun build(resolvers: List<Resolver>): ClassRoutingTable {
+      val expectedSize = resolvers.sumOf { it.allClasses.size.toLong() }
+      val capacity = tableCapacity(expectedSize)
+      val classNames = arrayOfNulls<String>(capacity)
+      val resolverIndexes = IntArray(capacity)
+      val mask = capacity - 1
+      var size = 0
+      for ((resolverIndex, resolver) in resolvers.withIndex()) {
+        for (className in resolver.allClasses) {
+          var slot = spread(className.hashCode()) and mask
+          while (true) {
+            val name = classNames[slot]
+            if (name == null) {
+              classNames[slot] = className
+              resolverIndexes[slot] = resolverIndex
+              size++
+              break
+            }
+            if (name == className) {
+              break
+            }
+            slot = (slot + 1) and mask
+          }
+        }
+      }
+      return ClassRoutingTable(classNames, resolverIndexes, size)
+    }
+
+    /**
+     * Power of two that keeps the load factor of the table at most 2/3.
+     */
+    private fun tableCapacity(expectedSize: Long): Int {
+      val minCapacity = maxOf(expectedSize * 3 / 2 + 1, 16L)
+      require(minCapacity <= 1 shl 30) { "Too many classes to route: $expectedSize" }
+      return Integer.highestOneBit((minCapacity - 1).toInt()) shl 1
+    }
+
+    private fun spread(hash: Int): Int = hash xor (hash ushr 16)
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+/**
+ * Immutable set of strings, such as binary class names, that assigns each string a dense int id.
+ *
+ * Strings are stored in an array by their ids, and an open-addressing hash table of ids is used for lookups.
+ * That takes about 12 bytes per string instead of about 40 bytes of a [HashSet] entry.
+ * Strings are [interned][String.intern], so that names of the same classes held by several resolvers,
+ * for instance, by resolvers of different IDE builds, are stored once.
+ */
+class CompactStringSet private constructor(
+  private val strings: Array<String>,
+  private val slots: IntArray
+) : AbstractSet<String>() {
+
+  private val mask = slots.size - 1
+
+  override val size: Int
+    get() = strings.size
+
+  override fun contains(element: String): Boolean = idOf(element) >= 0
+
+  override fun iterator(): Iterator<String> = strings.iterator()
+
+  /**
+   * Returns the id of the [string], that is a number in `[0, size)`, or `-1` if the [string] is not in the set.
+   */
+  fun idOf(string: String): Int {
+    var slot = spread(string.hashCode()) and mask
+    while (true) {
+      val id = slots[slot] - 1
+      if (id < 0) {
+        return -1
+      }
+      if (strings[id] == string) {
+        return id
+      }
+      slot = (slot + 1) and mask
+    }
+  }
+
+  /**
+   * Returns the string with the [id].
+   */
+  operator fun get(id: Int): String = strings[id]
+
+  companion object {
+
+    private val EMPTY = CompactStringSet(emptyArray(), IntArray(1))
+
+    /**
+     * Creates a set of the distinct [strings]. Ids are assigned in the iteration order of the [strings].
+     */
+    @JvmStatic
+    fun of(strings: Collection<String>): CompactStringSet {
+      if (strings is CompactStringSet) {
+        return strings
+      }
+      if (strings.isEmpty()) {
+        return EMPTY
+      }
+      val slots = IntArray(tableCapacity(strings.size))
+      val mask = slots.size - 1
+      val distinctStrings = arrayOfNulls<String>(strings.size)
+      var size = 0
+      for (string in strings) {
+        var slot = spread(string.hashCode()) and mask
+        while (true) {
+          val id = slots[slot] - 1
+          if (id < 0) {
+            distinctStrings[size] = string.intern()
+            slots[slot] = ++size
+            break
+          }
+          if (distinctStrings[id] == string) {
+            break
+          }
+          slot = (slot + 1) and mask
+        }
+      }
+      @Suppress("UNCHECKED_CAST")
+      return CompactStringSet((if (size == strings.size) distinctStrings else distinctStrings.copyOf(size)) as Array<String>, slots)
+    }
+
+    /**
+     * Power of two that keeps the load factor of the table at most 2/3.
+     */
+    private fun tableCapacity(expectedSize: Int): Int {
+      val minCapacity = maxOf(expectedSize.toLong() * 3 / 2 + 1, 2L)
+      require(minCapacity <= 1 shl 30) { "Too many strings: $expectedSize" }
+      return Integer.highestOneBit((minCapacity - 1).toInt()) shl 1
+    }
+
+    private fun spread(hash: Int): Int = hash xor (hash ushr 16)
+  }
+}
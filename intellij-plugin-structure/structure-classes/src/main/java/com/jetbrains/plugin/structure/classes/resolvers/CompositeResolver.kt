@@ -10,18 +10,52 @@ import java.util.*
 
 /**
  * [Resolver] that combines several [resolvers] with the Java classpath search strategy.
+ *
+ * By default, a class is looked up in all resolvers containing its package.
+ * With [ClassRouting.BY_CLASS] or [ClassRouting.BY_CLASS_LAZILY], a table of all classes
+ * maps each class to the first resolver containing it, so a class is found with a single hash lookup.
+ * This pays off for large classpaths with packages split across many jars, such as IDE classpaths.
  */
 class CompositeResolver private constructor(
   private val resolvers: List<Resolver>,
-  override val readMode: ReadMode
+  override val readMode: ReadMode,
+  classRouting: ClassRouting
 ) : Resolver() {
 
+  /**
+   * Strategy of finding resolvers that contain a class.
+   */
+  enum class ClassRouting {
+    /**
+     * Look up the class in all resolvers containing its package.
+     */
+    BY_PACKAGE,
+
+    /**
+     * Look up the class in the resolver found in the table of all classes,
+     * which is built on the first lookup.
+     */
+    BY_CLASS_LAZILY,
+
+    /**
+     * Look up the class in the resolver found in the table of all classes,
+     * which is built on creation of the resolver.
+     */
+    BY_CLASS
+  }
+
   private val packageToResolvers: MutableMap<String, MutableList<Resolver>> = hashMapOf()
 
   private val fullBundleNames = hashMapOf<String, MutableSet<String>>()
 
   private val baseBundleNameToResolvers: MutableMap<String, MutableList<Resolver>> = hashMapOf()
 
+  private val classRoutingTable: Lazy<ClassRoutingTable>? = when (classRouting) {
+    ClassRouting.BY_PACKAGE -> null
+    ClassRouting.BY_CLASS_LAZILY -> lazy { ClassRoutingTable.build(resolvers) }
+    ClassRouting.BY_CLASS -> lazyOf(ClassRoutingTable.build(resolvers))
+  }
+
   init {
     buildIndex()
   }
@@ -44,8 +78,7 @@ class CompositeResolver private constructor(
     }
   }
 
-  override val allClasses
-    get() = resolvers.flatMapTo(hashSetOf()) { it.allClasses }
+  override val allClasses: Set<String> = AllClasses()
 
   override val allBundleNameSet: ResourceBundleNameSet
     get() = ResourceBundleNameSet(fullBundleNames)
@@ -59,6 +92,9 @@ class CompositeResolver private constructor(
   private fun getPackageName(className: String) = className.substringBeforeLast('/', "")
 
   override fun containsClass(className: String): Boolean {
+    if (classRoutingTable != null) {
+      return classRoutingTable.value[className] >= 0
+    }
     val packageName = getPackageName(className)
     val resolvers = packageToResolvers[packageName]
     return resolvers != null && resolvers.any { it.containsClass(className) }
@@ -67,6 +103,17 @@ class CompositeResolver private constructor(
   override fun containsPackage(packageName: String) = packageName in packageToResolvers
 
   override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+    if (classRoutingTable != null) {
+      val resolverIndex = classRoutingTable.value[className]
+      if (resolverIndex < 0) {
+        return ResolutionResult.NotFound
+      }
+      val resolutionResult = resolvers[resolverIndex].resolveClass(className)
+      if (resolutionResult !is ResolutionResult.NotFound) {
+        return resolutionResult
+      }
+      //The resolver doesn't list all its classes. Fall back to the search by package.
+    }
     val packageName = getPackageName(className)
     val resolvers = packageToResolvers[packageName]
     if (resolvers == null || resolvers.isEmpty()) {
@@ -81,6 +128,37 @@ class CompositeResolver private constructor(
     return ResolutionResult.NotFound
   }
 
+  /**
+   * Returns `true` if the resolver at [resolverIndex] is the first one containing the class [className].
+   */
+  private fun isFirstResolverOfClass(className: String, resolverIndex: Int): Boolean {
+    if (classRoutingTable != null) {
+      return classRoutingTable.value[className] == resolverIndex
+    }
+    val resolvers = packageToResolvers[getPackageName(className)] ?: return false
+    return resolvers.firstOrNull { it.containsClass(className) } === this.resolvers[resolverIndex]
+  }
+
+  /**
+   * Union of classes of all [resolvers] that doesn't copy them.
+   */
+  private inner class AllClasses : AbstractSet<String>() {
+    override val size: Int by lazy {
+      var count = 0
+      for (className in this) {
+        count++
+      }
+      count
+    }
+
+    override fun contains(element: String) = containsClass(element)
+
+    override fun iterator(): Iterator<String> =
+      resolvers.asSequence().withIndex().flatMap { (resolverIndex, resolver) ->
+        resolver.allClasses.asSequence().filter { isFirstResolverOfClass(it, resolverIndex) }
+      }.iterator()
+  }
+
   override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> {
     val resolvers = baseBundleNameToResolvers[baseName]
     if (resolvers == null || resolvers.isEmpty()) {
@@ -107,7 +185,10 @@ class CompositeResolver private constructor(
     fun create(vararg resolvers: Resolver): Resolver = create(resolvers.asIterable())
 
     @JvmStatic
-    fun create(resolvers: Iterable<Resolver>): Resolver {
+    fun create(resolvers: Iterable<Resolver>): Resolver = create(resolvers, ClassRouting.BY_PACKAGE)
+
+    @JvmStatic
+    fun create(resolvers: Iterable<Resolver>, classRouting: ClassRouting): Resolver {
       val list = resolvers.toList()
       if (list.isEmpty()) {
         return EmptyResolver
@@ -120,7 +201,7 @@ class CompositeResolver private constructor(
       } else {
         ReadMode.SIGNATURES
       }
-      return CompositeResolver(list, readMode)
+      return CompositeResolver(list, readMode, classRouting)
     }
   }
 }
@@ -19,7 +19,12 @@ class DirectoryResolver(
   override val readMode: ReadMode = ReadMode.FULL
 ) : Resolver() {
 
-  private val classNameToFile = hashMapOf<String, Path>()
+  private val classes: CompactStringSet
+
+  /**
+   * Class files by ids of their classes in [classes].
+   */
+  private val classFiles: Array<Path>
 
   private val bundlePathToFile = hashMapOf<String, Path>()
 
@@ -28,6 +33,7 @@ class DirectoryResolver(
   private val packageSet = PackageSet()
 
   init {
+    val classNameToFile = hashMapOf<String, Path>()
     Files.walk(root).use { fileStream ->
       fileStream.forEach { file ->
         if (file.extension == "class") {
@@ -46,6 +52,8 @@ class DirectoryResolver(
         }
       }
     }
+    classes = CompactStringSet.of(classNameToFile.keys)
+    classFiles = classes.map { classNameToFile.getValue(it) }.toTypedArray()
   }
 
   private fun getClassRoot(classFile: Path, className: String): Path? {
@@ -58,8 +66,11 @@ class DirectoryResolver(
   }
 
   override fun resolveClass(className: String): ResolutionResult<ClassNode> {
-    val classFile = classNameToFile[className] ?: return ResolutionResult.NotFound
-    return readClass(className, classFile)
+    val classId = classes.idOf(className)
+    if (classId < 0) {
+      return ResolutionResult.NotFound
+    }
+    return readClass(className, classFiles[classId])
   }
 
   private fun readClass(className: String, classFile: Path): ResolutionResult<ClassNode> =
@@ -98,17 +109,17 @@ class DirectoryResolver(
     get() = ResourceBundleNameSet(bundleNames)
 
   override val allClasses
-    get() = classNameToFile.keys
+    get() = classes
 
-  override fun containsClass(className: String) = className in classNameToFile
+  override fun containsClass(className: String) = className in classes
 
   override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
 
   override fun close() = Unit
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
-    for ((className, classFile) in classNameToFile) {
-      val result = readClass(className, classFile)
+    for ((classId, className) in classes.withIndex()) {
+      val result = readClass(className, classFiles[classId])
       if (!processor(result)) {
         return false
       }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Names of classes, resource bundles and service providers contained in a jar file.
+ *
+ * This is everything [JarFileResolver] needs to know about a jar before any class is resolved,
+ * so it may be stored in [PersistentJarIndexCache] and reused without enumerating the jar entries.
+ */
+internal class JarFileIndex(
+  val classes: Set<String>,
+  val bundleNames: Map<String, Set<String>>,
+  val serviceProviders: Map<String, Set<String>>
+) {
+
+  fun writeTo(output: DataOutputStream) {
+    output.writeStrings(classes)
+    output.writeInt(bundleNames.size)
+    for ((baseName, fullNames) in bundleNames) {
+      output.writeUTF(baseName)
+      output.writeStrings(fullNames)
+    }
+    output.writeInt(serviceProviders.size)
+    for ((serviceProvider, implementations) in serviceProviders) {
+      output.writeUTF(serviceProvider)
+      output.writeStrings(implementations)
+    }
+  }
+
+  companion object {
+    @Throws(IOException::class)
+    fun readFrom(input: DataInputStream): JarFileIndex {
+      val classes = CompactStringSet.of(List(input.readInt()) { input.readUTF() })
+      val bundleNames = hashMapOf<String, Set<String>>()
+      repeat(input.readInt()) {
+        bundleNames[input.readUTF()] = input.readStrings()
+      }
+      val serviceProviders = hashMapOf<String, Set<String>>()
+      repeat(input.readInt()) {
+        serviceProviders[input.readUTF()] = input.readStrings()
+      }
+      return JarFileIndex(classes, bundleNames, serviceProviders)
+    }
+
+    private fun DataOutputStream.writeStrings(strings: Set<String>) {
+      writeInt(strings.size)
+      for (string in strings) {
+        writeUTF(string)
+      }
+    }
+
+    private fun DataInputStream.readStrings(): Set<String> {
+      val size = readInt()
+      val strings = HashSet<String>(size * 4 / 3 + 1)
+      repeat(size) {
+        strings += readUTF()
+      }
+      return strings
+    }
+  }
+}
@@ -4,23 +4,44 @@
 
 package com.jetbrains.plugin.structure.classes.resolvers
 
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import com.jetbrains.plugin.structure.base.utils.*
 import com.jetbrains.plugin.structure.classes.utils.AsmUtil
 import com.jetbrains.plugin.structure.classes.utils.getBundleBaseName
 import com.jetbrains.plugin.structure.classes.utils.getBundleNameByBundlePath
 import org.objectweb.asm.tree.ClassNode
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
 import java.nio.file.*
 import java.nio.file.attribute.BasicFileAttributes
 import java.util.*
 import java.util.concurrent.atomic.AtomicBoolean
-
+import java.util.zip.ZipException
+
+/**
+ * [Resolver] of classes and resource bundles contained in a jar or zip file.
+ *
+ * By default, entries are read through the zip file system shared in the [JarFileSystemsPool].
+ * If [useCentralDirectoryReader] is set, the zip central directory is parsed once
+ * into a table of entries, and entries are read directly from the file channel
+ * without zip file system bookkeeping and pool synchronization on each lookup.
+ * If the central directory can't be parsed, the zip file system is used.
+ * The default mode is configured via [Settings.JAR_CENTRAL_DIRECTORY_READER].
+ *
+ * If [indexCache] is specified, names of classes, bundles and service providers of the jar
+ * are read from the cache instead of enumerating jar entries, see [PersistentJarIndexCache].
+ */
 class JarFileResolver(
   private val jarPath: Path,
   override val readMode: ReadMode,
-  private val fileOrigin: FileOrigin
+  private val fileOrigin: FileOrigin,
+  indexCache: PersistentJarIndexCache? = null,
+  useCentralDirectoryReader: Boolean = Settings.JAR_CENTRAL_DIRECTORY_READER.getAsBoolean()
 ) : Resolver() {
 
   private companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(JarFileResolver::class.java)
+
     private const val CLASS_SUFFIX = ".class"
 
     private const val PROPERTIES_SUFFIX = ".properties"
@@ -28,24 +49,77 @@ class JarFileResolver(
     private const val SERVICE_PROVIDERS_PREFIX = "META-INF/services/"
   }
 
-  private val classes: MutableSet<String> = hashSetOf()
+  private val classes: CompactStringSet
 
   private val packageSet = PackageSet()
 
-  private val bundleNames = hashMapOf<String, MutableSet<String>>()
+  private val bundleNames: Map<String, Set<String>>
 
-  private val serviceProviders: MutableMap<String, Set<String>> = hashMapOf()
+  private val serviceProviders: Map<String, Set<String>>
 
   private val isClosed = AtomicBoolean()
 
+  private val centralDirectoryReader: ZipCentralDirectoryReader?
+
   init {
     JarFileSystemsPool.checkIsJar(jarPath)
-    JarFileSystemsPool.perform(jarPath) { jarFs ->
-      readClassNamesAndServiceProviders(jarFs)
+    centralDirectoryReader = if (useCentralDirectoryReader) openCentralDirectoryReader() else null
+    val index = centralDirectoryReader.closeOnException {
+      indexCache?.getOrCompute(jarPath) { readIndex() } ?: readIndex()
+    }
+    classes = CompactStringSet.of(index.classes)
+    bundleNames = index.bundleNames
+    serviceProviders = index.serviceProviders
+    for (className in classes) {
+      packageSet.addPackagesOfClass(className)
+    }
+  }
+
+  private fun openCentralDirectoryReader(): ZipCentralDirectoryReader? =
+    try {
+      ZipCentralDirectoryReader(jarPath)
+    } catch (e: ZipException) {
+      LOG.debug("Failed to read the central directory of $jarPath, the zip file system is used instead", e)
+      null
+    }
+
+  private fun readIndex(): JarFileIndex {
+    val reader = centralDirectoryReader
+    if (reader != null) {
+      return buildIndex(reader.entryNames) { entryName ->
+        val content = reader.readEntry(entryName)
+        if (content != null) parseServiceImplementationNames(String(content, Charsets.UTF_8).lines()) else emptySet()
+      }
+    }
+    return JarFileSystemsPool.perform(jarPath) { jarFs ->
+      buildIndex(readEntryNames(jarFs)) { entryName -> readServiceImplementationNames(entryName, jarFs) }
+    }
+  }
+
+  private fun buildIndex(entryNames: Iterable<String>, readServiceImplementationNames: (String) -> Set<String>): JarFileIndex {
+    val classes = arrayListOf<String>()
+    val bundleNames = hashMapOf<String, MutableSet<String>>()
+    val serviceProviders = hashMapOf<String, Set<String>>()
+    for (entryName in entryNames) {
+      when {
+        entryName.endsWith(CLASS_SUFFIX) -> {
+          classes.add(entryName.substringBeforeLast(CLASS_SUFFIX))
+        }
+        entryName.endsWith(PROPERTIES_SUFFIX) -> {
+          val fullBundleName = getBundleNameByBundlePath(entryName)
+          bundleNames.getOrPut(getBundleBaseName(fullBundleName)) { hashSetOf() } += fullBundleName
+        }
+        entryName.startsWith(SERVICE_PROVIDERS_PREFIX) && entryName.count { it == '/' } == 2 -> {
+          val serviceProvider = entryName.substringAfter(SERVICE_PROVIDERS_PREFIX)
+          serviceProviders[serviceProvider] = readServiceImplementationNames(entryName)
+        }
+      }
     }
+    return JarFileIndex(CompactStringSet.of(classes), bundleNames, serviceProviders)
   }
 
-  private fun readClassNamesAndServiceProviders(jarFs: FileSystem) {
+  private fun readEntryNames(jarFs: FileSystem): List<String> {
+    val entryNames = arrayListOf<String>()
     val jarRoot = jarFs.rootDirectories.single()
     val visitedDirs = hashSetOf<Path>()
     Files.walkFileTree(jarRoot, object : SimpleFileVisitor<Path>() {
@@ -57,39 +131,27 @@ class JarFileResolver(
       }
 
       override fun visitFile(file: Path, attrs: BasicFileAttributes?): FileVisitResult {
-        val entryName = getPathInJar(file)
-        when {
-          entryName.endsWith(CLASS_SUFFIX) -> {
-            val className = entryName.substringBeforeLast(CLASS_SUFFIX)
-            classes.add(className)
-            packageSet.addPackagesOfClass(className)
-          }
-          entryName.endsWith(PROPERTIES_SUFFIX) -> {
-            val fullBundleName = getBundleNameByBundlePath(entryName)
-            bundleNames.getOrPut(getBundleBaseName(fullBundleName)) { hashSetOf() } += fullBundleName
-          }
-          entryName.startsWith(SERVICE_PROVIDERS_PREFIX) && entryName.count { it == '/' } == 2 -> {
-            val serviceProvider = entryName.substringAfter(SERVICE_PROVIDERS_PREFIX)
-            serviceProviders[serviceProvider] = readServiceImplementationNames(serviceProvider, jarFs)
-          }
-        }
+        entryNames += getPathInJar(file)
         return FileVisitResult.CONTINUE
       }
     })
+    return entryNames
   }
 
   private fun getPathInJar(entry: Path): String =
     entry.toString().trimStart('/').toSystemIndependentName()
 
-  private fun readServiceImplementationNames(serviceProvider: String, jarFs: FileSystem): Set<String> {
-    val entry = SERVICE_PROVIDERS_PREFIX + serviceProvider
-    val entryPath = jarFs.getPath(entry)
+  private fun readServiceImplementationNames(entryName: String, jarFs: FileSystem): Set<String> {
+    val entryPath = jarFs.getPath(entryName)
     if (!entryPath.exists()) {
       return emptySet()
     }
-    return entryPath.readLines().map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
+    return parseServiceImplementationNames(entryPath.readLines())
   }
 
+  private fun parseServiceImplementationNames(lines: List<String>): Set<String> =
+    lines.map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
+
   val implementedServiceProviders: Map<String, Set<String>>
     get() = serviceProviders
 
@@ -104,6 +166,18 @@ class JarFileResolver(
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
     checkIsOpen()
+    val reader = centralDirectoryReader
+    if (reader != null) {
+      for (entryName in reader.entryNames) {
+        if (entryName.endsWith(CLASS_SUFFIX)) {
+          val className = entryName.removeSuffix(CLASS_SUFFIX)
+          if (!processor(readClass(className) { reader.readEntry(entryName) })) {
+            return false
+          }
+        }
+      }
+      return true
+    }
     return JarFileSystemsPool.perform(jarPath) { jarFs ->
       Files.walk(jarFs.rootDirectories.single()).use { stream ->
         for (jarEntry in stream.filter { it.simpleName.endsWith(CLASS_SUFFIX) }) {
@@ -127,6 +201,10 @@ class JarFileResolver(
     if (className !in classes) {
       return ResolutionResult.NotFound
     }
+    val reader = centralDirectoryReader
+    if (reader != null) {
+      return readClass(className) { reader.readEntry(className + CLASS_SUFFIX) }
+    }
     return JarFileSystemsPool.perform(jarPath) { jarFs ->
       val classPath = jarFs.getPath(className + CLASS_SUFFIX)
       if (classPath.exists()) {
@@ -164,6 +242,11 @@ class JarFileResolver(
 
   private fun readPropertyResourceBundle(bundleResourceName: String): PropertyResourceBundle? {
     checkIsOpen()
+    val reader = centralDirectoryReader
+    if (reader != null) {
+      val content = reader.readEntry(bundleResourceName) ?: return null
+      return content.inputStream().use { PropertyResourceBundle(it) }
+    }
     return JarFileSystemsPool.perform(jarPath) { jarFs ->
       val path = jarFs.getPath(bundleResourceName)
       if (path.exists()) {
@@ -188,12 +271,26 @@ class JarFileResolver(
     }
   }
 
+  private fun readClass(className: String, readClassBytes: () -> ByteArray?): ResolutionResult<ClassNode> {
+    return try {
+      val classBytes = readClassBytes() ?: return ResolutionResult.NotFound
+      val classNode = AsmUtil.readClassNode(className, classBytes, readMode == ReadMode.FULL)
+      ResolutionResult.Found(classNode, fileOrigin)
+    } catch (e: InvalidClassFileException) {
+      ResolutionResult.Invalid(e.message)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      ResolutionResult.FailedToRead(e.message ?: e.javaClass.name)
+    }
+  }
+
   private fun checkIsOpen() {
     check(!isClosed.get()) { "Jar file system must be open for $this" }
   }
 
   override fun close() {
     if (isClosed.compareAndSet(false, true)) {
+      centralDirectoryReader?.closeLogged()
       JarFileSystemsPool.close(jarPath)
     }
   }
@@ -206,13 +303,20 @@ fun buildJarOrZipFileResolvers(
   jarsOrZips: Iterable<Path>,
   readMode: Resolver.ReadMode,
   parentOrigin: FileOrigin
-): List<Resolver> {
-  val resolvers = arrayListOf<Resolver>()
-  resolvers.closeOnException {
-    jarsOrZips.mapTo(resolvers) { file ->
-      val fileOrigin = JarOrZipFileOrigin(file.simpleName, parentOrigin)
-      JarFileResolver(file, readMode, fileOrigin)
-    }
-  }
-  return resolvers
+): List<Resolver> = buildJarOrZipFileResolvers(jarsOrZips, readMode, parentOrigin, parallelism = 1)
+
+/**
+ * Creates [JarFileResolver]s of the [jarsOrZips] on at most [parallelism] threads.
+ * The resolvers are returned in the order of the [jarsOrZips].
+ * Indexes of the jars are stored in and read from the [indexCache], if specified.
+ */
+fun buildJarOrZipFileResolvers(
+  jarsOrZips: Iterable<Path>,
+  readMode: Resolver.ReadMode,
+  parentOrigin: FileOrigin,
+  parallelism: Int,
+  indexCache: PersistentJarIndexCache? = null
+): List<Resolver> = buildResolversInParallel(jarsOrZips.toList(), parallelism) { file ->
+  val fileOrigin = JarOrZipFileOrigin(file.simpleName, parentOrigin)
+  JarFileResolver(file, readMode, fileOrigin, indexCache)
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.jetbrains.plugin.structure.classes.resolvers
 
+import com.jetbrains.plugin.structure.base.utils.ReferenceCountingPool
 import com.jetbrains.plugin.structure.base.utils.closeLogged
 import com.jetbrains.plugin.structure.base.utils.exists
 import com.jetbrains.plugin.structure.base.utils.simpleName
@@ -7,22 +8,22 @@ import com.jetbrains.plugin.structure.classes.resolvers.JarFileSystemsPool.MAX_O
 import java.nio.file.FileSystem
 import java.nio.file.FileSystems
 import java.nio.file.Path
-import java.time.Clock
-import java.time.Instant
 
 /**
  * Application-level object managing open jar file systems.
  *
- * No more than [MAX_OPEN_JAR_FILE_SYSTEMS] will be open in the running application simultaneously.
+ * No more than [MAX_OPEN_JAR_FILE_SYSTEMS] unused file systems will be open in the running application simultaneously.
+ * Access to different jars, as well as concurrent access to the same jar, does not contend on a global lock.
  */
 internal object JarFileSystemsPool {
   private const val MAX_OPEN_JAR_FILE_SYSTEMS = 256
 
   private const val UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE = 64
 
-  private val openJarFileSystems = hashMapOf<Path, FSHandler>()
-
-  private val clock = Clock.systemUTC()
+  private val openJarFileSystems = ReferenceCountingPool<Path, FileSystem>(
+    MAX_OPEN_JAR_FILE_SYSTEMS,
+    UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE
+  ) { _, jarFs -> jarFs.closeLogged() }
 
   fun checkIsJar(jarPath: Path) {
     require(jarPath.exists()) { "File does not exist: $jarPath" }
@@ -31,56 +32,18 @@ internal object JarFileSystemsPool {
 
   fun <T> perform(jarPath: Path, action: (FileSystem) -> T): T {
     checkIsJar(jarPath)
-    val fsHandler = getOrOpenFsHandler(jarPath)
-    check(fsHandler.jarFs.isOpen)
+    val jarFs = openJarFileSystems.acquire(jarPath) {
+      FileSystems.newFileSystem(it, JarFileSystemsPool::class.java.classLoader)
+    }
     try {
-      return action(fsHandler.jarFs)
+      check(jarFs.isOpen)
+      return action(jarFs)
     } finally {
-      release(fsHandler)
+      openJarFileSystems.release(jarPath)
     }
   }
 
-  @Synchronized
-  private fun getOrOpenFsHandler(jarPath: Path): FSHandler {
-    val fsHandler = openJarFileSystems.getOrPut(jarPath) {
-      val jarFs = FileSystems.newFileSystem(jarPath, JarFileSystemsPool::class.java.classLoader)
-      FSHandler(jarFs, clock.instant(), 0)
-    }
-
-    fsHandler.users++
-    fsHandler.lastAccessTime = clock.instant()
-
-    if (openJarFileSystems.size > MAX_OPEN_JAR_FILE_SYSTEMS) {
-      val toCloseEntries = openJarFileSystems.entries
-        .filter { it.value.users == 0 }
-        .sortedBy { it.value.lastAccessTime }
-        .take(UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE)
-      toCloseEntries.forEach { (path, fsHandler) ->
-        fsHandler.jarFs.closeLogged()
-        openJarFileSystems.remove(path)
-      }
-    }
-
-    return fsHandler
-  }
-
-  @Synchronized
   fun close(jarPath: Path) {
-    val fsHandler = openJarFileSystems[jarPath] ?: return
-    if (fsHandler.users == 0) {
-      fsHandler.jarFs.closeLogged()
-      openJarFileSystems.remove(jarPath)
-    }
+    openJarFileSystems.closeIfUnused(jarPath)
   }
-
-  @Synchronized
-  private fun release(fsHandler: FSHandler) {
-    fsHandler.users--
-  }
-
-  private data class FSHandler(
-    val jarFs: FileSystem,
-    var lastAccessTime: Instant,
-    var users: Int
-  )
-}
\ No newline at end of file
+}
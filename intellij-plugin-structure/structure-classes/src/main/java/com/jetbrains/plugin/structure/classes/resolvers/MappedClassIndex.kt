@@ -0,0 +1,406 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
+import com.jetbrains.plugin.structure.classes.utils.getBundleBaseName
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.tree.ClassNode
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Single binary file with classes and resource bundles of several resolvers, the [parts] of the index,
+ * which is memory-mapped instead of opening jars and directories of the resolvers.
+ *
+ * The file consists of a header, a data region with bytecode of classes and contents of resource bundles,
+ * and a table of names, origins and locations of the classes and bundles in the data region.
+ * Opening the index maps the file and reads the table, and classes are parsed from the mapped data region on lookups.
+ * So, several processes that open the same index share its pages in the OS page cache.
+ *
+ * Origins of classes are stored as strings produced by an `encodeOrigin` function on [write],
+ * and converted back to [FileOrigin]s by a `decodeOrigin` function on [open],
+ * because origins may refer to objects that exist only at runtime, such as an IDE.
+ *
+ * The index also holds [metadata] that identifies what the index was built from.
+ */
+class MappedClassIndex private constructor(
+  val metadata: Map<String, String>,
+  val parts: List<Resolver>
+) {
+
+  companion object {
+    private const val MAGIC = 0x4D434958
+
+    private const val FORMAT_VERSION = 1
+
+    private const val HEADER_SIZE = 24L
+
+    /**
+     * Maximum size of a single mapping of the data region.
+     */
+    private const val SEGMENT_SIZE = 1L shl 30
+
+    private const val FOUND: Byte = 0
+
+    private const val INVALID: Byte = 1
+
+    private const val FAILED_TO_READ: Byte = 2
+
+    /**
+     * Writes classes and resource bundles of the [parts] and the [metadata] to the [indexFile].
+     *
+     * Classes shadowed by other classes with the same names in a part are not written,
+     * so each part resolves classes the same way as the resolver it has been written from.
+     * The file is written to a temporary file first and then moved to the [indexFile].
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun write(indexFile: Path, parts: List<Resolver>, metadata: Map<String, String>, encodeOrigin: (FileOrigin) -> String) {
+      Files.createDirectories(indexFile.toAbsolutePath().parent)
+      val tempFile = Files.createTempFile(indexFile.toAbsolutePath().parent, indexFile.fileName.toString(), ".tmp")
+      try {
+        FileChannel.open(tempFile, StandardOpenOption.WRITE).use { channel ->
+          val writer = DataRegionWriter(channel)
+          val partTables = parts.map { writer.writePart(it, encodeOrigin) }
+
+          val table = ByteArrayOutputStream()
+          DataOutputStream(table).use { output ->
+            output.writeInt(writer.origins.size)
+            writer.origins.forEach { output.writeUTF(it) }
+            output.writeInt(metadata.size)
+            for ((key, value) in metadata) {
+              output.writeUTF(key)
+              output.writeUTF(value)
+            }
+            output.writeInt(partTables.size)
+            partTables.forEach { it.writeTo(output) }
+          }
+          val tableOffset = writer.position
+          writer.write(ByteBuffer.wrap(table.toByteArray()))
+
+          val header = ByteBuffer.allocate(HEADER_SIZE.toInt())
+          header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(tableOffset).putLong(table.size().toLong())
+          header.flip()
+          channel.write(header, 0)
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } catch (e: Throwable) {
+        Files.deleteIfExists(tempFile)
+        throw e
+      }
+    }
+
+    /**
+     * Maps the [indexFile] and returns the index, whose [parts] resolve origins of classes by [decodeOrigin].
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun open(indexFile: Path, decodeOrigin: (String) -> FileOrigin): MappedClassIndex {
+      FileChannel.open(indexFile, StandardOpenOption.READ).use { channel ->
+        val header = ByteBuffer.allocate(HEADER_SIZE.toInt())
+        while (header.hasRemaining()) {
+          if (channel.read(header, header.position().toLong()) < 0) {
+            throw IOException("Unexpected end of the class index $indexFile")
+          }
+        }
+        header.flip()
+        if (header.int != MAGIC || header.int != FORMAT_VERSION) {
+          throw IOException("Unsupported format of the class index $indexFile")
+        }
+        val tableOffset = header.long
+        val tableLength = header.long
+        if (tableOffset < HEADER_SIZE || tableOffset + tableLength != channel.size()) {
+          throw IOException("Corrupted class index $indexFile")
+        }
+
+        val dataRegion = MappedDataRegion(channel, tableOffset)
+        val tableInput = Channels.newInputStream(channel.position(tableOffset)).buffered()
+        DataInputStream(tableInput).use { input ->
+          val origins = List(input.readInt()) { decodeOrigin(input.readUTF()) }
+          val metadata = linkedMapOf<String, String>()
+          repeat(input.readInt()) { metadata[input.readUTF()] = input.readUTF() }
+          val parts = List(input.readInt()) { PartTable.readFrom(input).createResolver(dataRegion, origins, indexFile) }
+          return MappedClassIndex(metadata, parts)
+        }
+      }
+    }
+  }
+
+  private class DataRegionWriter(private val channel: FileChannel) {
+    var position = HEADER_SIZE
+      private set
+
+    val origins = arrayListOf<String>()
+
+    private val originIds = hashMapOf<String, Int>()
+
+    fun write(buffer: ByteBuffer): Long {
+      val offset = position
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position)
+      }
+      return offset
+    }
+
+    fun writePart(resolver: Resolver, encodeOrigin: (FileOrigin) -> String): PartTable {
+      val classes = arrayListOf<Entry>()
+      for (className in resolver.allClasses) {
+        classes += writeEntry(className, resolver.resolveClass(className), encodeOrigin) { classNode ->
+          ClassWriter(0).also { classNode.accept(it) }.toByteArray()
+        } ?: continue
+      }
+
+      val bundles = arrayListOf<Entry>()
+      val control = ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_PROPERTIES)
+      val bundleNameSet = resolver.allBundleNameSet
+      for (baseName in bundleNameSet.baseBundleNames) {
+        for (bundleName in bundleNameSet[baseName]) {
+          val locale = getBundleLocale(baseName, bundleName) ?: continue
+          if (control.toBundleName(baseName, locale) != bundleName) {
+            continue
+          }
+          bundles += writeEntry(bundleName, resolver.resolveExactPropertyResourceBundle(baseName, locale), encodeOrigin) { bundle ->
+            val properties = Properties()
+            for (key in bundle.keySet()) {
+              properties.setProperty(key, bundle.getString(key))
+            }
+            val content = ByteArrayOutputStream()
+            OutputStreamWriter(content, Charsets.UTF_8).use { properties.store(it, null) }
+            content.toByteArray()
+          } ?: continue
+        }
+      }
+      return PartTable(resolver.readMode, classes, bundles)
+    }
+
+    private fun <T> writeEntry(
+      name: String,
+      resolutionResult: ResolutionResult<T>,
+      encodeOrigin: (FileOrigin) -> String,
+      toBytes: (T) -> ByteArray
+    ): Entry? {
+      val (status, originId, content) = when (resolutionResult) {
+        is ResolutionResult.Found -> Triple(FOUND, getOriginId(encodeOrigin(resolutionResult.fileOrigin)), toBytes(resolutionResult.value))
+        is ResolutionResult.Invalid -> Triple(INVALID, -1, resolutionResult.message.toByteArray())
+        is ResolutionResult.FailedToRead -> Triple(FAILED_TO_READ, -1, resolutionResult.reason.toByteArray())
+        ResolutionResult.NotFound -> return null
+      }
+      val offset = write(ByteBuffer.wrap(content))
+      return Entry(name, status, originId, offset, content.size)
+    }
+
+    private fun getOriginId(origin: String): Int = originIds.getOrPut(origin) {
+      origins += origin
+      origins.size - 1
+    }
+
+    private fun getBundleLocale(baseName: String, bundleName: String): Locale? {
+      if (bundleName == baseName) {
+        return Locale.ROOT
+      }
+      if (!bundleName.startsWith(baseName + "_") || getBundleBaseName(bundleName) != baseName) {
+        return null
+      }
+      val parts = bundleName.substring(baseName.length + 1).split('_', limit = 3)
+      return Locale(parts[0], parts.getOrElse(1) { "" }, parts.getOrElse(2) { "" })
+    }
+  }
+
+  /**
+   * Class or resource bundle stored in the data region:
+   * its bytes if it has been resolved, or the failure message otherwise.
+   */
+  private class Entry(val name: String, val status: Byte, val originId: Int, val offset: Long, val length: Int)
+
+  private class PartTable(val readMode: Resolver.ReadMode, val classes: List<Entry>, val bundles: List<Entry>) {
+
+    fun writeTo(output: DataOutputStream) {
+      output.writeByte(readMode.ordinal)
+      writeEntries(output, classes)
+      writeEntries(output, bundles)
+    }
+
+    private fun writeEntries(output: DataOutputStream, entries: List<Entry>) {
+      output.writeInt(entries.size)
+      for (entry in entries) {
+        output.writeUTF(entry.name)
+        output.writeByte(entry.status.toInt())
+        output.writeInt(entry.originId)
+        output.writeLong(entry.offset)
+        output.writeInt(entry.length)
+      }
+    }
+
+    fun createResolver(dataRegion: MappedDataRegion, origins: List<FileOrigin>, indexFile: Path) =
+      MappedClassIndexResolver(readMode, EntryTable.of(classes), EntryTable.of(bundles), dataRegion, origins, indexFile)
+
+    companion object {
+      fun readFrom(input: DataInputStream): PartTable {
+        val readMode = Resolver.ReadMode.values()[input.readUnsignedByte()]
+        return PartTable(readMode, readEntries(input), readEntries(input))
+      }
+
+      private fun readEntries(input: DataInputStream): List<Entry> =
+        List(input.readInt()) {
+          Entry(input.readUTF(), input.readByte(), input.readInt(), input.readLong(), input.readInt())
+        }
+    }
+  }
+
+  /**
+   * Entries of a part stored in arrays by ids of their names in [names].
+   */
+  private class EntryTable(
+    val names: CompactStringSet,
+    val statuses: ByteArray,
+    val originIds: IntArray,
+    val offsets: LongArray,
+    val lengths: IntArray
+  ) {
+    companion object {
+      fun of(entries: List<Entry>): EntryTable {
+        val names = CompactStringSet.of(entries.map { it.name })
+        val statuses = ByteArray(names.size)
+        val originIds = IntArray(names.size)
+        val offsets = LongArray(names.size)
+        val lengths = IntArray(names.size)
+        for (entry in entries) {
+          val id = names.idOf(entry.name)
+          statuses[id] = entry.status
+          originIds[id] = entry.originId
+          offsets[id] = entry.offset
+          lengths[id] = entry.length
+        }
+        return EntryTable(names, statuses, originIds, offsets, lengths)
+      }
+    }
+  }
+
+  /**
+   * Data region of the index mapped in segments of at most [SEGMENT_SIZE] bytes.
+   */
+  private class MappedDataRegion(channel: FileChannel, size: Long) {
+    private val segments: List<MappedByteBuffer> = (0L until size step SEGMENT_SIZE).map { segmentOffset ->
+      channel.map(FileChannel.MapMode.READ_ONLY, segmentOffset, minOf(SEGMENT_SIZE, size - segmentOffset))
+    }
+
+    fun read(offset: Long, length: Int): ByteArray {
+      val bytes = ByteArray(length)
+      var copied = 0
+      while (copied < length) {
+        val position = offset + copied
+        //Duplicates have their own positions, so reads from several threads don't interfere.
+        val segment = segments[(position / SEGMENT_SIZE).toInt()].duplicate()
+        segment.position((position % SEGMENT_SIZE).toInt())
+        val count = minOf(length - copied, segment.remaining())
+        segment.get(bytes, copied, count)
+        copied += count
+      }
+      return bytes
+    }
+  }
+
+  private class MappedClassIndexResolver(
+    override val readMode: ReadMode,
+    private val classes: EntryTable,
+    private val bundles: EntryTable,
+    private val dataRegion: MappedDataRegion,
+    private val origins: List<FileOrigin>,
+    private val indexFile: Path
+  ) : Resolver() {
+
+    private val packageSet = PackageSet()
+
+    private val bundleNames = hashMapOf<String, MutableSet<String>>()
+
+    private val isClosed = AtomicBoolean()
+
+    init {
+      for (className in classes.names) {
+        packageSet.addPackagesOfClass(className)
+      }
+      for (bundleName in bundles.names) {
+        bundleNames.getOrPut(getBundleBaseName(bundleName)) { hashSetOf() } += bundleName
+      }
+    }
+
+    override val allClasses: Set<String>
+      get() = classes.names
+
+    override val allPackages: Set<String>
+      get() = packageSet.getAllPackages()
+
+    override val allBundleNameSet: ResourceBundleNameSet
+      get() = ResourceBundleNameSet(bundleNames)
+
+    override fun containsClass(className: String) = className in classes.names
+
+    override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+
+    override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+      val id = classes.names.idOf(className)
+      if (id < 0) {
+        return ResolutionResult.NotFound
+      }
+      return readEntry(classes, id) { AsmUtil.readClassNode(className, it, readMode == ReadMode.FULL) }
+    }
+
+    override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> {
+      if (baseName !in bundleNames) {
+        return ResolutionResult.NotFound
+      }
+      val control = ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_PROPERTIES)
+      val id = bundles.names.idOf(control.toBundleName(baseName, locale))
+      if (id < 0) {
+        return ResolutionResult.NotFound
+      }
+      return readEntry(bundles, id) { content -> content.inputStream().reader(Charsets.UTF_8).use { PropertyResourceBundle(it) } }
+    }
+
+    private fun <T> readEntry(table: EntryTable, id: Int, parse: (ByteArray) -> T): ResolutionResult<T> {
+      check(!isClosed.get()) { "Class index must be open for $this" }
+      return try {
+        val content = dataRegion.read(table.offsets[id], table.lengths[id])
+        when (table.statuses[id]) {
+          FOUND -> ResolutionResult.Found(parse(content), origins[table.originIds[id]])
+          INVALID -> ResolutionResult.Invalid(String(content))
+          else -> ResolutionResult.FailedToRead(String(content))
+        }
+      } catch (e: InvalidClassFileException) {
+        ResolutionResult.Invalid(e.message)
+      } catch (e: Exception) {
+        e.rethrowIfInterrupted()
+        ResolutionResult.FailedToRead(e.message ?: e.javaClass.name)
+      }
+    }
+
+    override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean =
+      classes.names.all { processor(resolveClass(it)) }
+
+    /**
+     * The mapping is released when the index becomes unreachable, so closing only prevents further lookups.
+     */
+    override fun close() {
+      isClosed.set(true)
+    }
+
+    override fun toString() = "Class index $indexFile"
+  }
+}
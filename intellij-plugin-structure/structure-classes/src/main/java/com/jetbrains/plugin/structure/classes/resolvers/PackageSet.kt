@@ -18,19 +18,22 @@ class PackageSet {
    * Adds all packages and super-packages of the specified class.
    *
    * If the class has default package, list `[""]` is added.
+   * Package names are [interned][String.intern], because the same packages are contained in many resolvers.
    */
   fun addPackagesOfClass(className: String) {
-    val superPackage = StringBuilder()
-    var defaultPackage = true
-    for (c in className) {
-      if (c == '/') {
-        defaultPackage = false
-        packages.add(superPackage.toString())
-      }
-      superPackage.append(c)
-    }
-    if (defaultPackage) {
+    var separatorIndex = className.lastIndexOf('/')
+    if (separatorIndex < 0) {
       packages.add("")
+      return
+    }
+    //Packages are added from the innermost one, so if a package is already present, so are its super-packages.
+    while (separatorIndex >= 0) {
+      val packageName = className.substring(0, separatorIndex)
+      if (packageName in packages) {
+        return
+      }
+      packages.add(packageName.intern())
+      separatorIndex = className.lastIndexOf('/', separatorIndex - 1)
     }
   }
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Default number of threads that create resolvers of a single IDE or plugin,
+ * configured via [Settings.RESOLVER_CREATION_PARALLELISM].
+ */
+fun getResolverCreationParallelism(): Int =
+  Settings.RESOLVER_CREATION_PARALLELISM.getAsInt()
+
+/**
+ * Creates resolvers of the [sources] by the [createResolver] on at most [parallelism] threads,
+ * in a [ForkJoinPool] created for the call and shut down before it returns.
+ *
+ * The resolvers are returned in the order of the [sources], so that the precedence of a [CompositeResolver]
+ * made of them doesn't depend on the parallelism.
+ * If any resolver fails to be created, or the current thread is interrupted,
+ * resolvers that have not started being created are skipped, the created ones are closed,
+ * and the exception is rethrown.
+ */
+@Throws(InterruptedException::class)
+fun <T> buildResolversInParallel(
+  sources: List<T>,
+  parallelism: Int,
+  createResolver: (T) -> Resolver
+): List<Resolver> {
+  if (parallelism <= 1 || sources.size <= 1) {
+    val resolvers = arrayListOf<Resolver>()
+    resolvers.closeOnException {
+      sources.mapTo(resolvers, createResolver)
+    }
+    return resolvers
+  }
+
+  val pool = ForkJoinPool(parallelism)
+  val isCancelled = AtomicBoolean()
+  val resolvers = arrayListOf<Resolver>()
+  var failure: Throwable? = null
+  try {
+    val futures = sources.map { source ->
+      pool.submit(Callable { if (isCancelled.get()) null else createResolver(source) })
+    }
+
+    //Wait for all tasks even after a failure, so that no created resolver is left unclosed.
+    for (future in futures) {
+      while (true) {
+        try {
+          future.get()?.let { resolvers += it }
+          break
+        } catch (e: InterruptedException) {
+          isCancelled.set(true)
+          failure = failure ?: e
+        } catch (e: ExecutionException) {
+          isCancelled.set(true)
+          failure = failure ?: e.cause ?: e
+          break
+        }
+      }
+    }
+  } finally {
+    pool.shutdown()
+  }
+  if (failure != null) {
+    resolvers.forEach { it.closeLogged() }
+    throw failure
+  }
+  return resolvers
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteQuietly
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.base.utils.simpleName
+import com.jetbrains.plugin.structure.classes.resolvers.ZipCentralDirectoryReader.Companion.readFully
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Stores [JarFileIndex]es of jar files in the [cacheDirectory], one compact binary file per jar.
+ *
+ * An index is reused only if the jar's absolute path, size, modification time and
+ * content hash are the same as when the index was written. The content hash is computed
+ * over the zip central directory, which contains names and CRC-32 checksums of all entries,
+ * so it is cheap to compute and still changes whenever any entry of the jar changes.
+ *
+ * The default instance is configured via [Settings.JAR_INDEX_CACHE_DIRECTORY].
+ * It is meant for jars with stable paths, such as jars of IDEs and JDKs. Indexes are keyed by jar paths,
+ * so jars extracted to a new directory on each run, such as jars of verified plugins, must not be indexed,
+ * otherwise their indexes pile up in the [cacheDirectory] and are never reused.
+ */
+class PersistentJarIndexCache(private val cacheDirectory: Path) {
+
+  internal fun getOrCompute(jarPath: Path, computeIndex: () -> JarFileIndex): JarFileIndex {
+    val key = try {
+      JarIndexKey.of(jarPath)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to compute index key of $jarPath", e)
+      return computeIndex()
+    }
+
+    val indexFile = getIndexFile(key)
+    val cachedIndex = readIndex(indexFile, key)
+    if (cachedIndex != null) {
+      return cachedIndex
+    }
+
+    val index = computeIndex()
+    writeIndex(indexFile, key, index)
+    return index
+  }
+
+  private fun getIndexFile(key: JarIndexKey): Path {
+    val pathHash = MessageDigest.getInstance("SHA-1").digest(key.path.toByteArray()).toHexString()
+    return cacheDirectory.resolve(Paths.get(key.path).simpleName + "-" + pathHash + INDEX_FILE_EXTENSION)
+  }
+
+  private fun readIndex(indexFile: Path, key: JarIndexKey): JarFileIndex? {
+    if (!Files.isRegularFile(indexFile)) {
+      return null
+    }
+    return try {
+      DataInputStream(Files.newInputStream(indexFile).buffered()).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+          return null
+        }
+        if (JarIndexKey.readFrom(input) != key) {
+          return null
+        }
+        JarFileIndex.readFrom(input)
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to read cached jar index $indexFile", e)
+      null
+    }
+  }
+
+  private fun writeIndex(indexFile: Path, key: JarIndexKey, index: JarFileIndex) {
+    var tempFile: Path? = null
+    try {
+      cacheDirectory.createDir()
+      tempFile = Files.createTempFile(cacheDirectory, indexFile.simpleName, ".tmp")
+      DataOutputStream(Files.newOutputStream(tempFile).buffered()).use { output ->
+        output.writeInt(MAGIC)
+        output.writeInt(FORMAT_VERSION)
+        key.writeTo(output)
+        index.writeTo(output)
+      }
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to save jar index to $indexFile", e)
+      tempFile?.deleteQuietly()
+    }
+  }
+
+  private data class JarIndexKey(
+    val path: String,
+    val size: Long,
+    val lastModified: Long,
+    val contentHash: String
+  ) {
+
+    fun writeTo(output: DataOutputStream) {
+      output.writeUTF(path)
+      output.writeLong(size)
+      output.writeLong(lastModified)
+      output.writeUTF(contentHash)
+    }
+
+    companion object {
+      fun readFrom(input: DataInputStream) =
+        JarIndexKey(input.readUTF(), input.readLong(), input.readLong(), input.readUTF())
+
+      @Throws(IOException::class)
+      fun of(jarPath: Path): JarIndexKey {
+        val absolutePath = jarPath.toAbsolutePath().normalize()
+        val size = Files.size(absolutePath)
+        val lastModified = Files.getLastModifiedTime(absolutePath).toMillis()
+        return JarIndexKey(absolutePath.toString(), size, lastModified, hashContent(absolutePath, size))
+      }
+
+      /**
+       * Hashes the central directory and the end-of-central-directory records of the zip file.
+       * If the central directory cannot be located, the whole file is hashed.
+       */
+      private fun hashContent(jarPath: Path, size: Long): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        FileChannel.open(jarPath, StandardOpenOption.READ).use { channel ->
+          val centralDirectoryOffset = ZipCentralDirectoryReader.locateCentralDirectory(channel)?.offset ?: 0L
+          val buffer = ByteBuffer.allocate(DIGEST_BUFFER_SIZE)
+          var offset = centralDirectoryOffset
+          while (offset < size) {
+            buffer.clear()
+            buffer.limit(minOf(DIGEST_BUFFER_SIZE.toLong(), size - offset).toInt())
+            channel.readFully(buffer, offset)
+            offset += buffer.remaining()
+            digest.update(buffer)
+          }
+        }
+        return digest.digest().toHexString()
+      }
+    }
+  }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(PersistentJarIndexCache::class.java)
+
+    private const val MAGIC = 0x4A494458
+
+    private const val FORMAT_VERSION = 1
+
+    private const val INDEX_FILE_EXTENSION = ".idx"
+
+    private const val DIGEST_BUFFER_SIZE = 64 * 1024
+
+    private val caches = ConcurrentHashMap<Path, PersistentJarIndexCache>()
+
+    /**
+     * Returns the cache located in [Settings.JAR_INDEX_CACHE_DIRECTORY]
+     * or `null` if the setting is not specified.
+     */
+    @JvmStatic
+    fun fromSettings(): PersistentJarIndexCache? {
+      val cacheDirectory = Settings.JAR_INDEX_CACHE_DIRECTORY.get()
+      if (cacheDirectory.isBlank()) {
+        return null
+      }
+      return caches.computeIfAbsent(Paths.get(cacheDirectory).toAbsolutePath()) { PersistentJarIndexCache(it) }
+    }
+
+    private fun ByteArray.toHexString() = joinToString(separator = "") { "%02x".format(it) }
+  }
+}
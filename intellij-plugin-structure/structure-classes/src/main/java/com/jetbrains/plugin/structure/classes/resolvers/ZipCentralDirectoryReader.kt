@@ -0,0 +1,293 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import java.io.Closeable
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.charset.Charset
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.zip.DataFormatException
+import java.util.zip.Inflater
+import java.util.zip.ZipException
+
+/**
+ * Reads entries of a zip file directly from a [FileChannel].
+ *
+ * The central directory is parsed once on construction into a table
+ * of entry names and their locations. Entries are then read with positional reads,
+ * which are safe to perform concurrently, and inflated in memory.
+ * Unlike the zip file system, no locks are taken on entry lookups.
+ *
+ * Entry names are decoded as UTF-8 if the general purpose flag bit 11 (language encoding) is set,
+ * and as CP437 otherwise, as the zip specification requires.
+ */
+internal class ZipCentralDirectoryReader(private val zipPath: Path) : Closeable {
+
+  private val channel: FileChannel = FileChannel.open(zipPath, StandardOpenOption.READ)
+
+  private val entries: Map<String, Entry> = channel.closeOnException { readEntries() }
+
+  val entryNames: Set<String>
+    get() = entries.keys
+
+  fun containsEntry(entryName: String) = entryName in entries
+
+  /**
+   * Returns uncompressed content of the entry or `null` if there is no such entry.
+   */
+  @Throws(IOException::class)
+  fun readEntry(entryName: String): ByteArray? {
+    val entry = entries[entryName] ?: return null
+    val localHeader = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+    channel.readFully(localHeader, entry.localHeaderOffset)
+    if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+      throw ZipException("Invalid local header of entry '$entryName' in $zipPath")
+    }
+    val dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE + localHeader.getUnsignedShort(26) + localHeader.getUnsignedShort(28)
+    val compressedData = ByteBuffer.allocate(entry.compressedSize.toIntSize(entryName))
+    channel.readFully(compressedData, dataOffset)
+    return when (entry.method) {
+      STORED -> compressedData.array()
+      DEFLATED -> inflate(entryName, compressedData.array(), entry.uncompressedSize.toIntSize(entryName))
+      else -> throw ZipException("Unsupported compression method ${entry.method} of entry '$entryName' in $zipPath")
+    }
+  }
+
+  private fun inflate(entryName: String, compressedData: ByteArray, uncompressedSize: Int): ByteArray {
+    val result = ByteArray(uncompressedSize)
+    val inflater = Inflater(true)
+    try {
+      inflater.setInput(compressedData)
+      var inflated = 0
+      var paddingSupplied = false
+      while (inflated < uncompressedSize && !inflater.finished()) {
+        val count = inflater.inflate(result, inflated, uncompressedSize - inflated)
+        if (count == 0) {
+          if (inflater.needsInput() && !paddingSupplied) {
+            //'nowrap' inflater may require an extra dummy byte to complete the stream.
+            inflater.setInput(ByteArray(1))
+            paddingSupplied = true
+          } else {
+            throw ZipException("Truncated data of entry '$entryName' in $zipPath")
+          }
+        }
+        inflated += count
+      }
+      if (inflated != uncompressedSize) {
+        throw ZipException("Invalid size of entry '$entryName' in $zipPath")
+      }
+      return result
+    } catch (e: DataFormatException) {
+      throw ZipException("Invalid data of entry '$entryName' in $zipPath: ${e.message}")
+    } finally {
+      inflater.end()
+    }
+  }
+
+  private fun Long.toIntSize(entryName: String): Int {
+    if (this < 0 || this > Int.MAX_VALUE - 8) {
+      throw ZipException("Entry '$entryName' is too large in $zipPath")
+    }
+    return toInt()
+  }
+
+  private fun readEntries(): Map<String, Entry> {
+    val location = locateCentralDirectory(channel)
+      ?: throw ZipException("Central directory is not found in $zipPath")
+    if (location.size > Int.MAX_VALUE) {
+      throw ZipException("Central directory is too large in $zipPath")
+    }
+    val centralDirectory = ByteBuffer.allocate(location.size.toInt()).order(ByteOrder.LITTLE_ENDIAN)
+    channel.readFully(centralDirectory, location.offset)
+
+    val entries = HashMap<String, Entry>(minOf(location.entriesCount, MAX_INITIAL_CAPACITY).toInt() * 4 / 3 + 1)
+    var position = 0
+    while (position + CENTRAL_DIRECTORY_HEADER_SIZE <= centralDirectory.limit()) {
+      if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+        throw ZipException("Invalid central directory header in $zipPath")
+      }
+      val flags = centralDirectory.getUnsignedShort(position + 8)
+      val method = centralDirectory.getUnsignedShort(position + 10)
+      var compressedSize = centralDirectory.getUnsignedInt(position + 20)
+      var uncompressedSize = centralDirectory.getUnsignedInt(position + 24)
+      val nameLength = centralDirectory.getUnsignedShort(position + 28)
+      val extraLength = centralDirectory.getUnsignedShort(position + 30)
+      val commentLength = centralDirectory.getUnsignedShort(position + 32)
+      var localHeaderOffset = centralDirectory.getUnsignedInt(position + 42)
+
+      val nameOffset = position + CENTRAL_DIRECTORY_HEADER_SIZE
+      val nameCharset = if ((flags and LANGUAGE_ENCODING_FLAG) != 0) Charsets.UTF_8 else CP437
+      val name = String(centralDirectory.array(), nameOffset, nameLength, nameCharset).trimStart('/')
+
+      var extraOffset = nameOffset + nameLength
+      val extraEnd = extraOffset + extraLength
+      while (extraOffset + 4 <= extraEnd) {
+        val headerId = centralDirectory.getUnsignedShort(extraOffset)
+        val dataSize = centralDirectory.getUnsignedShort(extraOffset + 2)
+        if (headerId == ZIP64_EXTRA_FIELD_ID) {
+          var zip64Offset = extraOffset + 4
+          if (uncompressedSize == ZIP64_MAGIC_VALUE) {
+            uncompressedSize = centralDirectory.getLong(zip64Offset)
+            zip64Offset += 8
+          }
+          if (compressedSize == ZIP64_MAGIC_VALUE) {
+            compressedSize = centralDirectory.getLong(zip64Offset)
+            zip64Offset += 8
+          }
+          if (localHeaderOffset == ZIP64_MAGIC_VALUE) {
+            localHeaderOffset = centralDirectory.getLong(zip64Offset)
+          }
+        }
+        extraOffset += 4 + dataSize
+      }
+
+      val isEncrypted = (flags and 1) != 0
+      if (name.isNotEmpty() && !name.endsWith('/') && !isEncrypted) {
+        entries.putIfAbsent(name, Entry(localHeaderOffset, compressedSize, uncompressedSize, method))
+      }
+      position = extraEnd + commentLength
+    }
+    return entries
+  }
+
+  override fun close() {
+    channel.close()
+  }
+
+  override fun toString() = zipPath.toString()
+
+  private class Entry(
+    val localHeaderOffset: Long,
+    val compressedSize: Long,
+    val uncompressedSize: Long,
+    val method: Int
+  )
+
+  /**
+   * Location of the central directory within a zip file.
+   * The central directory is followed by end-of-central-directory records up to the end of file.
+   */
+  class CentralDirectoryLocation(val offset: Long, val size: Long, val entriesCount: Long)
+
+  companion object {
+    private const val LOCAL_HEADER_SIGNATURE = 0x04034b50
+
+    private const val LOCAL_HEADER_SIZE = 30
+
+    private const val CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50
+
+    private const val CENTRAL_DIRECTORY_HEADER_SIZE = 46
+
+    private const val END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50
+
+    private const val END_OF_CENTRAL_DIRECTORY_SIZE = 22
+
+    private const val MAX_END_OF_CENTRAL_DIRECTORY_SIZE = END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF
+
+    private const val ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50
+
+    private const val ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20
+
+    private const val ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50
+
+    private const val ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56
+
+    private const val ZIP64_EXTRA_FIELD_ID = 0x0001
+
+    private const val ZIP64_MAGIC_VALUE = 0xFFFFFFFFL
+
+    private const val MAX_INITIAL_CAPACITY = 1L shl 20
+
+    private const val STORED = 0
+
+    private const val DEFLATED = 8
+
+    private const val LANGUAGE_ENCODING_FLAG = 1 shl 11
+
+    /**
+     * Default charset of entry names. Runtimes without extended charsets lack it,
+     * then ISO-8859-1 is used, which decodes ASCII names the same way.
+     */
+    private val CP437: Charset =
+      if (Charset.isSupported("IBM437")) Charset.forName("IBM437") else Charsets.ISO_8859_1
+
+    /**
+     * Finds the central directory by the end-of-central-directory record,
+     * including the ZIP64 one. Returns `null` if the file is not a valid zip file.
+     */
+    @Throws(IOException::class)
+    fun locateCentralDirectory(channel: FileChannel): CentralDirectoryLocation? {
+      val fileSize = channel.size()
+      val tailSize = minOf(fileSize, MAX_END_OF_CENTRAL_DIRECTORY_SIZE.toLong()).toInt()
+      val tailOffset = fileSize - tailSize
+      val tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN)
+      channel.readFully(tail, tailOffset)
+
+      var endRecord = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE
+      while (endRecord >= 0 && tail.getInt(endRecord) != END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        endRecord--
+      }
+      if (endRecord < 0) {
+        return null
+      }
+
+      var entriesCount = tail.getUnsignedShort(endRecord + 10).toLong()
+      var size = tail.getUnsignedInt(endRecord + 12)
+      var offset = tail.getUnsignedInt(endRecord + 16)
+      if (entriesCount == 0xFFFFL || size == ZIP64_MAGIC_VALUE || offset == ZIP64_MAGIC_VALUE) {
+        val locatorOffset = tailOffset + endRecord - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE
+        if (locatorOffset < 0) {
+          return null
+        }
+        val locator = ByteBuffer.allocate(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        channel.readFully(locator, locatorOffset)
+        if (locator.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+          return null
+        }
+        val zip64EndRecordOffset = locator.getLong(8)
+        if (zip64EndRecordOffset < 0 || zip64EndRecordOffset + ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE > fileSize) {
+          return null
+        }
+        val zip64EndRecord = ByteBuffer.allocate(ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+        channel.readFully(zip64EndRecord, zip64EndRecordOffset)
+        if (zip64EndRecord.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+          return null
+        }
+        entriesCount = zip64EndRecord.getLong(32)
+        size = zip64EndRecord.getLong(40)
+        offset = zip64EndRecord.getLong(48)
+      }
+      if (offset < 0 || size < 0 || offset + size > fileSize) {
+        return null
+      }
+      return CentralDirectoryLocation(offset, size, entriesCount)
+    }
+
+    /**
+     * Reads bytes starting at [position] until the [buffer] is full and flips it.
+     */
+    @Throws(IOException::class)
+    fun FileChannel.readFully(buffer: ByteBuffer, position: Long) {
+      var offset = position
+      while (buffer.hasRemaining()) {
+        val read = read(buffer, offset)
+        if (read < 0) {
+          throw ZipException("Unexpected end of file")
+        }
+        offset += read
+      }
+      buffer.flip()
+    }
+
+    private fun ByteBuffer.getUnsignedShort(index: Int): Int = getShort(index).toInt() and 0xFFFF
+
+    private fun ByteBuffer.getUnsignedInt(index: Int): Long = getInt(index).toLong() and 0xFFFFFFFFL
+  }
+}
@@ -25,6 +25,9 @@ public class AsmUtil {
   public static ClassNode readClassNode(@NotNull String className,
                                         @NotNull InputStream inputStream,
                                         boolean fully) throws InvalidClassFileException, IOException {
+    if (ClassBytesDigests.isEnabled()) {
+      return readClassNode(className, inputStream.readAllBytes(), fully);
+    }
     try {
       ClassNode node = new ClassNode();
       int parsingOptions = fully ? 0 : (ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
@@ -37,6 +40,23 @@ public class AsmUtil {
     }
   }
 
+  @NotNull
+  public static ClassNode readClassNode(@NotNull String className,
+                                        @NotNull byte[] classBytes,
+                                        boolean fully) throws InvalidClassFileException {
+    try {
+      ClassNode node = new ClassNode();
+      int parsingOptions = fully ? 0 : (ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      new ClassReader(classBytes).accept(node, parsingOptions);
+      if (ClassBytesDigests.isEnabled()) {
+        ClassBytesDigests.record(node, classBytes);
+      }
+      return node;
+    } catch (RuntimeException e) {
+      throw new InvalidClassFileException(className, getAsmErrorMessage(e));
+    }
+  }
+
   @NotNull
   public static ClassNode readClassNode(@NotNull String className, @NotNull InputStream inputStream) throws InvalidClassFileException, IOException {
     return readClassNode(className, inputStream, true);
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.plugin.structure.classes.utils
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import org.objectweb.asm.tree.ClassNode
+import java.security.MessageDigest
+
+/**
+ * SHA-256 digests of the bytes that class nodes have been read from by [AsmUtil].
+ *
+ * Digests are recorded only if [Settings.CLASS_BYTES_DIGESTS] is enabled,
+ * and they are kept while the class nodes are reachable.
+ */
+object ClassBytesDigests {
+
+  private val digests: Cache<ClassNode, String> = Caffeine.newBuilder()
+    .weakKeys()
+    .build()
+
+  @JvmStatic
+  val isEnabled: Boolean
+    get() = Settings.CLASS_BYTES_DIGESTS.getAsBoolean()
+
+  @JvmStatic
+  fun record(classNode: ClassNode, classBytes: ByteArray) {
+    digests.put(classNode, MessageDigest.getInstance("SHA-256").digest(classBytes).toHexString())
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 of the bytes the [classNode] has been read from,
+   * or `null` if the digest has not been recorded.
+   */
+  @JvmStatic
+  fun getDigest(classNode: ClassNode): String? = digests.getIfPresent(classNode)
+
+  private fun ByteArray.toHexString(): String {
+    val hex = StringBuilder(size * 2)
+    for (byte in this) {
+      val value = byte.toInt() and 0xFF
+      hex.append(Character.forDigit(value shr 4, 16)).append(Character.forDigit(value and 0xF, 16))
+    }
+    return hex.toString()
+  }
+}
@@ -4,22 +4,19 @@ import kotlinx.metadata.jvm.KotlinClassMetadata
 import kotlinx.metadata.jvm.Metadata
 import org.objectweb.asm.tree.AnnotationNode
 import org.objectweb.asm.tree.ClassNode
+import java.util.concurrent.ConcurrentHashMap
 
 internal const val KOTLIN_METADATA_ANNOTATION_DESC = "Lkotlin/Metadata;"
 
 private typealias Signature = String
 
 class KtClassResolver {
-  private val cache = HashMap<Signature, KtClassNode>()
+  private val cache = ConcurrentHashMap<Signature, KtClassNode>()
 
   operator fun get(classNode: ClassNode): KtClassNode? {
     val signature: Signature = classNode.signature ?: return classNode.ktClassNode
-    return if (signature in cache) {
-      cache[signature]
-    } else {
-      classNode.ktClassNode?.also {
-        cache[signature] = it
-      }
+    return cache[signature] ?: classNode.ktClassNode?.also {
+      cache[signature] = it
     }
   }
 
@@ -10,11 +10,15 @@ import com.jetbrains.plugin.structure.base.utils.listFiles
 import com.jetbrains.plugin.structure.base.utils.listJars
 import com.jetbrains.plugin.structure.base.utils.simpleName
 import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver.ClassRouting
 import com.jetbrains.plugin.structure.classes.resolvers.DirectoryResolver
 import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
 import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.PersistentJarIndexCache
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.classes.resolvers.buildJarOrZipFileResolvers
+import com.jetbrains.plugin.structure.classes.resolvers.buildResolversInParallel
+import com.jetbrains.plugin.structure.classes.resolvers.getResolverCreationParallelism
 import com.jetbrains.plugin.structure.ide.Ide
 import com.jetbrains.plugin.structure.ide.IdeManagerImpl
 import com.jetbrains.plugin.structure.ide.IdeManagerImpl.Companion.isCompiledCommunity
@@ -24,17 +28,31 @@ import com.jetbrains.plugin.structure.ide.InvalidIdeException
 import com.jetbrains.plugin.structure.ide.getRepositoryLibrariesJars
 import java.nio.file.Path
 
+/**
+ * Creates resolvers of IDE classes.
+ *
+ * Jars and compiled module directories of an IDE are indexed on several threads,
+ * see [getResolverCreationParallelism]. The order of resolvers, and thus the precedence of classes,
+ * is the same as if they were indexed sequentially.
+ * The resulting resolver routes each class to its jar or module by a table of all IDE classes,
+ * see [ClassRouting.BY_CLASS].
+ * Indexes of IDE jars are persisted between runs, see [PersistentJarIndexCache.fromSettings].
+ */
 object IdeResolverCreator {
 
   @JvmStatic
   fun createIdeResolver(ide: Ide): Resolver = createIdeResolver(Resolver.ReadMode.FULL, ide)
 
   @JvmStatic
-  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide): Resolver {
+  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide): Resolver =
+    createIdeResolver(readMode, ide, getResolverCreationParallelism())
+
+  @JvmStatic
+  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide, parallelism: Int): Resolver {
     val idePath = ide.idePath
     return when {
-      isDistributionIde(idePath) -> getJarsResolver(idePath.resolve("lib"), readMode, IdeFileOrigin.IdeLibDirectory(ide))
-      isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> getIdeResolverFromCompiledSources(idePath, readMode, ide)
+      isDistributionIde(idePath) -> getJarsResolver(idePath.resolve("lib"), readMode, IdeFileOrigin.IdeLibDirectory(ide), parallelism, ClassRouting.BY_CLASS)
+      isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> getIdeResolverFromCompiledSources(idePath, readMode, ide, parallelism)
       else -> throw InvalidIdeException(idePath, "Invalid IDE $ide at $idePath")
     }
   }
@@ -42,7 +60,9 @@ object IdeResolverCreator {
   private fun getJarsResolver(
     libDirectory: Path,
     readMode: Resolver.ReadMode,
-    parentOrigin: FileOrigin
+    parentOrigin: FileOrigin,
+    parallelism: Int,
+    classRouting: ClassRouting = ClassRouting.BY_PACKAGE
   ): Resolver {
     if (!libDirectory.isDirectory) {
       return EmptyResolver
@@ -51,7 +71,7 @@ object IdeResolverCreator {
     val jars = libDirectory.listJars()
     val antJars = libDirectory.resolve("ant").resolve("lib").listJars()
     val moduleJars = libDirectory.resolve("modules").listJars()
-    return CompositeResolver.create(buildJarOrZipFileResolvers(jars + antJars + moduleJars, readMode, parentOrigin))
+    return CompositeResolver.create(buildJarOrZipFileResolvers(jars + antJars + moduleJars, readMode, parentOrigin, parallelism, PersistentJarIndexCache.fromSettings()), classRouting)
   }
 
   //TODO: Resolver created this way contains all libraries declared in the project,
@@ -60,28 +80,28 @@ object IdeResolverCreator {
   // IDE sources can generate so-called "project-structure-mapping.json", which contains mapping
   // between compiled modules and jar files to which these modules are packaged in the final distribution.
   // We can use this mapping to construct a true resolver without irrelevant libraries.
-  private fun getIdeResolverFromCompiledSources(idePath: Path, readMode: Resolver.ReadMode, ide: Ide): Resolver {
+  private fun getIdeResolverFromCompiledSources(idePath: Path, readMode: Resolver.ReadMode, ide: Ide, parallelism: Int): Resolver {
     val resolvers = arrayListOf<Resolver>()
     resolvers.closeOnException {
-      resolvers += getJarsResolver(idePath.resolve("lib"), readMode, IdeFileOrigin.SourceLibDirectory(ide))
-      resolvers += getRepositoryLibrariesResolver(idePath, readMode, ide)
+      resolvers += getJarsResolver(idePath.resolve("lib"), readMode, IdeFileOrigin.SourceLibDirectory(ide), parallelism)
+      resolvers += getRepositoryLibrariesResolver(idePath, readMode, ide, parallelism)
 
       val compiledClassesRoot = IdeManagerImpl.getCompiledClassesRoot(idePath)!!
-      compiledClassesRoot.listFiles().forEach { moduleRoot ->
+      resolvers += buildResolversInParallel(compiledClassesRoot.listFiles(), parallelism) { moduleRoot ->
         val fileOrigin = IdeFileOrigin.CompiledModule(ide, moduleRoot.simpleName)
-        resolvers += DirectoryResolver(moduleRoot, fileOrigin, readMode)
+        DirectoryResolver(moduleRoot, fileOrigin, readMode)
       }
 
       if (isCompiledUltimate(idePath)) {
-        resolvers += getJarsResolver(idePath.resolve("community").resolve("lib"), readMode, IdeFileOrigin.SourceLibDirectory(ide))
+        resolvers += getJarsResolver(idePath.resolve("community").resolve("lib"), readMode, IdeFileOrigin.SourceLibDirectory(ide), parallelism)
       }
-      return CompositeResolver.create(resolvers)
+      return CompositeResolver.create(resolvers, ClassRouting.BY_CLASS)
     }
   }
 
-  private fun getRepositoryLibrariesResolver(idePath: Path, readMode: Resolver.ReadMode, ide: Ide): Resolver {
+  private fun getRepositoryLibrariesResolver(idePath: Path, readMode: Resolver.ReadMode, ide: Ide, parallelism: Int): Resolver {
     val jars = getRepositoryLibrariesJars(idePath)
-    return CompositeResolver.create(buildJarOrZipFileResolvers(jars, readMode, IdeFileOrigin.RepositoryLibrary(ide)))
+    return CompositeResolver.create(buildJarOrZipFileResolvers(jars, readMode, IdeFileOrigin.RepositoryLibrary(ide), parallelism, PersistentJarIndexCache.fromSettings()))
   }
 
 }
@@ -0,0 +1,33 @@
+package com.jetbrains.plugin.structure.base.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class ExecutorWithProgressTest {
+
+  @Test
+  fun `streaming execution passes all results to the consumer and bounds tasks in flight`() {
+    val runningTasks = AtomicInteger()
+    val maxRunningTasks = AtomicInteger()
+    val tasks = (1..50).map { index ->
+      ExecutorWithProgress.Task("task $index") {
+        maxRunningTasks.accumulateAndGet(runningTasks.incrementAndGet()) { a, b -> maxOf(a, b) }
+        Thread.sleep(1)
+        runningTasks.decrementAndGet()
+        index
+      }
+    }
+
+    val results = arrayListOf<Int>()
+    val finishedNumbers = arrayListOf<Int>()
+    ExecutorWithProgress<Int>("test", 8, true) { finishedNumbers += it.finishedNumber }.use { executor ->
+      executor.executeTasks(tasks, 3) { results += it }
+    }
+
+    assertEquals((1..50).toList(), results.sorted())
+    assertEquals((1..50).toList(), finishedNumbers)
+    assertTrue(maxRunningTasks.get() <= 3)
+  }
+}
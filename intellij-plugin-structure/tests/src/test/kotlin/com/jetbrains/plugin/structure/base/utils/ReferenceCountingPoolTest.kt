@@ -0,0 +1,185 @@
+package com.jetbrains.plugin.structure.base.utils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class ReferenceCountingPoolTest {
+
+  private class Resource(val name: String) {
+    val isOpen = AtomicBoolean(true)
+  }
+
+  private val openedResources = AtomicInteger()
+
+  private val closedResources = AtomicInteger()
+
+  private fun createPool(maxSize: Int, evictionBatchSize: Int) =
+    ReferenceCountingPool<String, Resource>(maxSize, evictionBatchSize) { _, resource ->
+      assertTrue(resource.isOpen.compareAndSet(true, false))
+      closedResources.incrementAndGet()
+    }
+
+  private fun open(name: String): Resource {
+    openedResources.incrementAndGet()
+    return Resource(name)
+  }
+
+  @Test
+  fun `value is shared between users and closed only when unused`() {
+    val pool = createPool(10, 5)
+    val first = pool.acquire("a", ::open)
+    val second = pool.acquire("a", ::open)
+    assertTrue(first === second)
+    assertEquals(1, openedResources.get())
+
+    pool.release("a")
+    pool.closeIfUnused("a")
+    assertTrue(first.isOpen.get())
+
+    pool.release("a")
+    pool.closeIfUnused("a")
+    assertFalse(first.isOpen.get())
+    assertEquals(0, pool.size)
+
+    val reopened = pool.acquire("a", ::open)
+    assertTrue(reopened.isOpen.get())
+    assertEquals(2, openedResources.get())
+  }
+
+  @Test
+  fun `least recently used unused values are evicted on overflow`() {
+    val pool = createPool(4, 2)
+    val used = pool.acquire("used", ::open)
+    for (name in listOf("a", "b", "c", "d")) {
+      pool.acquire(name, ::open)
+      pool.release(name)
+    }
+    assertEquals(3, pool.size)
+    assertTrue(used.isOpen.get())
+    assertEquals(2, closedResources.get())
+
+    val c = pool.acquire("c", ::open)
+    val d = pool.acquire("d", ::open)
+    assertEquals(5, openedResources.get())
+    assertTrue(c.isOpen.get() && d.isOpen.get())
+  }
+
+  @Test
+  fun `all values are closed regardless of users`() {
+    val pool = createPool(10, 5)
+    val a = pool.acquire("a", ::open)
+    val b = pool.acquire("b", ::open)
+    pool.release("b")
+    pool.closeAll()
+    assertFalse(a.isOpen.get())
+    assertFalse(b.isOpen.get())
+    assertEquals(0, pool.size)
+  }
+
+  @Test
+  fun `acquired values are never closed under concurrent eviction`() {
+    val pool = createPool(8, 4)
+    val failures = AtomicInteger()
+    runConcurrently(threads = 8, iterations = 20_000, keys = 32) { key ->
+      val resource = pool.acquire(key, ::open)
+      if (!resource.isOpen.get() || resource.name != key) {
+        failures.incrementAndGet()
+      }
+      pool.release(key)
+    }
+    assertEquals(0, failures.get())
+    pool.closeAll()
+    assertEquals(openedResources.get(), closedResources.get())
+  }
+
+  @Test
+  fun `value being closed is not reused from a global registry`() {
+    //Mimics zip file systems, which are registered globally until they are closed.
+    val registry = ConcurrentHashMap<String, Resource>()
+    val pool = ReferenceCountingPool<String, Resource>(8, 4) { key, resource ->
+      resource.isOpen.set(false)
+      registry.remove(key, resource)
+    }
+    val failures = AtomicInteger()
+    runConcurrently(threads = 8, iterations = 20_000, keys = 1) { key ->
+      val resource = pool.acquire(key) { registry.computeIfAbsent(it, ::open) }
+      if (!resource.isOpen.get()) {
+        failures.incrementAndGet()
+      }
+      pool.release(key, closeIfUnused = true)
+    }
+    assertEquals(0, failures.get())
+  }
+
+  @Test
+  fun `opening a value does not block acquisition of other values`() {
+    val pool = createPool(256, 64)
+    val openingStarted = CountDownLatch(1)
+    val finishOpening = CountDownLatch(1)
+    val executor = Executors.newFixedThreadPool(2)
+    try {
+      val slow = executor.submit<Resource> {
+        pool.acquire("slow") {
+          openingStarted.countDown()
+          finishOpening.await()
+          open(it)
+        }
+      }
+      assertTrue(openingStarted.await(10, TimeUnit.SECONDS))
+      //Enough keys for some of them to share a bin of the underlying map with the key being opened.
+      val others = executor.submit<Int> { (0 until 128).count { pool.acquire("key-$it", ::open).isOpen.get() } }
+      assertEquals(128, others.get(10, TimeUnit.SECONDS))
+      finishOpening.countDown()
+      assertTrue(slow.get(10, TimeUnit.SECONDS).isOpen.get())
+    } finally {
+      finishOpening.countDown()
+      executor.shutdownNow()
+    }
+  }
+
+  @Test
+  fun `value is opened again after a failed opening`() {
+    val pool = createPool(10, 5)
+    val error = runCatching { pool.acquire("a") { throw IllegalStateException("Failed to open $it") } }.exceptionOrNull()
+    assertTrue(error is IllegalStateException)
+    val value = pool.acquire("a", ::open)
+    assertTrue(value.isOpen.get())
+    pool.release("a", closeIfUnused = true)
+    assertFalse(value.isOpen.get())
+    assertEquals(1, closedResources.get())
+  }
+
+  private fun runConcurrently(threads: Int, iterations: Int, keys: Int, action: (String) -> Unit) {
+    val executor = Executors.newFixedThreadPool(threads)
+    val start = CountDownLatch(1)
+    val errors = AtomicLong()
+    try {
+      val futures = (0 until threads).map { thread ->
+        executor.submit {
+          start.await()
+          for (i in 0 until iterations) {
+            try {
+              action("key-" + (i * 31 + thread) % keys)
+            } catch (e: Throwable) {
+              errors.incrementAndGet()
+            }
+          }
+        }
+      }
+      start.countDown()
+      futures.forEach { it.get() }
+    } finally {
+      executor.shutdownNow()
+    }
+    assertEquals(0, errors.get())
+  }
+}
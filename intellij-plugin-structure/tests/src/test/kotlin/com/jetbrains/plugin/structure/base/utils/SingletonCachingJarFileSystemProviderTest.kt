@@ -0,0 +1,55 @@
+package com.jetbrains.plugin.structure.base.utils
+
+import com.jetbrains.plugin.structure.jar.SingletonCachingJarFileSystemProvider
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class SingletonCachingJarFileSystemProviderTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `file system is usable while it is concurrently opened and closed`() {
+    val jarPath = temporaryFolder.newFolder().toPath().resolve("plugin.jar")
+    Files.copy(Path.of("src/test/resources/resolver-jars/sample-jar-with-descriptor.jar"), jarPath)
+
+    val threads = 8
+    val executor = Executors.newFixedThreadPool(threads)
+    val start = CountDownLatch(1)
+    val failures = AtomicInteger()
+    try {
+      val futures = (0 until threads).map {
+        executor.submit {
+          start.await()
+          repeat(2_000) {
+            try {
+              val fileSystem = SingletonCachingJarFileSystemProvider.getFileSystem(jarPath)
+              try {
+                assertTrue(Files.exists(fileSystem.getPath("META-INF/plugin.xml")))
+              } finally {
+                SingletonCachingJarFileSystemProvider.close(jarPath)
+              }
+            } catch (e: Throwable) {
+              failures.incrementAndGet()
+            }
+          }
+        }
+      }
+      start.countDown()
+      futures.forEach { it.get() }
+    } finally {
+      executor.shutdownNow()
+    }
+    assertEquals(0, failures.get())
+  }
+}
@@ -0,0 +1,56 @@
+package com.jetbrains.plugin.structure.classes.utils
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.io.ByteArrayInputStream
+import java.security.MessageDigest
+
+class ClassBytesDigestsTest {
+
+  private val originalSetting = Settings.CLASS_BYTES_DIGESTS.get()
+
+  @Before
+  fun setUp() {
+    Settings.CLASS_BYTES_DIGESTS.set("true")
+  }
+
+  @After
+  fun tearDown() {
+    Settings.CLASS_BYTES_DIGESTS.set(originalSetting)
+  }
+
+  @Test
+  fun `digest of the bytes is recorded for classes read from bytes and streams`() {
+    val classBytes = generateClass("com/example/Some")
+    val expected = MessageDigest.getInstance("SHA-256").digest(classBytes).joinToString(separator = "") { "%02x".format(it) }
+
+    assertEquals(expected, ClassBytesDigests.getDigest(AsmUtil.readClassNode("com/example/Some", classBytes, true)))
+    assertEquals(expected, ClassBytesDigests.getDigest(AsmUtil.readClassNode("com/example/Some", ByteArrayInputStream(classBytes), false)))
+  }
+
+  @Test
+  fun `classes with different bytes have different digests`() {
+    val some = AsmUtil.readClassNode("com/example/Some", generateClass("com/example/Some"), true)
+    val other = AsmUtil.readClassNode("com/example/Other", generateClass("com/example/Other"), true)
+    assertNotEquals(ClassBytesDigests.getDigest(some), ClassBytesDigests.getDigest(other))
+  }
+
+  @Test
+  fun `digest is not recorded if disabled`() {
+    Settings.CLASS_BYTES_DIGESTS.set("false")
+    assertNull(ClassBytesDigests.getDigest(AsmUtil.readClassNode("com/example/Some", generateClass("com/example/Some"), true)))
+  }
+
+  private fun generateClass(className: String): ByteArray =
+    ClassWriter(0).apply {
+      visit(Opcodes.V11, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null)
+      visitEnd()
+    }.toByteArray()
+}
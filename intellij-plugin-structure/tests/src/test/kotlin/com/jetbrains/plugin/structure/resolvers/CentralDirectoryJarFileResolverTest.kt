@@ -0,0 +1,130 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.nio.charset.Charset
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.*
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Checks that [JarFileResolver] reading the zip central directory directly
+ * behaves the same as the one reading the jar via the zip file system.
+ */
+class CentralDirectoryJarFileResolverTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object JarOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private lateinit var jarFile: Path
+
+  @Before
+  fun setUp() {
+    jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath()) {
+      dir("com") {
+        dir("example") {
+          file("Some.class", generateClass("com/example/Some"))
+          file("Other.class", generateClass("com/example/Other"))
+          file("Invalid.class", "bad")
+        }
+      }
+      dir("messages") {
+        file("SomeBundle.properties", "key=root")
+        file("SomeBundle_en.properties", "key=english")
+      }
+      dir("META-INF") {
+        dir("services") {
+          file("com.example.Service", "com.example.Some\ncom.example.Other # comment")
+        }
+      }
+    }
+  }
+
+  @Test
+  fun `central directory reader resolves the same content as the zip file system`() {
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, JarOrigin, null, false).use { fileSystemResolver ->
+      JarFileResolver(jarFile, Resolver.ReadMode.FULL, JarOrigin, null, true).use { directResolver ->
+        assertEquals(fileSystemResolver.allClasses, directResolver.allClasses)
+        assertEquals(fileSystemResolver.allPackages, directResolver.allPackages)
+        assertEquals(fileSystemResolver.allBundleNameSet, directResolver.allBundleNameSet)
+        assertEquals(fileSystemResolver.implementedServiceProviders, directResolver.implementedServiceProviders)
+
+        for (className in fileSystemResolver.allClasses) {
+          val expected = fileSystemResolver.resolveClass(className)
+          val actual = directResolver.resolveClass(className)
+          assertEquals(expected.javaClass, actual.javaClass)
+          if (expected is ResolutionResult.Found && actual is ResolutionResult.Found) {
+            assertEquals(expected.value.name, actual.value.name)
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  fun `classes and bundles are read from the central directory`() {
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, JarOrigin, null, true).use { resolver ->
+      assertEquals(setOf("com/example/Some", "com/example/Other", "com/example/Invalid"), resolver.allClasses)
+      assertEquals(mapOf("com.example.Service" to setOf("com.example.Some", "com.example.Other")), resolver.implementedServiceProviders)
+
+      val found = resolver.resolveClass("com/example/Some") as ResolutionResult.Found
+      assertEquals("com/example/Some", found.value.name)
+      assertTrue(resolver.resolveClass("com/example/Invalid") is ResolutionResult.Invalid)
+      assertEquals(ResolutionResult.NotFound, resolver.resolveClass("com/example/Missing"))
+
+      val bundle = resolver.resolveExactPropertyResourceBundle("messages.SomeBundle", Locale.ENGLISH) as ResolutionResult.Found
+      assertEquals("english", bundle.value.getString("key"))
+
+      var processed = 0
+      resolver.processAllClasses {
+        processed++
+        true
+      }
+      assertEquals(3, processed)
+    }
+  }
+
+  @Test
+  fun `entry names are decoded as UTF-8 if the language encoding flag is set and as CP437 otherwise`() {
+    val className = "com/example/Caf\u00e9"
+    for (charset in listOf(Charsets.UTF_8, Charset.forName("IBM437"))) {
+      //ZipOutputStream sets the language encoding flag only for UTF-8 names.
+      val jar = temporaryFolder.newFile("names-${charset.name()}.jar").toPath()
+      ZipOutputStream(Files.newOutputStream(jar), charset).use { output ->
+        output.putNextEntry(ZipEntry("$className.class"))
+        output.write(generateClass(className))
+        output.closeEntry()
+      }
+      JarFileResolver(jar, Resolver.ReadMode.FULL, JarOrigin, null, true).use { resolver ->
+        assertEquals(setOf(className), resolver.allClasses)
+        val found = resolver.resolveClass(className) as ResolutionResult.Found
+        assertEquals(className, found.value.name)
+      }
+    }
+  }
+
+  private fun generateClass(className: String): ByteArray {
+    val classWriter = ClassWriter(0)
+    classWriter.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null)
+    classWriter.visitEnd()
+    return classWriter.toByteArray()
+  }
+}
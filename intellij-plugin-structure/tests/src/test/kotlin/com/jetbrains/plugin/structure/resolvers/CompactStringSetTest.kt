@@ -0,0 +1,41 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompactStringSet
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class CompactStringSetTest {
+
+  @Test
+  fun `set contains distinct strings with dense ids`() {
+    val strings = (0 until 1000).map { "com/example/Class${it % 700}" }
+    val set = CompactStringSet.of(strings)
+
+    assertEquals(700, set.size)
+    assertEquals(strings.toSet(), set)
+    for (string in strings) {
+      assertTrue(string in set)
+      assertEquals(string, set[set.idOf(string)])
+    }
+    assertEquals((0 until 700).toSet(), set.map { set.idOf(it) }.toSet())
+    assertFalse("com/example/Class700" in set)
+    assertEquals(-1, set.idOf("com/example/Class700"))
+  }
+
+  @Test
+  fun `equal strings are interned`() {
+    val one = CompactStringSet.of(listOf(String(charArrayOf('a', '/', 'B'))))
+    val other = CompactStringSet.of(listOf(String(charArrayOf('a', '/', 'B'))))
+    assertSame(one.single(), other.single())
+  }
+
+  @Test
+  fun `empty set`() {
+    val set = CompactStringSet.of(emptyList())
+    assertTrue(set.isEmpty())
+    assertFalse("" in set)
+  }
+}
@@ -0,0 +1,74 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.MappedClassIndex
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+
+class MappedClassIndexTest {
+
+  @get:Rule
+  val temporaryFolder = TemporaryFolder()
+
+  private data class NamedOrigin(val name: String) : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  @Test
+  fun `index resolves classes and bundles of its parts as the original resolvers`() {
+    val firstPart = FixedClassesResolver.create(
+      listOf(createClassNode("com/example/First"), createClassNode("com/example/util/Helper")),
+      NamedOrigin("first"),
+      readMode = Resolver.ReadMode.FULL,
+      propertyResourceBundles = mapOf(
+        "messages.SomeBundle" to PropertyResourceBundle("key=root value".reader()),
+        "messages.SomeBundle_en" to PropertyResourceBundle("key=english value".reader())
+      )
+    )
+    val secondPart = FixedClassesResolver.create(listOf(createClassNode("org/example/Second")), NamedOrigin("second"))
+
+    val indexFile = temporaryFolder.newFolder().toPath().resolve("classes.index")
+    MappedClassIndex.write(indexFile, listOf(firstPart, secondPart), mapOf("built.from" to "test")) { (it as NamedOrigin).name }
+    val index = MappedClassIndex.open(indexFile) { NamedOrigin(it) }
+
+    assertEquals(mapOf("built.from" to "test"), index.metadata)
+    val (first, second) = index.parts
+    assertEquals(setOf("com/example/First", "com/example/util/Helper"), first.allClasses)
+    assertEquals(setOf("com", "com/example", "com/example/util"), first.allPackages)
+    assertTrue(first.containsClass("com/example/First"))
+    assertFalse(first.containsClass("org/example/Second"))
+
+    val found = first.resolveClass("com/example/util/Helper") as ResolutionResult.Found
+    assertEquals("com/example/util/Helper", found.value.name)
+    assertEquals("java/lang/Object", found.value.superName)
+    assertEquals(NamedOrigin("first"), found.fileOrigin)
+    assertEquals(ResolutionResult.NotFound, first.resolveClass("org/example/Second"))
+
+    assertEquals(setOf("messages.SomeBundle", "messages.SomeBundle_en"), first.allBundleNameSet["messages.SomeBundle"])
+    val rootBundle = first.resolveExactPropertyResourceBundle("messages.SomeBundle", Locale.ROOT) as ResolutionResult.Found
+    assertEquals("root value", rootBundle.value.getString("key"))
+    val englishBundle = first.resolveExactPropertyResourceBundle("messages.SomeBundle", Locale.ENGLISH) as ResolutionResult.Found
+    assertEquals("english value", englishBundle.value.getString("key"))
+
+    val secondFound = second.resolveClass("org/example/Second") as ResolutionResult.Found
+    assertEquals(NamedOrigin("second"), secondFound.fileOrigin)
+    assertEquals(Resolver.ReadMode.FULL, second.readMode)
+  }
+
+  private fun createClassNode(className: String) = ClassNode().apply {
+    version = Opcodes.V1_8
+    access = Opcodes.ACC_PUBLIC
+    name = className
+    superName = "java/lang/Object"
+  }
+}
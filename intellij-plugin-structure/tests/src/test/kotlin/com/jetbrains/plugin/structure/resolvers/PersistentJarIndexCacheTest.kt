@@ -0,0 +1,116 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.ContentBuilder
+import com.jetbrains.plugin.structure.base.utils.contentBuilder.buildZipFile
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.PersistentJarIndexCache
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class PersistentJarIndexCacheTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private object JarOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val jarContent: ContentBuilder.() -> Unit = {
+    dir("com") {
+      dir("example") {
+        file("Some.class", "")
+        file("Other.class", "")
+      }
+    }
+    dir("messages") {
+      file("SomeBundle.properties", "key=value")
+      file("SomeBundle_en.properties", "key=value")
+    }
+    dir("META-INF") {
+      dir("services") {
+        file("com.example.Service", "com.example.Some # comment\n\ncom.example.Other")
+      }
+    }
+  }
+
+  @Test
+  fun `index is stored on first open and reused on the next one`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath(), jarContent)
+    val cacheDirectory = temporaryFolder.newFolder("cache").toPath()
+    val indexCache = PersistentJarIndexCache(cacheDirectory)
+
+    val expectedClasses = setOf("com/example/Some", "com/example/Other")
+    val expectedServices = mapOf("com.example.Service" to setOf("com.example.Some", "com.example.Other"))
+
+    openResolver(jarFile, indexCache).use { resolver ->
+      assertEquals(expectedClasses, resolver.allClasses)
+      assertEquals(expectedServices, resolver.implementedServiceProviders)
+    }
+    assertEquals(1, cacheDirectory.listFiles().size)
+
+    openResolver(jarFile, indexCache).use { resolver ->
+      assertEquals(expectedClasses, resolver.allClasses)
+      assertEquals(setOf("com", "com/example"), resolver.allPackages)
+      assertEquals(setOf("messages.SomeBundle"), resolver.allBundleNameSet.baseBundleNames)
+      assertEquals(setOf("messages.SomeBundle", "messages.SomeBundle_en"), resolver.allBundleNameSet["messages.SomeBundle"])
+      assertEquals(expectedServices, resolver.implementedServiceProviders)
+    }
+    assertEquals(1, cacheDirectory.listFiles().size)
+  }
+
+  @Test
+  fun `index is recomputed when jar content changes`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath(), jarContent)
+    val lastModified = Files.getLastModifiedTime(jarFile)
+    val indexCache = PersistentJarIndexCache(temporaryFolder.newFolder("cache").toPath())
+
+    openResolver(jarFile, indexCache).use { resolver ->
+      assertEquals(setOf("com/example/Some", "com/example/Other"), resolver.allClasses)
+    }
+
+    buildZipFile(jarFile) {
+      dir("com") {
+        dir("example") {
+          file("Some.class", "")
+          file("Third.class", "")
+        }
+      }
+    }
+    Files.setLastModifiedTime(jarFile, FileTime.fromMillis(lastModified.toMillis()))
+
+    openResolver(jarFile, indexCache).use { resolver ->
+      assertEquals(setOf("com/example/Some", "com/example/Third"), resolver.allClasses)
+    }
+  }
+
+  @Test
+  fun `jar is not indexed in the configured cache unless the cache is specified`() {
+    val jarFile = buildZipFile(temporaryFolder.newFile("some.jar").toPath(), jarContent)
+    val cacheDirectory = temporaryFolder.newFolder("cache").toPath()
+    val originalCacheDirectory = Settings.JAR_INDEX_CACHE_DIRECTORY.get()
+    Settings.JAR_INDEX_CACHE_DIRECTORY.set(cacheDirectory.toString())
+    try {
+      JarFileResolver(jarFile, Resolver.ReadMode.FULL, JarOrigin).use { resolver ->
+        assertEquals(setOf("com/example/Some", "com/example/Other"), resolver.allClasses)
+      }
+      assertTrue(cacheDirectory.listFiles().isEmpty())
+    } finally {
+      Settings.JAR_INDEX_CACHE_DIRECTORY.set(originalCacheDirectory)
+    }
+  }
+
+  private fun openResolver(jarFile: Path, indexCache: PersistentJarIndexCache) =
+    JarFileResolver(jarFile, Resolver.ReadMode.FULL, JarOrigin, indexCache)
+}
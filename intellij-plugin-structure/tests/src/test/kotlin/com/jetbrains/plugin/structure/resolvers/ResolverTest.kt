@@ -37,6 +37,32 @@ class ResolverTest {
     assertTrue(cacheResolver.containsPackage(""))
   }
 
+  @Test
+  fun `weighted cache resolves each class once, records statistics and does not close the delegate`() {
+    val classNode = ClassNode().apply { name = "some/Class" }
+    val fileOrigin = object : FileOrigin {
+      override val parent: FileOrigin? = null
+    }
+    val countingResolver = CountingResolver(FixedClassesResolver.create(listOf(classNode), fileOrigin))
+    val cacheResolver = CacheResolver.weighted(countingResolver, 1024 * 1024)
+
+    repeat(3) {
+      val found = cacheResolver.resolveClass("some/Class") as ResolutionResult.Found
+      assertSame(classNode, found.value)
+    }
+    assertEquals(ResolutionResult.NotFound, cacheResolver.resolveClass("some/Missing"))
+    assertEquals(ResolutionResult.NotFound, cacheResolver.resolveClass("some/Missing"))
+
+    assertEquals(2, countingResolver.resolvedClassesCount)
+    val statistics = cacheResolver.statistics
+    assertEquals(3, statistics.hitCount)
+    assertEquals(2, statistics.missCount)
+    assertEquals(0, statistics.evictionCount)
+
+    cacheResolver.close()
+    assertFalse(countingResolver.isClosed)
+  }
+
   @Test
   fun `composite resolver search order is equal to class-path`() {
     val commonPackage = "some/package"
@@ -71,6 +97,35 @@ class ResolverTest {
     assertSame(origin1, (resolver.resolveClass(sameClass) as ResolutionResult.Found).fileOrigin)
   }
 
+  @Test
+  fun `composite resolver routing by class keeps class-path search order`() {
+    val origins = List(3) {
+      object : FileOrigin {
+        override val parent: FileOrigin? = null
+      }
+    }
+    val resolvers = origins.mapIndexed { index, origin ->
+      val classNodes = (0 until 100).map { i -> ClassNode().apply { name = "split/package/Class${i * (index + 1)}" } }
+      FixedClassesResolver.create(classNodes, origin)
+    }
+
+    for (classRouting in CompositeResolver.ClassRouting.values()) {
+      val resolver = CompositeResolver.create(resolvers, classRouting)
+      for (i in 0 until 300) {
+        val className = "split/package/Class$i"
+        val expectedOrigin = resolvers.indexOfFirst { it.containsClass(className) }.takeIf { it >= 0 }?.let { origins[it] }
+        assertEquals(expectedOrigin != null, resolver.containsClass(className))
+        val result = resolver.resolveClass(className)
+        if (expectedOrigin == null) {
+          assertEquals(ResolutionResult.NotFound, result)
+        } else {
+          assertSame(expectedOrigin, (result as ResolutionResult.Found).fileOrigin)
+        }
+      }
+      assertFalse(resolver.containsClass("other/package/Class0"))
+    }
+  }
+
   @Test
   fun `composite resolver bundle resolution`() {
     val origin1 = object : FileOrigin {
@@ -121,6 +176,64 @@ class ResolverTest {
     assertEquals("value3", enResolveResult.value.getString("en.only.key"))
   }
 
+  @Test
+  fun `resolvers created in parallel keep the order of sources`() {
+    val fileOrigin = object : FileOrigin {
+      override val parent: FileOrigin? = null
+    }
+    val sources = (0 until 50).toList()
+    val resolvers = buildResolversInParallel(sources, parallelism = 4) { index ->
+      FixedClassesResolver.create(listOf(ClassNode().apply { name = "some/Class$index" }), fileOrigin)
+    }
+    assertEquals(sources.map { setOf("some/Class$it") }, resolvers.map { it.allClasses })
+  }
+
+  @Test
+  fun `resolvers created in parallel are closed if creation of any of them fails`() {
+    val fileOrigin = object : FileOrigin {
+      override val parent: FileOrigin? = null
+    }
+    val createdResolvers = Collections.synchronizedList(arrayListOf<CountingResolver>())
+    val failure = IllegalStateException("Corrupted jar")
+    val thrown = assertThrows(IllegalStateException::class.java) {
+      buildResolversInParallel((0 until 20).toList(), parallelism = 4) { index ->
+        if (index == 7) {
+          throw failure
+        }
+        CountingResolver(FixedClassesResolver.create(emptyList(), fileOrigin)).also { createdResolvers += it }
+      }
+    }
+    assertSame(failure, thrown)
+    assertTrue(createdResolvers.all { it.isClosed })
+  }
+
+  private class CountingResolver(private val delegate: Resolver) : Resolver() {
+    var resolvedClassesCount = 0
+
+    var isClosed = false
+
+    override val readMode get() = delegate.readMode
+    override val allClasses get() = delegate.allClasses
+    override val allPackages get() = delegate.allPackages
+    override val allBundleNameSet get() = delegate.allBundleNameSet
+
+    override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+      resolvedClassesCount++
+      return delegate.resolveClass(className)
+    }
+
+    override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale) =
+      delegate.resolveExactPropertyResourceBundle(baseName, locale)
+
+    override fun containsClass(className: String) = delegate.containsClass(className)
+    override fun containsPackage(packageName: String) = delegate.containsPackage(packageName)
+    override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean) = delegate.processAllClasses(processor)
+    override fun close() {
+      isClosed = true
+      delegate.close()
+    }
+  }
+
   private fun buildPropertyResourceBundle(properties: Map<String, String>): PropertyResourceBundle {
     val reader = properties.entries.joinToString(separator = "\n") {
       "${it.key}=${it.value}"
@@ -0,0 +1,27 @@
+plugins {
+  alias(libs.plugins.jmh)
+}
+
+dependencies {
+  jmhImplementation(project(":verifier-intellij"))
+  jmhRuntimeOnly(sharedLibs.logback.classic)
+}
+
+val mockIdeDir = project(":verifier-test").layout.buildDirectory.dir("mocks/after-idea")
+val mockPluginJar = project(":verifier-test").layout.buildDirectory.file("mocks/mock-plugin-1.0.jar")
+
+/**
+ * Benchmarks run against the mock IDE and the mock plugin of the `verifier-test` project.
+ * Results are written as JSON named after the project version, so results of different versions can be compared.
+ */
+jmh {
+  jmhVersion = libs.versions.jmh
+  resultFormat = "JSON"
+  resultsFile = layout.buildDirectory.file("results/jmh/results-${project.version}.json")
+  jvmArgsAppend.add(mockIdeDir.map { "-Dverifier.benchmarks.mockIde=${it.asFile.absolutePath}" })
+  jvmArgsAppend.add(mockPluginJar.map { "-Dverifier.benchmarks.mockPlugin=${it.asFile.absolutePath}" })
+}
+
+tasks.named("jmh") {
+  dependsOn(":verifier-test:prepareAfterIdea", ":verifier-test:prepareMockPlugin")
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.pluginverifier.resolution.ClassResolverProvider
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.PluginVerificationContext
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Bytecode verification of all classes of the mock plugin against the mock IDE.
+ *
+ * Class resolvers of the plugin are created anew for each invocation, as for each verified plugin,
+ * while caches shared by verifications against the same IDE stay warm.
+ */
+@State(Scope.Benchmark)
+open class BytecodeVerifierBenchmark {
+
+  private val bytecodeVerifier = BytecodeVerifier()
+
+  private lateinit var classResolvers: ClassResolverProvider.Result
+
+  private lateinit var classesToCheck: Set<String>
+
+  @Setup(Level.Invocation)
+  fun setUp(environment: VerificationEnvironment) {
+    classResolvers = environment.verificationDescriptor.classResolverProvider.provide(environment.pluginDetails)
+    classesToCheck = classResolvers.pluginResolver.allClasses
+  }
+
+  @TearDown(Level.Invocation)
+  fun tearDown() {
+    classResolvers.close()
+  }
+
+  @Benchmark
+  fun verify(environment: VerificationEnvironment, blackhole: Blackhole) {
+    val context = PluginVerificationContext(
+      environment.plugin,
+      environment.verificationDescriptor,
+      classResolvers.pluginResolver,
+      classResolvers.allResolver,
+      environment.verificationDescriptor.classResolverProvider.provideExternalClassesPackageFilter(),
+      classResolvers.dependenciesGraph
+    )
+    bytecodeVerifier.verify(classesToCheck, context) {}
+    blackhole.consume(context.compatibilityProblems)
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.utils.closeAll
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.ide.classes.IdeResolverCreator
+import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesFinder
+import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesLocations
+import com.jetbrains.pluginverifier.createPluginResolver
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Lookup of all classes of the mock plugin and the mock IDE through a [CompositeResolver],
+ * the plugin classes first, as in a verification.
+ */
+@State(Scope.Benchmark)
+open class CompositeResolverBenchmark {
+
+  private lateinit var ideResolver: Resolver
+
+  private lateinit var pluginClassesLocations: IdePluginClassesLocations
+
+  private lateinit var resolver: Resolver
+
+  private lateinit var classNames: List<String>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    ideResolver = IdeResolverCreator.createIdeResolver(MockEnvironment.createMockIde())
+    pluginClassesLocations = IdePluginClassesFinder.findPluginClasses(MockEnvironment.createMockPlugin(), Resolver.ReadMode.FULL)
+    resolver = CompositeResolver.create(pluginClassesLocations.createPluginResolver(), ideResolver)
+    classNames = resolver.allClasses.toList()
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    listOf(pluginClassesLocations, ideResolver).closeAll()
+  }
+
+  @Benchmark
+  fun resolveClass(blackhole: Blackhole) {
+    for (className in classNames) {
+      blackhole.consume(resolver.resolveClass(className))
+    }
+  }
+}
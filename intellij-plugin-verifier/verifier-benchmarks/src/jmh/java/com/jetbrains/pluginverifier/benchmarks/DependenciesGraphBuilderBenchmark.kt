@@ -0,0 +1,26 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.utils.closeAll
+import com.jetbrains.pluginverifier.dependencies.DependenciesGraphBuilder
+import com.jetbrains.pluginverifier.dependencies.resolution.BundledPluginDependencyFinder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Resolution of the dependencies of the mock plugin among the plugins bundled to the mock IDE.
+ */
+open class DependenciesGraphBuilderBenchmark {
+
+  @Benchmark
+  fun buildDependenciesGraph(environment: VerificationEnvironment, blackhole: Blackhole) {
+    val ide = environment.ideDescriptor.ide
+    val dependenciesGraphBuilder = DependenciesGraphBuilder(BundledPluginDependencyFinder(ide, environment.pluginDetailsCache))
+    val (dependenciesGraph, dependencies) = dependenciesGraphBuilder.buildDependenciesGraph(environment.plugin, ide)
+    blackhole.consume(dependenciesGraph)
+    dependencies.closeAll()
+  }
+}
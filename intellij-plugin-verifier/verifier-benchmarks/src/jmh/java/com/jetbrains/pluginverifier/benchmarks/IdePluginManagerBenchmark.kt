@@ -0,0 +1,20 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.intellij.plugin.IdePluginManager
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Creation of the mock plugin from its jar, including validation of the plugin descriptor.
+ */
+open class IdePluginManagerBenchmark {
+
+  @Benchmark
+  fun createPlugin(blackhole: Blackhole) {
+    blackhole.consume(IdePluginManager.createManager().createPlugin(MockEnvironment.mockPluginPath))
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Opening of the mock plugin jar and lookup of all its classes.
+ */
+@State(Scope.Benchmark)
+open class JarFileResolverBenchmark {
+
+  private lateinit var resolver: JarFileResolver
+
+  private lateinit var classNames: List<String>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    resolver = openJar()
+    classNames = resolver.allClasses.toList()
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    resolver.close()
+  }
+
+  @Benchmark
+  fun open(blackhole: Blackhole) {
+    openJar().use { blackhole.consume(it.allClasses.size) }
+  }
+
+  @Benchmark
+  fun lookup(blackhole: Blackhole) {
+    for (className in classNames) {
+      blackhole.consume(resolver.resolveClass(className))
+    }
+  }
+
+  private fun openJar() = JarFileResolver(MockEnvironment.mockPluginPath, Resolver.ReadMode.FULL, BenchmarkFileOrigin, indexCache = null)
+
+  private object BenchmarkFileOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+}
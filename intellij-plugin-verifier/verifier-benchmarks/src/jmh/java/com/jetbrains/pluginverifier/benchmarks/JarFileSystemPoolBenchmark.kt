@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.utils.ReferenceCountingPool
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.base.utils.listRecursivelyAllFilesWithExtension
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Threads
+import org.openjdk.jmh.infra.Blackhole
+import java.nio.file.FileSystem
+import java.nio.file.FileSystems
+import java.nio.file.Path
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Contention of a pool of jar file systems shared by one thread and by all available threads,
+ * for jars of the mock IDE and the mock plugin. Scalability of the pool is the ratio
+ * of the throughput of an `AllThreads` benchmark to the throughput of the `SingleThread` one.
+ *
+ * - `acquireOpen` - acquisition and release of file systems that are already open.
+ * - `reopen` - acquisition of file systems that are closed as soon as they are unused,
+ *   so that most acquisitions open the jar anew and must not block acquisitions of other jars.
+ */
+@State(Scope.Benchmark)
+open class JarFileSystemPoolBenchmark {
+
+  private lateinit var jars: List<Path>
+
+  private lateinit var pool: ReferenceCountingPool<Path, FileSystem>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    jars = MockEnvironment.mockIdePath.resolve("lib").listRecursivelyAllFilesWithExtension("jar") + MockEnvironment.mockPluginPath
+    pool = ReferenceCountingPool(MAX_OPEN_JAR_FILE_SYSTEMS, UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE) { _, fileSystem -> fileSystem.closeLogged() }
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    pool.closeAll()
+  }
+
+  @Benchmark
+  @Threads(1)
+  fun acquireOpenSingleThread(blackhole: Blackhole) = acquire(blackhole, closeIfUnused = false)
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  fun acquireOpenAllThreads(blackhole: Blackhole) = acquire(blackhole, closeIfUnused = false)
+
+  @Benchmark
+  @Threads(1)
+  fun reopenSingleThread(blackhole: Blackhole) = acquire(blackhole, closeIfUnused = true)
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  fun reopenAllThreads(blackhole: Blackhole) = acquire(blackhole, closeIfUnused = true)
+
+  private fun acquire(blackhole: Blackhole, closeIfUnused: Boolean) {
+    val jar = jars[ThreadLocalRandom.current().nextInt(jars.size)]
+    val fileSystem = pool.acquire(jar) { FileSystems.newFileSystem(it, JarFileSystemPoolBenchmark::class.java.classLoader) }
+    try {
+      blackhole.consume(fileSystem.rootDirectories)
+    } finally {
+      pool.release(jar, closeIfUnused)
+    }
+  }
+
+  private companion object {
+    const val MAX_OPEN_JAR_FILE_SYSTEMS = 256
+
+    const val UNUSED_JAR_FILE_SYSTEMS_TO_CLOSE = 64
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.plugin.PluginCreationSuccess
+import com.jetbrains.plugin.structure.ide.Ide
+import com.jetbrains.plugin.structure.ide.IdeManager
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.plugin.structure.intellij.plugin.IdePluginManager
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Mock IDE and mock plugin built by the `verifier-test` project.
+ * Their paths are passed by the `jmh` Gradle task.
+ */
+object MockEnvironment {
+
+  val mockIdePath: Path
+    get() = getPathProperty("verifier.benchmarks.mockIde")
+
+  val mockPluginPath: Path
+    get() = getPathProperty("verifier.benchmarks.mockPlugin")
+
+  val jdkPath: Path
+    get() = Paths.get(System.getProperty("java.home"))
+
+  fun createMockIde(): Ide = IdeManager.createManager().createIde(mockIdePath)
+
+  fun createMockPlugin(): IdePlugin =
+    (IdePluginManager.createManager().createPlugin(mockPluginPath) as PluginCreationSuccess).plugin
+
+  private fun getPathProperty(name: String): Path {
+    val value = checkNotNull(System.getProperty(name)) { "System property '$name' is not set. Run benchmarks via the 'jmh' Gradle task" }
+    return Paths.get(value)
+  }
+}
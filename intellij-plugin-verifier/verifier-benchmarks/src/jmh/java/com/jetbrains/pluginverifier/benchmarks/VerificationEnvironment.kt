@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.utils.closeAll
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.pluginverifier.PluginVerificationDescriptor
+import com.jetbrains.pluginverifier.dependencies.resolution.BundledPluginDependencyFinder
+import com.jetbrains.pluginverifier.ide.IdeDescriptor
+import com.jetbrains.pluginverifier.plugin.DefaultPluginDetailsProvider
+import com.jetbrains.pluginverifier.plugin.PluginDetails
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.plugin.PluginFilesBank
+import com.jetbrains.pluginverifier.plugin.SizeLimitedPluginDetailsCache
+import com.jetbrains.pluginverifier.repository.cleanup.DiskSpaceSetting
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
+import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.marketplace.MarketplaceRepository
+import com.jetbrains.pluginverifier.resolution.DefaultClassResolverProvider
+import com.jetbrains.pluginverifier.verifiers.packages.DefaultPackageFilter
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.net.URL
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Verification of the mock plugin against the mock IDE, set up as in the `verifier-test` project.
+ */
+@State(Scope.Benchmark)
+open class VerificationEnvironment {
+
+  lateinit var ideDescriptor: IdeDescriptor
+    private set
+
+  lateinit var plugin: IdePlugin
+    private set
+
+  lateinit var pluginDetailsCache: PluginDetailsCache
+    private set
+
+  lateinit var pluginDetails: PluginDetails
+    private set
+
+  lateinit var verificationDescriptor: PluginVerificationDescriptor.IDE
+    private set
+
+  private lateinit var tempDirectory: Path
+
+  private lateinit var pluginDetailsCacheEntry: PluginDetailsCache.Result
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    tempDirectory = Files.createTempDirectory("verifier-benchmarks")
+    val pluginFilesBank = PluginFilesBank.create(
+      MarketplaceRepository(URL("https://unused.com")),
+      tempDirectory.resolve("downloads"),
+      DiskSpaceSetting(SpaceAmount.ZERO_SPACE)
+    )
+    pluginDetailsCache = SizeLimitedPluginDetailsCache(10, pluginFilesBank, DefaultPluginDetailsProvider(tempDirectory.resolve("extracted")))
+    ideDescriptor = IdeDescriptor.create(MockEnvironment.mockIdePath, MockEnvironment.jdkPath, null)
+    plugin = MockEnvironment.createMockPlugin()
+
+    val pluginInfo = LocalPluginInfo(plugin)
+    pluginDetailsCacheEntry = pluginDetailsCache.getPluginDetailsCacheEntry(pluginInfo)
+    pluginDetails = (pluginDetailsCacheEntry as PluginDetailsCache.Result.Provided).pluginDetails
+
+    val classResolverProvider = DefaultClassResolverProvider(
+      BundledPluginDependencyFinder(ideDescriptor.ide, pluginDetailsCache),
+      ideDescriptor,
+      DefaultPackageFilter(emptyList())
+    )
+    verificationDescriptor = PluginVerificationDescriptor.IDE(ideDescriptor, classResolverProvider, pluginInfo)
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    listOf(pluginDetailsCacheEntry, pluginDetailsCache, ideDescriptor).closeAll()
+    tempDirectory.deleteLogged()
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.plugin.structure.intellij.resources.DefaultResourceResolver
+import com.jetbrains.plugin.structure.intellij.utils.JDOMUtil
+import com.jetbrains.plugin.structure.intellij.xinclude.XIncluder
+import org.jdom2.Document
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Resolution of `xi:include` references of a plugin descriptor that includes
+ * [includedFilesCount] files, each of them including one more nested file.
+ */
+@State(Scope.Benchmark)
+open class XIncluderBenchmark {
+
+  @Param("10", "100")
+  @JvmField
+  var includedFilesCount = 0
+
+  private lateinit var directory: Path
+
+  private lateinit var descriptorPath: Path
+
+  private lateinit var descriptor: Document
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    directory = Files.createTempDirectory("xinclude-benchmark")
+    descriptorPath = directory.resolve("plugin.xml")
+    val includes = (0 until includedFilesCount).joinToString(separator = "\n") { index ->
+      directory.resolve("included-$index.xml").writeText(xmlDocument("""<xi:include href="nested-$index.xml"/>"""))
+      directory.resolve("nested-$index.xml").writeText(xmlDocument("""<extension id="nested-$index"/>"""))
+      """<xi:include href="included-$index.xml"/>"""
+    }
+    descriptorPath.writeText(xmlDocument(includes))
+    descriptor = Files.newInputStream(descriptorPath).use { JDOMUtil.loadDocument(it) }
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    directory.deleteLogged()
+  }
+
+  @Benchmark
+  fun resolveXIncludes(): Document =
+    XIncluder.resolveXIncludes(descriptor, descriptorPath.fileName.toString(), DefaultResourceResolver, descriptorPath)
+
+  private fun xmlDocument(content: String) =
+    """<idea-plugin xmlns:xi="http://www.w3.org/2001/XInclude">
+      |$content
+      |</idea-plugin>""".trimMargin()
+}
@@ -4,11 +4,13 @@
 
 package com.jetbrains.pluginverifier
 
+import com.jetbrains.plugin.structure.base.plugin.Settings
 import com.jetbrains.plugin.structure.base.utils.createDir
 import com.jetbrains.plugin.structure.base.utils.forceDeleteIfExists
 import com.jetbrains.plugin.structure.base.utils.formatDuration
 import com.jetbrains.pluginverifier.PluginVerifierMain.commandRunners
 import com.jetbrains.pluginverifier.PluginVerifierMain.main
+import com.jetbrains.pluginverifier.ide.IdeClassIndex
 import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
 import com.jetbrains.pluginverifier.output.OutputOptions
@@ -24,10 +26,12 @@ import com.jetbrains.pluginverifier.repository.cleanup.SpaceUnit
 import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginRepositoryFactory
 import com.jetbrains.pluginverifier.repository.repositories.marketplace.MarketplaceRepository
 import com.jetbrains.pluginverifier.tasks.CommandRunner
+import com.jetbrains.pluginverifier.tasks.buildIdeClassIndex.BuildIdeClassIndexCommand
 import com.jetbrains.pluginverifier.tasks.checkIde.CheckIdeRunner
 import com.jetbrains.pluginverifier.tasks.checkPlugin.CheckPluginRunner
 import com.jetbrains.pluginverifier.tasks.checkPluginApi.CheckPluginApiRunner
 import com.jetbrains.pluginverifier.tasks.checkTrunkApi.CheckTrunkApiRunner
+import com.jetbrains.pluginverifier.tasks.mergeResults.MergeResultsCommand
 import com.jetbrains.pluginverifier.tasks.processAllPlugins.ProcessAllPluginsCommand
 import com.jetbrains.pluginverifier.tasks.profiling.MeasuredResult
 import com.jetbrains.pluginverifier.tasks.profiling.measurePluginVerification
@@ -49,12 +53,16 @@ object PluginVerifierMain {
     CheckIdeRunner(),
     CheckTrunkApiRunner(),
     CheckPluginApiRunner(),
-    ProcessAllPluginsCommand()
+    ProcessAllPluginsCommand(),
+    BuildIdeClassIndexCommand(),
+    MergeResultsCommand()
   )
 
-  private val pluginVerifierVersion: String by lazy {
+  internal const val UNKNOWN_VERSION = "<unknown>"
+
+  internal val pluginVerifierVersion: String by lazy {
     val versionTxtUrl = PluginVerifierMain::class.java.getResource("/META-INF/intellij-plugin-verifier-version.txt")
-    versionTxtUrl ?: return@lazy "<unknown>"
+    versionTxtUrl ?: return@lazy UNKNOWN_VERSION
     versionTxtUrl.readText()
   }
 
@@ -87,6 +95,31 @@ object PluginVerifierMain {
 
   private val ideDownloadDirectory: Path = verifierHomeDirectory.resolve("ides").createDir()
 
+  private fun setupJarIndexCache() {
+    if (Settings.JAR_INDEX_CACHE_DIRECTORY.get().isEmpty()) {
+      Settings.JAR_INDEX_CACHE_DIRECTORY.set(verifierHomeDirectory.resolve("jar-index").toString())
+    }
+  }
+
+  /**
+   * The result cache and the class findings memo hash classes by the bytes they have been read from.
+   */
+  private fun setupClassBytesDigests() {
+    Settings.CLASS_BYTES_DIGESTS.set("true")
+  }
+
+  private fun setupIdeClassIndex() {
+    if (IdeClassIndex.getIndexDirectory() == null) {
+      System.setProperty(IdeClassIndex.INDEX_DIRECTORY_PROPERTY, verifierHomeDirectory.resolve("ide-class-index").toString())
+    }
+  }
+
+  private fun setupResultCache(opts: CmdOpts) {
+    if (opts.resultCacheDir == null) {
+      opts.resultCacheDir = verifierHomeDirectory.resolve("result-cache").toString()
+    }
+  }
+
   @JvmStatic
   fun main(args: Array<String>) {
     println("Starting the IntelliJ Plugin Verifier $pluginVerifierVersion")
@@ -106,6 +139,11 @@ object PluginVerifierMain {
     freeArgs = freeArgs.drop(1)
 
     val runner = findTaskRunner(command)
+    runner.validateOptions(opts, freeArgs)
+    setupJarIndexCache()
+    setupClassBytesDigests()
+    setupIdeClassIndex()
+    setupResultCache(opts)
     val outputOptions = OptionsParser.parseOutputOptions(opts)
 
     val pluginRepository = if (opts.offlineMode) {
@@ -87,5 +87,23 @@ open class CmdOpts(
     description = "The problems that will be ignored. Comma-separated list of plugin problem identifiers.\n" +
       "\tExample: -mute ForbiddenPluginIdPrefix,TemplateWordInPluginId"
   )
-  var mutedPluginProblems: Array<String> = emptyArray()
+  var mutedPluginProblems: Array<String> = emptyArray(),
+
+  @set:Argument(
+    "result-cache-dir",
+    description = "The directory where results of verifications are cached, so that unchanged plugins are not verified against the same IDE builds again. " +
+      "By default, the 'result-cache' directory of the Plugin Verifier home directory is used."
+  )
+  var resultCacheDir: String? = null,
+
+  @set:Argument("no-result-cache", description = "Specify this flag if the Plugin Verifier must not reuse cached results of previous verifications and must not cache new ones.")
+  var noResultCache: Boolean = false,
+
+  @set:Argument(
+    "shard",
+    description = "Verify only the plugins of the shard specified as '<shard>/<number of shards>', for example '3/16'. " +
+      "Plugins are split into shards by their IDs, so that machines verifying different shards of the same plugins set verify disjoint plugins. " +
+      "Reports of all shards may be combined by the 'merge-results' command."
+  )
+  var shard: String? = null
 )
\ No newline at end of file
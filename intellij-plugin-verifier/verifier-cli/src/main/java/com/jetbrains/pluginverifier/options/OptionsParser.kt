@@ -5,6 +5,7 @@
 package com.jetbrains.pluginverifier.options
 
 import com.jetbrains.plugin.structure.base.utils.*
+import com.jetbrains.pluginverifier.PluginVerifierMain
 import com.jetbrains.pluginverifier.filtering.*
 import com.jetbrains.pluginverifier.filtering.documented.DocumentedProblemsFilter
 import com.jetbrains.pluginverifier.filtering.documented.DocumentedProblemsPagesFetcher
@@ -19,6 +20,7 @@ import com.jetbrains.pluginverifier.output.teamcity.TeamCityHistory
 import com.jetbrains.pluginverifier.output.teamcity.TeamCityLog
 import com.jetbrains.pluginverifier.output.teamcity.TeamCityResultPrinter
 import com.jetbrains.pluginverifier.repository.downloader.DownloadResult
+import com.jetbrains.pluginverifier.results.VerificationResultCache
 import com.jetbrains.pluginverifier.verifiers.packages.DefaultPackageFilter
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
 import org.slf4j.LoggerFactory
@@ -64,7 +66,9 @@ object OptionsParser {
     )
   }
 
-  private fun parseOutputFormats(opts: CmdOpts): List<OutputFormat> {
+  fun getPluginsShard(opts: CmdOpts): PluginsShard? = opts.shard?.let { PluginsShard.parse(it) }
+
+  fun parseOutputFormats(opts: CmdOpts): List<OutputFormat> {
     if (opts.outputFormats.isExplicitlyEmpty()) {
       return emptyList()
     }
@@ -94,7 +98,7 @@ object OptionsParser {
      }
   }
 
-  fun createIdeDescriptor(ide: String, opts: CmdOpts): IdeDescriptor {
+  fun createIdeDescriptor(ide: String, opts: CmdOpts, useClassIndex: Boolean = true): IdeDescriptor {
     val ideFile = if (ide.startsWith("[") && ide.endsWith("]")) {
       downloadIde(ide)
     } else {
@@ -102,16 +106,42 @@ object OptionsParser {
     }
     require(ideFile.isDirectory) { "IDE must reside in a directory: $ideFile" }
     LOG.info(READING_IDE_FROM.format(ideFile))
-    return createIdeDescriptor(ideFile, opts)
+    return createIdeDescriptor(ideFile, opts, useClassIndex)
   }
 
-  fun createIdeDescriptor(idePath: Path, opts: CmdOpts): IdeDescriptor {
+  fun createIdeDescriptor(idePath: Path, opts: CmdOpts, useClassIndex: Boolean = true): IdeDescriptor {
     val defaultJdkPath = opts.runtimeDir?.let {
       Paths.get(it).also {
         LOG.info("Using Java runtime from $it")
       }
     }
-    return IdeDescriptor.create(idePath, defaultJdkPath, null)
+    return IdeDescriptor.create(idePath, defaultJdkPath, null, useClassIndex)
+  }
+
+  /**
+   * Creates the cache of verification results, or returns `null` if it is disabled with `-no-result-cache`
+   * or the version of the Plugin Verifier is unknown, so that results of different builds cannot be told apart.
+   */
+  fun createVerificationResultCache(opts: CmdOpts): VerificationResultCache? {
+    val resultCacheDir = opts.resultCacheDir
+    if (opts.noResultCache || resultCacheDir == null) {
+      return null
+    }
+    val verifierVersion = PluginVerifierMain.pluginVerifierVersion
+    if (verifierVersion == PluginVerifierMain.UNKNOWN_VERSION) {
+      return null
+    }
+    return VerificationResultCache(Paths.get(resultCacheDir), verifierVersion, getResultCacheOptionsFingerprint(opts))
+  }
+
+  /**
+   * Options that change findings of verifications, but are not known to the [com.jetbrains.pluginverifier.PluginVerifier].
+   * Problem filters are not included, because they are applied to cached findings anew.
+   */
+  private fun getResultCacheOptionsFingerprint(opts: CmdOpts): String = with(opts) {
+    "externalPrefixes=" + externalClassesPrefixes.sorted().joinToString(":") +
+      ";submissionType=" + submissionType +
+      ";mute=" + mutedPluginProblems.sorted().joinToString(",")
   }
 
   fun createPluginParsingConfiguration(opts: CmdOpts): PluginParsingConfiguration = with(opts) {
@@ -38,12 +38,22 @@ data class PluginsSet(
 
 ) {
 
+  /**
+   * Shard of the scheduled plugins to be verified, if the verification is split across several machines.
+   *
+   * Plugins of other shards are neither verified nor reported as ignored.
+   */
+  var shard: PluginsShard? = null
+
+  private val shardPlugins: List<PluginInfo>
+    get() = shard?.let { shard -> scheduledPlugins.filter { it in shard } } ?: scheduledPlugins
+
   /**
    * Evaluates the actual set of plugins to be verified
    * in the upcoming verification task.
    */
   val pluginsToCheck: List<PluginInfo>
-    get() = scheduledPlugins.filter { plugin ->
+    get() = shardPlugins.filter { plugin ->
       pluginFilters.all { it.shouldVerifyPlugin(plugin) == PluginFilter.Result.Verify }
     }
 
@@ -51,7 +61,7 @@ data class PluginsSet(
    * Contains reasons why the plugins were ignored from the verification.
    */
   val ignoredPlugins: Map<PluginInfo, String>
-    get() = scheduledPlugins.asSequence().mapNotNull { plugin ->
+    get() = shardPlugins.asSequence().mapNotNull { plugin ->
       val ignoreReason = getReasonToNotVerify(plugin)
       if (ignoreReason != null) {
         plugin to ignoreReason
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.options
+
+import com.jetbrains.pluginverifier.repository.PluginInfo
+
+/**
+ * Shard #[index] of [count] shards of a plugins set.
+ *
+ * Plugins are assigned to shards by their IDs only,
+ * so that the same plugins set is split into the same disjoint shards on every machine,
+ * and all versions of a plugin belong to the same shard.
+ */
+data class PluginsShard(val index: Int, val count: Int) {
+
+  init {
+    require(count > 0 && index in 1..count) { "Shard must be specified as '<shard>/<number of shards>', where 1 <= shard <= number of shards, but was $this" }
+  }
+
+  operator fun contains(pluginInfo: PluginInfo): Boolean =
+    Math.floorMod(pluginInfo.pluginId.hashCode(), count) == index - 1
+
+  override fun toString() = "$index/$count"
+
+  companion object {
+    fun parse(shard: String): PluginsShard {
+      val index = shard.substringBefore('/').trim().toIntOrNull()
+      val count = shard.substringAfter('/', "").trim().toIntOrNull()
+      if (index == null || count == null) {
+        throw IllegalArgumentException("Shard must be specified as '<shard>/<number of shards>', for example '3/16', but was '$shard'")
+      }
+      return PluginsShard(index, count)
+    }
+  }
+}
@@ -4,6 +4,7 @@
 
 package com.jetbrains.pluginverifier.tasks
 
+import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 import com.jetbrains.pluginverifier.repository.PluginRepository
@@ -12,6 +13,12 @@ interface CommandRunner {
 
   val commandName: String
 
+  /**
+   * Checks the command line before the verification reports directory is prepared,
+   * which deletes the contents of a non-empty `-verification-reports-dir`.
+   */
+  fun validateOptions(opts: CmdOpts, freeArgs: List<String>) = Unit
+
   fun getParametersBuilder(
     pluginRepository: PluginRepository,
     pluginDetailsCache: PluginDetailsCache,
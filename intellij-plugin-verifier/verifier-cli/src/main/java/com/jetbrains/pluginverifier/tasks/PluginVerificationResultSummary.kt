@@ -0,0 +1,29 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks
+
+import com.jetbrains.pluginverifier.PluginVerificationResult
+
+/**
+ * Returns a copy of the verification result without API usages, ignored problems and telemetry,
+ * which have already been reported to the verification reportage when the verification finished.
+ *
+ * Tasks that verify many plugins keep such summaries instead of full results
+ * if none of the configured output formats prints API usages.
+ */
+fun PluginVerificationResult.toSummary(): PluginVerificationResult =
+  if (this is PluginVerificationResult.Verified) {
+    PluginVerificationResult.Verified(
+      plugin,
+      verificationTarget,
+      dependenciesGraph,
+      compatibilityProblems,
+      compatibilityWarnings = compatibilityWarnings,
+      pluginStructureWarnings = pluginStructureWarnings,
+      dynamicPluginStatus = dynamicPluginStatus
+    )
+  } else {
+    this
+  }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.buildIdeClassIndex
+
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import com.jetbrains.pluginverifier.ide.IdeClassIndex
+import com.jetbrains.pluginverifier.ide.IdeDescriptor
+import com.jetbrains.pluginverifier.options.CmdOpts
+import com.jetbrains.pluginverifier.options.OptionsParser
+import com.jetbrains.pluginverifier.output.OutputOptions
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginRepository
+import com.jetbrains.pluginverifier.tasks.CommandRunner
+import com.jetbrains.pluginverifier.tasks.Task
+import com.jetbrains.pluginverifier.tasks.TaskParameters
+import com.jetbrains.pluginverifier.tasks.TaskParametersBuilder
+import com.jetbrains.pluginverifier.tasks.TaskResult
+import com.jetbrains.pluginverifier.tasks.TaskResultPrinter
+import java.nio.file.Path
+
+/**
+ * `build-ide-class-index` command writes [IdeClassIndex]es of IDEs and their JDKs
+ * to the directory specified by the `intellij.plugin.verifier.ide.class.index.dir` system property,
+ * so that subsequent verifications against these IDEs map the indexes instead of opening IDE jars.
+ *
+ * ```java -jar verifier.jar [-runtime-dir <JDK>] build-ide-class-index <IDE 1> [<IDE 2> ...]```
+ */
+class BuildIdeClassIndexCommand : CommandRunner {
+  override val commandName: String
+    get() = "build-ide-class-index"
+
+  override fun getParametersBuilder(
+    pluginRepository: PluginRepository,
+    pluginDetailsCache: PluginDetailsCache,
+    reportage: PluginVerificationReportage
+  ): TaskParametersBuilder = object : TaskParametersBuilder {
+    override fun build(opts: CmdOpts, freeArgs: List<String>): TaskParameters {
+      require(freeArgs.isNotEmpty()) { "Usage: java -jar verifier.jar build-ide-class-index <IDE 1> [<IDE 2> ...]" }
+      val indexDirectory = requireNotNull(IdeClassIndex.getIndexDirectory()) {
+        "Directory of IDE class indexes is not specified by -D${IdeClassIndex.INDEX_DIRECTORY_PROPERTY}"
+      }
+      val ideDescriptors = arrayListOf<IdeDescriptor>()
+      ideDescriptors.closeOnException {
+        for (ide in freeArgs) {
+          reportage.logVerificationStage("Reading IDE $ide")
+          ideDescriptors += OptionsParser.createIdeDescriptor(ide, opts, useClassIndex = false)
+        }
+      }
+      return BuildIdeClassIndexParameters(ideDescriptors, indexDirectory)
+    }
+  }
+}
+
+class BuildIdeClassIndexParameters(
+  val ideDescriptors: List<IdeDescriptor>,
+  val indexDirectory: Path
+) : TaskParameters {
+  override val presentableText
+    get() = "Build class indexes of IDEs ${ideDescriptors.joinToString()} in $indexDirectory"
+
+  override fun createTask() = BuildIdeClassIndexTask(this)
+
+  override fun close() {
+    ideDescriptors.forEach { it.close() }
+  }
+}
+
+class BuildIdeClassIndexTask(private val params: BuildIdeClassIndexParameters) : Task {
+  override fun execute(reportage: PluginVerificationReportage, pluginDetailsCache: PluginDetailsCache): TaskResult {
+    val indexFiles = params.ideDescriptors.map { ideDescriptor ->
+      reportage.logVerificationStage("Building class index of $ideDescriptor")
+      IdeClassIndex.write(ideDescriptor, params.indexDirectory)
+    }
+    return BuildIdeClassIndexTaskResult(indexFiles)
+  }
+}
+
+class BuildIdeClassIndexTaskResult(private val indexFiles: List<Path>) : TaskResult {
+  override fun createTaskResultsPrinter(pluginRepository: PluginRepository): TaskResultPrinter =
+    object : TaskResultPrinter {
+      override fun printResults(taskResult: TaskResult, outputOptions: OutputOptions) {
+        indexFiles.forEach { println("Class index has been saved to $it") }
+      }
+    }
+}
@@ -9,6 +9,7 @@ import com.jetbrains.pluginverifier.PluginVerificationDescriptor
 import com.jetbrains.pluginverifier.PluginVerificationTarget
 import com.jetbrains.pluginverifier.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.ide.IdeDescriptor
+import com.jetbrains.pluginverifier.results.VerificationResultCache
 import com.jetbrains.pluginverifier.tasks.TaskParameters
 
 
@@ -18,7 +19,13 @@ class CheckIdeParams(
   val problemsFilters: List<ProblemsFilter>,
   val missingCompatibleVersionsProblems: List<MissingCompatibleVersionProblem>,
   private val ideDescriptor: IdeDescriptor,
-  val excludeExternalBuildClassesSelector: Boolean
+  val excludeExternalBuildClassesSelector: Boolean,
+  val resultCache: VerificationResultCache? = null,
+  /**
+   * Whether full results are kept until the end of the task for output formats that print API usages.
+   * Otherwise, only [summaries][com.jetbrains.pluginverifier.tasks.toSummary] of results are kept.
+   */
+  val keepFullResults: Boolean = true
 ) : TaskParameters {
 
   override val presentableText
@@ -15,6 +15,7 @@ import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
 import com.jetbrains.pluginverifier.options.PluginsParsing
 import com.jetbrains.pluginverifier.options.PluginsSet
+import com.jetbrains.pluginverifier.output.OutputFormat
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 import com.jetbrains.pluginverifier.repository.PluginInfo
@@ -36,6 +37,7 @@ class CheckIdeParamsBuilder(
       val problemsFilters = OptionsParser.getProblemsFilters(opts)
 
       val pluginsSet = PluginsSet()
+      pluginsSet.shard = OptionsParser.getPluginsShard(opts)
       PluginsParsing(pluginRepository, reportage, pluginsSet).addPluginsFromCmdOpts(opts, ideDescriptor.ideVersion)
 
       val missingCompatibleVersionsProblems = findMissingCompatibleVersionsProblems(ideDescriptor.ideVersion, pluginsSet)
@@ -63,11 +65,23 @@ class CheckIdeParamsBuilder(
         problemsFilters,
         missingCompatibleVersionsProblems,
         ideDescriptor,
-        opts.excludeExternalBuildClassesSelector
+        opts.excludeExternalBuildClassesSelector,
+        OptionsParser.createVerificationResultCache(opts),
+        needFullResults(opts)
       )
     }
   }
 
+  /**
+   * Plain output is printed only if TeamCity output is disabled, see [CheckIdeResultPrinter].
+   */
+  private fun needFullResults(opts: CmdOpts): Boolean {
+    val outputFormats = OptionsParser.parseOutputFormats(opts)
+    return OutputFormat.HTML in outputFormats
+      || OutputFormat.MARKDOWN in outputFormats
+      || OutputFormat.PLAIN in outputFormats && !opts.needTeamCityLog
+  }
+
   /**
    * For all unique plugins' IDs to be verified determines
    * whether there are versions of these plugins
@@ -4,7 +4,10 @@
 
 package com.jetbrains.pluginverifier.tasks.checkIde
 
+import com.jetbrains.plugin.structure.base.utils.createParentDirs
 import com.jetbrains.plugin.structure.base.utils.pluralizeWithNumber
+import com.jetbrains.plugin.structure.base.utils.replaceInvalidFileNameCharacters
+import com.jetbrains.plugin.structure.base.utils.writeText
 import com.jetbrains.pluginverifier.PluginVerificationResult
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.output.html.HtmlResultPrinter
@@ -27,6 +30,7 @@ class CheckIdeResultPrinter(val pluginRepository: PluginRepository) : TaskResult
 
   override fun printResults(taskResult: TaskResult, outputOptions: OutputOptions) {
     with(taskResult as CheckIdeResult) {
+      saveMissingCompatibleVersionsProblems(this, outputOptions)
       if (outputOptions.teamCityLog != null) {
         val teamCityHistory = printTcLog(outputOptions.teamCityGroupType, this, outputOptions.teamCityLog)
         outputOptions.postProcessTeamCityTests(teamCityHistory)
@@ -47,6 +51,21 @@ class CheckIdeResultPrinter(val pluginRepository: PluginRepository) : TaskResult
     }
   }
 
+  /**
+   * Saves each of [CheckIdeResult.missingCompatibleVersionsProblems] to the reports directory of its plugin,
+   * so that the `merge-results` command prints them for shards of the verification.
+   */
+  private fun saveMissingCompatibleVersionsProblems(checkIdeResult: CheckIdeResult, outputOptions: OutputOptions) {
+    val pluginsDirectory = outputOptions.getTargetReportDirectory(checkIdeResult.ide).resolve("plugins")
+    for (problem in checkIdeResult.missingCompatibleVersionsProblems) {
+      val reportFile = pluginsDirectory
+        .resolve(problem.pluginId.replaceInvalidFileNameCharacters())
+        .resolve(MissingCompatibleVersionProblem.REPORT_FILE_NAME)
+      reportFile.createParentDirs()
+      reportFile.writeText(problem.toString())
+    }
+  }
+
   private fun printTcLog(groupBy: TeamCityResultPrinter.GroupBy, checkIdeResult: CheckIdeResult, tcLog: TeamCityLog): TeamCityHistory {
     with(checkIdeResult) {
       val resultPrinter = TeamCityResultPrinter(tcLog, groupBy, pluginRepository)
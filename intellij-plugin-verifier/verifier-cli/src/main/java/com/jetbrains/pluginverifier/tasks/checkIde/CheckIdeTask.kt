@@ -4,11 +4,13 @@
 
 package com.jetbrains.pluginverifier.tasks.checkIde
 
+import com.jetbrains.pluginverifier.PluginVerificationResult
 import com.jetbrains.pluginverifier.PluginVerifier
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 import com.jetbrains.pluginverifier.runSeveralVerifiers
 import com.jetbrains.pluginverifier.tasks.Task
+import com.jetbrains.pluginverifier.tasks.toSummary
 import com.jetbrains.pluginverifier.verifiers.filter.DynamicallyLoadedFilter
 
 class CheckIdeTask(private val parameters: CheckIdeParams) : Task {
@@ -24,11 +26,15 @@ class CheckIdeTask(private val parameters: CheckIdeParams) : Task {
           problemsFilters,
           pluginDetailsCache,
           listOf(DynamicallyLoadedFilter()),
-          excludeExternalBuildClassesSelector
+          excludeExternalBuildClassesSelector,
+          resultCache = resultCache
         )
       }
 
-      val results = runSeveralVerifiers(reportage, verifiers)
+      val results = arrayListOf<PluginVerificationResult>()
+      runSeveralVerifiers(reportage, verifiers) { result ->
+        results += if (keepFullResults) result else result.toSummary()
+      }
 
       return CheckIdeResult(
         verificationTarget,
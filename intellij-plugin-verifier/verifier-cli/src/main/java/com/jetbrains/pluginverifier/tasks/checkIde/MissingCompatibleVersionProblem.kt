@@ -21,4 +21,12 @@ data class MissingCompatibleVersionProblem(
 
   override fun toString() = "For plugin '$pluginId' there are no versions compatible with $ideVersion " +
     "in JetBrains Marketplace" + if (details != null) " $details" else ""
+
+  companion object {
+    /**
+     * Name of the file in the `plugins/<plugin ID>/` reports directory that contains the problem,
+     * see [CheckIdeResultPrinter].
+     */
+    const val REPORT_FILE_NAME = "missing-compatible-version.txt"
+  }
 }
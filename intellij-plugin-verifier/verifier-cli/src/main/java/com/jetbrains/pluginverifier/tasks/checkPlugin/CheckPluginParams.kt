@@ -9,6 +9,7 @@ import com.jetbrains.pluginverifier.PluginVerificationDescriptor
 import com.jetbrains.pluginverifier.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.ide.IdeDescriptor
 import com.jetbrains.pluginverifier.options.SubmissionType
+import com.jetbrains.pluginverifier.results.VerificationResultCache
 import com.jetbrains.pluginverifier.tasks.InvalidPluginFile
 import com.jetbrains.pluginverifier.tasks.TaskParameters
 
@@ -19,7 +20,8 @@ class CheckPluginParams(
   val invalidPluginFiles: List<InvalidPluginFile>,
   val excludeExternalBuildClassesSelector: Boolean,
   val internalApiVerificationMode: InternalApiVerificationMode = InternalApiVerificationMode.FULL,
-  val pluginSubmissionType: SubmissionType = SubmissionType.EXISTING
+  val pluginSubmissionType: SubmissionType = SubmissionType.EXISTING,
+  val resultCache: VerificationResultCache? = null
 ) : TaskParameters {
 
   override val presentableText
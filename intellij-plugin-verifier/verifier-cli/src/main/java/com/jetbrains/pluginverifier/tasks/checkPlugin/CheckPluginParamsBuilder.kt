@@ -90,7 +90,8 @@ class CheckPluginParamsBuilder(
       verificationDescriptors,
       pluginsSet.invalidPluginFiles,
       opts.excludeExternalBuildClassesSelector,
-      opts.internalApiVerificationMode
+      opts.internalApiVerificationMode,
+      resultCache = OptionsParser.createVerificationResultCache(opts)
     )
   }
 
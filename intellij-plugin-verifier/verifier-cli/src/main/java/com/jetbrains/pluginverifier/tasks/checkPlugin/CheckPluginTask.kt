@@ -36,7 +36,8 @@ class CheckPluginTask(private val parameters: CheckPluginParams) : Task {
           pluginDetailsCache,
           listOf(DynamicallyLoadedFilter()),
           excludeExternalBuildClassesSelector,
-          parameters.resolveApiUsageFilters
+          parameters.resolveApiUsageFilters,
+          resultCache = resultCache
         )
       }
 
@@ -22,7 +22,13 @@ class CheckTrunkApiParams(
   val trunkVerificationDescriptors: List<PluginVerificationDescriptor.IDE>,
   val releaseVerificationTarget: PluginVerificationTarget.IDE,
   val trunkVerificationTarget: PluginVerificationTarget.IDE,
-  val excludeExternalBuildClassesSelector: Boolean
+  val excludeExternalBuildClassesSelector: Boolean,
+  /**
+   * Whether full results of trunk verifications are kept until the end of the task for output formats that print API usages.
+   * Otherwise, only [summaries][com.jetbrains.pluginverifier.tasks.toSummary] of them are kept.
+   * Results of release verifications are always kept in full, because their API usages are referred to by the TeamCity output.
+   */
+  val keepFullTrunkResults: Boolean = true
 ) : TaskParameters {
   override val presentableText: String
     get() = buildString {
@@ -17,6 +17,7 @@ import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
 import com.jetbrains.pluginverifier.options.PluginsSet
 import com.jetbrains.pluginverifier.options.filter.PluginFilter
+import com.jetbrains.pluginverifier.output.OutputFormat
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 import com.jetbrains.pluginverifier.repository.PluginInfo
@@ -191,7 +192,8 @@ class CheckTrunkApiParamsBuilder(
       trunkVerificationDescriptors,
       releaseVerificationTarget,
       trunkVerificationTarget,
-      opts.excludeExternalBuildClassesSelector
+      opts.excludeExternalBuildClassesSelector,
+      OptionsParser.parseOutputFormats(opts).let { OutputFormat.HTML in it || OutputFormat.MARKDOWN in it }
     )
   }
 
@@ -4,11 +4,13 @@
 
 package com.jetbrains.pluginverifier.tasks.checkTrunkApi
 
+import com.jetbrains.pluginverifier.PluginVerificationResult
 import com.jetbrains.pluginverifier.PluginVerifier
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
 import com.jetbrains.pluginverifier.runSeveralVerifiers
 import com.jetbrains.pluginverifier.tasks.Task
+import com.jetbrains.pluginverifier.tasks.toSummary
 import com.jetbrains.pluginverifier.tasks.twoTargets.TwoTargetsVerificationResults
 import com.jetbrains.pluginverifier.verifiers.filter.DynamicallyLoadedFilter
 
@@ -45,18 +47,20 @@ class CheckTrunkApiTask(private val parameters: CheckTrunkApiParams) : Task {
         )
       }
 
-      /*
-       * Sort verification tasks to increase chances that two verifications of the same plugin
-       * would be executed shortly, and therefore caches, such as plugin details cache, would be warmed-up.
-       */
-      val sortedVerifiers = verifiers.sortedBy { it.verificationDescriptor.checkedPlugin.pluginId }
-      val results = runSeveralVerifiers(reportage, sortedVerifiers)
+      val releaseResults = arrayListOf<PluginVerificationResult>()
+      val trunkResults = arrayListOf<PluginVerificationResult>()
+      runSeveralVerifiers(reportage, verifiers) { result ->
+        when (result.verificationTarget) {
+          releaseVerificationTarget -> releaseResults += result
+          trunkVerificationTarget -> trunkResults += if (keepFullTrunkResults) result else result.toSummary()
+        }
+      }
 
       return TwoTargetsVerificationResults(
         releaseVerificationTarget,
-        results.filter { it.verificationTarget == releaseVerificationTarget },
+        releaseResults,
         trunkVerificationTarget,
-        results.filter { it.verificationTarget == trunkVerificationTarget }
+        trunkResults
       )
     }
   }
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.mergeResults
+
+import com.jetbrains.plugin.structure.base.utils.isDirectory
+import com.jetbrains.plugin.structure.base.utils.pluralizeWithNumber
+import com.jetbrains.pluginverifier.options.CmdOpts
+import com.jetbrains.pluginverifier.output.OutputOptions
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityHistory
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityLog
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityResultPrinter
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityTest
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginRepository
+import com.jetbrains.pluginverifier.tasks.CommandRunner
+import com.jetbrains.pluginverifier.tasks.Task
+import com.jetbrains.pluginverifier.tasks.TaskParameters
+import com.jetbrains.pluginverifier.tasks.TaskParametersBuilder
+import com.jetbrains.pluginverifier.tasks.TaskResult
+import com.jetbrains.pluginverifier.tasks.TaskResultPrinter
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * `merge-results` command combines verification reports of shards of `check-ide` verifications,
+ * which are run with the `-shard` option on several machines, into the directory specified by `-verification-reports-dir`
+ * and prints the combined TeamCity output if `-team-city` is specified.
+ * Plugins that have no versions compatible with the IDE are printed as in the `check-ide` output.
+ *
+ * ```java -jar verifier.jar -verification-reports-dir <merged reports> [-team-city] merge-results <shard reports 1> [<shard reports 2> ...]```
+ */
+class MergeResultsCommand : CommandRunner {
+  override val commandName: String
+    get() = "merge-results"
+
+  /**
+   * Rejects shard directories that are the directory of the merged reports, contain it or are contained in it,
+   * because the directory of the merged reports is deleted before the command runs.
+   */
+  override fun validateOptions(opts: CmdOpts, freeArgs: List<String>) {
+    getDirectories(opts, freeArgs)
+  }
+
+  override fun getParametersBuilder(
+    pluginRepository: PluginRepository,
+    pluginDetailsCache: PluginDetailsCache,
+    reportage: PluginVerificationReportage
+  ): TaskParametersBuilder = object : TaskParametersBuilder {
+    override fun build(opts: CmdOpts, freeArgs: List<String>): TaskParameters {
+      val (shardDirectories, targetDirectory) = getDirectories(opts, freeArgs)
+      return MergeResultsParameters(shardDirectories, targetDirectory)
+    }
+  }
+
+  private fun getDirectories(opts: CmdOpts, freeArgs: List<String>): Pair<List<Path>, Path> {
+    require(freeArgs.isNotEmpty()) {
+      "Usage: java -jar verifier.jar -verification-reports-dir <merged reports> [-team-city] merge-results <shard reports 1> [<shard reports 2> ...]"
+    }
+    val targetDirectory = Paths.get(requireNotNull(opts.verificationReportsDir) {
+      "Directory of the merged verification reports is not specified by -verification-reports-dir"
+    })
+    val target = targetDirectory.toAbsolutePath().normalize()
+    val shardDirectories = freeArgs.map { Paths.get(it) }
+    for (shardDirectory in shardDirectories) {
+      require(shardDirectory.isDirectory) { "Verification reports directory $shardDirectory does not exist" }
+      val shard = shardDirectory.toAbsolutePath().normalize()
+      require(!shard.startsWith(target) && !target.startsWith(shard)) {
+        "Verification reports directory $shardDirectory must neither be nor contain nor be contained in the directory of the merged reports $targetDirectory"
+      }
+    }
+    return shardDirectories to targetDirectory
+  }
+}
+
+class MergeResultsParameters(
+  val shardDirectories: List<Path>,
+  val targetDirectory: Path
+) : TaskParameters {
+  override val presentableText
+    get() = "Merge verification reports of ${shardDirectories.joinToString()} into $targetDirectory"
+
+  override fun createTask() = MergeResultsTask(this)
+
+  override fun close() = Unit
+}
+
+class MergeResultsTask(private val params: MergeResultsParameters) : Task {
+  override fun execute(reportage: PluginVerificationReportage, pluginDetailsCache: PluginDetailsCache): TaskResult {
+    reportage.logVerificationStage("Merging verification reports of " + "shard".pluralizeWithNumber(params.shardDirectories.size))
+    val reports = VerificationReportsMerger(params.targetDirectory).merge(params.shardDirectories)
+    return MergeResultsTaskResult(reports)
+  }
+}
+
+class MergeResultsTaskResult(val reports: MergedVerificationReports) : TaskResult {
+  override fun createTaskResultsPrinter(pluginRepository: PluginRepository): TaskResultPrinter = MergeResultsResultPrinter()
+}
+
+/**
+ * Prints merged reports of plugins in the same layout as
+ * [com.jetbrains.pluginverifier.output.teamcity.TeamCityResultPrinter] groups results by plugin or by problem type,
+ * according to `-team-city-grouping`.
+ * Grouped by plugin, the test of a plugin contains its telemetry as the standard output.
+ * Plugins without compatible versions get a failed `(no compatible version)` test,
+ * which doesn't fail the build, the same as in the `check-ide` output.
+ * The build status is the one of `check-ide`: the build fails if verified plugins have compatibility problems.
+ */
+class MergeResultsResultPrinter : TaskResultPrinter {
+
+  override fun printResults(taskResult: TaskResult, outputOptions: OutputOptions) {
+    with(taskResult as MergeResultsTaskResult) {
+      if (outputOptions.teamCityLog != null) {
+        val teamCityHistory = printTcLog(reports, outputOptions.teamCityLog, outputOptions.teamCityGroupType)
+        outputOptions.postProcessTeamCityTests(teamCityHistory)
+      } else {
+        for (report in reports.pluginReports) {
+          println("Plugin ${report.pluginId} ${report.version} against ${report.verificationTarget}: ${report.verdict}")
+        }
+        for (report in reports.missingCompatibleVersions) {
+          println(report.description)
+        }
+      }
+    }
+  }
+
+  private fun printTcLog(mergedReports: MergedVerificationReports, tcLog: TeamCityLog, groupBy: TeamCityResultPrinter.GroupBy): TeamCityHistory {
+    val reports = mergedReports.pluginReports
+    val verificationTargets = (reports.map { it.verificationTarget } + mergedReports.missingCompatibleVersions.map { it.verificationTarget }).distinct()
+    val failedTests = when (groupBy) {
+      TeamCityResultPrinter.GroupBy.BY_PLUGIN -> printGroupedByPlugin(mergedReports, verificationTargets, tcLog)
+      TeamCityResultPrinter.GroupBy.BY_PROBLEM_TYPE -> printGroupedByProblemType(mergedReports, tcLog)
+    }
+
+    tcLog.buildStatisticValue("intellij.plugin.verifier.verified.plugins", reports.size)
+    tcLog.buildStatisticValue("intellij.plugin.verifier.verification.time.ms", reports.sumOf { it.verificationTimeMillis ?: 0L })
+    val failedReports = reports.filter { it.isFailed }
+    val problemsNumber = failedReports.flatMap { it.problemsByType.keys }.distinct().size
+    val brokenPluginsNumber = failedReports.distinctBy { it.pluginId to it.version }.size
+    if (problemsNumber > 0) {
+      tcLog.buildStatusFailure("IDE ${verificationTargets.joinToString()} has " + "problem".pluralizeWithNumber(problemsNumber) + " affecting " + "plugin".pluralizeWithNumber(brokenPluginsNumber))
+    } else {
+      tcLog.buildStatusSuccess("IDE ${verificationTargets.joinToString()} doesn't have broken API problems")
+    }
+    return TeamCityHistory(failedTests)
+  }
+
+  private fun printGroupedByPlugin(mergedReports: MergedVerificationReports, verificationTargets: List<String>, tcLog: TeamCityLog): List<TeamCityTest> {
+    val failedTests = arrayListOf<TeamCityTest>()
+    for ((pluginId, pluginReports) in mergedReports.pluginReports.groupBy { it.pluginId }) {
+      tcLog.testSuiteStarted(pluginId).use {
+        for (report in pluginReports) {
+          val testName = if (verificationTargets.size > 1) "(${report.version} - ${report.verificationTarget})" else "(${report.version})"
+          tcLog.testStarted(testName).use {
+            if (report.telemetry != null) {
+              tcLog.testStdOut(testName, report.telemetry)
+            }
+            val failureMessage = getFailureMessage(report)
+            if (failureMessage != null) {
+              failedTests += TeamCityTest(pluginId, testName)
+              tcLog.testFailed(testName, failureMessage, "")
+            }
+          }
+        }
+      }
+    }
+
+    for ((pluginId, missingReports) in mergedReports.missingCompatibleVersions.groupBy { it.pluginId }) {
+      tcLog.testSuiteStarted(pluginId).use {
+        for (report in missingReports) {
+          val testName = if (verificationTargets.size > 1) "(no compatible version - ${report.verificationTarget})" else "(no compatible version)"
+          tcLog.testStarted(testName).use {
+            failedTests += TeamCityTest(pluginId, testName)
+            tcLog.testFailed(testName, "#${report.description}\n", "")
+          }
+        }
+      }
+    }
+    return failedTests
+  }
+
+  private fun printGroupedByProblemType(mergedReports: MergedVerificationReports, tcLog: TeamCityLog): List<TeamCityTest> {
+    val failedTests = arrayListOf<TeamCityTest>()
+    val failedReports = mergedReports.pluginReports.filter { it.isFailed }
+    val problemTypes = failedReports.flatMap { it.problemsByType.keys }.distinct()
+    for (problemType in problemTypes) {
+      val testSuiteName = "($problemType)"
+      tcLog.testSuiteStarted(testSuiteName).use {
+        for (report in failedReports) {
+          val problems = report.problemsByType[problemType] ?: continue
+          val testName = "(${report.pluginId}:${report.version})"
+          tcLog.testStarted(testName).use {
+            failedTests += TeamCityTest(testSuiteName, testName)
+            tcLog.testFailed(testName, "Plugin: ${report.pluginId}:${report.version}", problems.joinToString(separator = "\n"))
+          }
+        }
+      }
+    }
+
+    val reportsWithoutProblems = failedReports.filter { it.problemsByType.isEmpty() }
+    if (reportsWithoutProblems.isNotEmpty()) {
+      val testSuiteName = "(missing dependencies)"
+      tcLog.testSuiteStarted(testSuiteName).use {
+        for (report in reportsWithoutProblems) {
+          val testName = "(${report.pluginId}:${report.version})"
+          tcLog.testStarted(testName).use {
+            failedTests += TeamCityTest(testSuiteName, testName)
+            tcLog.testFailed(testName, report.verdict, "")
+          }
+        }
+      }
+    }
+
+    if (mergedReports.missingCompatibleVersions.isNotEmpty()) {
+      val testSuiteName = "(no compatible version)"
+      tcLog.testSuiteStarted(testSuiteName).use {
+        for (report in mergedReports.missingCompatibleVersions) {
+          tcLog.testSuiteStarted(report.pluginId).use {
+            tcLog.testStarted(report.pluginId).use {
+              failedTests += TeamCityTest(testSuiteName, report.pluginId)
+              tcLog.testFailed(report.pluginId, "#${report.description}\n", "")
+            }
+          }
+        }
+      }
+    }
+    return failedTests
+  }
+
+  private fun getFailureMessage(report: PluginVerificationReport): String? = when {
+    report.isFailed -> buildString {
+      appendLine(report.verdict)
+      if (report.problemsByType.isNotEmpty()) {
+        appendLine()
+        for ((shortDescription, problems) in report.problemsByType) {
+          appendLine("#$shortDescription")
+          for (problem in problems) {
+            appendLine("    $problem")
+          }
+        }
+      } else if (report.compatibilityProblems != null) {
+        appendLine()
+        appendLine(report.compatibilityProblems)
+      }
+    }
+    report.isInvalid -> "Plugin is invalid: ${report.invalidPluginErrors.orEmpty()}"
+    else -> null
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.tasks.mergeResults
+
+import com.jetbrains.plugin.structure.base.utils.createParentDirs
+import com.jetbrains.plugin.structure.base.utils.exists
+import com.jetbrains.plugin.structure.base.utils.isDirectory
+import com.jetbrains.plugin.structure.base.utils.listAllFiles
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.base.utils.readText
+import com.jetbrains.plugin.structure.base.utils.simpleName
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.pluginverifier.reporting.DirectoryBasedPluginVerificationReportage
+import com.jetbrains.pluginverifier.reporting.PluginVerificationStatus
+import com.jetbrains.pluginverifier.tasks.checkIde.MissingCompatibleVersionProblem
+import org.slf4j.LoggerFactory
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+/**
+ * Merges reports saved by [DirectoryBasedPluginVerificationReportage] in verifications of several shards
+ * of the same plugins set, see [com.jetbrains.pluginverifier.options.PluginsShard], into [targetDirectory].
+ *
+ * Shards verify disjoint plugins, so reports of plugins are copied as is.
+ * Reports on all plugins of a verification target, such as `all-ignored-problems.txt`, are concatenated.
+ * Telemetry of all verified plugins of a verification target is collected to `all-telemetry.txt`.
+ * Merged files are written anew, so merging the same shards into the same [targetDirectory] again gives the same reports.
+ * Plugins without versions compatible with a verification target are read from
+ * `plugins/<plugin ID>/missing-compatible-version.txt` files saved by `check-ide`.
+ */
+class VerificationReportsMerger(private val targetDirectory: Path) {
+
+  private companion object {
+    val LOG = LoggerFactory.getLogger(VerificationReportsMerger::class.java)
+
+    val AGGREGATED_REPORTS = setOf("all-ignored-problems.txt", "all-ignored-plugins.txt")
+
+    const val ALL_TELEMETRY = "all-telemetry.txt"
+  }
+
+  /**
+   * Merges verification reports of [shardDirectories] and returns reports of all plugins checked by the shards.
+   */
+  fun merge(shardDirectories: List<Path>): MergedVerificationReports {
+    val targetReportsDirectories = shardDirectories
+      .flatMap { shardDirectory -> shardDirectory.listFiles().filter { it.isDirectory } }
+      .groupBy { it.simpleName }
+    for ((verificationTarget, sourceDirectories) in targetReportsDirectories) {
+      mergeTargetReports(sourceDirectories, targetDirectory.resolve(verificationTarget))
+    }
+    val mergedReportsDirectories = targetDirectory.listFiles().filter { it.isDirectory }.sorted()
+    val pluginReports = mergedReportsDirectories.flatMap { targetReportsDirectory ->
+      val reports = readPluginReports(targetReportsDirectory)
+      val telemetry = reports.mapNotNull { it.telemetry }
+      if (telemetry.isNotEmpty()) {
+        targetReportsDirectory.resolve(ALL_TELEMETRY).writeText(telemetry.joinToString(separator = "\n"))
+      }
+      reports
+    }
+    val missingCompatibleVersions = mergedReportsDirectories.flatMap { readMissingCompatibleVersionReports(it) }
+    return MergedVerificationReports(pluginReports, missingCompatibleVersions)
+  }
+
+  private fun mergeTargetReports(sources: List<Path>, destination: Path) {
+    val sourceFiles = sources
+      .flatMap { source -> source.listAllFiles().map { relativePath -> relativePath.toString() to source.resolve(relativePath) } }
+      .groupBy({ it.first }, { it.second })
+    for ((relativePath, files) in sourceFiles) {
+      val destinationFile = destination.resolve(relativePath)
+      when (relativePath) {
+        ALL_TELEMETRY -> Unit
+        in AGGREGATED_REPORTS -> {
+          destinationFile.createParentDirs()
+          Files.newOutputStream(destinationFile).use { output -> files.forEach { Files.copy(it, output) } }
+        }
+        else -> {
+          if (files.size > 1) {
+            LOG.warn("Report $relativePath of ${destination.simpleName} is present in several shards, the one of ${files.first()} is kept")
+          }
+          destinationFile.createParentDirs()
+          Files.copy(files.first(), destinationFile, StandardCopyOption.REPLACE_EXISTING)
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads reports of plugins from `plugins/<plugin ID>/<version>/` directories of the [targetReportsDirectory]
+   * that contain the [PluginVerificationStatus].
+   */
+  private fun readPluginReports(targetReportsDirectory: Path): List<PluginVerificationReport> =
+    targetReportsDirectory.resolve("plugins").listFiles().sorted().flatMap { pluginDirectory ->
+      pluginDirectory.listFiles()
+        .filter { it.resolve(PluginVerificationStatus.FILE_NAME).exists() }
+        .sorted()
+        .map { versionDirectory ->
+          PluginVerificationReport(
+            targetReportsDirectory.simpleName,
+            pluginDirectory.simpleName,
+            versionDirectory.simpleName,
+            PluginVerificationStatus.valueOf(versionDirectory.resolve(PluginVerificationStatus.FILE_NAME).readText().trim()),
+            versionDirectory.readReport("verification-verdict.txt").orEmpty(),
+            versionDirectory.readReport("compatibility-problems.txt"),
+            versionDirectory.readReport(DirectoryBasedPluginVerificationReportage.COMPATIBILITY_PROBLEMS_BY_TYPE_FILE_NAME)?.let { parseProblemsByType(it) }.orEmpty(),
+            versionDirectory.readReport("invalid-plugin.txt"),
+            versionDirectory.readReport("telemetry.txt")
+          )
+        }
+    }
+
+  private fun readMissingCompatibleVersionReports(targetReportsDirectory: Path): List<MissingCompatibleVersionReport> =
+    targetReportsDirectory.resolve("plugins").listFiles().sorted().mapNotNull { pluginDirectory ->
+      pluginDirectory.readReport(MissingCompatibleVersionProblem.REPORT_FILE_NAME)?.let { description ->
+        MissingCompatibleVersionReport(targetReportsDirectory.simpleName, pluginDirectory.simpleName, description)
+      }
+    }
+
+  /**
+   * Parses the report written to [DirectoryBasedPluginVerificationReportage.COMPATIBILITY_PROBLEMS_BY_TYPE_FILE_NAME].
+   */
+  private fun parseProblemsByType(report: String): Map<String, List<String>> {
+    val problemsByType = linkedMapOf<String, MutableList<String>>()
+    var problems: MutableList<String>? = null
+    for (line in report.lines()) {
+      if (line.startsWith("#")) {
+        problems = problemsByType.getOrPut(line.removePrefix("#")) { arrayListOf() }
+      } else if (line.isNotBlank()) {
+        problems?.add(line.trim())
+      }
+    }
+    return problemsByType
+  }
+
+  private fun Path.readReport(fileName: String): String? =
+    resolve(fileName).takeIf { it.exists() }?.readText()?.trim()?.takeIf { it.isNotEmpty() }
+}
+
+/**
+ * Reports of plugins read from the merged reports directory.
+ */
+data class MergedVerificationReports(
+  val pluginReports: List<PluginVerificationReport>,
+  val missingCompatibleVersions: List<MissingCompatibleVersionReport>
+)
+
+/**
+ * Report that JetBrains Marketplace has no versions of the plugin compatible with the [verificationTarget],
+ * see [MissingCompatibleVersionProblem].
+ */
+data class MissingCompatibleVersionReport(
+  val verificationTarget: String,
+  val pluginId: String,
+  val description: String
+)
+
+/**
+ * Verification report of a plugin read from the reports directory.
+ * The [verificationTarget], [pluginId] and [version] are names of the corresponding directories.
+ */
+data class PluginVerificationReport(
+  val verificationTarget: String,
+  val pluginId: String,
+  val version: String,
+  val status: PluginVerificationStatus,
+  val verdict: String,
+  val compatibilityProblems: String?,
+  /**
+   * Full descriptions of compatibility problems by their short descriptions.
+   */
+  val problemsByType: Map<String, List<String>>,
+  val invalidPluginErrors: String?,
+  val telemetry: String?
+) {
+
+  /**
+   * Whether the plugin has compatibility problems or missing mandatory dependencies.
+   */
+  val isFailed: Boolean
+    get() = status == PluginVerificationStatus.FAILED
+
+  val isInvalid: Boolean
+    get() = status == PluginVerificationStatus.INVALID
+
+  /**
+   * Verification time as reported by [com.jetbrains.pluginverifier.reporting.telemetry.toPlainString].
+   */
+  val verificationTimeMillis: Long?
+    get() = telemetry?.lineSequence()
+      ?.find { it.startsWith("Verification time (raw ms): ") }
+      ?.substringAfter(": ")
+      ?.toLongOrNull()
+}
@@ -4,9 +4,11 @@
 
 package com.jetbrains.pluginverifier.results.hierarchy
 
+import java.io.Serializable
+
 data class ClassHierarchy(
   val name: String,
   val isInterface: Boolean,
   var superClass: ClassHierarchy?,
   var superInterfaces: List<ClassHierarchy>
-)
\ No newline at end of file
+) : Serializable
\ No newline at end of file
@@ -7,9 +7,10 @@ package com.jetbrains.pluginverifier.results.location
 import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.results.presentation.*
+import java.io.Serializable
 import java.util.*
 
-sealed class Location {
+sealed class Location : Serializable {
   abstract val presentableLocation: String
 
   abstract val elementType: ElementType
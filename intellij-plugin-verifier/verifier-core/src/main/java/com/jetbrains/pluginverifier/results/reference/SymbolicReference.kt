@@ -5,9 +5,10 @@
 package com.jetbrains.pluginverifier.results.reference
 
 import com.jetbrains.pluginverifier.results.presentation.*
+import java.io.Serializable
 import java.util.*
 
-sealed class SymbolicReference {
+sealed class SymbolicReference : Serializable {
   abstract val presentableLocation: String
 
   final override fun toString() = presentableLocation
@@ -5,6 +5,7 @@
 package com.jetbrains.pluginverifier.verifiers
 
 import com.jetbrains.plugin.structure.base.utils.checkIfInterrupted
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.pluginverifier.verifiers.clazz.*
 import com.jetbrains.pluginverifier.verifiers.field.FieldTypeVerifier
 import com.jetbrains.pluginverifier.verifiers.field.FieldVerifier
@@ -13,13 +14,37 @@ import com.jetbrains.pluginverifier.verifiers.instruction.*
 import com.jetbrains.pluginverifier.verifiers.method.*
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+import java.util.concurrent.atomic.AtomicInteger
 
+/**
+ * Verifies bytecode of classes.
+ *
+ * If [parallelism] is greater than 1, classes are split into chunks verified concurrently
+ * in a [ForkJoinPool] created for each [verify] call and shut down when it returns.
+ * In that case the [VerificationContext] and its registrars must be thread-safe.
+ * The registered findings are the same as in the sequential mode.
+ *
+ * If [verifiedClassResolver] is specified, classes to verify are read by it
+ * instead of [VerificationContext.classResolver]. It is meant to be an uncached resolver of the checked plugin,
+ * so that classes are read once for verification, their method bodies don't occupy caches of the
+ * [VerificationContext.classResolver], and they become garbage as soon as the class is verified.
+ * Classes missing in the [verifiedClassResolver] are read by the [VerificationContext.classResolver].
+ *
+ * If the [VerificationContext.classVerificationMemo] is specified, findings of a class
+ * whose bytecode has been verified before are taken from the memo.
+ */
 class BytecodeVerifier(
   private val verificationFilters: List<ClassFilter> = emptyList(),
   additionalClassVerifiers: List<ClassVerifier> = emptyList(),
   additionalMethodVerifiers: List<MethodVerifier> = emptyList(),
   additionalFieldVerifiers: List<FieldVerifier> = emptyList(),
-  additionalInstructionVerifiers: List<InstructionVerifier> = emptyList()
+  additionalInstructionVerifiers: List<InstructionVerifier> = emptyList(),
+  private val parallelism: Int = 1,
+  private val verifiedClassResolver: Resolver? = null
 ) {
 
   private val fieldVerifiers = listOf<FieldVerifier>(FieldTypeVerifier()) + additionalFieldVerifiers
@@ -47,13 +72,28 @@ class BytecodeVerifier(
     MultiANewArrayInstructionVerifier()
   ) + additionalInstructionVerifiers
 
+  /**
+   * Instruction verifiers interested in each opcode, in the order of [instructionVerifiers].
+   */
+  private val instructionVerifiersByOpcode: Array<Array<InstructionVerifier>> = Array(OPCODES_COUNT) { opcode ->
+    instructionVerifiers.filter { it.opcodes?.contains(opcode) ?: true }.toTypedArray()
+  }
+
+  /**
+   * Instruction verifiers invoked for pseudo-instructions without an opcode, such as labels and line numbers.
+   */
+  private val pseudoInstructionVerifiers: Array<InstructionVerifier> =
+    instructionVerifiers.filter { it.opcodes == null }.toTypedArray()
+
   @Throws(InterruptedException::class)
   fun verify(
     classesToCheck: Set<String>,
     context: VerificationContext,
     progressIndicator: (Double) -> Unit
   ) {
-    if (classesToCheck.isNotEmpty()) {
+    if (parallelism > 1 && classesToCheck.size > PARALLEL_CHUNK_SIZE) {
+      verifyInParallel(classesToCheck.toList(), context, progressIndicator)
+    } else if (classesToCheck.isNotEmpty()) {
       for ((totalVerifiedClasses, className) in classesToCheck.withIndex()) {
         checkIfInterrupted()
         verifyClass(className, context)
@@ -62,10 +102,78 @@ class BytecodeVerifier(
     }
   }
 
+  private fun verifyInParallel(
+    classesToCheck: List<String>,
+    context: VerificationContext,
+    progressIndicator: (Double) -> Unit
+  ) {
+    val verification = ParallelVerification(classesToCheck, context, progressIndicator)
+    val pool = ForkJoinPool(parallelism)
+    try {
+      val task = pool.submit(VerifyClassesAction(verification, 0, classesToCheck.size))
+      try {
+        task.get()
+      } catch (e: InterruptedException) {
+        verification.isCancelled = true
+        task.cancel(true)
+        throw e
+      } catch (e: ExecutionException) {
+        throw e.cause ?: e
+      }
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  private class ParallelVerification(
+    val classesToCheck: List<String>,
+    val context: VerificationContext,
+    private val progressIndicator: (Double) -> Unit
+  ) {
+    @Volatile
+    var isCancelled = false
+
+    private val verifiedClasses = AtomicInteger()
+
+    fun onClassVerified() {
+      val verified = verifiedClasses.incrementAndGet()
+      synchronized(this) {
+        progressIndicator(verified.toDouble() / classesToCheck.size)
+      }
+    }
+  }
+
+  private inner class VerifyClassesAction(
+    private val verification: ParallelVerification,
+    private val from: Int,
+    private val to: Int
+  ) : RecursiveAction() {
+    override fun compute() {
+      if (to - from > PARALLEL_CHUNK_SIZE) {
+        val middle = (from + to) ushr 1
+        invokeAll(VerifyClassesAction(verification, from, middle), VerifyClassesAction(verification, middle, to))
+        return
+      }
+      for (index in from until to) {
+        if (verification.isCancelled) {
+          throw CancellationException()
+        }
+        verifyClass(verification.classesToCheck[index], verification.context)
+        verification.onClassVerified()
+      }
+    }
+  }
+
   private fun verifyClass(className: String, context: VerificationContext) {
-    val classFile = context.classResolver.resolveClassOrNull(className)
+    val classFile = verifiedClassResolver?.resolveClassOrNull(className)
+      ?: context.classResolver.resolveClassOrNull(className)
     if (classFile != null && shouldVerify(classFile)) {
-      verifyClassFile(classFile, context)
+      val memo = context.classVerificationMemo
+      if (memo != null) {
+        memo.verify(classFile) { verifyClassFile(classFile, context) }
+      } else {
+        verifyClassFile(classFile, context)
+      }
     }
   }
 
@@ -81,8 +189,10 @@ class BytecodeVerifier(
         verifier.verify(method, context)
       }
 
-      method.instructions.forEach { instruction ->
-        for (verifier in instructionVerifiers) {
+      method.forEachInstruction { instruction ->
+        val opcode = instruction.opcode
+        val verifiers = if (opcode >= 0) instructionVerifiersByOpcode[opcode] else pseudoInstructionVerifiers
+        for (verifier in verifiers) {
           verifier.verify(method, instruction, context)
         }
       }
@@ -95,4 +205,15 @@ class BytecodeVerifier(
     }
   }
 
-}
\ No newline at end of file
+  private companion object {
+    /**
+     * Number of classes verified by one fork-join task.
+     */
+    private const val PARALLEL_CHUNK_SIZE = 64
+
+    /**
+     * All JVM opcodes are below 256.
+     */
+    private const val OPCODES_COUNT = 256
+  }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers
+
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+
+/**
+ * Findings of classes verified before, which are registered again instead of verifying the same bytecode once more.
+ */
+interface ClassVerificationMemo {
+  /**
+   * Registers the memoized findings of the [classFile] if they are valid in the current verification.
+   * Otherwise, runs [verifyClass] and memoizes the findings registered by it.
+   */
+  fun verify(classFile: ClassFile, verifyClass: () -> Unit)
+}
@@ -5,6 +5,7 @@
 package com.jetbrains.pluginverifier.verifiers
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.hierarchy.HierarchyIndexedResolver
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
 import java.util.*
@@ -22,6 +23,10 @@ fun Resolver.isSubclassOrSelf(childClassName: String, possibleParentName: String
 }
 
 fun Resolver.isSubclassOf(childClassName: String, possibleParentName: String): Boolean {
+  val indexed = (this as? HierarchyIndexedResolver)?.isSubclassOfByIndex(childClassName, possibleParentName)
+  if (indexed != null) {
+    return indexed || possibleParentName == "java/lang/Object"
+  }
   val childClass = resolveClassOrNull(childClassName) ?: return false
   return isSubclassOf(childClass, possibleParentName)
 }
@@ -31,6 +36,11 @@ fun Resolver.isSubclassOf(child: ClassFile, parentName: String): Boolean {
     return true
   }
 
+  val indexed = (this as? HierarchyIndexedResolver)?.isSubclassOfByIndex(child.name, parentName)
+  if (indexed != null) {
+    return indexed
+  }
+
   val directParents = resolveAllDirectParents(child)
 
   val queue = LinkedList<ClassFile>()
@@ -7,6 +7,7 @@ package com.jetbrains.pluginverifier.verifiers
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 import com.jetbrains.pluginverifier.warnings.WarningRegistrar
 
 interface VerificationContext {
@@ -19,4 +20,18 @@ interface VerificationContext {
   val warningRegistrar: WarningRegistrar
 
   val apiUsageProcessors: List<ApiUsageProcessor>
-}
\ No newline at end of file
+
+  /**
+   * Method and field resolutions shared with other verifications against the same platform,
+   * or `null` if resolutions are not shared.
+   */
+  val memberResolutionCache: MemberResolutionCache.Session?
+    get() = null
+
+  /**
+   * Findings of classes memoized by other verifications against the same platform,
+   * or `null` if findings are not memoized.
+   */
+  val classVerificationMemo: ClassVerificationMemo?
+    get() = null
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.hierarchy
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Index of all supertypes of classes of the [platformResolver], that is of the IDE and the JDK.
+ *
+ * Class names are mapped to dense int ids, and the supertypes of each class
+ * are stored as a sorted array of ids, so a subtype check is a binary search.
+ * Supertypes of a class are computed on the first request and reuse the already computed supertypes of its parents.
+ *
+ * Supertypes are not indexed for a class whose hierarchy is not completely available in the [platformResolver]
+ * or is cyclic. Such classes are to be checked by walking the hierarchy, as usual.
+ */
+class ClassHierarchyIndex(private val platformResolver: Resolver) {
+
+  private val classIds = ConcurrentHashMap<String, Int>()
+
+  private val nextClassId = AtomicInteger()
+
+  private val supertypes = ConcurrentHashMap<Int, IntArray>()
+
+  fun containsClass(className: String): Boolean = platformResolver.containsClass(className)
+
+  /**
+   * Returns `true` if [parentName] is a direct or indirect supertype of [childName],
+   * or `null` if it can't be determined by this index.
+   */
+  fun isSubclassOf(childName: String, parentName: String): Boolean? {
+    val childSupertypes = getCachedSupertypes(childName) ?: getSupertypes(childName, hashSetOf())
+    if (childSupertypes === NOT_INDEXED) {
+      return null
+    }
+    val parentId = classIds[parentName] ?: return false
+    return Arrays.binarySearch(childSupertypes, parentId) >= 0
+  }
+
+  private fun getCachedSupertypes(className: String): IntArray? {
+    val classId = classIds[className] ?: return null
+    return supertypes[classId]
+  }
+
+  private fun getSupertypes(className: String, visiting: MutableSet<String>): IntArray {
+    val cached = getCachedSupertypes(className)
+    if (cached != null) {
+      return cached
+    }
+    val classNode = (platformResolver.resolveClass(className) as? ResolutionResult.Found)?.value ?: return NOT_INDEXED
+    if (!visiting.add(className)) {
+      return NOT_INDEXED
+    }
+
+    val parents = listOfNotNull(classNode.superName) + classNode.interfaces.orEmpty()
+    val parentSupertypes = ArrayList<IntArray>(parents.size)
+    var size = parents.size
+    for (parent in parents) {
+      val parentClassSupertypes = getSupertypes(parent, visiting)
+      if (parentClassSupertypes === NOT_INDEXED) {
+        supertypes.putIfAbsent(getOrCreateId(className), NOT_INDEXED)
+        return NOT_INDEXED
+      }
+      parentSupertypes += parentClassSupertypes
+      size += parentClassSupertypes.size
+    }
+    visiting.remove(className)
+
+    val result = IntArray(size)
+    var index = 0
+    for (parent in parents) {
+      result[index++] = getOrCreateId(parent)
+    }
+    for (parentClassSupertypes in parentSupertypes) {
+      parentClassSupertypes.copyInto(result, index)
+      index += parentClassSupertypes.size
+    }
+    val classSupertypes = result.sortedDistinct()
+    supertypes.putIfAbsent(getOrCreateId(className), classSupertypes)
+    return classSupertypes
+  }
+
+  private fun getOrCreateId(className: String): Int =
+    classIds.computeIfAbsent(className) { nextClassId.getAndIncrement() }
+
+  private fun IntArray.sortedDistinct(): IntArray {
+    if (isEmpty()) {
+      return this
+    }
+    sort()
+    var distinct = 1
+    for (i in 1 until size) {
+      if (this[i] != this[distinct - 1]) {
+        this[distinct++] = this[i]
+      }
+    }
+    return if (distinct == size) this else copyOf(distinct)
+  }
+
+  private companion object {
+    /**
+     * Marker of classes whose supertypes are not indexed. Compared by identity.
+     */
+    val NOT_INDEXED = IntArray(0)
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.hierarchy
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+
+/**
+ * [Resolver] of a verification that answers subtype checks of platform classes
+ * via the shared [hierarchyIndex] instead of walking class hierarchies.
+ *
+ * The [delegate] must look up classes of the [pluginResolver] first, then the platform classes.
+ * The index is used only if the plugin doesn't bundle its own copies of platform classes,
+ * because such copies may have different supertypes.
+ */
+class HierarchyIndexedResolver private constructor(
+  private val delegate: Resolver,
+  private val hierarchyIndex: ClassHierarchyIndex,
+  private val shadowsPlatformClassesLazy: Lazy<Boolean>
+) : Resolver() {
+
+  constructor(
+    delegate: Resolver,
+    hierarchyIndex: ClassHierarchyIndex,
+    pluginResolver: Resolver
+  ) : this(delegate, hierarchyIndex, lazy { pluginResolver.allClasses.any { hierarchyIndex.containsClass(it) } })
+
+  /**
+   * Whether the plugin bundles its own copies of platform classes, in which case the index is not used.
+   */
+  val shadowsPlatformClasses: Boolean
+    get() = shadowsPlatformClassesLazy.value
+
+  /**
+   * Returns `true` if [parentName] is a direct or indirect supertype of [childName],
+   * or `null` if it can't be determined by the index.
+   */
+  fun isSubclassOfByIndex(childName: String, parentName: String): Boolean? =
+    if (shadowsPlatformClasses) null else hierarchyIndex.isSubclassOf(childName, parentName)
+
+  /**
+   * Returns a resolver with the same index that looks up classes via the [delegate].
+   */
+  fun withDelegate(delegate: Resolver): HierarchyIndexedResolver =
+    HierarchyIndexedResolver(delegate, hierarchyIndex, shadowsPlatformClassesLazy)
+
+  override val allClasses
+    get() = delegate.allClasses
+
+  override val allBundleNameSet
+    get() = delegate.allBundleNameSet
+
+  override val allPackages
+    get() = delegate.allPackages
+
+  override val readMode
+    get() = delegate.readMode
+
+  override fun resolveClass(className: String): ResolutionResult<ClassNode> =
+    delegate.resolveClass(className)
+
+  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> =
+    delegate.resolveExactPropertyResourceBundle(baseName, locale)
+
+  override fun containsClass(className: String) =
+    delegate.containsClass(className)
+
+  override fun containsPackage(packageName: String) =
+    delegate.containsPackage(packageName)
+
+  override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean) =
+    delegate.processAllClasses(processor)
+
+  override fun close() = delegate.close()
+
+  override fun toString() = delegate.toString()
+}
@@ -9,5 +9,12 @@ import com.jetbrains.pluginverifier.verifiers.resolution.Method
 import org.objectweb.asm.tree.AbstractInsnNode
 
 interface InstructionVerifier {
+  /**
+   * Opcodes of instructions this verifier is interested in,
+   * or `null` if it must be invoked for every instruction, including labels and line numbers.
+   */
+  val opcodes: Set<Int>?
+    get() = null
+
   fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext)
 }
\ No newline at end of file
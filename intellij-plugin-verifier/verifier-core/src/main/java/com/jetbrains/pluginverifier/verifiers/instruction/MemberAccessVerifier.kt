@@ -19,6 +19,12 @@ import org.objectweb.asm.tree.InvokeDynamicInsnNode
 import org.objectweb.asm.tree.MethodInsnNode
 
 class MemberAccessVerifier : InstructionVerifier {
+  override val opcodes = setOf(
+    Opcodes.GETSTATIC, Opcodes.PUTSTATIC, Opcodes.GETFIELD, Opcodes.PUTFIELD,
+    Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC, Opcodes.INVOKEINTERFACE,
+    Opcodes.INVOKEDYNAMIC
+  )
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode is MethodInsnNode) {
       val instruction = when (instructionNode.opcode) {
@@ -18,6 +18,8 @@ import org.objectweb.asm.tree.TypeInsnNode
  * Processing of `new`, `anewarray`, `checkcast`, `instanceof` instructions.
  */
 class TypeInstructionVerifier : InstructionVerifier {
+  override val opcodes = setOf(Opcodes.NEW, Opcodes.ANEWARRAY, Opcodes.CHECKCAST, Opcodes.INSTANCEOF)
+
   override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
     if (instructionNode !is TypeInsnNode) return
 
@@ -24,7 +24,7 @@ class FieldResolver {
     callerMethod: Method,
     instruction: Instruction
   ): Field? =
-    when (val resolutionResult = doResolveField(classFile, fieldReference, context)) {
+    when (val resolutionResult = resolveFieldCached(classFile, fieldReference, context)) {
       FieldResolutionResult.Abort -> null
       FieldResolutionResult.NotFound -> {
         registerFieldNotFoundProblem(context, fieldReference, instruction, callerMethod, classFile)
@@ -44,10 +44,42 @@ class FieldResolver {
     data class Found(val field: Field) : FieldResolutionResult()
   }
 
-  private fun doResolveField(
+  /**
+   * Resolves the field using [VerificationContext.memberResolutionCache], if available.
+   */
+  private fun resolveFieldCached(
     classFile: ClassFile,
     fieldReference: FieldReference,
     context: VerificationContext
+  ): FieldResolutionResult {
+    val cache = context.memberResolutionCache
+      ?: return doResolveField(classFile, fieldReference, context, null)
+
+    val fieldName = fieldReference.fieldName
+    val fieldDescriptor = fieldReference.fieldDescriptor
+    val cached = cache.lookup(classFile, fieldName, fieldDescriptor, null, context)
+    if (cached != null) {
+      val field = cached.member as? Field ?: return FieldResolutionResult.NotFound
+      return FieldResolutionResult.Found(field)
+    }
+
+    val trace = cache.startTrace(classFile)
+    val resolutionResult = doResolveField(classFile, fieldReference, context, trace)
+    if (trace != null) {
+      when (resolutionResult) {
+        FieldResolutionResult.Abort -> Unit
+        FieldResolutionResult.NotFound -> cache.store(trace, fieldName, fieldDescriptor, null, null)
+        is FieldResolutionResult.Found -> cache.store(trace, fieldName, fieldDescriptor, null, resolutionResult.field)
+      }
+    }
+    return resolutionResult
+  }
+
+  private fun doResolveField(
+    classFile: ClassFile,
+    fieldReference: FieldReference,
+    context: VerificationContext,
+    trace: MemberResolutionCache.ResolutionTrace?
   ): FieldResolutionResult {
     /**
      * 1) Firstly, the field is searched in the class of the field reference.
@@ -62,9 +94,10 @@ class FieldResolver {
      */
     for (anInterface in classFile.interfaces) {
       val resolvedInterface = context.classResolver.resolveClassChecked(anInterface, classFile, context)
+        .also { trace?.recordClassReference(it, classFile) }
         ?: return FieldResolutionResult.Abort
 
-      when (val lookupResult = doResolveField(resolvedInterface, fieldReference, context)) {
+      when (val lookupResult = doResolveField(resolvedInterface, fieldReference, context, trace)) {
         FieldResolutionResult.NotFound -> Unit
         FieldResolutionResult.Abort -> return lookupResult
         is FieldResolutionResult.Found -> return lookupResult
@@ -77,9 +110,10 @@ class FieldResolver {
     val superName = classFile.superName
     if (superName != null) {
       val resolvedSuper = context.classResolver.resolveClassChecked(superName, classFile, context)
+        .also { trace?.recordClassReference(it, classFile) }
         ?: return FieldResolutionResult.Abort
 
-      when (val lookupResult = doResolveField(resolvedSuper, fieldReference, context)) {
+      when (val lookupResult = doResolveField(resolvedSuper, fieldReference, context, trace)) {
         FieldResolutionResult.NotFound -> Unit
         FieldResolutionResult.Abort -> return lookupResult
         is FieldResolutionResult.Found -> return lookupResult
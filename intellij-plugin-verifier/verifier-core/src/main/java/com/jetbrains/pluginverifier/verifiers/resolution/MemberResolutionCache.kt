@@ -0,0 +1,177 @@
+/*
+ * Copyright 2000-2020 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Cache of method and field resolutions (JVM §5.4.3.2, §5.4.3.3, §5.4.3.4)
+ * shared by all verifications against the same platform, that is the IDE and the JDK.
+ *
+ * Only resolutions that visit nothing but classes of the [platformResolver] are cached.
+ * A verification resolves classes of the checked plugin first, then platform classes, then classes of the dependencies.
+ * So, such resolutions don't depend on the verified plugin and its dependencies unless the plugin
+ * bundles its own copies of platform classes. Verifications of such plugins don't use the cache,
+ * and all other verifications reuse cached resolutions as is.
+ *
+ * Resolutions of a verification are looked up via a [Session], which also counts hits and misses of that verification.
+ */
+class MemberResolutionCache(
+  private val platformResolver: Resolver,
+  maximumSize: Long = DEFAULT_MAXIMUM_SIZE
+) {
+
+  private val resolutions: Cache<Key, CachedResolution> = Caffeine.newBuilder()
+    .maximumSize(maximumSize)
+    .build()
+
+  private val hits = LongAdder()
+
+  private val misses = LongAdder()
+
+  val statistics: Statistics
+    get() = Statistics(hits.sum(), misses.sum(), resolutions.estimatedSize())
+
+  /**
+   * Creates a session of a verification. If the checked plugin [shadowsPlatformClasses],
+   * the session neither looks up nor stores resolutions.
+   */
+  fun createSession(shadowsPlatformClasses: Boolean) = Session(shadowsPlatformClasses)
+
+  inner class Session(private val shadowsPlatformClasses: Boolean) {
+
+    private val sessionHits = LongAdder()
+
+    private val sessionMisses = LongAdder()
+
+    /**
+     * Hits and misses of this session only.
+     */
+    val statistics: Statistics
+      get() = Statistics(sessionHits.sum(), sessionMisses.sum(), resolutions.estimatedSize())
+
+    /**
+     * Returns the cached resolution of the member [name] and [descriptor] in the [ownerClass].
+     * On hit, the class references made by the original resolution are reported
+     * to the [VerificationContext.apiUsageProcessors] again, as if the resolution had been performed.
+     */
+    internal fun lookup(ownerClass: ClassFile, name: String, descriptor: String, instruction: Instruction?, context: VerificationContext): CachedResolution? {
+      if (shadowsPlatformClasses || !ownerClass.isPlatformClass()) {
+        return null
+      }
+      val resolution = resolutions.getIfPresent(Key(ownerClass.name, name, descriptor, instruction))
+      if (resolution == null) {
+        sessionMisses.increment()
+        misses.increment()
+        return null
+      }
+      sessionHits.increment()
+      hits.increment()
+      resolution.replayClassReferences(context)
+      return resolution
+    }
+
+    /**
+     * Creates a trace that records a resolution in the [ownerClass] missing in the cache,
+     * or returns `null` if the [ownerClass] doesn't belong to the platform.
+     */
+    internal fun startTrace(ownerClass: ClassFile): ResolutionTrace? {
+      if (shadowsPlatformClasses || !ownerClass.isPlatformClass()) {
+        return null
+      }
+      return ResolutionTrace(ownerClass)
+    }
+
+    /**
+     * Saves the resolution recorded by the [trace] unless it has visited non-platform classes.
+     * [member] is `null` if the member has not been found.
+     */
+    internal fun store(trace: ResolutionTrace, name: String, descriptor: String, instruction: Instruction?, member: ClassFileMember?) {
+      if (trace.isShareable) {
+        resolutions.put(Key(trace.ownerClass.name, name, descriptor, instruction), trace.toResolution(member))
+      }
+    }
+  }
+
+  /**
+   * Records classes resolved in the course of a single member resolution.
+   */
+  internal inner class ResolutionTrace(val ownerClass: ClassFile) {
+
+    private val classReferences = arrayListOf<ClassReferenceEvent>()
+
+    var isShareable = true
+      private set
+
+    fun recordClassReference(resolvedClass: ClassFile?, referrer: ClassFile) {
+      if (!isShareable) {
+        return
+      }
+      if (resolvedClass == null
+        || !resolvedClass.isPlatformClass()
+        || !isClassAccessibleToOtherClass(resolvedClass, referrer)
+      ) {
+        isShareable = false
+        classReferences.clear()
+        return
+      }
+      classReferences += ClassReferenceEvent(resolvedClass, referrer)
+    }
+
+    fun toResolution(member: ClassFileMember?) = CachedResolution(classReferences.toList(), member)
+  }
+
+  /**
+   * Whether the class resolved by a verification is a platform class.
+   * Classes are checked by name, because a session of a verification that resolves
+   * platform class names to other classes doesn't use the cache.
+   */
+  private fun ClassFile.isPlatformClass(): Boolean =
+    this is ClassFileAsm && platformResolver.containsClass(name)
+
+  private data class Key(val className: String, val memberName: String, val descriptor: String, val instruction: Instruction?)
+
+  internal class ClassReferenceEvent(val resolvedClass: ClassFile, val referrer: ClassFile)
+
+  internal class CachedResolution(
+    private val classReferences: List<ClassReferenceEvent>,
+    /**
+     * Resolved method or field, or `null` if the member has not been found.
+     */
+    val member: ClassFileMember?
+  ) {
+
+    fun replayClassReferences(context: VerificationContext) {
+      for (event in classReferences) {
+        val classReference = ClassReference(event.resolvedClass.name)
+        context.apiUsageProcessors.forEach {
+          it.processClassReference(classReference, event.resolvedClass, context, event.referrer, ClassUsageType.DEFAULT)
+        }
+      }
+    }
+  }
+
+  data class Statistics(
+    val hitCount: Long,
+    val missCount: Long,
+    val cachedResolutionsCount: Long
+  ) {
+    val hitRate: Double
+      get() = if (hitCount + missCount == 0L) 1.0 else hitCount.toDouble() / (hitCount + missCount)
+
+    override fun toString() =
+      "hits: $hitCount, misses: $missCount, cached resolutions: $cachedResolutionsCount"
+  }
+
+  private companion object {
+    private const val DEFAULT_MAXIMUM_SIZE = 500_000L
+  }
+}
@@ -35,8 +35,17 @@ interface Method : ClassFileMember {
 
   //ASM-specific classes are returned, to avoid mirroring of ASM classes. May be abstracted away of ASM, if necessary.
   val instructions: List<AbstractInsnNode>
+
   val tryCatchBlocks: List<TryCatchBlockNode>
   val localVariables: List<LocalVariableNode>
   val methodParameters: List<MethodParameter>
   override val annotations: List<AnnotationNode>
-}
\ No newline at end of file
+
+  /**
+   * Passes the [instructions] to the [action] in order.
+   * Implementations may override it to go through the instructions without copying them.
+   */
+  fun forEachInstruction(action: (AbstractInsnNode) -> Unit) {
+    instructions.forEach(action)
+  }
+}
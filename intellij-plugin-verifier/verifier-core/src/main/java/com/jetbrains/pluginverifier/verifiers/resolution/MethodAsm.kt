@@ -4,7 +4,6 @@
 
 package com.jetbrains.pluginverifier.verifiers.resolution
 
-import com.jetbrains.plugin.structure.base.utils.toList
 import com.jetbrains.pluginverifier.results.location.MethodLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.verifiers.getAccessType
@@ -12,6 +11,7 @@ import org.objectweb.asm.Opcodes
 import org.objectweb.asm.Type
 import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.InsnList
 import org.objectweb.asm.tree.LocalVariableNode
 import org.objectweb.asm.tree.MethodNode
 
@@ -74,7 +74,19 @@ class MethodAsm(override val containingClassFile: ClassFile, val asmNode: Method
     get() = asmNode.tryCatchBlocks.orEmpty()
 
   override val instructions: List<AbstractInsnNode>
-    get() = asmNode.instructions.iterator().toList()
+    get() = asmNode.instructions.toArray().asList()
+
+  /**
+   * Follows the links between instructions, because the index of the [InsnList] is built lazily
+   * and isn't safe to build concurrently, while the same method may be verified by several verifications.
+   */
+  override fun forEachInstruction(action: (AbstractInsnNode) -> Unit) {
+    var instruction = asmNode.instructions.first
+    while (instruction != null) {
+      action(instruction)
+      instruction = instruction.next
+    }
+  }
 
 
   override val isAbstract
@@ -141,4 +153,5 @@ class MethodAsm(override val containingClassFile: ClassFile, val asmNode: Method
     return (0 until descriptorArgumentsNumber).map { "arg$it" }
   }
 
-}
\ No newline at end of file
+}
+
@@ -25,7 +25,7 @@ class MethodResolver {
     callerMethod: Method,
     context: VerificationContext
   ): Method? =
-    when (val resolutionResult = MethodResolveImpl(methodReference, instruction, callerMethod, context).resolveMethod(ownerClass)) {
+    when (val resolutionResult = doResolveMethod(ownerClass, methodReference, instruction, callerMethod, context)) {
       MethodResolutionResult.Abort -> null
       is MethodResolutionResult.NotFound -> {
         registerMethodNotFoundProblem(ownerClass, context, methodReference, instruction, callerMethod)
@@ -51,6 +51,39 @@ class MethodResolver {
     context
   ).lookupSpecialMethod(ownerClass, resolvedMethod)
 
+  /**
+   * Resolves the method using [VerificationContext.memberResolutionCache], if available.
+   */
+  private fun doResolveMethod(
+    ownerClass: ClassFile,
+    methodReference: MethodReference,
+    instruction: Instruction,
+    callerMethod: Method,
+    context: VerificationContext
+  ): MethodResolutionResult {
+    val cache = context.memberResolutionCache
+      ?: return MethodResolveImpl(methodReference, instruction, callerMethod, context).resolveMethod(ownerClass)
+
+    val methodName = methodReference.methodName
+    val methodDescriptor = methodReference.methodDescriptor
+    val cached = cache.lookup(ownerClass, methodName, methodDescriptor, instruction, context)
+    if (cached != null) {
+      val method = cached.member as? Method ?: return MethodResolutionResult.NotFound
+      return MethodResolutionResult.Found(method)
+    }
+
+    val trace = cache.startTrace(ownerClass)
+    val resolutionResult = MethodResolveImpl(methodReference, instruction, callerMethod, context, trace).resolveMethod(ownerClass)
+    if (trace != null) {
+      when (resolutionResult) {
+        MethodResolutionResult.Abort -> Unit
+        MethodResolutionResult.NotFound -> cache.store(trace, methodName, methodDescriptor, instruction, null)
+        is MethodResolutionResult.Found -> cache.store(trace, methodName, methodDescriptor, instruction, resolutionResult.method)
+      }
+    }
+    return resolutionResult
+  }
+
   private fun registerMethodNotFoundProblem(
     ownerClass: ClassFile,
     context: VerificationContext,
@@ -114,7 +147,8 @@ private class MethodResolveImpl(
   private val methodReference: MethodReference,
   private val instruction: Instruction,
   private val callerMethod: Method,
-  private val context: VerificationContext
+  private val context: VerificationContext,
+  private val trace: MemberResolutionCache.ResolutionTrace? = null
 ) {
 
   private val methodName = methodReference.methodName
@@ -134,6 +168,10 @@ private class MethodResolveImpl(
       else -> throw IllegalArgumentException()
     }
 
+  private fun resolveClassChecked(className: String, referrer: ClassFile): ClassFile? =
+    context.classResolver.resolveClassChecked(className, referrer, context)
+      .also { trace?.recordClassReference(it, referrer) }
+
   /**
    * To resolve an unresolved symbolic reference from D to an interface method in an interface C,
    * the symbolic reference to C given by the interface method reference is first resolved (§5.4.3.1).
@@ -167,7 +205,7 @@ private class MethodResolveImpl(
     interface method reference, which has its ACC_PUBLIC flag set and does not have its ACC_STATIC flag set,
     method lookup succeeds.
     */
-    val objectClass = context.classResolver.resolveClassChecked("java/lang/Object", interfaceFile, context)
+    val objectClass = resolveClassChecked("java/lang/Object", interfaceFile)
       ?: return MethodResolutionResult.Abort
     val objectMethod = objectClass.methods.firstOrNull { it.name == methodName && it.descriptor == methodDescriptor && it.isPublic && !it.isStatic }
     if (objectMethod != null) {
@@ -239,7 +277,7 @@ private class MethodResolveImpl(
 
       cur.interfaces.forEach {
         if (it !in visited) {
-          val resolveClass = context.classResolver.resolveClassChecked(it, cur, context)
+          val resolveClass = resolveClassChecked(it, cur)
             ?: return null
           visited.add(it)
           queue.add(resolveClass)
@@ -249,7 +287,7 @@ private class MethodResolveImpl(
       val superName = cur.superName
       if (superName != null) {
         if (superName !in visited) {
-          val resolvedSuper = context.classResolver.resolveClassChecked(superName, cur, context)
+          val resolvedSuper = resolveClassChecked(superName, cur)
             ?: return null
           visited.add(superName)
           queue.add(resolvedSuper)
@@ -357,7 +395,7 @@ private class MethodResolveImpl(
      */
     val superName = currentClass.superName
     if (superName != null) {
-      val resolvedSuper = context.classResolver.resolveClassChecked(superName, currentClass, context)
+      val resolvedSuper = resolveClassChecked(superName, currentClass)
         ?: return MethodResolutionResult.Abort
       when (val lookupResult = resolveClassMethodStep2(resolvedSuper)) {
         is MethodResolutionResult.Found -> return lookupResult
@@ -420,7 +458,7 @@ private class MethodResolveImpl(
         If a match is found, then it is the method to be invoked.
     */
     if (!classRef.isInterface && classRef.superName != null) {
-      var current: ClassFile = context.classResolver.resolveClassChecked(classRef.superName!!, classRef, context)
+      var current: ClassFile = resolveClassChecked(classRef.superName!!, classRef)
         ?: return null
       while (true) {
         val match = current.methods.find { it.name == resolvedMethod.name && it.descriptor == resolvedMethod.descriptor }
@@ -430,7 +468,7 @@ private class MethodResolveImpl(
 
         val superName = current.superName
         superName ?: break
-        current = context.classResolver.resolveClassChecked(superName, current, context)
+        current = resolveClassChecked(superName, current)
           ?: return null
       }
     }
@@ -440,7 +478,7 @@ private class MethodResolveImpl(
        the same name and descriptor as the resolved method, then it is the method to be invoked.
     */
     if (classRef.isInterface) {
-      val objectClass = context.classResolver.resolveClassChecked("java/lang/Object", classRef, context)
+      val objectClass = resolveClassChecked("java/lang/Object", classRef)
         ?: return null
       val match = objectClass.methods.find { it.name == resolvedMethod.name && it.descriptor == resolvedMethod.descriptor && it.isPublic }
       if (match != null) {
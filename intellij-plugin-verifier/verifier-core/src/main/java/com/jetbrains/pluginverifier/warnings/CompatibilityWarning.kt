@@ -4,7 +4,9 @@
 
 package com.jetbrains.pluginverifier.warnings
 
-abstract class CompatibilityWarning {
+import java.io.Serializable
+
+abstract class CompatibilityWarning : Serializable {
 
   abstract val problemType: String
 
@@ -7,6 +7,7 @@ dependencies {
   api(libs.jgrapht.core)
 
   implementation(sharedLibs.jsoup)
+  implementation(sharedLibs.caffeine)
 
   api("org.jetbrains.intellij.plugins:structure-ide-classes:$intellijStructureVersion")
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier
+
+import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesFinder
+import com.jetbrains.pluginverifier.misc.MemoryInfo
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.bundled.BundledPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInfo
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.nio.file.Files
+import java.time.Duration
+
+/**
+ * Admits plugin verifications depending on the heap occupancy after garbage collections.
+ *
+ * At most [concurrencyLimit] verifications run at the same time. The limit starts at [initialConcurrency]
+ * and is adjusted after garbage collections of the old generation: it is halved if the used heap exceeds [HIGH_OCCUPANCY] of [maxHeap]
+ * and grows by one up to [maxConcurrency] if the used heap is below [LOW_OCCUPANCY] of [maxHeap].
+ * The limit is adjusted at most once per [minAdjustmentInterval], so that the verifications admitted
+ * after an adjustment show up in the heap before the next one.
+ *
+ * Besides, a verification is admitted only if its estimated heap usage fits into the heap left
+ * after the last garbage collection and the verifications admitted since then,
+ * so verifications of big plugins wait until others finish.
+ * A verification is always admitted if no other verification runs, so that every plugin is verified eventually.
+ *
+ * A permit is acquired before the plugin is loaded, so the first estimate is made by the [PluginInfo] only.
+ * Once the plugin is loaded, the estimate may be raised with [Permit.updateEstimatedHeap].
+ */
+class AdaptiveConcurrencyLimiter(
+  private val maxConcurrency: Int,
+  initialConcurrency: Int,
+  private val maxHeap: Long,
+  minAdjustmentInterval: Duration = DEFAULT_MIN_ADJUSTMENT_INTERVAL
+) {
+
+  private val minAdjustmentIntervalNanos = minAdjustmentInterval.toNanos()
+
+  private val lock = Object()
+
+  var concurrencyLimit: Int = initialConcurrency.coerceIn(1, maxConcurrency)
+    get() = synchronized(lock) { field }
+    private set
+
+  private var runningVerifications = 0
+
+  private var usedHeapAfterGc = 0L
+
+  private var heapAdmittedSinceGc = 0L
+
+  private var lastAdjustmentNanos: Long? = null
+
+  fun <T> withPermit(estimatedHeap: Long, verification: (Permit) -> T): T {
+    acquire(estimatedHeap)
+    try {
+      return verification(Permit(estimatedHeap))
+    } finally {
+      release()
+    }
+  }
+
+  inner class Permit internal constructor(private var estimatedHeap: Long) {
+
+    /**
+     * Raises the heap estimated for the verification holding this permit, for instance, after its plugin is loaded.
+     * The verification keeps running, but other verifications are admitted by the new estimate.
+     */
+    fun updateEstimatedHeap(newEstimatedHeap: Long) {
+      synchronized(lock) {
+        if (newEstimatedHeap > estimatedHeap) {
+          heapAdmittedSinceGc += newEstimatedHeap - estimatedHeap
+          estimatedHeap = newEstimatedHeap
+        }
+      }
+    }
+  }
+
+  @Throws(InterruptedException::class)
+  private fun acquire(estimatedHeap: Long) {
+    synchronized(lock) {
+      while (!canAdmit(estimatedHeap)) {
+        lock.wait()
+      }
+      runningVerifications++
+      heapAdmittedSinceGc += estimatedHeap
+    }
+  }
+
+  private fun canAdmit(estimatedHeap: Long): Boolean {
+    if (runningVerifications == 0) {
+      return true
+    }
+    val freeHeap = (maxHeap * HIGH_OCCUPANCY).toLong() - usedHeapAfterGc - heapAdmittedSinceGc
+    return runningVerifications < concurrencyLimit && estimatedHeap <= freeHeap
+  }
+
+  private fun release() {
+    synchronized(lock) {
+      runningVerifications--
+      lock.notifyAll()
+    }
+  }
+
+  /**
+   * Accounts the [usedHeap] after a garbage collection that happened at [timeNanos], as given by [System.nanoTime].
+   */
+  fun onGarbageCollection(usedHeap: Long, timeNanos: Long = System.nanoTime()) {
+    synchronized(lock) {
+      usedHeapAfterGc = usedHeap
+      heapAdmittedSinceGc = 0
+      val lastAdjustment = lastAdjustmentNanos
+      if (lastAdjustment == null || timeNanos - lastAdjustment >= minAdjustmentIntervalNanos) {
+        adjustConcurrencyLimit(usedHeap, timeNanos)
+      }
+      lock.notifyAll()
+    }
+  }
+
+  private fun adjustConcurrencyLimit(usedHeap: Long, timeNanos: Long) {
+    val previousLimit = concurrencyLimit
+    if (usedHeap > maxHeap * HIGH_OCCUPANCY) {
+      concurrencyLimit = maxOf(1, concurrencyLimit / 2)
+    } else if (usedHeap < maxHeap * LOW_OCCUPANCY) {
+      concurrencyLimit = minOf(maxConcurrency, concurrencyLimit + 1)
+    }
+    if (concurrencyLimit != previousLimit) {
+      lastAdjustmentNanos = timeNanos
+      LOG.debug("Concurrency limit of verifications is changed from $previousLimit to $concurrencyLimit: $usedHeap of $maxHeap bytes of heap are used")
+    }
+  }
+
+  /**
+   * Starts adjusting the limit on garbage collections of the old generation of this JVM until the returned [Closeable] is closed.
+   */
+  fun listenGarbageCollections(): Closeable =
+    MemoryInfo.addGarbageCollectionListener { onGarbageCollection(it) }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter::class.java)
+
+    private const val HIGH_OCCUPANCY = 0.8
+
+    private const val LOW_OCCUPANCY = 0.5
+
+    private val DEFAULT_MIN_ADJUSTMENT_INTERVAL: Duration = Duration.ofSeconds(10)
+
+    private const val MIN_VERIFICATION_HEAP = 16L * 1024 * 1024
+
+    private const val HEAP_PER_CLASS = 32L * 1024
+
+    private const val HEAP_PER_PLUGIN_FILE_BYTE = 4L
+
+    /**
+     * Estimates the heap used by the verification of the plugin [pluginInfo] before the plugin is loaded
+     * by the size of the plugin file, if the plugin is available locally.
+     * Plugins to be downloaded are not known to take more than [MIN_VERIFICATION_HEAP] until they are loaded.
+     */
+    fun estimateVerificationHeap(pluginInfo: PluginInfo): Long {
+      val idePlugin = when (pluginInfo) {
+        is LocalPluginInfo -> pluginInfo.idePlugin
+        is BundledPluginInfo -> pluginInfo.idePlugin
+        else -> null
+      }
+      val pluginFileSize = idePlugin?.originalFile?.takeIf { Files.isRegularFile(it) }?.let { Files.size(it) } ?: 0
+      return maxOf(MIN_VERIFICATION_HEAP, pluginFileSize * HEAP_PER_PLUGIN_FILE_BYTE)
+    }
+
+    /**
+     * Estimates the heap used by the verification of the plugin loaded to the [cacheEntry]
+     * by the number of classes and the size of the plugin file.
+     */
+    fun estimateVerificationHeap(cacheEntry: PluginDetailsCache.Result): Long {
+      if (cacheEntry !is PluginDetailsCache.Result.Provided) {
+        return 0
+      }
+      val pluginDetails = cacheEntry.pluginDetails
+      val classesNumber = IdePluginClassesFinder.MAIN_CLASSES_KEYS
+        .flatMap { pluginDetails.pluginClassesLocations.getResolvers(it) }
+        .sumOf { it.allClasses.size.toLong() }
+      val pluginFileSize = pluginDetails.pluginFile?.takeIf { Files.isRegularFile(it) }?.let { Files.size(it) } ?: 0
+      return maxOf(MIN_VERIFICATION_HEAP, classesNumber * HEAP_PER_CLASS, pluginFileSize * HEAP_PER_PLUGIN_FILE_BYTE)
+    }
+  }
+}
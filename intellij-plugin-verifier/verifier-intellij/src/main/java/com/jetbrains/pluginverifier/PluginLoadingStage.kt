@@ -0,0 +1,111 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier
+
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.base.utils.shutdownAndAwaitTermination
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import java.io.Closeable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicIntegerArray
+
+/**
+ * Loads plugins of [verifiers] ahead of their verification on a separate pool of [parallelism] threads,
+ * so that downloading, extracting and reading of plugins, which mostly wait for the network and the disk,
+ * overlap with the verification of other plugins, which is bound by CPU.
+ *
+ * Plugins are loaded in the order of [verifiers]. At most [capacity] plugins are loaded or being loaded
+ * and not yet verified, which bounds the disk space and the heap taken by loaded plugins.
+ * A plugin is counted until its verification passed to [withLoadedPlugin] completes.
+ */
+internal class PluginLoadingStage(
+  private val verifiers: List<PluginVerifier>,
+  parallelism: Int,
+  capacity: Int
+) : Closeable {
+
+  private val loadedPlugins = List(verifiers.size) { CompletableFuture<PluginDetailsCache.Result>() }
+
+  private val takenPlugins = AtomicIntegerArray(verifiers.size)
+
+  private val permits = Semaphore(capacity)
+
+  private val nameCounter = AtomicInteger()
+
+  private val loadingExecutor = Executors.newFixedThreadPool(parallelism) { r ->
+    Thread(r).apply {
+      isDaemon = true
+      name = "plugin-loader_" + nameCounter.incrementAndGet().toString()
+    }
+  }
+
+  private val dispatcher = Thread({ dispatch() }, "plugin-loading-dispatcher").apply { isDaemon = true }
+
+  fun start() {
+    dispatcher.start()
+  }
+
+  private fun dispatch() {
+    try {
+      for ((index, verifier) in verifiers.withIndex()) {
+        permits.acquire()
+        loadingExecutor.execute { load(verifier, loadedPlugins[index]) }
+      }
+    } catch (e: InterruptedException) {
+      //The stage is being closed.
+    } catch (e: RejectedExecutionException) {
+      //The stage is being closed.
+    }
+  }
+
+  private fun load(verifier: PluginVerifier, loadedPlugin: CompletableFuture<PluginDetailsCache.Result>) {
+    if (loadedPlugin.isDone) {
+      return
+    }
+    try {
+      val cacheEntry = verifier.loadPlugin()
+      if (!loadedPlugin.complete(cacheEntry)) {
+        cacheEntry.closeLogged()
+      }
+    } catch (e: Throwable) {
+      loadedPlugin.completeExceptionally(e)
+    }
+  }
+
+  /**
+   * Waits until the plugin of the verifier at [index] is loaded and runs [verification] with it.
+   * Afterwards, the plugin is released, so that the next plugin may be loaded.
+   */
+  fun <T> withLoadedPlugin(index: Int, verification: (PluginDetailsCache.Result) -> T): T {
+    check(takenPlugins.compareAndSet(index, 0, 1)) { "Plugin of ${verifiers[index].verificationDescriptor} has already been taken" }
+    try {
+      val cacheEntry = try {
+        loadedPlugins[index].get()
+      } catch (e: ExecutionException) {
+        throw e.cause ?: e
+      }
+      return cacheEntry.use(verification)
+    } finally {
+      permits.release()
+    }
+  }
+
+  override fun close() {
+    dispatcher.interrupt()
+    loadingExecutor.shutdownNow()
+    loadingExecutor.shutdownAndAwaitTermination(1, TimeUnit.MINUTES)
+    for ((index, loadedPlugin) in loadedPlugins.withIndex()) {
+      if (!loadedPlugin.cancel(false) && !loadedPlugin.isCompletedExceptionally && takenPlugins.compareAndSet(index, 0, 1)) {
+        loadedPlugin.get().closeLogged()
+      }
+    }
+  }
+}
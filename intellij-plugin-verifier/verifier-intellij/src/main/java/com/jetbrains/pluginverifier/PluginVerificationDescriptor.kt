@@ -12,6 +12,9 @@ import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.resolution.ClassResolverProvider
 import com.jetbrains.pluginverifier.resolution.DefaultClassResolverProvider
 import com.jetbrains.pluginverifier.resolution.PluginApiClassResolverProvider
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolutionCache
+import com.jetbrains.pluginverifier.verifiers.ClassFindingsMemo
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 
 /**
  * Describes details of upcoming plugin verification: plugin and IDE or plugin to verify against.
@@ -45,6 +48,15 @@ sealed class PluginVerificationDescriptor {
     val jdkVersion: JdkVersion
       get() = ideDescriptor.jdkDescriptor.jdkVersion
 
+    val memberResolutionCache: MemberResolutionCache
+      get() = ideDescriptor.memberResolutionCache
+
+    val annotationResolutionCache: AnnotationResolutionCache
+      get() = ideDescriptor.annotationResolutionCache
+
+    val classFindingsMemo: ClassFindingsMemo
+      get() = ideDescriptor.classFindingsMemo
+
     override val presentableName get() = "$checkedPlugin against $ideVersion"
   }
 
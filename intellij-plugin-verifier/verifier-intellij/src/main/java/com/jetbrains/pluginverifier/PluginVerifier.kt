@@ -5,8 +5,13 @@
 package com.jetbrains.pluginverifier
 
 import com.jetbrains.plugin.structure.base.problems.PluginProblem
+import com.jetbrains.plugin.structure.base.telemetry.CLASS_FINDINGS_MEMO_HITS
+import com.jetbrains.plugin.structure.base.telemetry.CLASS_FINDINGS_MEMO_MISSES
+import com.jetbrains.plugin.structure.base.telemetry.MEMBER_RESOLUTION_CACHE_HITS
+import com.jetbrains.plugin.structure.base.telemetry.MEMBER_RESOLUTION_CACHE_MISSES
 import com.jetbrains.plugin.structure.base.telemetry.MutablePluginTelemetry
 import com.jetbrains.plugin.structure.base.telemetry.PLUGIN_VERIFIED_CLASSES_COUNT
+import com.jetbrains.plugin.structure.base.telemetry.VERIFICATION_RESULT_CACHE_HIT
 import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.ide.util.KnownIdePackages
@@ -22,9 +27,13 @@ import com.jetbrains.pluginverifier.filtering.MainClassesSelector
 import com.jetbrains.pluginverifier.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
+import com.jetbrains.pluginverifier.results.CachedVerificationFindings
+import com.jetbrains.pluginverifier.results.VerificationResultCache
 import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
 import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
 import com.jetbrains.pluginverifier.results.problems.PackageNotFoundProblem
+import com.jetbrains.pluginverifier.symbols.ResolverSymbolTable
+import com.jetbrains.pluginverifier.symbols.SymbolicReferences
 import com.jetbrains.pluginverifier.usages.deprecated.DeprecatedMethodOverridingProcessor
 import com.jetbrains.pluginverifier.usages.experimental.ExperimentalMethodOverridingProcessor
 import com.jetbrains.pluginverifier.usages.internal.InternalApiUsage
@@ -32,6 +41,7 @@ import com.jetbrains.pluginverifier.usages.internal.InternalMethodOverridingProc
 import com.jetbrains.pluginverifier.usages.nonExtendable.NonExtendableMethodOverridingProcessor
 import com.jetbrains.pluginverifier.usages.nonExtendable.NonExtendableTypeInheritedProcessor
 import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.ClassFindingsMemo
 import com.jetbrains.pluginverifier.verifiers.PluginVerificationContext
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.filter.ClassFilter
@@ -43,43 +53,64 @@ import com.jetbrains.pluginverifier.warnings.PluginStructureWarning
 
 /**
  * Performs verification specified by [verificationDescriptor] and returns [PluginVerificationResult].
+ *
+ * If the [resultCache] is specified, findings of a previous verification of the same plugin file
+ * against an IDE build with the same API referenced by the plugin are reused instead of verifying bytecode of the plugin again.
+ *
+ * If [classFindingsMemoization] is enabled, findings of each class are memoized by its bytecode
+ * and reused by other verifications against the same IDE, see [ClassFindingsMemo].
  */
 class PluginVerifier(
   val verificationDescriptor: PluginVerificationDescriptor,
   private val problemFilters: List<ProblemsFilter>,
-  private val pluginDetailsCache: PluginDetailsCache,
+  val pluginDetailsCache: PluginDetailsCache,
   private val classFilters: List<ClassFilter>,
   private val excludeExternalBuildClassesSelector: Boolean,
   private val apiUsageFilters: List<ApiUsageFilter> = emptyList(),
+  private val classVerificationParallelism: Int = getClassVerificationParallelism(),
+  private val uncachedPluginClassReading: Boolean = isUncachedPluginClassReading(),
+  private val resultCache: VerificationResultCache? = null,
+  private val classFindingsMemoization: Boolean = isClassFindingsMemoization()
 ) {
 
-  fun loadPluginAndVerify(): PluginVerificationResult {
-    pluginDetailsCache.getPluginDetailsCacheEntry(verificationDescriptor.checkedPlugin).use { cacheEntry ->
-      return when (cacheEntry) {
-        is PluginDetailsCache.Result.InvalidPlugin -> {
-          PluginVerificationResult.InvalidPlugin(
-            verificationDescriptor.checkedPlugin,
-            verificationDescriptor.toTarget(),
-            cacheEntry.pluginErrors
-              .filter { it.level == PluginProblem.Level.ERROR }
-              .mapTo(hashSetOf()) { PluginStructureError(it) }
-          )
-        }
+  fun loadPluginAndVerify(): PluginVerificationResult =
+    loadPlugin().use { verify(it) }
 
-        is PluginDetailsCache.Result.FileNotFound -> {
-          PluginVerificationResult.NotFound(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
-        }
+  /**
+   * Downloads, if necessary, and reads the checked plugin.
+   * The returned entry must be closed after the verification.
+   */
+  fun loadPlugin(): PluginDetailsCache.Result =
+    pluginDetailsCache.getPluginDetailsCacheEntry(verificationDescriptor.checkedPlugin)
 
-        is PluginDetailsCache.Result.Failed -> {
-          PluginVerificationResult.FailedToDownload(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
-        }
+  /**
+   * Verifies the checked plugin that has been loaded by [loadPlugin].
+   * The [cacheEntry] is not closed.
+   */
+  fun verify(cacheEntry: PluginDetailsCache.Result): PluginVerificationResult =
+    when (cacheEntry) {
+      is PluginDetailsCache.Result.InvalidPlugin -> {
+        PluginVerificationResult.InvalidPlugin(
+          verificationDescriptor.checkedPlugin,
+          verificationDescriptor.toTarget(),
+          cacheEntry.pluginErrors
+            .filter { it.level == PluginProblem.Level.ERROR }
+            .mapTo(hashSetOf()) { PluginStructureError(it) }
+        )
+      }
 
-        is PluginDetailsCache.Result.Provided -> {
-          verify(cacheEntry.pluginDetails)
-        }
+      is PluginDetailsCache.Result.FileNotFound -> {
+        PluginVerificationResult.NotFound(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
+      }
+
+      is PluginDetailsCache.Result.Failed -> {
+        PluginVerificationResult.FailedToDownload(verificationDescriptor.checkedPlugin, verificationDescriptor.toTarget(), cacheEntry.reason)
+      }
+
+      is PluginDetailsCache.Result.Provided -> {
+        verify(cacheEntry.pluginDetails)
       }
     }
-  }
 
 
   fun verify(pluginDetails: PluginDetails): PluginVerificationResult {
@@ -92,7 +123,8 @@ class PluginVerifier(
         pluginResolver,
         allResolver,
         externalClassesPackageFilter,
-        dependenciesGraph
+        dependenciesGraph,
+        if (classFindingsMemoization) (verificationDescriptor as? PluginVerificationDescriptor.IDE)?.classFindingsMemo else null
       )
 
       pluginDetails.pluginWarnings.forEach { context.registerPluginStructureWarning(PluginStructureWarning(it)) }
@@ -103,28 +135,29 @@ class PluginVerifier(
         it.reportTelemetry(pluginDetails, context)
       }
 
-      BytecodeVerifier(
-        classFilters,
-        listOf(NonExtendableTypeInheritedProcessor(context)),
-        listOf(
-          MethodOverridingVerifier(
-            listOf(
-              ExperimentalMethodOverridingProcessor(context),
-              DeprecatedMethodOverridingProcessor(context),
-              NonExtendableMethodOverridingProcessor(context),
-              InternalMethodOverridingProcessor(context)
-            )
-          )
-        )
-      ).verify(classesToCheck, context) {}
-
-      analyzeMissingClassesCausedByMissingOptionalDependencies(
-        context.compatibilityProblems,
+      val resultCacheKey = resultCache?.getKey(
+        pluginDetails,
+        verificationDescriptor,
         dependenciesGraph,
-        context.idePlugin,
-        context.pluginResolver
-      )
-      groupMissingClassesToMissingPackages(context.compatibilityProblems, context.classResolver)
+        verifierOptions,
+        ResolverSymbolTable(allResolver)
+      ) { SymbolicReferences.extract(classesToCheck, pluginResolver) }
+      val cachedFindings = resultCacheKey?.let { resultCache?.get(it) }
+      if (cachedFindings != null) {
+        context.restoreFindings(cachedFindings)
+      } else {
+        verifyClasses(classesToCheck, context)
+        if (resultCacheKey != null) {
+          resultCache?.put(resultCacheKey, context.getFindings())
+        }
+      }
+      if (resultCacheKey != null) {
+        context.reportResultCacheTelemetry(pluginDetails, cachedFindings != null)
+      }
+
+      context.reportMemberResolutionCacheTelemetry(pluginDetails)
+      context.reportClassFindingsMemoTelemetry(pluginDetails)
+
       val (reportProblems, ignoredProblems) = partitionReportAndIgnoredProblems(context.compatibilityProblems, context)
 
       val (reportedInternalApiUsages, ignoredInternalApiUsages) = partitionReportAndIgnoredInternalApiUsages(context.internalApiUsages, context)
@@ -151,6 +184,63 @@ class PluginVerifier(
     }
   }
 
+  /**
+   * Verifies bytecode of the [classesToCheck] and post-processes the found problems.
+   */
+  private fun verifyClasses(classesToCheck: Set<String>, context: PluginVerificationContext) {
+    BytecodeVerifier(
+      classFilters,
+      listOf(NonExtendableTypeInheritedProcessor(context)),
+      listOf(
+        MethodOverridingVerifier(
+          listOf(
+            ExperimentalMethodOverridingProcessor(context),
+            DeprecatedMethodOverridingProcessor(context),
+            NonExtendableMethodOverridingProcessor(context),
+            InternalMethodOverridingProcessor(context)
+          )
+        )
+      ),
+      parallelism = classVerificationParallelism,
+      verifiedClassResolver = if (uncachedPluginClassReading) context.pluginResolver else null
+    ).verify(classesToCheck, context) {}
+
+    analyzeMissingClassesCausedByMissingOptionalDependencies(
+      context.compatibilityProblems,
+      context.dependenciesGraph,
+      context.idePlugin,
+      context.pluginResolver
+    )
+    groupMissingClassesToMissingPackages(context.compatibilityProblems, context.classResolver)
+  }
+
+  /**
+   * Options of this verifier that change the findings, which are a part of the key in the [resultCache].
+   */
+  private val verifierOptions: String
+    get() = "excludeExternalBuildClassesSelector=$excludeExternalBuildClassesSelector;" +
+      "classFilters=" + classFilters.joinToString { it.javaClass.name }
+
+  private fun PluginVerificationContext.getFindings() = CachedVerificationFindings(
+    compatibilityProblems.toHashSet(),
+    compatibilityWarnings.toHashSet(),
+    deprecatedUsages.toHashSet(),
+    experimentalApiUsages.toHashSet(),
+    internalApiUsages.toHashSet(),
+    nonExtendableApiUsages.toHashSet(),
+    overrideOnlyMethodUsages.toHashSet()
+  )
+
+  private fun PluginVerificationContext.restoreFindings(findings: CachedVerificationFindings) {
+    compatibilityProblems += findings.compatibilityProblems
+    compatibilityWarnings += findings.compatibilityWarnings
+    deprecatedUsages += findings.deprecatedUsages
+    experimentalApiUsages += findings.experimentalApiUsages
+    internalApiUsages += findings.internalApiUsages
+    nonExtendableApiUsages += findings.nonExtendableApiUsages
+    overrideOnlyMethodUsages += findings.overrideOnlyMethodUsages
+  }
+
   private fun partitionReportAndIgnoredProblems(
     allProblems: Set<CompatibilityProblem>,
     verificationContext: VerificationContext
@@ -332,6 +422,28 @@ class PluginVerifier(
     return classesForCheck
   }
 
+  private fun PluginVerificationContext.reportResultCacheTelemetry(pluginDetails: PluginDetails, isHit: Boolean) {
+    reportTelemetry(pluginDetails.pluginInfo, MutablePluginTelemetry().apply {
+      set(VERIFICATION_RESULT_CACHE_HIT, isHit)
+    })
+  }
+
+  private fun PluginVerificationContext.reportMemberResolutionCacheTelemetry(pluginDetails: PluginDetails) {
+    val statistics = memberResolutionCache?.statistics ?: return
+    reportTelemetry(pluginDetails.pluginInfo, MutablePluginTelemetry().apply {
+      set(MEMBER_RESOLUTION_CACHE_HITS, statistics.hitCount)
+      set(MEMBER_RESOLUTION_CACHE_MISSES, statistics.missCount)
+    })
+  }
+
+  private fun PluginVerificationContext.reportClassFindingsMemoTelemetry(pluginDetails: PluginDetails) {
+    val statistics = classFindingsMemoStatistics ?: return
+    reportTelemetry(pluginDetails.pluginInfo, MutablePluginTelemetry().apply {
+      set(CLASS_FINDINGS_MEMO_HITS, statistics.hitCount)
+      set(CLASS_FINDINGS_MEMO_MISSES, statistics.missCount)
+    })
+  }
+
   private fun Set<String>.reportTelemetry(pluginDetails: PluginDetails, context: PluginVerificationContext) {
     context.reportTelemetry(pluginDetails.pluginInfo, MutablePluginTelemetry().apply {
       set(PLUGIN_VERIFIED_CLASSES_COUNT, this@reportTelemetry.size)
@@ -7,16 +7,45 @@ package com.jetbrains.pluginverifier
 import com.jetbrains.plugin.structure.base.telemetry.PLUGIN_VERIFICATION_TIME
 import com.jetbrains.plugin.structure.base.telemetry.PluginTelemetry
 import com.jetbrains.plugin.structure.base.utils.ExecutorWithProgress
+import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.PluginVerificationReportage
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.bundled.BundledPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInfo
 import java.time.Duration
 import kotlin.system.measureTimeMillis
 
 fun runSeveralVerifiers(reportage: PluginVerificationReportage, verifiers: List<PluginVerifier>): List<PluginVerificationResult> {
+  val results = arrayListOf<PluginVerificationResult>()
+  runSeveralVerifiers(reportage, verifiers) { results += it }
+  return results
+}
+
+/**
+ * Runs the [verifiers] and passes each result to the [resultConsumer] as soon as the verification finishes,
+ * so that the caller may keep only the parts of the results it needs.
+ * The results are reported to the [reportage] before they are passed to the [resultConsumer].
+ */
+fun runSeveralVerifiers(
+  reportage: PluginVerificationReportage,
+  verifiers: List<PluginVerifier>,
+  resultConsumer: (PluginVerificationResult) -> Unit
+) {
   if (verifiers.isEmpty()) {
-    return emptyList()
+    return
   }
+  val scheduledVerifiers = scheduleByLocality(verifiers)
+  val pluginDetailsCaches = scheduledVerifiers.map { it.pluginDetailsCache }.distinct()
+  val initialHitStatistics = pluginDetailsCaches.map { it.hitStatistics }
 
-  val executor = ExecutorWithProgress<PluginVerificationResult>("verifier", getConcurrencyLevel(), true) { progressData ->
+  val concurrencyLimiter = if (isAdaptiveConcurrency()) {
+    AdaptiveConcurrencyLimiter(getMaxConcurrencyLevel(), getConcurrencyLevel(), Runtime.getRuntime().maxMemory())
+  } else {
+    null
+  }
+  val concurrencyLevel = if (concurrencyLimiter != null) getMaxConcurrencyLevel() else getConcurrencyLevel()
+
+  val executor = ExecutorWithProgress<PluginVerificationResult>("verifier", concurrencyLevel, true) { progressData ->
     val result = progressData.result!!
     reportage.logVerificationStage(
       "Finished ${progressData.finishedNumber} of ${progressData.totalNumber} verifications (in ${String.format("%.1f", progressData.elapsedTime.toDouble() / 1000)} s): " +
@@ -24,12 +53,28 @@ fun runSeveralVerifiers(reportage: PluginVerificationReportage, verifiers: List<
     )
   }
 
-  val tasks = verifiers.map { verifier ->
-    ExecutorWithProgress.Task(verifier.verificationDescriptor.toString()) {
-      val verificationResult: PluginVerificationResult
-      measureTimeMillis {
-        verificationResult = verifier.loadPluginAndVerify()
-      }.let { verificationTime ->
+  val loadingParallelism = getPluginLoadingParallelism()
+  val loadingCapacity = getPluginLoadingCapacity(concurrencyLevel + loadingParallelism, pluginDetailsCaches)
+  PluginLoadingStage(scheduledVerifiers, loadingParallelism, loadingCapacity).use { loadingStage ->
+    val tasks = scheduledVerifiers.mapIndexed { index, verifier ->
+      ExecutorWithProgress.Task(verifier.verificationDescriptor.toString()) {
+        var verificationTime = 0L
+        val verify = { cacheEntry: PluginDetailsCache.Result ->
+          val verificationResult: PluginVerificationResult
+          verificationTime = measureTimeMillis { verificationResult = verifier.verify(cacheEntry) }
+          verificationResult
+        }
+        val verificationResult = if (concurrencyLimiter != null) {
+          val pluginInfo = verifier.verificationDescriptor.checkedPlugin
+          concurrencyLimiter.withPermit(AdaptiveConcurrencyLimiter.estimateVerificationHeap(pluginInfo)) { permit ->
+            loadingStage.withLoadedPlugin(index) { cacheEntry ->
+              permit.updateEstimatedHeap(AdaptiveConcurrencyLimiter.estimateVerificationHeap(cacheEntry))
+              verify(cacheEntry)
+            }
+          }
+        } else {
+          loadingStage.withLoadedPlugin(index, verify)
+        }
         reportage.reportTelemetry(verificationResult.plugin, PluginTelemetry(PLUGIN_VERIFICATION_TIME to Duration.ofMillis(verificationTime)))
         if (verificationResult is PluginVerificationResult.Verified) {
           reportage.reportTelemetry(verificationResult.plugin, verificationResult.telemetry)
@@ -38,8 +83,51 @@ fun runSeveralVerifiers(reportage: PluginVerificationReportage, verifiers: List<
         verificationResult
       }
     }
+    loadingStage.start()
+    concurrencyLimiter?.listenGarbageCollections().use {
+      executor.executeTasks(tasks, 2 * concurrencyLevel, resultConsumer)
+    }
+  }
+
+  for ((pluginDetailsCache, initialStatistics) in pluginDetailsCaches.zip(initialHitStatistics)) {
+    val hitStatistics = pluginDetailsCache.hitStatistics
+    if (hitStatistics != null && initialStatistics != null) {
+      reportage.logVerificationStage("Plugin details cache hit rate: ${hitStatistics - initialStatistics}")
+    }
   }
-  return executor.executeTasks(tasks)
+}
+
+/**
+ * Orders the [verifiers] so that verifications resolving the same dependencies run one after another,
+ * and so do verifications of the same plugin: first of the same plugin version against different IDEs,
+ * then of other versions of the plugin. So, the details of dependencies and of the plugin itself are likely to be
+ * in the plugin details cache while all verifications that need them run, and may be evicted afterwards.
+ *
+ * Dependencies of a plugin are known before it is loaded only for local and bundled plugins,
+ * see [getPluginDependencyIds]. Other plugins are grouped only by plugin.
+ * Descriptors of IDEs are held open by the task for all verifications, so they are not worth grouping by.
+ * Otherwise, the order of the [verifiers] is preserved.
+ */
+internal fun scheduleByLocality(verifiers: List<PluginVerifier>): List<PluginVerifier> =
+  verifiers
+    .groupBy { it.verificationDescriptor.checkedPlugin.getPluginDependencyIds() }.values
+    .flatMap { dependencyVerifiers ->
+      dependencyVerifiers
+        .groupBy { it.verificationDescriptor.checkedPlugin.pluginId }.values
+        .flatMap { pluginVerifiers -> pluginVerifiers.groupBy { it.verificationDescriptor.checkedPlugin.version }.values.flatten() }
+    }
+
+/**
+ * Returns IDs of plugins this plugin depends on, or `null` if the descriptor of the plugin is not known until it is loaded.
+ * Modules are resolved to the IDE, not to plugin details, so they are not included.
+ */
+private fun PluginInfo.getPluginDependencyIds(): Set<String>? {
+  val idePlugin = when (this) {
+    is LocalPluginInfo -> idePlugin
+    is BundledPluginInfo -> idePlugin
+    else -> return null
+  }
+  return idePlugin.dependencies.filterNot { it.isModule }.mapTo(hashSetOf()) { it.id }
 }
 
 fun getConcurrencyLevel(): Int {
@@ -54,4 +142,81 @@ fun getConcurrencyLevel(): Int {
   //About 200 Mb is needed for an average verification
   val maxByMemory = availableMemory / 1024 / 1024 / 200
   return maxOf(8, minOf(maxByMemory, availableCpu)).toInt()
-}
\ No newline at end of file
+}
+
+/**
+ * Returns `true` if the number of concurrent verifications in [runSeveralVerifiers] is adjusted
+ * by the heap occupancy after garbage collections and the estimated heap usage of each verification,
+ * configured by the `intellij.plugin.verifier.concurrency.adaptive` property.
+ * Then [getConcurrencyLevel] is only the initial number of concurrent verifications, see [AdaptiveConcurrencyLimiter].
+ */
+fun isAdaptiveConcurrency(): Boolean =
+  System.getProperty("intellij.plugin.verifier.concurrency.adaptive")?.toBoolean() ?: false
+
+/**
+ * Returns the maximum number of concurrent verifications when [isAdaptiveConcurrency] is enabled:
+ * the `intellij.plugin.verifier.concurrency.level` property, if specified, or the number of CPUs, but at least 8.
+ */
+fun getMaxConcurrencyLevel(): Int {
+  val fromProperty = System.getProperty("intellij.plugin.verifier.concurrency.level")?.toIntOrNull()
+  if (fromProperty != null) {
+    check(fromProperty > 0) { "Invalid concurrency level: $fromProperty" }
+    return fromProperty
+  }
+  return maxOf(8, Runtime.getRuntime().availableProcessors())
+}
+
+/**
+ * Returns the number of threads downloading and reading plugins ahead of their verification in [runSeveralVerifiers],
+ * configured by the `intellij.plugin.verifier.plugin.loading.parallelism` property.
+ * Loading of plugins mostly waits for the network and the disk, so by default it uses more threads than CPUs.
+ */
+fun getPluginLoadingParallelism(): Int {
+  val fromProperty = System.getProperty("intellij.plugin.verifier.plugin.loading.parallelism")?.toIntOrNull()
+  if (fromProperty != null) {
+    check(fromProperty > 0) { "Invalid plugin loading parallelism: $fromProperty" }
+    return fromProperty
+  }
+  return 2 * Runtime.getRuntime().availableProcessors()
+}
+
+/**
+ * Returns the number of plugins loaded ahead of their verification and not yet verified: the [requestedCapacity]
+ * limited by the size of the [pluginDetailsCaches]. Each loaded plugin is kept by its cache until it is verified,
+ * so loading more plugins than the cache keeps would only evict details of the plugins and dependencies in use.
+ */
+internal fun getPluginLoadingCapacity(requestedCapacity: Int, pluginDetailsCaches: List<PluginDetailsCache>): Int {
+  val cacheSize = pluginDetailsCaches.mapNotNull { it.maximumSize }.minOrNull() ?: return requestedCapacity
+  return minOf(requestedCapacity, maxOf(1, cacheSize))
+}
+
+/**
+ * Returns the number of threads verifying classes of a single plugin,
+ * configured by the `intellij.plugin.verifier.class.verification.parallelism` property.
+ * By default, classes of each plugin are verified sequentially.
+ */
+fun getClassVerificationParallelism(): Int {
+  val fromProperty = System.getProperty("intellij.plugin.verifier.class.verification.parallelism")?.toIntOrNull() ?: return 1
+  check(fromProperty > 0) { "Invalid class verification parallelism: $fromProperty" }
+  return fromProperty
+}
+
+/**
+ * Returns `true` if classes of a plugin are read for verification bypassing the class cache of the verification,
+ * configured by the `intellij.plugin.verifier.class.verification.uncached.reading` property.
+ * Each class is still read in full, but it is not retained by the cache after it has been verified.
+ * It lowers the heap retained by each verification at the cost of parsing again plugin classes
+ * that are referenced by other plugin classes.
+ */
+fun isUncachedPluginClassReading(): Boolean =
+  System.getProperty("intellij.plugin.verifier.class.verification.uncached.reading")?.toBoolean() ?: false
+
+/**
+ * Returns `true` if findings of plugin classes are memoized by the bytecode of the classes
+ * and reused by other verifications against the same IDE, configured by the
+ * `intellij.plugin.verifier.class.verification.memo` property.
+ * It speeds up verifications of plugins bundling the same libraries and of several versions of a plugin
+ * at the cost of hashing the bytecode of verified classes and of the heap retained by the memoized findings.
+ */
+fun isClassFindingsMemoization(): Boolean =
+  System.getProperty("intellij.plugin.verifier.class.verification.memo")?.toBoolean() ?: false
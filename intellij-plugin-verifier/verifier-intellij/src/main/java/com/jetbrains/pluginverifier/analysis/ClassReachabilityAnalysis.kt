@@ -11,6 +11,7 @@ import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import com.jetbrains.plugin.structure.intellij.plugin.PluginXmlUtil
 import com.jetbrains.pluginverifier.dependencies.DependenciesGraph
 import org.objectweb.asm.*
+import org.objectweb.asm.tree.ClassNode
 import java.util.*
 
 private typealias ClassName = String
@@ -115,10 +116,7 @@ private fun buildTypeGraph(pluginResolver: Resolver): TypeGraph {
     }
     val classNode = resolutionResult.value
 
-    val references = TypeReferences()
-    classNode.accept(TypeReferencesClassVisitor(references))
-    val typeReferences = references.typeReferences
-    for (typeReference in typeReferences) {
+    for (typeReference in classNode.getTypeReferences()) {
       if (pluginResolver.containsClass(typeReference)) {
         graph.addEdge(classNode.name, typeReference)
       }
@@ -129,6 +127,16 @@ private fun buildTypeGraph(pluginResolver: Resolver): TypeGraph {
   return graph
 }
 
+/**
+ * Returns binary names of all classes referenced by this class: its supertypes, types of its members,
+ * classes referenced by instructions and annotations, and its outer and inner classes.
+ */
+internal fun ClassNode.getTypeReferences(): Set<String> {
+  val references = TypeReferences()
+  accept(TypeReferencesClassVisitor(references))
+  return references.typeReferences
+}
+
 private class TypeReferences {
 
   val typeReferences = hashSetOf<ClassName>()
@@ -192,7 +200,7 @@ private class TypeReferencesClassVisitor(private val references: TypeReferences)
   }
 
   override fun visitAnnotation(descriptor: String, visible: Boolean): AnnotationVisitor {
-    references.addReferences(Type.getObjectType(descriptor))
+    references.addReferences(Type.getType(descriptor))
     return TypeReferencesAnnotationVisitor(references)
   }
 
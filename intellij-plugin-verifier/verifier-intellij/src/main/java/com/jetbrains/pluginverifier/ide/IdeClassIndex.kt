@@ -0,0 +1,208 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.ide
+
+import com.jetbrains.plugin.structure.base.utils.isDirectory
+import com.jetbrains.plugin.structure.base.utils.isJar
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.base.utils.simpleName
+import com.jetbrains.plugin.structure.classes.resolvers.DirectoryFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarOrZipFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JdkFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.MappedClassIndex
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.ide.Ide
+import com.jetbrains.plugin.structure.ide.classes.IdeFileOrigin
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.jdk.JdkDescriptor
+import com.jetbrains.pluginverifier.jdk.JdkDescriptorCreator
+import com.jetbrains.pluginverifier.jdk.JdkVersion
+import com.jetbrains.pluginverifier.jdk.findJavaHome
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.attribute.BasicFileAttributes
+import java.security.MessageDigest
+import kotlin.streams.toList
+
+/**
+ * Prebuilt [MappedClassIndex] of classes of an IDE and its JDK.
+ *
+ * The index is built once per IDE build by [write], for instance, by the `build-ide-class-index` command,
+ * and stored in the directory specified by the [INDEX_DIRECTORY_PROPERTY] system property.
+ * Then [IdeDescriptor.create] maps the index instead of opening jars of the IDE and the JDK,
+ * and several verifier processes on the same machine share the mapped classes.
+ *
+ * An index is used only if it has been built for the same IDE build and the same JDK
+ * that would be chosen for the IDE otherwise, see [com.jetbrains.pluginverifier.jdk.DefaultJdkDescriptorProvider],
+ * and if top-level jars of the IDE and the JDK have not changed since then, see [getContentFingerprint].
+ * Snapshot builds are never indexed, because their build number does not identify their content.
+ */
+object IdeClassIndex {
+
+  private val LOG: Logger = LoggerFactory.getLogger(IdeClassIndex::class.java)
+
+  const val INDEX_DIRECTORY_PROPERTY = "intellij.plugin.verifier.ide.class.index.dir"
+
+  private const val INDEX_FILE_EXTENSION = ".class-index"
+
+  private const val JDK_PART = 0
+
+  private const val IDE_PART = 1
+
+  private const val IDE_VERSION = "ide.version"
+
+  private const val JDK_LOCATION = "jdk.location"
+
+  private const val JDK_JAVA_VERSION = "jdk.java.version"
+
+  private const val CONTENT_FINGERPRINT = "content.fingerprint"
+
+  private const val BUNDLED_JDK_PREFIX = "bundled:"
+
+  /**
+   * Returns the directory of IDE class indexes specified by the [INDEX_DIRECTORY_PROPERTY], if any.
+   */
+  fun getIndexDirectory(): Path? =
+    System.getProperty(INDEX_DIRECTORY_PROPERTY)?.takeIf { it.isNotBlank() }?.let { Paths.get(it) }
+
+  fun getIndexFile(indexDirectory: Path, ideVersion: IdeVersion): Path =
+    indexDirectory.resolve(ideVersion.asString() + INDEX_FILE_EXTENSION)
+
+  /**
+   * Writes the index of classes of the IDE and the JDK of the [ideDescriptor] to the [indexDirectory]
+   * and returns the index file.
+   */
+  fun write(ideDescriptor: IdeDescriptor, indexDirectory: Path): Path {
+    val ide = ideDescriptor.ide
+    require(!ide.version.isSnapshot) { "Class index of the snapshot build ${ide.version} cannot be built" }
+    val jdkDescriptor = ideDescriptor.jdkDescriptor
+    val jdkLocation = if (jdkDescriptor.jdkVersion.isBundled) {
+      getBundledJdkLocation(ide, jdkDescriptor.jdkPath)
+    } else {
+      getJdkLocation(jdkDescriptor.jdkPath)
+    }
+    val metadata = mapOf(
+      IDE_VERSION to ide.version.asString(),
+      JDK_LOCATION to jdkLocation,
+      JDK_JAVA_VERSION to jdkDescriptor.jdkVersion.javaVersion,
+      CONTENT_FINGERPRINT to getContentFingerprint(ide, jdkDescriptor.jdkPath)
+    )
+    val indexFile = getIndexFile(indexDirectory, ide.version)
+    val parts = listOf(jdkDescriptor.jdkResolver, ideDescriptor.ideResolver)
+    MappedClassIndex.write(indexFile, parts, metadata) { encodeOrigin(it) }
+    return indexFile
+  }
+
+  /**
+   * Opens the index of the [ide] in the [indexDirectory] and returns its IDE classes and JDK,
+   * or returns `null` if there is no suitable index.
+   */
+  internal fun open(ide: Ide, defaultJdkPath: Path?, indexDirectory: Path): IndexedClasses? {
+    val indexFile = getIndexFile(indexDirectory, ide.version)
+    if (ide.version.isSnapshot || !Files.isRegularFile(indexFile)) {
+      return null
+    }
+    val explicitJdkPath = defaultJdkPath?.takeIf { it.isDirectory }
+    val bundledJdkPath = if (explicitJdkPath == null) JdkDescriptorCreator.findBundledJdkPath(ide) else null
+    val jdkPath = explicitJdkPath ?: bundledJdkPath ?: findJavaHome() ?: return null
+    val jdkLocation = if (bundledJdkPath != null) getBundledJdkLocation(ide, bundledJdkPath) else getJdkLocation(jdkPath)
+
+    val index = try {
+      MappedClassIndex.open(indexFile) { decodeOrigin(it, ide, jdkPath) }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to open the class index $indexFile of $ide", e)
+      return null
+    }
+    val metadata = index.metadata
+    if (metadata[IDE_VERSION] != ide.version.asString() || metadata[JDK_LOCATION] != jdkLocation || index.parts.size != 2) {
+      LOG.info("Class index $indexFile was built for another IDE or JDK: $metadata")
+      index.parts.forEach { it.close() }
+      return null
+    }
+    if (metadata[CONTENT_FINGERPRINT] != getContentFingerprint(ide, jdkPath)) {
+      LOG.info("Class index $indexFile is stale: jars of $ide or the JDK $jdkPath have changed since the index was built")
+      index.parts.forEach { it.close() }
+      return null
+    }
+    val jdkVersion = JdkVersion(metadata.getValue(JDK_JAVA_VERSION), if (bundledJdkPath != null) ide.version else null)
+    return IndexedClasses(index.parts[IDE_PART], JdkDescriptor(jdkPath, index.parts[JDK_PART], jdkVersion))
+  }
+
+  internal class IndexedClasses(val ideResolver: Resolver, val jdkDescriptor: JdkDescriptor)
+
+  private fun getBundledJdkLocation(ide: Ide, jdkPath: Path): String =
+    BUNDLED_JDK_PREFIX + ide.idePath.toAbsolutePath().normalize().relativize(jdkPath.toAbsolutePath().normalize())
+
+  private fun getJdkLocation(jdkPath: Path): String =
+    jdkPath.toAbsolutePath().normalize().toString()
+
+  /**
+   * Returns SHA-256 of the IDE build number and of names, sizes and modification times of jars directly in `lib` of the IDE,
+   * and of the JDK `lib/modules` image or jars directly in `jre/lib` of the JDK,
+   * so that an index of a rebuilt or patched IDE with the same build number is not used.
+   * Only top-level files are listed, so the fingerprint is cheap to check whenever an index file is present.
+   */
+  private fun getContentFingerprint(ide: Ide, jdkPath: Path): String {
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update("build ${ide.version.asString()}\n".toByteArray())
+    val normalizedJdkPath = jdkPath.toAbsolutePath().normalize()
+    val roots = listOf(
+      "ide" to ide.idePath.resolve("lib"),
+      "jdk" to normalizedJdkPath.resolve("lib"),
+      "jdk" to normalizedJdkPath.resolve("jre").resolve("lib")
+    )
+    for ((rootName, root) in roots) {
+      if (!root.isDirectory) {
+        continue
+      }
+      val files = Files.list(root).use { stream ->
+        stream.filter { Files.isRegularFile(it) && (it.isJar() || it.simpleName == "modules") }.sorted().toList()
+      }
+      for (file in files) {
+        val attributes = Files.readAttributes(file, BasicFileAttributes::class.java)
+        digest.update("$rootName ${root.relativize(file)} ${attributes.size()} ${attributes.lastModifiedTime().toMillis()}\n".toByteArray())
+      }
+    }
+    return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+  }
+
+  private fun encodeOrigin(origin: FileOrigin): String =
+    when (origin) {
+      is JarOrZipFileOrigin -> encodeOrigin(origin.parent) + "/jar:" + origin.fileName
+      is DirectoryFileOrigin -> encodeOrigin(origin.parent) + "/directory:" + origin.directoryName
+      is JdkFileOrigin -> "jdk"
+      is IdeFileOrigin.IdeLibDirectory -> "ide-lib"
+      is IdeFileOrigin.RepositoryLibrary -> "repository-library"
+      is IdeFileOrigin.SourceLibDirectory -> "source-lib"
+      is IdeFileOrigin.CompiledModule -> "compiled-module:" + origin.moduleName
+      else -> throw IllegalArgumentException("Unsupported origin of IDE classes: $origin")
+    }
+
+  private fun decodeOrigin(origin: String, ide: Ide, jdkPath: Path): FileOrigin {
+    val parentEnd = origin.lastIndexOf('/')
+    if (parentEnd >= 0) {
+      val parent = decodeOrigin(origin.substring(0, parentEnd), ide, jdkPath)
+      val name = origin.substring(parentEnd + 1)
+      return when {
+        name.startsWith("jar:") -> JarOrZipFileOrigin(name.removePrefix("jar:"), parent)
+        name.startsWith("directory:") -> DirectoryFileOrigin(name.removePrefix("directory:"), parent)
+        else -> throw IllegalArgumentException("Unsupported origin of IDE classes: $origin")
+      }
+    }
+    return when {
+      origin == "jdk" -> JdkFileOrigin(jdkPath)
+      origin == "ide-lib" -> IdeFileOrigin.IdeLibDirectory(ide)
+      origin == "repository-library" -> IdeFileOrigin.RepositoryLibrary(ide)
+      origin == "source-lib" -> IdeFileOrigin.SourceLibDirectory(ide)
+      origin.startsWith("compiled-module:") -> IdeFileOrigin.CompiledModule(ide, origin.removePrefix("compiled-module:"))
+      else -> throw IllegalArgumentException("Unsupported origin of IDE classes: $origin")
+    }
+  }
+}
@@ -6,6 +6,8 @@ package com.jetbrains.pluginverifier.ide
 
 import com.jetbrains.plugin.structure.base.utils.closeLogged
 import com.jetbrains.plugin.structure.base.utils.closeOnException
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.ide.Ide
 import com.jetbrains.plugin.structure.ide.IdeManager
@@ -14,8 +16,15 @@ import com.jetbrains.pluginverifier.jdk.DefaultJdkDescriptorProvider
 import com.jetbrains.pluginverifier.jdk.JdkDescriptor
 import com.jetbrains.pluginverifier.jdk.JdkDescriptorProvider.Result.Found
 import com.jetbrains.pluginverifier.repository.files.FileLock
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolutionCache
+import com.jetbrains.pluginverifier.verifiers.ClassFindingsMemo
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyIndex
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.nio.file.Path
+import java.time.Duration
 
 /**
  * Holds IDE objects necessary for verification.
@@ -25,43 +34,116 @@ import java.nio.file.Path
  * - [jdkDescriptor] - JDK used to run the IDE: a bundled JDK if available or a specified default JDK
  * - [ideFileLock] - a lock to protect the IDE file from deletion.
  * It will be closed along with `this` descriptor.
+ * - [platformClassResolver] - accessor of JDK and IDE class files, in this order,
+ * which caches parsed classes for all verifications against this IDE.
+ * - [memberResolutionCache] - methods and fields of [platformClassResolver] resolved by verifications against this IDE.
+ * - [classHierarchyIndex] - supertypes of classes of [platformClassResolver].
+ * - [annotationResolutionCache] - effective annotations of members of [platformClassResolver] resolved by verifications against this IDE.
+ * - [classFindingsMemo] - findings of plugin classes verified against this IDE, by the bytecode of the classes.
+ * - [ideResolverCreationDuration] - time spent indexing IDE class files, or opening the [IdeClassIndex], by [create], if known.
  */
 data class IdeDescriptor(
   val ide: Ide,
   val ideResolver: Resolver,
   val jdkDescriptor: JdkDescriptor,
-  val ideFileLock: FileLock?
+  val ideFileLock: FileLock?,
+  val ideResolverCreationDuration: Duration? = null
 ) : Closeable {
 
   val ideVersion get() = ide.version
 
   val jdkVersion get() = jdkDescriptor.jdkVersion
 
+  private val platformClassCache = lazy {
+    CacheResolver.weighted(CompositeResolver.create(jdkDescriptor.jdkResolver, ideResolver), PLATFORM_CLASS_CACHE_WEIGHT)
+  }
+
+  val platformClassResolver: Resolver
+    get() = platformClassCache.value
+
+  /**
+   * Hit, miss and eviction counters of the [platformClassResolver] cache.
+   */
+  val platformClassCacheStatistics: CacheResolver.Statistics
+    get() = platformClassCache.value.statistics
+
+  private val memberResolutionCacheHolder = lazy { MemberResolutionCache(platformClassResolver) }
+
+  val memberResolutionCache: MemberResolutionCache
+    get() = memberResolutionCacheHolder.value
+
+  private val annotationResolutionCacheHolder = lazy { AnnotationResolutionCache(platformClassResolver) }
+
+  val annotationResolutionCache: AnnotationResolutionCache
+    get() = annotationResolutionCacheHolder.value
+
+  private val classFindingsMemoHolder = lazy { ClassFindingsMemo() }
+
+  val classFindingsMemo: ClassFindingsMemo
+    get() = classFindingsMemoHolder.value
+
+  val classHierarchyIndex: ClassHierarchyIndex by lazy { ClassHierarchyIndex(platformClassResolver) }
+
   override fun toString() = ideVersion.toString()
 
   override fun close() {
+    if (platformClassCache.isInitialized()) {
+      LOG.debug("Platform class cache of {}: {}", ideVersion, platformClassCacheStatistics)
+      //The cache doesn't own the resolvers, they are closed below.
+      platformClassCache.value.closeLogged()
+    }
+    if (memberResolutionCacheHolder.isInitialized()) {
+      LOG.debug("Member resolution cache of {}: {}", ideVersion, memberResolutionCache.statistics)
+    }
+    if (annotationResolutionCacheHolder.isInitialized()) {
+      LOG.debug("Annotation resolution cache of {}: {}", ideVersion, annotationResolutionCache.statistics)
+    }
+    if (classFindingsMemoHolder.isInitialized()) {
+      LOG.debug("Class findings memo of {}: {}", ideVersion, classFindingsMemo.statistics)
+    }
     ideResolver.closeLogged()
     jdkDescriptor.closeLogged()
     ideFileLock.closeLogged()
   }
 
   companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(IdeDescriptor::class.java)
+
+    /**
+     * Estimated memory footprint of cached platform classes, in bytes.
+     */
+    private val PLATFORM_CLASS_CACHE_WEIGHT = Runtime.getRuntime().maxMemory() / 8
+
     private val jdkDescriptorProvider = DefaultJdkDescriptorProvider()
 
     /**
      * Creates [IdeDescriptor] for specified [idePath].
      * [ideFileLock] will be released when this [IdeDescriptor] is closed.
+     *
+     * If [useClassIndex] is set and a prebuilt [IdeClassIndex] of the IDE is available,
+     * classes of the IDE and the JDK are read from it.
      */
     fun create(
       idePath: Path,
       defaultJdkPath: Path?,
-      ideFileLock: FileLock?
+      ideFileLock: FileLock?,
+      useClassIndex: Boolean = true
     ): IdeDescriptor {
       val ide = IdeManager.createManager().createIde(idePath)
+      val ideResolverCreationStart = System.nanoTime()
+      val indexDirectory = if (useClassIndex) IdeClassIndex.getIndexDirectory() else null
+      val indexedClasses = indexDirectory?.let { IdeClassIndex.open(ide, defaultJdkPath, it) }
+      if (indexedClasses != null) {
+        val ideResolverCreationDuration = Duration.ofNanos(System.nanoTime() - ideResolverCreationStart)
+        LOG.info("IDE classes of {} mapped from the class index in {} ms", ide.version, ideResolverCreationDuration.toMillis())
+        return IdeDescriptor(ide, indexedClasses.ideResolver, indexedClasses.jdkDescriptor, ideFileLock, ideResolverCreationDuration)
+      }
       val ideResolver = IdeResolverCreator.createIdeResolver(ide)
+      val ideResolverCreationDuration = Duration.ofNanos(System.nanoTime() - ideResolverCreationStart)
+      LOG.info("IDE classes of {} indexed in {} ms", ide.version, ideResolverCreationDuration.toMillis())
       ideResolver.closeOnException {
         when (val result = jdkDescriptorProvider.getJdkDescriptor(ide, defaultJdkPath)) {
-          is Found -> return IdeDescriptor(ide, ideResolver, result.jdkDescriptor, ideFileLock)
+          is Found -> return IdeDescriptor(ide, ideResolver, result.jdkDescriptor, ideFileLock, ideResolverCreationDuration)
           else -> throw IllegalStateException("No suitable JDK was found")
         }
       }
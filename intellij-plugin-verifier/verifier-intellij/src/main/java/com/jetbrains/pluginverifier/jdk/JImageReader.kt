@@ -0,0 +1,244 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.jdk
+
+import com.jetbrains.plugin.structure.base.utils.closeOnException
+import java.io.Closeable
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+/**
+ * Reads class files directly from the JImage file `<JDK>/lib/modules` without the `jrt:/` file system.
+ *
+ * The index of the image, that is the hash table of resource names, resource locations and the strings table,
+ * is read into memory once. Resources are read from the file by their offsets on demand.
+ * Compressed resources are not supported: [readClass] throws [CompressedResourceException] for them.
+ *
+ * The reader is safe to use from multiple threads.
+ */
+internal class JImageReader private constructor(
+  private val channel: FileChannel,
+  private val index: ByteBuffer,
+  private val tableLength: Int,
+  private val locationsSize: Int,
+  private val resourcesOffset: Long
+) : Closeable {
+
+  private val redirectPosition = HEADER_SIZE
+
+  private val offsetsPosition = redirectPosition + tableLength * 4
+
+  private val locationsPosition = offsetsPosition + tableLength * 4
+
+  private val stringsPosition = locationsPosition + locationsSize
+
+  /**
+   * Invokes the [processor] with the binary name, such as `java/lang/String`, and the module name of each class of the image.
+   */
+  fun processClasses(processor: (className: String, moduleName: String) -> Unit) {
+    for (locationIndex in 0 until tableLength) {
+      val location = readLocation(locationIndex)
+      if (location.extension != CLASS_EXTENSION || location.module.isEmpty() || location.module in DIRECTORY_MODULES) {
+        continue
+      }
+      val className = if (location.parent.isEmpty()) location.base else location.parent + "/" + location.base
+      processor(className, location.module)
+    }
+  }
+
+  /**
+   * Reads bytes of the class with binary name [className] from the module [moduleName],
+   * or returns `null` if there is no such class in the image.
+   */
+  @Throws(IOException::class, CompressedResourceException::class)
+  fun readClass(moduleName: String, className: String): ByteArray? {
+    val location = findLocation("/$moduleName/$className.$CLASS_EXTENSION") ?: return null
+    if (location.compressedSize != 0L) {
+      throw CompressedResourceException(className)
+    }
+    val bytes = ByteBuffer.allocate(Math.toIntExact(location.uncompressedSize))
+    channel.readFully(bytes, resourcesOffset + location.offset)
+    return bytes.array()
+  }
+
+  private fun findLocation(name: String): Location? {
+    var locationIndex = index.getInt(redirectPosition + (hashCode(name, HASH_MULTIPLIER) % tableLength) * 4)
+    locationIndex = when {
+      locationIndex < 0 -> -locationIndex - 1
+      locationIndex > 0 -> hashCode(name, locationIndex) % tableLength
+      else -> return null
+    }
+    val location = readLocation(locationIndex)
+    return location.takeIf { it.fullName == name }
+  }
+
+  private fun readLocation(locationIndex: Int): Location {
+    val attributes = LongArray(ATTRIBUTE_COUNT)
+    var position = locationsPosition + index.getInt(offsetsPosition + locationIndex * 4)
+    while (true) {
+      val header = index.get(position++).toInt() and 0xFF
+      val kind = header ushr 3
+      if (kind == ATTRIBUTE_END) {
+        break
+      }
+      var value = 0L
+      repeat((header and 0x7) + 1) {
+        value = (value shl 8) or (index.get(position++).toLong() and 0xFF)
+      }
+      if (kind < ATTRIBUTE_COUNT) {
+        attributes[kind] = value
+      }
+    }
+    return Location(
+      module = readString(attributes[ATTRIBUTE_MODULE]),
+      parent = readString(attributes[ATTRIBUTE_PARENT]),
+      base = readString(attributes[ATTRIBUTE_BASE]),
+      extension = readString(attributes[ATTRIBUTE_EXTENSION]),
+      offset = attributes[ATTRIBUTE_OFFSET],
+      compressedSize = attributes[ATTRIBUTE_COMPRESSED],
+      uncompressedSize = attributes[ATTRIBUTE_UNCOMPRESSED]
+    )
+  }
+
+  private fun readString(offset: Long): String {
+    val start = stringsPosition + offset.toInt()
+    var end = start
+    while (index.get(end) != 0.toByte()) {
+      end++
+    }
+    val bytes = ByteArray(end - start)
+    for (i in bytes.indices) {
+      bytes[i] = index.get(start + i)
+    }
+    return String(bytes, Charsets.UTF_8)
+  }
+
+  override fun close() {
+    channel.close()
+  }
+
+  private class Location(
+    val module: String,
+    val parent: String,
+    val base: String,
+    val extension: String,
+    val offset: Long,
+    val compressedSize: Long,
+    val uncompressedSize: Long
+  ) {
+    val fullName: String
+      get() = buildString {
+        if (module.isNotEmpty()) {
+          append('/').append(module).append('/')
+        }
+        if (parent.isNotEmpty()) {
+          append(parent).append('/')
+        }
+        append(base)
+        if (extension.isNotEmpty()) {
+          append('.').append(extension)
+        }
+      }
+  }
+
+  class CompressedResourceException(className: String) : Exception("Class $className is compressed in the JImage")
+
+  companion object {
+    private const val MAGIC = 0xCAFEDADA.toInt()
+
+    private const val MAJOR_VERSION = 1
+
+    private const val HEADER_SIZE = 7 * 4
+
+    private const val HASH_MULTIPLIER = 0x01000193
+
+    private const val ATTRIBUTE_END = 0
+    private const val ATTRIBUTE_MODULE = 1
+    private const val ATTRIBUTE_PARENT = 2
+    private const val ATTRIBUTE_BASE = 3
+    private const val ATTRIBUTE_EXTENSION = 4
+    private const val ATTRIBUTE_OFFSET = 5
+    private const val ATTRIBUTE_COMPRESSED = 6
+    private const val ATTRIBUTE_UNCOMPRESSED = 7
+    private const val ATTRIBUTE_COUNT = 8
+
+    private const val CLASS_EXTENSION = "class"
+
+    /**
+     * Pseudo-modules of the image that describe the directory structure of the `jrt:/` file system.
+     */
+    private val DIRECTORY_MODULES = setOf("modules", "packages")
+
+    /**
+     * Opens the JImage file [imagePath], or returns `null` if it is not a JImage
+     * of a supported version.
+     */
+    @Throws(IOException::class)
+    fun open(imagePath: Path): JImageReader? {
+      val channel = FileChannel.open(imagePath, StandardOpenOption.READ)
+      channel.closeOnException {
+        if (channel.size() < HEADER_SIZE) {
+          channel.close()
+          return null
+        }
+        val header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder())
+        channel.readFully(header, 0)
+        when (MAGIC) {
+          header.getInt(0) -> Unit
+          Integer.reverseBytes(header.getInt(0)) -> header.order(header.order().opposite())
+          else -> {
+            channel.close()
+            return null
+          }
+        }
+        if (header.getInt(4) ushr 16 != MAJOR_VERSION) {
+          channel.close()
+          return null
+        }
+        val tableLength = header.getInt(16)
+        val locationsSize = header.getInt(20)
+        val stringsSize = header.getInt(24)
+        val indexSize = HEADER_SIZE.toLong() + tableLength * 8L + locationsSize + stringsSize
+        if (tableLength <= 0 || indexSize > channel.size() || indexSize > Int.MAX_VALUE) {
+          channel.close()
+          return null
+        }
+        val index = ByteBuffer.allocate(indexSize.toInt()).order(header.order())
+        channel.readFully(index, 0)
+        return JImageReader(channel, index, tableLength, locationsSize, indexSize)
+      }
+    }
+
+    /**
+     * Hash function of resource names used by the JImage hash table.
+     */
+    private fun hashCode(name: String, seed: Int): Int {
+      var hash = seed
+      for (byte in name.toByteArray(Charsets.UTF_8)) {
+        hash = (hash * HASH_MULTIPLIER) xor (byte.toInt() and 0xFF)
+      }
+      return hash and Int.MAX_VALUE
+    }
+
+    private fun ByteOrder.opposite(): ByteOrder =
+      if (this == ByteOrder.BIG_ENDIAN) ByteOrder.LITTLE_ENDIAN else ByteOrder.BIG_ENDIAN
+
+    private fun FileChannel.readFully(buffer: ByteBuffer, position: Long) {
+      var offset = position
+      while (buffer.hasRemaining()) {
+        val read = read(buffer, offset)
+        if (read < 0) {
+          throw IOException("Unexpected end of JImage file at $offset")
+        }
+        offset += read
+      }
+      buffer.flip()
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.jdk
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteQuietly
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Stores class name to module name indexes of JImage files `<JDK>/lib/modules` in the [cacheDirectory],
+ * one binary file per JDK.
+ *
+ * An index is reused only if the JImage's absolute path, size and modification time
+ * are the same as when the index was written, so each JDK build gets its own index.
+ *
+ * The default instance shares the directory of jar indexes configured via [Settings.JAR_INDEX_CACHE_DIRECTORY].
+ */
+internal class JdkClassIndexCache(private val cacheDirectory: Path) {
+
+  fun getOrCompute(imagePath: Path, computeIndex: () -> Map<String, String>): Map<String, String> {
+    val key = try {
+      ImageKey.of(imagePath)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to compute index key of $imagePath", e)
+      return computeIndex()
+    }
+
+    val indexFile = getIndexFile(key)
+    val cachedIndex = readIndex(indexFile, key)
+    if (cachedIndex != null) {
+      return cachedIndex
+    }
+
+    val index = computeIndex()
+    writeIndex(indexFile, key, index)
+    return index
+  }
+
+  private fun getIndexFile(key: ImageKey): Path {
+    val pathHash = MessageDigest.getInstance("SHA-1").digest(key.path.toByteArray())
+      .joinToString(separator = "") { "%02x".format(it) }
+    return cacheDirectory.resolve("jdk-$pathHash$INDEX_FILE_EXTENSION")
+  }
+
+  private fun readIndex(indexFile: Path, key: ImageKey): Map<String, String>? {
+    if (!Files.isRegularFile(indexFile)) {
+      return null
+    }
+    return try {
+      DataInputStream(Files.newInputStream(indexFile).buffered()).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+          return null
+        }
+        if (ImageKey.readFrom(input) != key) {
+          return null
+        }
+        val moduleNames = Array(input.readInt()) { input.readUTF() }
+        val classCount = input.readInt()
+        val index = HashMap<String, String>(classCount * 4 / 3 + 1)
+        repeat(classCount) {
+          val moduleName = moduleNames[input.readInt()]
+          index[input.readUTF()] = moduleName
+        }
+        index
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to read cached JDK class index $indexFile", e)
+      null
+    }
+  }
+
+  private fun writeIndex(indexFile: Path, key: ImageKey, index: Map<String, String>) {
+    var tempFile: Path? = null
+    try {
+      cacheDirectory.createDir()
+      tempFile = Files.createTempFile(cacheDirectory, indexFile.fileName.toString(), ".tmp")
+      val moduleNames = index.values.distinct()
+      val moduleIndexes = moduleNames.withIndex().associate { (i, moduleName) -> moduleName to i }
+      DataOutputStream(Files.newOutputStream(tempFile).buffered()).use { output ->
+        output.writeInt(MAGIC)
+        output.writeInt(FORMAT_VERSION)
+        key.writeTo(output)
+        output.writeInt(moduleNames.size)
+        moduleNames.forEach { output.writeUTF(it) }
+        output.writeInt(index.size)
+        for ((className, moduleName) in index) {
+          output.writeInt(moduleIndexes.getValue(moduleName))
+          output.writeUTF(className)
+        }
+      }
+      Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.warn("Unable to save JDK class index to $indexFile", e)
+      tempFile?.deleteQuietly()
+    }
+  }
+
+  private data class ImageKey(
+    val path: String,
+    val size: Long,
+    val lastModified: Long
+  ) {
+
+    fun writeTo(output: DataOutputStream) {
+      output.writeUTF(path)
+      output.writeLong(size)
+      output.writeLong(lastModified)
+    }
+
+    companion object {
+      fun readFrom(input: DataInputStream) =
+        ImageKey(input.readUTF(), input.readLong(), input.readLong())
+
+      @Throws(IOException::class)
+      fun of(imagePath: Path): ImageKey {
+        val absolutePath = imagePath.toAbsolutePath().normalize()
+        return ImageKey(
+          absolutePath.toString(),
+          Files.size(absolutePath),
+          Files.getLastModifiedTime(absolutePath).toMillis()
+        )
+      }
+    }
+  }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(JdkClassIndexCache::class.java)
+
+    private const val MAGIC = 0x4A444B58
+
+    private const val FORMAT_VERSION = 1
+
+    private const val INDEX_FILE_EXTENSION = ".jimage.idx"
+
+    /**
+     * Returns the cache located in [Settings.JAR_INDEX_CACHE_DIRECTORY]
+     * or `null` if the setting is not specified.
+     */
+    fun fromSettings(): JdkClassIndexCache? {
+      val cacheDirectory = Settings.JAR_INDEX_CACHE_DIRECTORY.get()
+      if (cacheDirectory.isBlank()) {
+        return null
+      }
+      return JdkClassIndexCache(Paths.get(cacheDirectory).toAbsolutePath())
+    }
+  }
+}
@@ -7,6 +7,7 @@ package com.jetbrains.pluginverifier.jdk
 import com.jetbrains.plugin.structure.base.utils.*
 import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
 import com.jetbrains.plugin.structure.classes.resolvers.JdkFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.PersistentJarIndexCache
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.classes.resolvers.buildJarOrZipFileResolvers
 import com.jetbrains.plugin.structure.ide.Ide
@@ -17,13 +18,16 @@ import java.util.*
 object JdkDescriptorCreator {
 
   fun createBundledJdkDescriptor(ide: Ide, readMode: Resolver.ReadMode = Resolver.ReadMode.FULL): JdkDescriptor? {
-    val bundledJdkPath = listOf(
+    val bundledJdkPath = findBundledJdkPath(ide) ?: return null
+    return createJdkDescriptor(bundledJdkPath, readMode, ide.version)
+  }
+
+  fun findBundledJdkPath(ide: Ide): Path? =
+    listOf(
       ide.idePath.resolve("jbr").resolve("Contents").resolve("Home"),
       ide.idePath.resolve("jbr"),
       ide.idePath.resolve("jre64")
-    ).find { it.isDirectory } ?: return null
-    return createJdkDescriptor(bundledJdkPath, readMode, ide.version)
-  }
+    ).find { it.isDirectory }
 
   fun createJdkDescriptor(
     jdkPath: Path,
@@ -100,7 +104,7 @@ object JdkDescriptorCreator {
       "JDK $jdkPath misses mandatory jars: ${missingJars.joinToString()}"
     }
 
-    val jarResolver = CompositeResolver.create(buildJarOrZipFileResolvers(jars, readMode, JdkFileOrigin(jdkPath)))
+    val jarResolver = CompositeResolver.create(buildJarOrZipFileResolvers(jars, readMode, JdkFileOrigin(jdkPath), parallelism = 1, indexCache = PersistentJarIndexCache.fromSettings()))
     return JdkDescriptor(jdkPath, jarResolver, jdkVersion)
   }
 
@@ -42,18 +42,22 @@ class DefaultJdkDescriptorProvider: JdkDescriptorProvider {
   }
 
   private fun fromJavaHome(): JdkDescriptor? {
-    val javaHome: Path? = try {
-       System.getenv("JAVA_HOME")
-    } catch (e: SecurityException) {
-      null
-    }?.let {
-      Paths.get(it)
-    }?.takeIf {
-      it.isDirectory
-    }
-
-    return javaHome?.let {
+    return findJavaHome()?.let {
       JdkDescriptorCreator.createJdkDescriptor(it)
     }
   }
-}
\ No newline at end of file
+}
+
+/**
+ * Returns the JDK specified by the `JAVA_HOME` environment variable, if it is a directory.
+ */
+internal fun findJavaHome(): Path? {
+  val javaHome: Path? = try {
+    System.getenv("JAVA_HOME")
+  } catch (e: SecurityException) {
+    null
+  }?.let {
+    Paths.get(it)
+  }
+  return javaHome?.takeIf { it.isDirectory }
+}
@@ -4,10 +4,14 @@
 
 package com.jetbrains.pluginverifier.jdk
 
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.base.utils.closeOnException
 import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
 import com.jetbrains.plugin.structure.classes.resolvers.*
 import com.jetbrains.plugin.structure.classes.utils.AsmUtil
 import org.objectweb.asm.tree.ClassNode
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
 import java.net.URI
 import java.nio.file.*
 import java.util.*
@@ -15,64 +19,104 @@ import java.util.stream.Collectors
 
 /**
  * [Resolver] that reads class files from JImage corresponding to `<JDK>/lib/modules` file of JDK 9 and later.
+ *
+ * The JImage is read directly by [JImageReader], and its class index is persisted by [JdkClassIndexCache],
+ * so that the resolver is created without walking the whole `jrt:/` file system.
+ * The `jrt:/` file system of the JDK is used only if the JImage cannot be read directly
+ * or for classes that are compressed in the JImage.
  */
-class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolver() {
+class JdkJImageResolver(private val jdkPath: Path, override val readMode: ReadMode) : Resolver() {
   private companion object {
+    val LOG: Logger = LoggerFactory.getLogger(JdkJImageResolver::class.java)
 
     val JRT_SCHEME_URI: URI = URI.create("jrt:/")
   }
 
   private val fileOrigin: FileOrigin = JdkFileOrigin(jdkPath)
 
+  private val imageReader: JImageReader? = openImageReader()
+
   private val classNameToModuleName: Map<String, String>
 
   private val packageSet = PackageSet()
 
-  private val nameSeparator: String
+  @Volatile
+  private var jrtFileSystem: FileSystem? = null
 
-  private val modulesPath: Path
+  init {
+    classNameToModuleName = imageReader.closeOnException {
+      if (imageReader != null) {
+        readClassIndex(imageReader)
+      } else {
+        getJrtFileSystem().closeOnException { walkClassIndex(it) }
+      }
+    }
 
-  private val fileSystem: FileSystem
+    for (className in classNameToModuleName.keys) {
+      packageSet.addPackagesOfClass(className)
+    }
+  }
 
-  init {
-    fileSystem = try {
-      getJrtFileSystem(jdkPath)
+  private fun getImagePath(): Path = jdkPath.resolve("lib").resolve("modules")
+
+  private fun openImageReader(): JImageReader? {
+    val imagePath = getImagePath()
+    if (!Files.isRegularFile(imagePath)) {
+      return null
+    }
+    return try {
+      JImageReader.open(imagePath)
     } catch (e: Exception) {
-      throw RuntimeException("Unable to read content from jrt:/ file system.", e)
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to read JImage $imagePath directly, the jrt:/ file system will be used", e)
+      null
     }
+  }
 
-    nameSeparator = fileSystem.separator
-    modulesPath = fileSystem.getPath("/modules")
+  private fun readClassIndex(imageReader: JImageReader): Map<String, String> {
+    val computeIndex = {
+      val index = hashMapOf<String, String>()
+      imageReader.processClasses { className, moduleName -> index.putIfAbsent(className, moduleName) }
+      index
+    }
+    val cache = JdkClassIndexCache.fromSettings() ?: return computeIndex()
+    return cache.getOrCompute(getImagePath(), computeIndex)
+  }
 
-    classNameToModuleName = Files.walk(modulesPath).use { stream ->
+  private fun walkClassIndex(fileSystem: FileSystem): Map<String, String> {
+    val modulesPath = fileSystem.getPath("/modules")
+    return Files.walk(modulesPath).use { stream ->
       stream
         .filter { p -> p.fileName.toString().endsWith(".class") }
         .collect(
           Collectors.toMap(
-            { p -> getClassName(p) },
-            { p -> getModuleName(p) },
+            { p -> getClassName(modulesPath, p) },
+            { p -> getModuleName(modulesPath, p) },
             { one, _ -> one }
           )
         )
     }
-
-    for (className in classNameToModuleName.keys) {
-      packageSet.addPackagesOfClass(className)
-    }
   }
 
-  private fun getJrtFileSystem(javaHome: Path): FileSystem {
-    return FileSystems.newFileSystem(JRT_SCHEME_URI, mapOf("java.home" to javaHome.toString()))
+  private fun getJrtFileSystem(): FileSystem {
+    jrtFileSystem?.let { return it }
+    return synchronized(this) {
+      jrtFileSystem ?: try {
+        FileSystems.newFileSystem(JRT_SCHEME_URI, mapOf("java.home" to jdkPath.toString()))
+      } catch (e: Exception) {
+        throw RuntimeException("Unable to read content from jrt:/ file system.", e)
+      }.also { jrtFileSystem = it }
+    }
   }
 
-  private fun getModuleName(classPath: Path): String =
+  private fun getModuleName(modulesPath: Path, classPath: Path): String =
     modulesPath.relativize(classPath).first().toString()
 
-  private fun getClassName(classPath: Path): String {
+  private fun getClassName(modulesPath: Path, classPath: Path): String {
     val relative = modulesPath.relativize(classPath)
     return relative
       .subpath(1, relative.nameCount).toString()
-      .substringBeforeLast(".class").replace(nameSeparator, "/")
+      .substringBeforeLast(".class").replace(modulesPath.fileSystem.separator, "/")
   }
 
   override val allClasses
@@ -92,16 +136,19 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
   override fun resolveClass(className: String): ResolutionResult<ClassNode> {
     val moduleName = classNameToModuleName[className]
     if (moduleName != null) {
-      val classPath = modulesPath.resolve(moduleName).resolve(className.replace("/", nameSeparator) + ".class")
-      return readClass(className, classPath)
+      return readClass(className, moduleName)
     }
     return ResolutionResult.NotFound
   }
 
-  private fun readClass(className: String, classPath: Path): ResolutionResult<ClassNode> =
+  private fun readClass(className: String, moduleName: String): ResolutionResult<ClassNode> =
     try {
-      val classNode = readClassNode(className, classPath)
-      ResolutionResult.Found(classNode, fileOrigin)
+      val classNode = readClassNode(className, moduleName)
+      if (classNode != null) {
+        ResolutionResult.Found(classNode, fileOrigin)
+      } else {
+        ResolutionResult.NotFound
+      }
     } catch (e: InvalidClassFileException) {
       ResolutionResult.Invalid(e.message)
     } catch (e: Exception) {
@@ -111,29 +158,39 @@ class JdkJImageResolver(jdkPath: Path, override val readMode: ReadMode) : Resolv
 
   override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale) = ResolutionResult.NotFound
 
-  private fun readClassNode(className: String, classFilePath: Path): ClassNode =
-    Files.newInputStream(classFilePath, StandardOpenOption.READ).use { inputStream ->
+  private fun readClassNode(className: String, moduleName: String): ClassNode? {
+    if (imageReader != null) {
+      try {
+        val classBytes = imageReader.readClass(moduleName, className) ?: return null
+        return AsmUtil.readClassNode(className, classBytes, readMode == ReadMode.FULL)
+      } catch (e: JImageReader.CompressedResourceException) {
+        //Decompression is delegated to the jrt:/ file system.
+      }
+    }
+    val fileSystem = getJrtFileSystem()
+    val classPath = fileSystem.getPath("/modules", moduleName, className.replace("/", fileSystem.separator) + ".class")
+    return Files.newInputStream(classPath, StandardOpenOption.READ).use { inputStream ->
       AsmUtil.readClassNode(className, inputStream, readMode == ReadMode.FULL)
     }
+  }
 
   override fun containsClass(className: String) = className in classNameToModuleName
 
   override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
 
   override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
-    Files.walk(modulesPath).use { stream ->
-      for (classPath in stream.filter { it.fileName.toString().endsWith(".class") }) {
-        val className = getClassName(classPath)
-        val result = readClass(className, classPath)
-        if (!processor(result)) {
-          return false
-        }
+    for ((className, moduleName) in classNameToModuleName) {
+      if (!processor(readClass(className, moduleName))) {
+        return false
       }
     }
     return true
   }
 
   override fun close() {
-    fileSystem.close()
+    imageReader?.closeLogged()
+    synchronized(this) {
+      jrtFileSystem?.close()
+    }
   }
-}
\ No newline at end of file
+}
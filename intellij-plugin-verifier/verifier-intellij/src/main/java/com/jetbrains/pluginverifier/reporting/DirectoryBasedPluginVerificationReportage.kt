@@ -34,8 +34,10 @@ import java.nio.file.Paths
  *             com.plugin.one/
  *                 1.0/
  *                     verification-verdict.txt
+ *                     verification-status.txt
  *                     compatibility-warnings.txt
  *                     compatibility-problems.txt
+ *                     compatibility-problems-by-type.txt
  *                     dependencies.txt
  *                     deprecated-usages.txt
  *                     experimental-api-usages.txt
@@ -121,11 +123,15 @@ class DirectoryBasedPluginVerificationReportage(
         .resolve(createPluginVerificationDirectory(plugin))
 
       reportVerificationDetails(directory, "verification-verdict.txt", listOf(pluginVerificationResult)) { it.verificationVerdict }
+      reportVerificationDetails(directory, PluginVerificationStatus.FILE_NAME, listOf(PluginVerificationStatus.of(pluginVerificationResult))) { it.name }
 
       return when (this) {
         is PluginVerificationResult.Verified -> {
           reportVerificationDetails(directory, "compatibility-warnings.txt", compatibilityWarnings)
           reportVerificationDetails(directory, "compatibility-problems.txt", compatibilityProblems)
+          reportVerificationDetails(directory, COMPATIBILITY_PROBLEMS_BY_TYPE_FILE_NAME, compatibilityProblems.groupBy { it.shortDescription }.entries) { (shortDescription, problems) ->
+            "#$shortDescription\n" + problems.joinToString(separator = "\n") { "    ${it.fullDescription}" }
+          }
           reportVerificationDetails(directory, "dependencies.txt", listOf(dependenciesGraph)) { DependenciesGraphPrettyPrinter(it).prettyPresentation() }
           reportVerificationDetails(directory, "deprecated-usages.txt", deprecatedUsages)
           reportVerificationDetails(directory, "experimental-api-usages.txt", experimentalApiUsages)
@@ -158,6 +164,15 @@ class DirectoryBasedPluginVerificationReportage(
   ) {
     FileReporter(directory.resolve(fileName), lineProvider).useReporter(content)
   }
+
+  companion object {
+    /**
+     * Report of compatibility problems grouped by their short descriptions, in the layout of TeamCity failure messages:
+     * each group starts with a `#<short description>` line followed by the full descriptions indented by four spaces.
+     * It lets the `merge-results` command count and group problems as `check-ide` does.
+     */
+    const val COMPATIBILITY_PROBLEMS_BY_TYPE_FILE_NAME = "compatibility-problems-by-type.txt"
+  }
 }
 
 private fun PluginTelemetry?.withPluginIdAndVersion(verifiedResult: PluginVerificationResult.Verified): PluginTelemetry? {
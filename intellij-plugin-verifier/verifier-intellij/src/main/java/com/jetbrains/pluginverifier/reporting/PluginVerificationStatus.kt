@@ -0,0 +1,45 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.reporting
+
+import com.jetbrains.pluginverifier.PluginVerificationResult
+
+/**
+ * Outcome of a plugin verification saved to [FILE_NAME] by [DirectoryBasedPluginVerificationReportage],
+ * so that tools reading the reports don't have to parse the human-readable verification verdict.
+ */
+enum class PluginVerificationStatus {
+  /**
+   * The plugin has neither compatibility problems nor missing mandatory dependencies.
+   */
+  PASSED,
+
+  /**
+   * The plugin has compatibility problems or missing mandatory dependencies.
+   */
+  FAILED,
+
+  /**
+   * The plugin is invalid, so it has not been verified.
+   */
+  INVALID,
+
+  /**
+   * The plugin has not been found or downloaded.
+   */
+  NOT_VERIFIED;
+
+  companion object {
+    const val FILE_NAME = "verification-status.txt"
+
+    fun of(result: PluginVerificationResult): PluginVerificationStatus = when (result) {
+      is PluginVerificationResult.Verified ->
+        if (result.hasCompatibilityProblems || result.hasDirectMissingMandatoryDependencies) FAILED else PASSED
+      is PluginVerificationResult.InvalidPlugin -> INVALID
+      is PluginVerificationResult.NotFound -> NOT_VERIFIED
+      is PluginVerificationResult.FailedToDownload -> NOT_VERIFIED
+    }
+  }
+}
@@ -15,6 +15,9 @@ fun PluginTelemetry.toPlainString(): String {
     }
     appendLine("Plugin size (bytes): $archiveFileSize")
     appendLine(telemetry, PLUGIN_VERIFIED_CLASSES_COUNT, "Verified classes in plugin artifact")
+    appendLine(telemetry, MEMBER_RESOLUTION_CACHE_HITS, "Shared member resolution cache hits")
+    appendLine(telemetry, MEMBER_RESOLUTION_CACHE_MISSES, "Shared member resolution cache misses")
+    appendLine(telemetry, VERIFICATION_RESULT_CACHE_HIT, "Findings restored from verification result cache")
     telemetry[PLUGIN_VERIFICATION_TIME]?.let {
       if (it is Duration) {
         appendLine("Verification time: ${it.formatDuration()}")
@@ -15,6 +15,7 @@ import com.jetbrains.pluginverifier.ide.IdeDescriptor
 import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.repository.repositories.bundled.BundledPluginInfo
+import com.jetbrains.pluginverifier.verifiers.hierarchy.HierarchyIndexedResolver
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
 import com.jetbrains.pluginverifier.verifiers.resolution.caching
 import java.io.Closeable
@@ -39,12 +40,15 @@ class DefaultClassResolverProvider(
 
       val dependenciesClassResolver = createDependenciesClassResolver(checkedPluginDetails, dependenciesResults)
 
-      val resolver = CompositeResolver.create(
-        pluginResolver,
-        ideDescriptor.jdkDescriptor.jdkResolver,
-        ideDescriptor.ideResolver,
-        dependenciesClassResolver
-      ).caching()
+      val resolver = HierarchyIndexedResolver(
+        CompositeResolver.create(
+          pluginResolver,
+          ideDescriptor.platformClassResolver,
+          dependenciesClassResolver
+        ).caching(),
+        ideDescriptor.classHierarchyIndex,
+        pluginResolver
+      )
       return ClassResolverProvider.Result(pluginResolver, resolver, dependenciesGraph, closeableResources)
     }
   }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.results
+
+import com.jetbrains.plugin.structure.base.utils.createDir
+import com.jetbrains.plugin.structure.base.utils.deleteQuietly
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.classes.resolvers.DirectoryFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JarOrZipFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JdkFileOrigin
+import com.jetbrains.pluginverifier.PluginVerificationDescriptor
+import com.jetbrains.pluginverifier.dependencies.DependenciesGraph
+import com.jetbrains.pluginverifier.plugin.PluginDetails
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.symbols.SymbolTable
+import com.jetbrains.pluginverifier.symbols.SymbolicReferences
+import com.jetbrains.pluginverifier.symbols.getFingerprint
+import com.jetbrains.pluginverifier.usages.deprecated.DeprecatedApiUsage
+import com.jetbrains.pluginverifier.usages.experimental.ExperimentalApiUsage
+import com.jetbrains.pluginverifier.usages.internal.InternalApiUsage
+import com.jetbrains.pluginverifier.usages.nonExtendable.NonExtendableApiUsage
+import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyMethodUsage
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.InputStream
+import java.io.ObjectInputFilter
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.io.OutputStream
+import java.io.Serializable
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Stores findings of plugin verifications against IDE builds in the [cacheDirectory], one file per verification,
+ * so that a plugin that has not changed is not verified against the same IDE build again, for instance, in nightly runs.
+ *
+ * The cache key includes the API referenced by the plugin instead of the IDE build.
+ * [SymbolicReferences] of the plugin to classes outside of it are extracted once per plugin build
+ * and stored in the [cacheDirectory] as well. The referenced classes are then looked up in the [SymbolTable]
+ * of the IDE, the JDK and the plugin dependencies, which gives a fingerprint of all the referenced API.
+ * So, the findings are reused for any IDE build whose API referenced by the plugin is the same.
+ * On a cache miss, the plugin is verified by the bytecode verifier as usual.
+ *
+ * A verification is identified by a [Key] computed from the SHA-256 of the plugin file, the fingerprint of the referenced API,
+ * the JDK, the dependencies of the plugin, the [verifierVersion] and the [optionsFingerprint]
+ * of options that change the findings, such as prefixes of external classes.
+ * Problem filters are not part of the key, because they are applied to the cached findings anew.
+ *
+ * Findings are stored with Java serialization. Origins of classes refer to IDE and plugin models,
+ * so they are stored by their names. Files that cannot be read are ignored and the plugin is verified again.
+ */
+class VerificationResultCache(
+  private val cacheDirectory: Path,
+  private val verifierVersion: String,
+  private val optionsFingerprint: String = ""
+) {
+
+  /**
+   * Returns the key of the verification of the plugin [pluginDetails] with the [dependenciesGraph],
+   * or `null` if the verification is not cacheable, that is, it is not a verification against an IDE,
+   * or the plugin has not been provided by a file.
+   *
+   * References of the plugin are read from the cache or extracted by [extractReferences],
+   * and checked against the [symbolTable] of the verification.
+   */
+  internal fun getKey(
+    pluginDetails: PluginDetails,
+    verificationDescriptor: PluginVerificationDescriptor,
+    dependenciesGraph: DependenciesGraph,
+    verifierOptions: String,
+    symbolTable: SymbolTable,
+    extractReferences: () -> SymbolicReferences
+  ): Key? {
+    if (verificationDescriptor !is PluginVerificationDescriptor.IDE) {
+      return null
+    }
+    val pluginFile = pluginDetails.pluginFile?.takeIf { Files.isRegularFile(it) } ?: return null
+    return try {
+      val pluginDigest = MessageDigest.getInstance(DIGEST_ALGORITHM)
+      pluginDigest.update(FORMAT_VERSION.toString())
+      pluginDigest.update(verifierVersion)
+      pluginDigest.update(optionsFingerprint)
+      pluginDigest.update(verifierOptions)
+      pluginDigest.update(pluginFile.digest().toHexString())
+      //Versions of bundled plugins are versions of the IDE, so dependencies are identified by IDs,
+      //and their classes are a part of the fingerprint of the referenced API.
+      dependenciesGraph.vertices.map { it.pluginId }.sorted().forEach { pluginDigest.update(it) }
+      dependenciesGraph.edges.map { "${it.from.pluginId} -> ${it.to.pluginId}: ${it.dependency}" }.sorted().forEach { pluginDigest.update(it) }
+      dependenciesGraph.missingDependencies
+        .flatMap { (node, missingDependencies) -> missingDependencies.map { "${node.pluginId} -> $it" } }
+        .sorted()
+        .forEach { pluginDigest.update(it) }
+      val pluginKey = pluginDigest.digest().toHexString()
+
+      val references = getReferences(pluginKey) ?: extractReferences().also { putReferences(pluginKey, it) }
+
+      val digest = MessageDigest.getInstance(DIGEST_ALGORITHM)
+      digest.update(pluginKey)
+      digest.update(symbolTable.getFingerprint(references))
+      digest.update(verificationDescriptor.jdkVersion.javaVersion)
+      digest.update(verificationDescriptor.ideVersion.baselineVersion.toString())
+      Key(digest.digest().toHexString())
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to compute the verification result key of $pluginFile", e)
+      null
+    }
+  }
+
+  private fun getReferences(pluginKey: String): SymbolicReferences? {
+    val referencesFile = getReferencesFile(pluginKey)
+    if (!Files.isRegularFile(referencesFile)) {
+      return null
+    }
+    return try {
+      DataInputStream(Files.newInputStream(referencesFile).buffered()).use { SymbolicReferences.readFrom(it) }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to read cached symbolic references $referencesFile", e)
+      null
+    }
+  }
+
+  private fun putReferences(pluginKey: String, references: SymbolicReferences) {
+    writeAtomically(getReferencesFile(pluginKey)) { output ->
+      DataOutputStream(output).let {
+        references.writeTo(it)
+        it.flush()
+      }
+    }
+  }
+
+  internal fun get(key: Key): CachedVerificationFindings? {
+    val resultFile = getResultFile(key)
+    if (!Files.isRegularFile(resultFile)) {
+      return null
+    }
+    return try {
+      FindingsInputStream(Files.newInputStream(resultFile).buffered()).use {
+        it.readObject() as CachedVerificationFindings
+      }
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to read cached verification result $resultFile", e)
+      null
+    }
+  }
+
+  internal fun put(key: Key, findings: CachedVerificationFindings) {
+    writeAtomically(getResultFile(key)) { output ->
+      FindingsOutputStream(output).let {
+        it.writeObject(findings)
+        it.flush()
+      }
+    }
+  }
+
+  private fun writeAtomically(file: Path, write: (OutputStream) -> Unit) {
+    var tempFile: Path? = null
+    try {
+      file.parent.createDir()
+      tempFile = Files.createTempFile(file.parent, file.fileName.toString(), ".tmp")
+      Files.newOutputStream(tempFile).buffered().use { write(it) }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: Exception) {
+      e.rethrowIfInterrupted()
+      LOG.debug("Unable to save $file", e)
+      tempFile?.deleteQuietly()
+    }
+  }
+
+  private fun getResultFile(key: Key): Path =
+    cacheDirectory.resolve(key.hash.take(2)).resolve(key.hash)
+
+  private fun getReferencesFile(pluginKey: String): Path =
+    cacheDirectory.resolve(REFERENCES_DIRECTORY).resolve(pluginKey.take(2)).resolve(pluginKey)
+
+  internal data class Key(val hash: String)
+
+  /**
+   * Replaces origins of classes that are not serializable with [SerializedFileOrigin]s.
+   */
+  private class FindingsOutputStream(output: OutputStream) : ObjectOutputStream(output) {
+    init {
+      enableReplaceObject(true)
+    }
+
+    override fun replaceObject(obj: Any?): Any? =
+      if (obj is FileOrigin && obj !is Serializable) SerializedFileOrigin(obj.presentableName, obj.parent) else obj
+  }
+
+  private class FindingsInputStream(input: InputStream) : ObjectInputStream(input) {
+    init {
+      objectInputFilter = ObjectInputFilter.Config.createFilter(ALLOWED_CLASSES_FILTER)
+    }
+  }
+
+  private data class SerializedFileOrigin(val name: String, override val parent: FileOrigin?) : FileOrigin, Serializable {
+    companion object {
+      private const val serialVersionUID = 1L
+    }
+  }
+
+  companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(VerificationResultCache::class.java)
+
+    private const val FORMAT_VERSION = 2
+
+    private const val REFERENCES_DIRECTORY = "references"
+
+    private const val DIGEST_ALGORITHM = "SHA-256"
+
+    private const val ALLOWED_CLASSES_FILTER = "java.**;kotlin.**;com.jetbrains.**;!*"
+
+    private val FileOrigin.presentableName: String
+      get() = when (this) {
+        is JarOrZipFileOrigin -> fileName
+        is DirectoryFileOrigin -> directoryName
+        is JdkFileOrigin -> jdkPath.toString()
+        else -> javaClass.simpleName
+      }
+
+    private fun MessageDigest.update(value: String) {
+      update(value.toByteArray())
+      update(0)
+    }
+
+    private fun Path.digest(): ByteArray {
+      val digest = MessageDigest.getInstance(DIGEST_ALGORITHM)
+      Files.newInputStream(this).use { input ->
+        val buffer = ByteArray(64 * 1024)
+        while (true) {
+          val read = input.read(buffer)
+          if (read < 0) {
+            break
+          }
+          digest.update(buffer, 0, read)
+        }
+      }
+      return digest.digest()
+    }
+
+    private fun ByteArray.toHexString(): String = joinToString(separator = "") { "%02x".format(it) }
+  }
+}
+
+/**
+ * Findings of a plugin verification stored in the [VerificationResultCache]:
+ * problems, warnings and API usages found in the bytecode of the plugin before problem filters are applied.
+ */
+internal class CachedVerificationFindings(
+  val compatibilityProblems: Set<CompatibilityProblem>,
+  val compatibilityWarnings: Set<CompatibilityWarning>,
+  val deprecatedUsages: Set<DeprecatedApiUsage>,
+  val experimentalApiUsages: Set<ExperimentalApiUsage>,
+  val internalApiUsages: Set<InternalApiUsage>,
+  val nonExtendableApiUsages: Set<NonExtendableApiUsage>,
+  val overrideOnlyMethodUsages: Set<OverrideOnlyMethodUsage>
+) : Serializable {
+  companion object {
+    private const val serialVersionUID = 1L
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.symbols
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.jetbrains.plugin.structure.classes.utils.ClassBytesDigests
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.tree.ClassNode
+import java.security.MessageDigest
+
+/**
+ * SHA-256 hashes of the bytecode of class nodes.
+ *
+ * The hash is the digest of the bytes the class node has been read from, if it has been recorded by [ClassBytesDigests].
+ * Otherwise, the class node is written back by the [ClassWriter] and the result is hashed.
+ * Hashes are cached while the class nodes are reachable.
+ */
+internal object ClassContentHashes {
+
+  private const val MAXIMUM_HASHED_CLASSES = 100_000L
+
+  private val hashes: Cache<ClassNode, String> = Caffeine.newBuilder()
+    .weakKeys()
+    .maximumSize(MAXIMUM_HASHED_CLASSES)
+    .build()
+
+  fun getHash(classNode: ClassNode): String = ClassBytesDigests.getDigest(classNode) ?: hashes.get(classNode) {
+    val classWriter = ClassWriter(0)
+    it.accept(classWriter)
+    MessageDigest.getInstance("SHA-256").digest(classWriter.toByteArray()).joinToString(separator = "") { byte -> "%02x".format(byte) }
+  }
+}
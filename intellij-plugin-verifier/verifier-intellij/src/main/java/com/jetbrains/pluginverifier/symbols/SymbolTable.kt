@@ -0,0 +1,124 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.symbols
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.findOriginOfType
+import com.jetbrains.plugin.structure.intellij.classes.locator.PluginFileOrigin
+import java.security.MessageDigest
+
+/**
+ * Classes available to a verified plugin outside of the plugin, that is classes of the IDE, the JDK and the plugin dependencies.
+ */
+interface SymbolTable {
+  /**
+   * Returns the symbol of the class [className], or `null` if there is no such class.
+   */
+  fun findClass(className: String): ClassSymbol?
+
+  fun containsPackage(packageName: String): Boolean
+}
+
+/**
+ * Class of a [SymbolTable].
+ *
+ * - [contentHash] - SHA-256 of the bytecode of the class, or a description of the failure to read the class.
+ * - [origin] - kind of the location the class comes from: the JDK, the IDE or a dependency plugin.
+ * - [superName], [interfaces] and [outerClassName] - related classes, which the verification may look at
+ * while resolving members of the class and checking their accessibility and annotations.
+ */
+data class ClassSymbol(
+  val name: String,
+  val contentHash: String,
+  val origin: String,
+  val superName: String?,
+  val interfaces: List<String>,
+  val outerClassName: String?
+)
+
+/**
+ * [SymbolTable] of the classes of the [resolver].
+ */
+class ResolverSymbolTable(private val resolver: Resolver) : SymbolTable {
+
+  override fun findClass(className: String): ClassSymbol? =
+    when (val result = resolver.resolveClass(className)) {
+      is ResolutionResult.Found -> {
+        val classNode = result.value
+        ClassSymbol(
+          className,
+          ClassContentHashes.getHash(classNode),
+          result.fileOrigin.kind,
+          classNode.superName,
+          classNode.interfaces.orEmpty(),
+          classNode.outerClass ?: classNode.innerClasses?.find { it.name == className }?.outerName
+        )
+      }
+      is ResolutionResult.FailedToRead -> ClassSymbol(className, "failed: ${result.reason}", "", null, emptyList(), null)
+      is ResolutionResult.Invalid -> ClassSymbol(className, "invalid: ${result.message}", "", null, emptyList(), null)
+      ResolutionResult.NotFound -> null
+    }
+
+  override fun containsPackage(packageName: String) = resolver.containsPackage(packageName)
+
+  private val FileOrigin.kind: String
+    get() {
+      val plugin = findOriginOfType<PluginFileOrigin>()?.idePlugin
+      if (plugin != null) {
+        return "plugin:" + plugin.pluginId
+      }
+      var root = this
+      while (true) {
+        root = root.parent ?: return root.javaClass.name
+      }
+    }
+}
+
+/**
+ * Returns SHA-256 of the symbols of the [references] in this table: the referenced classes,
+ * their supertypes, outer classes and `package-info` classes, and all packages enclosing the missing classes.
+ *
+ * Findings of a plugin verification don't change between verification targets with the same fingerprint of its references.
+ */
+fun SymbolTable.getFingerprint(references: SymbolicReferences): String {
+  val digest = MessageDigest.getInstance("SHA-256")
+  val visitedClasses = hashSetOf<String>()
+  val queue = ArrayDeque(references.classNames.sorted())
+  while (queue.isNotEmpty()) {
+    val className = queue.removeFirst()
+    if (!visitedClasses.add(className)) {
+      continue
+    }
+    val symbol = findClass(className)
+    if (symbol == null) {
+      //Missing classes are grouped by their top-most missing packages, so presence of every super-package matters.
+      val packages = getSuperPackages(className).joinToString { "$it ${if (containsPackage(it)) "present" else "missing"}" }
+      digest.update("$className missing, packages $packages\n".toByteArray())
+      continue
+    }
+    digest.update("$className ${symbol.contentHash} ${symbol.origin}\n".toByteArray())
+    listOfNotNull(symbol.superName, symbol.outerClassName).forEach { queue += it }
+    queue += symbol.interfaces
+    val packageName = className.substringBeforeLast('/', "")
+    if (packageName.isNotEmpty() && !className.endsWith("/package-info")) {
+      queue += "$packageName/package-info"
+    }
+  }
+  return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+}
+
+/**
+ * Returns the packages enclosing the class [className] from the top-most one: `com`, `com/example` for `com/example/Some`.
+ * The class of the default package is enclosed by the default package `""`.
+ */
+private fun getSuperPackages(className: String): List<String> {
+  if ('/' !in className) {
+    return listOf("")
+  }
+  val packageParts = className.substringBeforeLast('/').split('/')
+  return packageParts.indices.map { packageParts.subList(0, it + 1).joinToString("/") }
+}
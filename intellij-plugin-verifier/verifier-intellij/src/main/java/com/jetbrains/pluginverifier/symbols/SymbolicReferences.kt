@@ -0,0 +1,72 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.symbols
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.analysis.getTypeReferences
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Binary names of classes outside of a plugin that are referenced by the bytecode of the plugin:
+ * supertypes, types of members, owners of invoked methods and accessed fields, types used by instructions and annotations.
+ *
+ * The references depend only on the plugin, so they are extracted once per plugin build
+ * and then fingerprinted in each verification target via a [SymbolTable], see [getFingerprint].
+ * They are used only for the key of cached verification results and are not verified themselves.
+ */
+class SymbolicReferences(val classNames: Set<String>) {
+
+  fun writeTo(output: DataOutputStream) {
+    output.writeInt(MAGIC)
+    output.writeInt(FORMAT_VERSION)
+    output.writeInt(classNames.size)
+    classNames.forEach { output.writeUTF(it) }
+  }
+
+  companion object {
+    private const val MAGIC = 0x53594D52
+
+    private const val FORMAT_VERSION = 2
+
+    @Throws(IOException::class)
+    fun readFrom(input: DataInputStream): SymbolicReferences {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        throw IOException("Unsupported format of symbolic references")
+      }
+      val count = input.readInt()
+      val classNames = HashSet<String>(count * 4 / 3 + 1)
+      repeat(count) { classNames += input.readUTF() }
+      return SymbolicReferences(classNames)
+    }
+
+    /**
+     * Reads the [classesToCheck] and the plugin classes they refer to from the [pluginResolver],
+     * and collects the referenced classes that are not contained in the [pluginResolver].
+     */
+    fun extract(classesToCheck: Set<String>, pluginResolver: Resolver): SymbolicReferences {
+      val externalClasses = hashSetOf<String>()
+      val visitedClasses = hashSetOf<String>()
+      val queue = ArrayDeque(classesToCheck)
+      while (queue.isNotEmpty()) {
+        val className = queue.removeFirst()
+        if (!visitedClasses.add(className)) {
+          continue
+        }
+        val classNode = (pluginResolver.resolveClass(className) as? ResolutionResult.Found)?.value ?: continue
+        for (reference in classNode.getTypeReferences()) {
+          if (pluginResolver.containsClass(reference)) {
+            queue += reference
+          } else {
+            externalClasses += reference
+          }
+        }
+      }
+      return SymbolicReferences(externalClasses)
+    }
+  }
+}
@@ -6,11 +6,12 @@ package com.jetbrains.pluginverifier.usages
 
 import com.jetbrains.pluginverifier.results.location.Location
 import com.jetbrains.pluginverifier.results.reference.SymbolicReference
+import java.io.Serializable
 
 /**
  * Base class for all usages of API in bytecode.
  */
-abstract class ApiUsage {
+abstract class ApiUsage : Serializable {
 
   /**
    * API reference in bytecode.
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+package com.jetbrains.pluginverifier.usages.annotation
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileAsm
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
+import com.jetbrains.pluginverifier.verifiers.resolution.Field
+import com.jetbrains.pluginverifier.verifiers.resolution.FullyQualifiedClassName
+import com.jetbrains.pluginverifier.verifiers.resolution.Method
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Cache of effective annotations of members of the [platformResolver] classes, that is of the IDE and the JDK,
+ * shared by all verifications against the same platform.
+ *
+ * Resolution of an effective annotation looks at the member, its enclosing classes and their `package-info` classes.
+ * It is cached only if all the looked up classes are either platform classes or missing.
+ * A verification resolves classes of the checked plugin first, then platform classes, then classes of the dependencies.
+ * So, platform classes are the same for all verifications, unless the plugin bundles its own copies of platform classes.
+ * Verifications of such plugins don't use the cache, and all other verifications reuse cached resolutions
+ * as long as the missing classes are still missing.
+ *
+ * Entries keep names of the looked up classes only, so that the cache doesn't retain class nodes.
+ */
+class AnnotationResolutionCache(
+  private val platformResolver: Resolver,
+  maximumSize: Long = DEFAULT_MAXIMUM_SIZE
+) {
+
+  private val resolutions: Cache<Key, CachedResolution> = Caffeine.newBuilder()
+    .maximumSize(maximumSize)
+    .build()
+
+  private val hits = LongAdder()
+
+  private val misses = LongAdder()
+
+  val statistics: Statistics
+    get() = Statistics(hits.sum(), misses.sum(), resolutions.estimatedSize())
+
+  /**
+   * Creates a session of a verification. If the checked plugin [shadowsPlatformClasses],
+   * the session neither looks up nor stores resolutions.
+   */
+  fun createSession(shadowsPlatformClasses: Boolean) = Session(shadowsPlatformClasses)
+
+  inner class Session(private val shadowsPlatformClasses: Boolean) {
+
+    /**
+     * Returns whether the [member] is effectively annotated with the [annotation] according to the cached resolution,
+     * or `null` if there is no cached resolution valid in the [classResolver].
+     */
+    internal fun lookup(annotation: FullyQualifiedClassName, member: ClassFileMember, classResolver: Resolver): Boolean? {
+      if (shadowsPlatformClasses || !member.containingClassFile.isPlatformClass()) {
+        return null
+      }
+      val key = member.toKey(annotation) ?: return null
+      val resolution = resolutions.getIfPresent(key)
+      if (resolution == null || resolution.missingClassNames.any { classResolver.containsClass(it) }) {
+        misses.increment()
+        return null
+      }
+      hits.increment()
+      return resolution.isAnnotated
+    }
+
+    /**
+     * Creates a trace that records classes looked up while resolving an annotation of the [member],
+     * or returns `null` if the [member] doesn't belong to the platform.
+     */
+    internal fun startTrace(member: ClassFileMember): ResolutionTrace? {
+      if (shadowsPlatformClasses || !member.containingClassFile.isPlatformClass()) {
+        return null
+      }
+      return ResolutionTrace()
+    }
+
+    /**
+     * Saves the resolution recorded by the [trace] unless it has looked up non-platform classes.
+     */
+    internal fun store(trace: ResolutionTrace, annotation: FullyQualifiedClassName, member: ClassFileMember, isAnnotated: Boolean) {
+      val key = member.toKey(annotation) ?: return
+      if (trace.isShareable) {
+        resolutions.put(key, trace.toResolution(isAnnotated))
+      }
+    }
+  }
+
+  /**
+   * Records classes looked up in the course of a single annotation resolution.
+   */
+  internal inner class ResolutionTrace {
+
+    private val missingClassNames = arrayListOf<String>()
+
+    var isShareable = true
+      private set
+
+    fun recordResolvedClass(className: String, resolvedClass: ClassFile?) {
+      if (!isShareable) {
+        return
+      }
+      if (resolvedClass != null) {
+        if (!resolvedClass.isPlatformClass()) {
+          isShareable = false
+          missingClassNames.clear()
+        }
+      } else if (!platformResolver.containsClass(className)) {
+        missingClassNames += className
+      }
+    }
+
+    fun toResolution(isAnnotated: Boolean) = CachedResolution(missingClassNames.toList(), isAnnotated)
+  }
+
+  /**
+   * Whether the class resolved by a verification is a platform class.
+   * Classes are checked by name, because a session of a verification that resolves
+   * platform class names to other classes doesn't use the cache.
+   */
+  private fun ClassFile.isPlatformClass(): Boolean =
+    this is ClassFileAsm && platformResolver.containsClass(name)
+
+  private fun ClassFileMember.toKey(annotation: FullyQualifiedClassName): Key? = when (this) {
+    is ClassFile -> Key(annotation, name, null, null)
+    is Method -> Key(annotation, containingClassFile.name, name, descriptor)
+    is Field -> Key(annotation, containingClassFile.name, name, descriptor)
+    else -> null
+  }
+
+  private data class Key(
+    val annotation: FullyQualifiedClassName,
+    val className: String,
+    val memberName: String?,
+    val descriptor: String?
+  )
+
+  internal class CachedResolution(
+    /**
+     * Names of classes that have been looked up, but found neither in the platform nor elsewhere.
+     */
+    val missingClassNames: List<String>,
+    val isAnnotated: Boolean
+  )
+
+  data class Statistics(
+    val hitCount: Long,
+    val missCount: Long,
+    val cachedResolutionsCount: Long
+  ) {
+    override fun toString() =
+      "hits: $hitCount, misses: $missCount, cached resolutions: $cachedResolutionsCount"
+  }
+
+  private companion object {
+    private const val DEFAULT_MAXIMUM_SIZE = 100_000L
+  }
+}
@@ -11,6 +11,8 @@ import com.jetbrains.pluginverifier.results.location.Location
 import com.jetbrains.pluginverifier.results.presentation.toFullJavaClassName
 import com.jetbrains.pluginverifier.usages.util.MemberAnnotation
 import com.jetbrains.pluginverifier.usages.util.MemberAnnotation.*
+import com.jetbrains.pluginverifier.usages.util.annotationResolutionCache
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.findAnnotation
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
@@ -26,7 +28,28 @@ private val LOG: Logger = LoggerFactory.getLogger(AnnotationResolver::class.java
 class AnnotationResolver(val annotation: FullyQualifiedClassName) {
 
   fun resolve(classFileMember: ClassFileMember, classResolver: Resolver, usageLocation: Location?): MemberAnnotation? {
-    return resolve(classFileMember, classResolver, ResolutionStack(annotation, usageLocation))
+    return resolve(classFileMember, classResolver, ResolutionStack(annotation, usageLocation, trace = null))
+  }
+
+  /**
+   * Checks whether the [classFileMember] is effectively annotated, reusing the resolutions of the [resolutionCache], if any.
+   */
+  fun isEffectivelyAnnotated(
+    classFileMember: ClassFileMember,
+    classResolver: Resolver,
+    usageLocation: Location?,
+    resolutionCache: AnnotationResolutionCache.Session?
+  ): Boolean {
+    if (resolutionCache == null) {
+      return resolve(classFileMember, classResolver, usageLocation) != null
+    }
+    resolutionCache.lookup(annotation, classFileMember, classResolver)?.let { return it }
+    val trace = resolutionCache.startTrace(classFileMember)
+    val isAnnotated = resolve(classFileMember, classResolver, ResolutionStack(annotation, usageLocation, trace)) != null
+    if (trace != null) {
+      resolutionCache.store(trace, annotation, classFileMember, isAnnotated)
+    }
+    return isAnnotated
   }
 
   private fun resolve(classFileMember: ClassFileMember, classResolver: Resolver, resolutionStack: ResolutionStack): MemberAnnotation? = resolutionStack.execute(classFileMember) {
@@ -35,7 +58,7 @@ class AnnotationResolver(val annotation: FullyQualifiedClassName) {
       is ClassFile -> {
         if (classFileMember.name.endsWith("package-info")) return null
         resolveInEnclosingClassName(classFileMember, classResolver, resolutionStack)?.let { return it }
-        resolveInPackageInfo(classFileMember, classResolver)?.let { return it }
+        resolveInPackageInfo(classFileMember, classResolver, resolutionStack)?.let { return it }
         null
       }
       else -> resolveInNonClassFile(classFileMember, classResolver, resolutionStack)
@@ -55,17 +78,17 @@ class AnnotationResolver(val annotation: FullyQualifiedClassName) {
     // If enclosing class name is the same as the current class name the endless loop happens
     // (since the same class will be resolved and findEffectiveMemberAnnotation call leads here)
     if (enclosingClassName == null || enclosingClassName == classFileMember.name) return null
-    val enclosingClass = classResolver.resolveClassOrNull(enclosingClassName) ?: return null
+    val enclosingClass = resolutionStack.resolveClassOrNull(enclosingClassName, classResolver) ?: return null
     return resolve(enclosingClass, classResolver, resolutionStack)?.let {
       AnnotatedViaContainingClass(enclosingClass, classFileMember, annotation)
     }
   }
 
-  private fun resolveInPackageInfo(classFileMember: ClassFile, classResolver: Resolver): MemberAnnotation? {
+  private fun resolveInPackageInfo(classFileMember: ClassFile, classResolver: Resolver, resolutionStack: ResolutionStack): MemberAnnotation? {
     val packageName = classFileMember.containingClassFile.packageName
     return packageName
       .takeIf { it.isNotEmpty() }
-      ?.let { classResolver.resolveClassOrNull("$packageName/package-info") }
+      ?.let { resolutionStack.resolveClassOrNull("$packageName/package-info", classResolver) }
       ?.takeIf { it.isDirectlyAnnotatedWith(annotation) }
       ?.let { AnnotatedViaPackage(packageName, classFileMember, annotation) }
   }
@@ -87,9 +110,16 @@ class AnnotationResolver(val annotation: FullyQualifiedClassName) {
     annotations.findAnnotation(annotationName) != null
 
 
-  private class ResolutionStack(val annotation: FullyQualifiedClassName, private val usageLocation: Location?) {
+  private class ResolutionStack(
+    val annotation: FullyQualifiedClassName,
+    private val usageLocation: Location?,
+    private val trace: AnnotationResolutionCache.ResolutionTrace?
+  ) {
     private val stack = ArrayDeque<ClassFileMember>()
 
+    fun resolveClassOrNull(className: String, classResolver: Resolver): ClassFile? =
+      classResolver.resolveClassOrNull(className).also { trace?.recordResolvedClass(className, it) }
+
     fun push(m: ClassFileMember) {
       stack.add(m)
     }
@@ -127,4 +157,7 @@ fun ClassFileMember.isMemberEffectivelyAnnotatedWith(annotationResolver: Annotat
   isMemberEffectivelyAnnotatedWith(annotationResolver, classResolver, location = null)
 
 fun ClassFileMember.isMemberEffectivelyAnnotatedWith(annotationResolver: AnnotationResolver, classResolver: Resolver, location: Location?): Boolean =
-  annotationResolver.resolve(this, classResolver, location) != null
\ No newline at end of file
+  annotationResolver.resolve(this, classResolver, location) != null
+
+fun ClassFileMember.isMemberEffectivelyAnnotatedWith(annotationResolver: AnnotationResolver, context: VerificationContext, location: Location?): Boolean =
+  annotationResolver.isEffectivelyAnnotated(this, context.classResolver, location, context.annotationResolutionCache)
\ No newline at end of file
@@ -4,6 +4,8 @@
 
 package com.jetbrains.pluginverifier.usages.deprecated
 
+import java.io.Serializable
+
 /**
  * Contains additional information about deprecated API:
  * - [forRemoval] - whether the deprecated API is scheduled for removal
@@ -13,4 +15,4 @@ package com.jetbrains.pluginverifier.usages.deprecated
 data class DeprecationInfo(
   val forRemoval: Boolean,
   val untilVersion: String?
-)
\ No newline at end of file
+) : Serializable
\ No newline at end of file
@@ -30,6 +30,8 @@ class DiscouragingJdkClassUsage(
   private val classFileOrigin: FileOrigin
 ) : DeprecatedApiUsage(DeprecationInfo(false, "JDK 8")) {
 
+  private val isClassProvidedByIde: Boolean = classFileOrigin.isOriginOfType<IdeFileOrigin>()
+
   override val problemType: String
     get() = "JDK classes of some packages should not be used when they come from JDK or IDEA distribution because these classes will not be available in JDK 9+."
 
@@ -44,7 +46,6 @@ class DiscouragingJdkClassUsage(
     get() = buildString {
       append("JDK 8 specific " + apiElement.elementType.presentableName + " " + apiElement.formatClassLocation(ClassOption.FULL_NAME, ClassGenericsSignatureOption.NO_GENERICS))
       append(" is referenced in " + usageLocation.formatUsageLocation() + ". ")
-      val isClassProvidedByIde: Boolean = classFileOrigin.isOriginOfType<IdeFileOrigin>()
       if (isClassProvidedByIde) {
         append(
           "This " + apiElement.elementType.presentableName + " will be temporarily available in IDE distribution for " +
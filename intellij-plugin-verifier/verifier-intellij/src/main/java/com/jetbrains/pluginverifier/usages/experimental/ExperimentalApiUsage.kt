@@ -9,6 +9,7 @@ import com.jetbrains.pluginverifier.results.location.Location
 import com.jetbrains.pluginverifier.usages.ApiUsage
 import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolver
 import com.jetbrains.pluginverifier.usages.annotation.isMemberEffectivelyAnnotatedWith
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
 /**
@@ -19,4 +20,7 @@ abstract class ExperimentalApiUsage : ApiUsage()
 fun ClassFileMember.isExperimentalApi(classResolver: Resolver, usageLocation: Location): Boolean =
   isMemberEffectivelyAnnotatedWith(experimentalApiStatusResolver, classResolver, usageLocation)
 
+fun ClassFileMember.isExperimentalApi(context: VerificationContext, usageLocation: Location): Boolean =
+  isMemberEffectivelyAnnotatedWith(experimentalApiStatusResolver, context, usageLocation)
+
 private val experimentalApiStatusResolver = AnnotationResolver("org/jetbrains/annotations/ApiStatus\$Experimental")
\ No newline at end of file
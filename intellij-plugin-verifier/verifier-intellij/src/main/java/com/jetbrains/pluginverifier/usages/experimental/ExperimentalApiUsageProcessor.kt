@@ -26,7 +26,7 @@ class ExperimentalApiUsageProcessor(private val experimentalApiRegistrar: Experi
     resolvedMember: ClassFileMember,
     context: VerificationContext,
     usageLocation: Location
-  ) = resolvedMember.isExperimentalApi(context.classResolver, usageLocation)
+  ) = resolvedMember.isExperimentalApi(context, usageLocation)
 
   override fun doProcessClassReference(
     classReference: ClassReference,
@@ -10,7 +10,7 @@ import com.jetbrains.pluginverifier.verifiers.resolution.Method
 
 class ExperimentalMethodOverridingProcessor(private val experimentalApiRegistrar: ExperimentalApiRegistrar) : MethodOverridingProcessor {
   override fun processMethodOverriding(method: Method, overriddenMethod: Method, context: VerificationContext) {
-    if (overriddenMethod.isExperimentalApi(context.classResolver, usageLocation = method.location)) {
+    if (overriddenMethod.isExperimentalApi(context, usageLocation = method.location)) {
       experimentalApiRegistrar.registerExperimentalApiUsage(
         ExperimentalMethodOverridden(
           overriddenMethod.location,
@@ -9,6 +9,7 @@ import com.jetbrains.pluginverifier.results.location.Location
 import com.jetbrains.pluginverifier.usages.ApiUsage
 import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolver
 import com.jetbrains.pluginverifier.usages.annotation.isMemberEffectivelyAnnotatedWith
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 
 /**
@@ -20,6 +21,10 @@ fun ClassFileMember.isInternalApi(resolver: Resolver, location: Location): Boole
   isMemberEffectivelyAnnotatedWith(internalApiStatusResolver, resolver, location) ||
     isMemberEffectivelyAnnotatedWith(intellijInternalApiResolver, resolver, location)
 
+fun ClassFileMember.isInternalApi(context: VerificationContext, location: Location): Boolean =
+  isMemberEffectivelyAnnotatedWith(internalApiStatusResolver, context, location) ||
+    isMemberEffectivelyAnnotatedWith(intellijInternalApiResolver, context, location)
+
 
 private val internalApiStatusResolver = AnnotationResolver("org/jetbrains/annotations/ApiStatus\$Internal")
 private val intellijInternalApiResolver = AnnotationResolver("com/intellij/openapi/util/IntellijInternalApi")
@@ -6,5 +6,6 @@ package com.jetbrains.pluginverifier.usages.javaPlugin
 
 import com.jetbrains.pluginverifier.results.location.ClassLocation
 import com.jetbrains.pluginverifier.results.location.Location
+import java.io.Serializable
 
-data class JavaPluginClassUsage(val usedClass: ClassLocation, val usageLocation: Location)
\ No newline at end of file
+data class JavaPluginClassUsage(val usedClass: ClassLocation, val usageLocation: Location) : Serializable
\ No newline at end of file
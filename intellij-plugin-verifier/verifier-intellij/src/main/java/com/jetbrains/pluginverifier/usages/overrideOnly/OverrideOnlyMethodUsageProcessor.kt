@@ -82,12 +82,12 @@ class OverrideOnlyMethodUsageProcessor(private val overrideOnlyRegistrar: Overri
       || isAnnotationPresent(overrideOnlyAnnotationName, context)
 
   private fun Method.isAnnotationPresent(annotationFqn: String, verificationContext: VerificationContext): Boolean {
-    if (isMemberEffectivelyAnnotatedWith(overrideOnlyAnnotationResolver, verificationContext.classResolver)) {
+    if (isMemberEffectivelyAnnotatedWith(overrideOnlyAnnotationResolver, verificationContext, location = null)) {
       return true
     }
 
     val overriddenMethod = searchParentOverrides(verificationContext.classResolver).firstOrNull { (overriddenMethod, _) ->
-       overriddenMethod.isMemberEffectivelyAnnotatedWith(overrideOnlyAnnotationResolver, verificationContext.classResolver)
+       overriddenMethod.isMemberEffectivelyAnnotatedWith(overrideOnlyAnnotationResolver, verificationContext, location = null)
     }
     return if (overriddenMethod == null) {
       LOG.atTrace().log("No overridden method for $name is annotated by [$annotationFqn]")
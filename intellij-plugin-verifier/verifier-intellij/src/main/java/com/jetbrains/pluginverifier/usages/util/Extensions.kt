@@ -2,6 +2,7 @@ package com.jetbrains.pluginverifier.usages.util
 
 import com.jetbrains.plugin.structure.classes.resolvers.findOriginOfType
 import com.jetbrains.plugin.structure.intellij.classes.locator.PluginFileOrigin
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolutionCache
 import com.jetbrains.pluginverifier.verifiers.PluginVerificationContext
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
@@ -9,4 +10,10 @@ import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileMember
 fun VerificationContext.isFromVerifiedPlugin(fileMember: ClassFileMember): Boolean {
   val pluginFileOrigin = fileMember.containingClassFile.classFileOrigin.findOriginOfType<PluginFileOrigin>()
   return this is PluginVerificationContext && idePlugin == pluginFileOrigin?.idePlugin
-}
\ No newline at end of file
+}
+
+/**
+ * Annotation resolutions shared with other verifications against the same IDE, or `null` if resolutions are not shared.
+ */
+val VerificationContext.annotationResolutionCache: AnnotationResolutionCache.Session?
+  get() = (this as? PluginVerificationContext)?.annotationResolutionCache
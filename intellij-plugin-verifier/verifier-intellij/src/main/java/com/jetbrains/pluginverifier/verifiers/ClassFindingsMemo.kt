@@ -0,0 +1,459 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.verifiers
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.jetbrains.plugin.structure.base.utils.rethrowIfInterrupted
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.JdkFileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.findOriginOfType
+import com.jetbrains.plugin.structure.classes.resolvers.isOriginOfType
+import com.jetbrains.plugin.structure.ide.classes.IdeFileOrigin
+import com.jetbrains.plugin.structure.intellij.classes.locator.PluginFileOrigin
+import com.jetbrains.pluginverifier.symbols.ClassContentHashes
+import com.jetbrains.pluginverifier.verifiers.hierarchy.HierarchyIndexedResolver
+import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFile
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileAsm
+import org.objectweb.asm.tree.ClassNode
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.InputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.io.OutputStream
+import java.io.Serializable
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Findings of plugin classes shared by all verifications against the same platform, that is the IDE and the JDK.
+ *
+ * Findings of a class are memoized by the SHA-256 of its bytecode and the scope of the verification:
+ * the fingerprint of the resolved dependencies of the plugin, except the plugin itself, and the external classes filter.
+ * So, a class bundled by several plugins, or a class that has not changed in a new version of a plugin,
+ * is verified once.
+ *
+ * A verification resolves classes of the checked plugin first, then platform classes, then classes of the dependencies.
+ * Platform classes and classes of the same dependencies are the same for all verifications against the platform,
+ * so only the looked up classes of the checked plugin are validated: the memoized findings are reused only if
+ * the plugin classes looked up while the class was verified have the same bytecode, and the other looked up classes
+ * are still not provided by the plugin. Verifications of plugins that bundle their own copies of platform classes
+ * don't use the memo. Classes that look up resource bundles or enumerate classes of the verification are not memoized.
+ *
+ * Findings refer to origins of the classes of the verification that has found them,
+ * so they are stored in the serialized form, where origins are replaced with the names of classes
+ * they have been resolved for. Origins are resolved anew when the findings are registered by another verification.
+ */
+class ClassFindingsMemo(maximumWeight: Long = DEFAULT_MAXIMUM_WEIGHT) {
+
+  private val entries: Cache<Key, Entry> = Caffeine.newBuilder()
+    .maximumWeight(maximumWeight)
+    .weigher<Key, Entry> { _, entry -> entry.weight }
+    .build()
+
+  private val hits = LongAdder()
+
+  private val misses = LongAdder()
+
+  private val notMemoizable = LongAdder()
+
+  val statistics: Statistics
+    get() = Statistics(hits.sum(), misses.sum(), notMemoizable.sum(), entries.estimatedSize())
+
+  internal fun createSession(context: PluginVerificationContext) = Session(context)
+
+  /**
+   * Memoizes findings of classes of the verification [context].
+   *
+   * Classes of the context are to be resolved via the [classResolver],
+   * and findings are to be reported via [recordFinding], so that they are memoized.
+   */
+  internal inner class Session(private val context: PluginVerificationContext) : ClassVerificationMemo {
+
+    private val sessionHits = LongAdder()
+
+    private val sessionMisses = LongAdder()
+
+    private val sessionNotMemoizable = LongAdder()
+
+    /**
+     * Hits and misses of this session only.
+     */
+    val statistics: Statistics
+      get() = Statistics(sessionHits.sum(), sessionMisses.sum(), sessionNotMemoizable.sum(), entries.estimatedSize())
+
+    private val isApplicable = (context.allResolver as? HierarchyIndexedResolver)?.shadowsPlatformClasses == false
+
+    private val scope = Scope(
+      context.externalClassesPackageFilter,
+      context.dependenciesGraph.let { graph ->
+        val dependencies = graph.vertices.filter { it != graph.verifiedPlugin }.map { it.toString() }.sorted()
+        val missingDependencies = graph.missingDependencies
+          .flatMap { (node, missing) -> missing.map { "${if (node == graph.verifiedPlugin) "" else node} -> $it" } }
+          .sorted()
+        sha256((dependencies + missingDependencies).joinToString("\n"))
+      },
+      context.idePlugin.vendor
+    )
+
+    private val recordings = ThreadLocal<Recording>()
+
+    private val recordingResolver = RecordingResolver(context.allResolver)
+
+    val classResolver: Resolver = (context.allResolver as? HierarchyIndexedResolver)?.withDelegate(recordingResolver)
+      ?: recordingResolver
+
+    override fun verify(classFile: ClassFile, verifyClass: () -> Unit) {
+      val key = if (isApplicable) (classFile as? ClassFileAsm)?.asmNode?.let { getKey(it) } else null
+      if (key == null) {
+        verifyClass()
+        return
+      }
+      val entry = entries.getIfPresent(key)
+      if (entry != null && entry.replay(classFile)) {
+        sessionHits.increment()
+        hits.increment()
+        return
+      }
+      sessionMisses.increment()
+      misses.increment()
+
+      val recording = Recording(classFile)
+      recordings.set(recording)
+      try {
+        verifyClass()
+      } finally {
+        recordings.remove()
+      }
+      val newEntry = recording.toEntry()
+      if (newEntry != null) {
+        entries.put(key, newEntry)
+      } else {
+        sessionNotMemoizable.increment()
+        notMemoizable.increment()
+      }
+    }
+
+    fun recordFinding(finding: Serializable) {
+      recordings.get()?.findings?.add(finding)
+    }
+
+    private fun getKey(classNode: ClassNode): Key? =
+      try {
+        Key(classNode.contentHash(), scope)
+      } catch (e: Exception) {
+        e.rethrowIfInterrupted()
+        LOG.debug("Unable to compute the content hash of ${classNode.name}", e)
+        null
+      }
+
+    private fun Entry.replay(classFile: ClassFile): Boolean {
+      if (isVerifiedClassFromPlugin != classFile.isFromVerifiedPlugin()) {
+        return false
+      }
+      if (containedClasses.any { (className, contained) -> context.pluginResolver.containsClass(className) != contained }) {
+        return false
+      }
+      if (containedPackages.any { (packageName, contained) -> context.pluginResolver.containsPackage(packageName) != contained }) {
+        return false
+      }
+      if (resolvedClasses.any { (className, state) -> !state.isValid(className) }) {
+        return false
+      }
+      if (serializedFindings != null) {
+        val findings = try {
+          FindingsInputStream(ByteArrayInputStream(serializedFindings), classFile.classFileOrigin, ::resolveOrigin, retainedOrigins).use {
+            @Suppress("UNCHECKED_CAST")
+            it.readObject() as List<Serializable>
+          }
+        } catch (e: Exception) {
+          e.rethrowIfInterrupted()
+          LOG.debug("Unable to read memoized findings of ${classFile.name}", e)
+          return false
+        }
+        findings.forEach { context.registerFinding(it) }
+      }
+      return true
+    }
+
+    private fun ResolutionResult<ClassNode>.toState(className: String): ClassState =
+      when {
+        !context.pluginResolver.containsClass(className) -> ClassState.NotInPlugin
+        this is ResolutionResult.Found -> ClassState.PluginClass(value.contentHash())
+        else -> ClassState.UnresolvedPluginClass(this)
+      }
+
+    private fun ClassState.isValid(className: String): Boolean =
+      when (this) {
+        ClassState.NotInPlugin -> !context.pluginResolver.containsClass(className)
+        is ClassState.PluginClass -> {
+          val result = context.allResolver.resolveClass(className)
+          context.pluginResolver.containsClass(className) && result is ResolutionResult.Found && result.value.contentHash() == classHash
+        }
+        is ClassState.UnresolvedPluginClass -> context.pluginResolver.containsClass(className) && context.allResolver.resolveClass(className) == result
+      }
+
+    /**
+     * Resolves origin of the looked up class referred to by memoized findings.
+     */
+    private fun resolveOrigin(className: String): FileOrigin {
+      val result = context.allResolver.resolveClass(className)
+      check(result is ResolutionResult.Found) { "Class $className referred to by memoized findings is not found" }
+      return result.fileOrigin
+    }
+
+    private fun ClassFile.isFromVerifiedPlugin() =
+      classFileOrigin.findOriginOfType<PluginFileOrigin>()?.idePlugin == context.idePlugin
+
+    /**
+     * Classes looked up and findings registered while a class is verified.
+     */
+    private inner class Recording(val verifiedClass: ClassFile) {
+      val resolvedClasses = linkedMapOf<String, ResolutionResult<ClassNode>>()
+
+      val containedClasses = linkedMapOf<String, Boolean>()
+
+      val containedPackages = linkedMapOf<String, Boolean>()
+
+      val findings = arrayListOf<Serializable>()
+
+      var isMemoizable = true
+
+      fun toEntry(): Entry? {
+        if (!isMemoizable) {
+          return null
+        }
+        return try {
+          val origins = hashMapOf<FileOrigin, String>()
+          val resolvedClassStates = resolvedClasses.mapValues { (className, result) ->
+            if (result is ResolutionResult.Found) {
+              origins.putIfAbsent(result.fileOrigin, className)
+            }
+            result.toState(className)
+          }
+          val retainedOrigins = arrayListOf<FileOrigin>()
+          val serializedFindings = if (findings.isEmpty()) null else {
+            val bytes = ByteArrayOutputStream()
+            FindingsOutputStream(bytes, verifiedClass.classFileOrigin, origins, retainedOrigins).use {
+              it.writeObject(findings)
+            }
+            bytes.toByteArray()
+          }
+          Entry(
+            verifiedClass.isFromVerifiedPlugin(),
+            resolvedClassStates,
+            containedClasses.toMap(),
+            containedPackages.toMap(),
+            serializedFindings,
+            retainedOrigins
+          )
+        } catch (e: Exception) {
+          e.rethrowIfInterrupted()
+          LOG.debug("Unable to memoize findings of ${verifiedClass.name}", e)
+          null
+        }
+      }
+    }
+
+    /**
+     * Records classes looked up by the class being verified in the current thread, if any.
+     */
+    private inner class RecordingResolver(private val delegate: Resolver) : Resolver() {
+
+      private val recording: Recording?
+        get() = recordings.get()
+
+      override val readMode
+        get() = delegate.readMode
+
+      override val allClasses
+        get() = delegate.allClasses.also { recording?.isMemoizable = false }
+
+      override val allPackages
+        get() = delegate.allPackages.also { recording?.isMemoizable = false }
+
+      override val allBundleNameSet
+        get() = delegate.allBundleNameSet.also { recording?.isMemoizable = false }
+
+      override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+        val result = delegate.resolveClass(className)
+        recording?.resolvedClasses?.putIfAbsent(className, result)
+        return result
+      }
+
+      override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale): ResolutionResult<PropertyResourceBundle> {
+        recording?.isMemoizable = false
+        return delegate.resolveExactPropertyResourceBundle(baseName, locale)
+      }
+
+      override fun containsClass(className: String): Boolean {
+        recording?.containedClasses?.computeIfAbsent(className) { context.pluginResolver.containsClass(it) }
+        return delegate.containsClass(className)
+      }
+
+      override fun containsPackage(packageName: String): Boolean {
+        recording?.containedPackages?.computeIfAbsent(packageName) { context.pluginResolver.containsPackage(it) }
+        return delegate.containsPackage(packageName)
+      }
+
+      override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean): Boolean {
+        recording?.isMemoizable = false
+        return delegate.processAllClasses(processor)
+      }
+
+      override fun close() = Unit
+
+      override fun toString() = delegate.toString()
+    }
+  }
+
+  private fun ClassNode.contentHash(): String = ClassContentHashes.getHash(this)
+
+  private fun sha256(text: String): String =
+    MessageDigest.getInstance("SHA-256").digest(text.toByteArray()).joinToString(separator = "") { "%02x".format(it) }
+
+  private data class Key(val classHash: String, val scope: Scope)
+
+  /**
+   * Properties of a verification, other than the looked up plugin classes, that findings of a class depend on.
+   */
+  private data class Scope(
+    val externalClassesPackageFilter: PackageFilter,
+    /**
+     * SHA-256 of the resolved and missing dependencies of the plugin.
+     */
+    val dependenciesFingerprint: String,
+    val pluginVendor: String?
+  )
+
+  /**
+   * How a looked up class has been resolved by the verification.
+   */
+  private sealed class ClassState {
+    /**
+     * The class is not provided by the checked plugin, so it is a platform class,
+     * a class of a dependency, or a missing class.
+     */
+    object NotInPlugin : ClassState()
+
+    data class PluginClass(val classHash: String) : ClassState()
+
+    data class UnresolvedPluginClass(val result: ResolutionResult<ClassNode>) : ClassState()
+  }
+
+  private class Entry(
+    val isVerifiedClassFromPlugin: Boolean,
+    val resolvedClasses: Map<String, ClassState>,
+    val containedClasses: Map<String, Boolean>,
+    val containedPackages: Map<String, Boolean>,
+    /**
+     * Serialized list of findings, or `null` if there are no findings.
+     */
+    val serializedFindings: ByteArray?,
+    /**
+     * Origins of platform classes referred to by the findings but not looked up by the class.
+     */
+    val retainedOrigins: List<FileOrigin>
+  ) {
+    val weight: Int
+      get() = (serializedFindings?.size ?: 0) + ENTRY_OVERHEAD * (1 + resolvedClasses.size + containedClasses.size + containedPackages.size)
+  }
+
+  private object VerifiedClassOrigin : Serializable {
+    private const val serialVersionUID = 1L
+  }
+
+  private data class ResolvedClassOrigin(val className: String) : Serializable {
+    companion object {
+      private const val serialVersionUID = 1L
+    }
+  }
+
+  private data class RetainedOrigin(val index: Int) : Serializable {
+    companion object {
+      private const val serialVersionUID = 1L
+    }
+  }
+
+  /**
+   * Replaces origins of classes with references to the verified class, to the looked up classes,
+   * or to the [retainedOrigins] if they are origins of platform classes.
+   */
+  private class FindingsOutputStream(
+    output: OutputStream,
+    private val verifiedClassOrigin: FileOrigin,
+    private val resolvedClassNames: Map<FileOrigin, String>,
+    private val retainedOrigins: MutableList<FileOrigin>
+  ) : ObjectOutputStream(output) {
+    init {
+      enableReplaceObject(true)
+    }
+
+    override fun replaceObject(obj: Any?): Any? {
+      if (obj !is FileOrigin) {
+        return obj
+      }
+      if (obj == verifiedClassOrigin) {
+        return VerifiedClassOrigin
+      }
+      val className = resolvedClassNames[obj]
+      if (className != null) {
+        return ResolvedClassOrigin(className)
+      }
+      check(obj.isOriginOfType<IdeFileOrigin>() || obj.isOriginOfType<JdkFileOrigin>()) { "Unknown origin of a class: $obj" }
+      retainedOrigins += obj
+      return RetainedOrigin(retainedOrigins.size - 1)
+    }
+  }
+
+  private class FindingsInputStream(
+    input: InputStream,
+    private val verifiedClassOrigin: FileOrigin,
+    private val resolveOrigin: (String) -> FileOrigin,
+    private val retainedOrigins: List<FileOrigin>
+  ) : ObjectInputStream(input) {
+
+    private val resolvedOrigins = hashMapOf<String, FileOrigin>()
+
+    init {
+      enableResolveObject(true)
+    }
+
+    override fun resolveObject(obj: Any?): Any? = when (obj) {
+      is VerifiedClassOrigin -> verifiedClassOrigin
+      is ResolvedClassOrigin -> resolvedOrigins.getOrPut(obj.className) { resolveOrigin(obj.className) }
+      is RetainedOrigin -> retainedOrigins[obj.index]
+      else -> obj
+    }
+  }
+
+  data class Statistics(
+    val hitCount: Long,
+    val missCount: Long,
+    val notMemoizableCount: Long,
+    val memoizedClassesCount: Long
+  ) {
+    override fun toString() =
+      "hits: $hitCount, misses: $missCount, not memoizable: $notMemoizableCount, memoized classes: $memoizedClassesCount"
+  }
+
+  private companion object {
+    private val LOG: Logger = LoggerFactory.getLogger(ClassFindingsMemo::class.java)
+
+    private val DEFAULT_MAXIMUM_WEIGHT = Runtime.getRuntime().maxMemory() / 32
+
+    /**
+     * Estimated memory footprint of an entry and of each looked up class, in bytes.
+     */
+    private const val ENTRY_OVERHEAD = 64
+  }
+}
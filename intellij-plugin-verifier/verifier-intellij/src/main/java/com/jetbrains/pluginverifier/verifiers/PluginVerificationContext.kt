@@ -14,6 +14,7 @@ import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
 import com.jetbrains.pluginverifier.telemetry.TelemetryRegistrar
 import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolutionCache
 import com.jetbrains.pluginverifier.usages.deprecated.DeprecatedApiRegistrar
 import com.jetbrains.pluginverifier.usages.deprecated.DeprecatedApiUsage
 import com.jetbrains.pluginverifier.usages.deprecated.DeprecatedApiUsageProcessor
@@ -35,18 +36,30 @@ import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyMethodUsage
 import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyMethodUsageProcessor
 import com.jetbrains.pluginverifier.usages.overrideOnly.OverrideOnlyRegistrar
 import com.jetbrains.pluginverifier.usages.properties.PropertyUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.hierarchy.HierarchyIndexedResolver
 import com.jetbrains.pluginverifier.verifiers.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
 import com.jetbrains.pluginverifier.warnings.PluginStructureWarning
 import com.jetbrains.pluginverifier.warnings.WarningRegistrar
-
+import java.io.Serializable
+
+/**
+ * Collects findings of a plugin verification.
+ *
+ * Registration methods are synchronized, so classes of the plugin may be verified concurrently.
+ *
+ * If the [classFindingsMemo] is specified, classes are resolved via a resolver that records the looked up classes,
+ * and the registered findings are memoized along with them.
+ */
 data class PluginVerificationContext(
   val idePlugin: IdePlugin,
   val verificationDescriptor: PluginVerificationDescriptor,
   val pluginResolver: Resolver,
   val allResolver: Resolver,
   override val externalClassesPackageFilter: PackageFilter,
-  val dependenciesGraph: DependenciesGraph
+  val dependenciesGraph: DependenciesGraph,
+  val classFindingsMemo: ClassFindingsMemo? = null
 ) : VerificationContext,
   ProblemRegistrar,
   WarningRegistrar,
@@ -58,8 +71,16 @@ data class PluginVerificationContext(
   JavaPluginApiUsageRegistrar,
   TelemetryRegistrar {
 
+  private val classFindingsMemoSession: ClassFindingsMemo.Session? = classFindingsMemo?.createSession(this)
+
+  override val classVerificationMemo: ClassVerificationMemo?
+    get() = classFindingsMemoSession
+
+  val classFindingsMemoStatistics: ClassFindingsMemo.Statistics?
+    get() = classFindingsMemoSession?.statistics
+
   override val classResolver
-    get() = allResolver
+    get() = classFindingsMemoSession?.classResolver ?: allResolver
 
   override val apiUsageProcessors: List<ApiUsageProcessor> =
     listOf(
@@ -73,6 +94,19 @@ data class PluginVerificationContext(
       PropertyUsageProcessor()
     )
 
+  /**
+   * Whether the checked plugin bundles its own copies of platform classes,
+   * so that resolutions shared by verifications against the IDE don't apply to this verification.
+   */
+  private val shadowsPlatformClasses: Boolean
+    get() = (allResolver as? HierarchyIndexedResolver)?.shadowsPlatformClasses ?: true
+
+  override val memberResolutionCache: MemberResolutionCache.Session? =
+    (verificationDescriptor as? PluginVerificationDescriptor.IDE)?.memberResolutionCache?.createSession(shadowsPlatformClasses)
+
+  val annotationResolutionCache: AnnotationResolutionCache.Session? =
+    (verificationDescriptor as? PluginVerificationDescriptor.IDE)?.annotationResolutionCache?.createSession(shadowsPlatformClasses)
+
   private val compatibilityIssueAnalyzers = hashSetOf<CompatibilityIssueAnalyzer<*>>(JavaPluginApiCompatibilityIssueAnalyzer())
 
   val compatibilityProblems = hashSetOf<CompatibilityProblem>()
@@ -94,43 +128,78 @@ data class PluginVerificationContext(
     get() = this
 
 
+  @Synchronized
   override fun registerProblem(problem: CompatibilityProblem) {
+    classFindingsMemoSession?.recordFinding(problem)
     compatibilityProblems += problem
   }
 
+  @Synchronized
   override fun registerDeprecatedUsage(deprecatedApiUsage: DeprecatedApiUsage) {
+    classFindingsMemoSession?.recordFinding(deprecatedApiUsage)
     deprecatedUsages += deprecatedApiUsage
   }
 
+  @Synchronized
   override fun registerExperimentalApiUsage(experimentalApiUsage: ExperimentalApiUsage) {
+    classFindingsMemoSession?.recordFinding(experimentalApiUsage)
     experimentalApiUsages += experimentalApiUsage
   }
 
+  @Synchronized
   override fun registerInternalApiUsage(internalApiUsage: InternalApiUsage) {
+    classFindingsMemoSession?.recordFinding(internalApiUsage)
     internalApiUsages += internalApiUsage
   }
 
+  @Synchronized
   override fun registerNonExtendableApiUsage(nonExtendableApiUsage: NonExtendableApiUsage) {
+    classFindingsMemoSession?.recordFinding(nonExtendableApiUsage)
     nonExtendableApiUsages += nonExtendableApiUsage
   }
 
+  @Synchronized
   override fun registerOverrideOnlyMethodUsage(overrideOnlyMethodUsage: OverrideOnlyMethodUsage) {
+    classFindingsMemoSession?.recordFinding(overrideOnlyMethodUsage)
     overrideOnlyMethodUsages += overrideOnlyMethodUsage
   }
 
+  @Synchronized
   override fun registerJavaPluginClassUsage(javaPluginClassUsage: JavaPluginClassUsage) {
+    classFindingsMemoSession?.recordFinding(javaPluginClassUsage)
     compatibilityIssueAnalyzers.filterIsInstance<JavaPluginApiCompatibilityIssueAnalyzer>()
             .map { it.analyze(this, javaPluginClassUsage) }
   }
 
+  @Synchronized
   override fun registerCompatibilityWarning(warning: CompatibilityWarning) {
+    classFindingsMemoSession?.recordFinding(warning)
     compatibilityWarnings += warning
   }
 
+  @Synchronized
   override fun reportTelemetry(pluginInfo: PluginInfo, telemetry: PluginTelemetry) {
     _telemetry.merge(telemetry)
   }
 
+  /**
+   * Registers the [finding] memoized by the [classFindingsMemo] as if it had been found by this verification.
+   */
+  internal fun registerFinding(finding: Serializable) {
+    when (finding) {
+      is CompatibilityProblem -> registerProblem(finding)
+      is CompatibilityWarning -> registerCompatibilityWarning(finding)
+      is DeprecatedApiUsage -> registerDeprecatedUsage(finding)
+      is ExperimentalApiUsage -> registerExperimentalApiUsage(finding)
+      is InternalApiUsage -> registerInternalApiUsage(finding)
+      is NonExtendableApiUsage -> registerNonExtendableApiUsage(finding)
+      is OverrideOnlyMethodUsage -> registerOverrideOnlyMethodUsage(finding)
+      is JavaPluginClassUsage -> registerJavaPluginClassUsage(finding)
+      else -> throw IllegalArgumentException("Unknown finding: $finding")
+    }
+  }
+
+  @Synchronized
   fun registerPluginStructureWarning(warning: PluginStructureWarning) {
     pluginStructureWarnings += warning
   }
@@ -6,6 +6,14 @@ package com.jetbrains.pluginverifier.misc
 
 import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
 import com.jetbrains.pluginverifier.repository.cleanup.bytesToSpaceAmount
+import com.sun.management.GarbageCollectionNotificationInfo
+import com.sun.management.GcInfo
+import java.io.Closeable
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import javax.management.NotificationEmitter
+import javax.management.NotificationListener
+import javax.management.openmbean.CompositeData
 
 /**
  * Memory info aggregates information on the memory used.
@@ -26,6 +34,53 @@ data class MemoryInfo(
         maxMemory().bytesToSpaceAmount()
       )
     }
+
+    /**
+     * Registers the [listener] of garbage collections of the old generation, that is of full and mixed collections,
+     * which receives the number of bytes of the heap used right after a collection, as reported by the collection itself.
+     * Young collections are skipped: the heap used after them includes garbage of the old generation,
+     * which would make the heap look fuller than it is.
+     *
+     * A collection is considered to be of the old generation if it is reported as a major one
+     * or if it has reduced the usage of the old generation pools, which is how mixed collections of G1 show up.
+     * Collectors that don't split the heap into generations have every collection considered.
+     * The listener is unregistered when the returned [Closeable] is closed.
+     */
+    fun addGarbageCollectionListener(listener: (Long) -> Unit): Closeable {
+      val heapPools = ManagementFactory.getMemoryPoolMXBeans().filter { it.type == MemoryType.HEAP }.map { it.name }.toSet()
+      val oldGenerationPools = heapPools.filter { it.isOldGenerationPool() }.toSet()
+      val notificationListener = NotificationListener { notification, _ ->
+        if (notification.type == GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION) {
+          val notificationInfo = GarbageCollectionNotificationInfo.from(notification.userData as CompositeData)
+          val gcInfo = notificationInfo.gcInfo
+          val collectedOldGeneration = oldGenerationPools.isEmpty()
+            || notificationInfo.gcAction == MAJOR_GC_ACTION
+            || oldGenerationPools.any { gcInfo.hasReducedUsage(it) }
+          if (collectedOldGeneration) {
+            val usedHeapAfterGc = gcInfo.memoryUsageAfterGc
+              .filterKeys { it in heapPools }
+              .values
+              .sumOf { it.used }
+            listener(usedHeapAfterGc)
+          }
+        }
+      }
+      val emitters = ManagementFactory.getGarbageCollectorMXBeans().filterIsInstance<NotificationEmitter>()
+      emitters.forEach { it.addNotificationListener(notificationListener, null, null) }
+      return Closeable {
+        emitters.forEach { it.removeNotificationListener(notificationListener) }
+      }
+    }
+
+    private const val MAJOR_GC_ACTION = "end of major GC"
+
+    private fun GcInfo.hasReducedUsage(pool: String): Boolean {
+      val usedAfterGc = memoryUsageAfterGc[pool]?.used ?: return false
+      val usedBeforeGc = memoryUsageBeforeGc[pool]?.used ?: return false
+      return usedAfterGc < usedBeforeGc
+    }
+
+    private fun String.isOldGenerationPool() = contains("Old Gen") || contains("Tenured Gen")
   }
 
   override fun toString() = "Total memory: " + totalMemory + "; " +
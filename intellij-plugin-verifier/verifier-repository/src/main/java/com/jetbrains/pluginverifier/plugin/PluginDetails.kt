@@ -11,6 +11,7 @@ import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.repository.files.FileLock
 import java.io.Closeable
+import java.nio.file.Path
 
 /**
  * Holder of plugin's resources necessary for verification.
@@ -46,6 +47,12 @@ class PluginDetails(
 
 ) : Closeable {
 
+  /**
+   * File of the verified plugin, or `null` if it is unknown.
+   */
+  val pluginFile: Path?
+    get() = pluginFileLock?.file ?: idePlugin.originalFile
+
   override fun close() {
     pluginClassesLocations.closeLogged()
     pluginFileLock.closeLogged()
@@ -2,6 +2,7 @@ package com.jetbrains.pluginverifier.plugin
 
 import com.jetbrains.plugin.structure.base.problems.PluginProblem
 import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.cache.CacheHitStatistics
 import com.jetbrains.pluginverifier.repository.cache.ResourceCacheEntry
 import com.jetbrains.pluginverifier.repository.cleanup.SizeWeight
 import java.io.Closeable
@@ -19,6 +20,18 @@ interface PluginDetailsCache : Closeable {
    */
   fun getPluginDetailsCacheEntry(pluginInfo: PluginInfo): Result
 
+  /**
+   * Hits and misses of [getPluginDetailsCacheEntry] requests, or `null` if they are not counted by this cache.
+   */
+  val hitStatistics: CacheHitStatistics?
+    get() = null
+
+  /**
+   * Number of plugins whose details are kept by this cache, or `null` if the number is not limited.
+   */
+  val maximumSize: Int?
+    get() = null
+
   /**
    * Represents possible results of the [getPluginDetailsCacheEntry].
    * It **must be** closed after usage.
@@ -5,6 +5,7 @@
 package com.jetbrains.pluginverifier.plugin
 
 import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.cache.CacheHitStatistics
 import com.jetbrains.pluginverifier.repository.cache.ResourceCacheEntry
 import com.jetbrains.pluginverifier.repository.cache.ResourceCacheEntryResult
 import com.jetbrains.pluginverifier.repository.cache.createSizeLimitedResourceCache
@@ -22,7 +23,7 @@ import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInf
  * The cache must be [closed] [close] on the application shutdown to free all the details.
  */
 class SizeLimitedPluginDetailsCache(
-  cacheSize: Int,
+  private val cacheSize: Int,
   val pluginFileProvider: PluginFileProvider,
   val pluginDetailsProvider: PluginDetailsProvider
 ) : PluginDetailsCache {
@@ -60,6 +61,12 @@ class SizeLimitedPluginDetailsCache(
     }
   }
 
+  override val maximumSize: Int
+    get() = cacheSize
+
+  override val hitStatistics: CacheHitStatistics
+    get() = internalCache.hitStatistics
+
   override fun close() = internalCache.close()
 
 }
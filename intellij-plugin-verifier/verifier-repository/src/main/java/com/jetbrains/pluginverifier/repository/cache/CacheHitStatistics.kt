@@ -0,0 +1,20 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o. and other contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+ */
+
+package com.jetbrains.pluginverifier.repository.cache
+
+/**
+ * Numbers of requests to a cache that have been served by an already available resource, [hits],
+ * and that have required providing the resource, [misses].
+ * Requests waiting for a resource being provided by another request are counted as hits.
+ */
+data class CacheHitStatistics(val hits: Long, val misses: Long) {
+
+  val hitRate: Double
+    get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+
+  operator fun minus(other: CacheHitStatistics) = CacheHitStatistics(hits - other.hits, misses - other.misses)
+
+  override fun toString() = String.format("%.1f%% (%d hits, %d misses)", hitRate * 100, hits, misses)
+}
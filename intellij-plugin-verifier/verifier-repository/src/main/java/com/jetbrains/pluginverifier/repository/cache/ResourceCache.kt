@@ -169,6 +169,12 @@ class ResourceCache<R, in K, W : ResourceWeight<W>>(
     }
   }
 
+  /**
+   * Hits and misses of [getResourceCacheEntry] requests since this cache has been created.
+   */
+  val hitStatistics: CacheHitStatistics
+    get() = resourceRepository.getHitStatistics()
+
   /**
    * Explicitly remove the resource from this cache and invoke the associated disposer.
    */
@@ -7,6 +7,7 @@ package com.jetbrains.pluginverifier.repository.resources
 import com.jetbrains.plugin.structure.base.utils.checkIfInterrupted
 import com.jetbrains.plugin.structure.base.utils.closeOnException
 import com.jetbrains.plugin.structure.base.utils.pluralize
+import com.jetbrains.pluginverifier.repository.cache.CacheHitStatistics
 import com.jetbrains.pluginverifier.repository.cleanup.UsageStatistic
 import com.jetbrains.pluginverifier.repository.provider.ProvideResult
 import com.jetbrains.pluginverifier.repository.provider.ResourceProvider
@@ -48,6 +49,10 @@ class ResourceRepositoryImpl<R, K, W : ResourceWeight<W>>(
 
   private val statistics = hashMapOf<K, UsageStatistic>()
 
+  private var hits = 0L
+
+  private var misses = 0L
+
   @Synchronized
   override fun add(key: K, resource: R) =
     try {
@@ -168,6 +173,7 @@ class ResourceRepositoryImpl<R, K, W : ResourceWeight<W>>(
     checkIfInterrupted()
     val (fetchTask, runInCurrentThread) = synchronized(this) {
       if (resourcesRegistrar.has(key)) {
+        hits++
         val lock = registerLock(key)
         logger.debugMaybe { "get($key): the resource is available and a lock is registered $lock" }
         return ResourceRepositoryResult.Found(lock)
@@ -176,9 +182,11 @@ class ResourceRepositoryImpl<R, K, W : ResourceWeight<W>>(
       val oldTask = additionTasks[key]
       additionWaitingThreads.compute(key) { _, v -> (v ?: 0) + 1 }
       if (oldTask != null) {
+        hits++
         logger.debugMaybe { "get($key): waiting for another thread to finish fetching the resource" }
         oldTask to false
       } else {
+        misses++
         logger.debugMaybe { "get($key): fetching the resource in the current thread" }
         val newTask = FutureTask {
           fetchAndAddResource(key)
@@ -232,6 +240,9 @@ class ResourceRepositoryImpl<R, K, W : ResourceWeight<W>>(
     is ProvideResult.Failed<R> -> ResourceRepositoryResult.Failed(reason, error)
   }
 
+  @Synchronized
+  fun getHitStatistics() = CacheHitStatistics(hits, misses)
+
   @Synchronized
   override fun getAvailableResources() =
     resourcesRegistrar.resources.map { (key, resourceInfo) ->
@@ -0,0 +1,26 @@
+package com.jetbrains.pluginverifier.misc
+
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+class MemoryInfoTest {
+
+  @Test
+  fun `garbage collection listener receives heap used after collection`() {
+    val liveData = ByteArray(LIVE_DATA_SIZE)
+    val usedHeapValues = LinkedBlockingQueue<Long>()
+    MemoryInfo.addGarbageCollectionListener { usedHeapValues += it }.use {
+      System.gc()
+      val usedHeap = usedHeapValues.poll(10, TimeUnit.SECONDS)
+      assertTrue("No garbage collection notification received", usedHeap != null)
+      assertTrue("$usedHeap bytes are used after collection", usedHeap!! >= liveData.size)
+      assertTrue("$usedHeap bytes are used after collection", usedHeap <= Runtime.getRuntime().maxMemory())
+    }
+  }
+
+  private companion object {
+    const val LIVE_DATA_SIZE = 16 * 1024 * 1024
+  }
+}
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.resources
 
+import com.jetbrains.pluginverifier.repository.cache.CacheHitStatistics
 import com.jetbrains.pluginverifier.repository.cleanup.SizeEvictionPolicy
 import com.jetbrains.pluginverifier.repository.cleanup.SizeWeight
 import com.jetbrains.pluginverifier.repository.provider.ProvideResult
@@ -51,6 +52,18 @@ class ResourceRepositoryImplTest {
     assertEquals(setOf(1, 2, 3, 4, 5), releasedResources)
   }
 
+  @Test
+  fun `requests of available resources are counted as hits and requests of evicted resources as misses`() {
+    val repo = createSizedResourceRepository(2) { Closeable { } }
+
+    for (key in listOf(1, 1, 2, 1, 3, 2)) {
+      val result = repo.get(key) as ResourceRepositoryResult.Found
+      result.lockedResource.release()
+    }
+
+    assertEquals(CacheHitStatistics(hits = 2, misses = 4), repo.getHitStatistics())
+  }
+
   @Test
   fun `getAllExistingKeys must return an immutable copy`() {
     val size = 10
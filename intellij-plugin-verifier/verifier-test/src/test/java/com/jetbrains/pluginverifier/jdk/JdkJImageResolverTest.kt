@@ -0,0 +1,81 @@
+package com.jetbrains.pluginverifier.jdk
+
+import com.jetbrains.plugin.structure.base.plugin.Settings
+import com.jetbrains.plugin.structure.base.utils.listFiles
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.URI
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.stream.Collectors
+
+class JdkJImageResolverTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private val jdkPath: Path = Paths.get(System.getProperty("java.home"))
+
+  private val originalCacheDirectory = Settings.JAR_INDEX_CACHE_DIRECTORY.get()
+
+  @After
+  fun restoreCacheDirectory() {
+    Settings.JAR_INDEX_CACHE_DIRECTORY.set(originalCacheDirectory)
+  }
+
+  @Test
+  fun `classes are read directly from the JImage`() {
+    Settings.JAR_INDEX_CACHE_DIRECTORY.set("")
+    JdkJImageResolver(jdkPath, Resolver.ReadMode.FULL).use { resolver ->
+      assertTrue(resolver.containsClass("java/lang/String"))
+      assertTrue(resolver.containsPackage("java/util/concurrent"))
+      assertFalse(resolver.containsClass("java/lang/NonExistingClass"))
+
+      val string = resolver.resolveClass("java/lang/String")
+      assertTrue(string is ResolutionResult.Found)
+      assertEquals("java/lang/String", (string as ResolutionResult.Found).value.name)
+      assertEquals(ResolutionResult.NotFound, resolver.resolveClass("java/lang/NonExistingClass"))
+    }
+  }
+
+  @Test
+  fun `class index is the same as of the jrt file system`() {
+    Settings.JAR_INDEX_CACHE_DIRECTORY.set("")
+    val jrtClasses = FileSystems.newFileSystem(URI.create("jrt:/"), mapOf("java.home" to jdkPath.toString())).use { fileSystem ->
+      val modulesPath = fileSystem.getPath("/modules")
+      Files.walk(modulesPath).use { stream ->
+        stream
+          .filter { it.fileName.toString().endsWith(".class") }
+          .map { modulesPath.relativize(it).let { relative -> relative.subpath(1, relative.nameCount) }.toString().removeSuffix(".class") }
+          .collect(Collectors.toSet())
+      }
+    }
+    JdkJImageResolver(jdkPath, Resolver.ReadMode.SIGNATURES).use { resolver ->
+      assertEquals(jrtClasses, resolver.allClasses)
+    }
+  }
+
+  @Test
+  fun `class index is stored on first creation and reused on the next one`() {
+    val cacheDirectory = temporaryFolder.newFolder("cache").toPath()
+    Settings.JAR_INDEX_CACHE_DIRECTORY.set(cacheDirectory.toString())
+
+    val classes = JdkJImageResolver(jdkPath, Resolver.ReadMode.SIGNATURES).use { it.allClasses.toSet() }
+    assertEquals(1, cacheDirectory.listFiles().size)
+
+    JdkJImageResolver(jdkPath, Resolver.ReadMode.SIGNATURES).use { resolver ->
+      assertEquals(classes, resolver.allClasses)
+      assertTrue(resolver.resolveClass("java/util/List") is ResolutionResult.Found)
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.jetbrains.pluginverifier.options
+
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PluginsShardTest {
+
+  @Test
+  fun `shards of plugins set are disjoint and keep all versions of a plugin together`() {
+    val plugins = (1..100).flatMap { id -> listOf("1.0", "2.0").map { version -> mockPluginInfo("com.example.plugin$id", version) } }
+    val shards = (1..4).map { PluginsShard(it, 4) }
+
+    val pluginsSets = shards.map { shard ->
+      PluginsSet().apply {
+        this.shard = shard
+        schedulePlugins(plugins)
+      }
+    }
+
+    val shardPlugins = pluginsSets.map { it.pluginsToCheck }
+    assertEquals(plugins.toSet(), shardPlugins.flatten().toSet())
+    assertEquals(plugins.size, shardPlugins.sumOf { it.size })
+    for (pluginsOfShard in shardPlugins) {
+      assertTrue(pluginsOfShard.isNotEmpty())
+      assertTrue(pluginsOfShard.groupBy { it.pluginId }.values.all { it.size == 2 })
+    }
+  }
+
+  @Test
+  fun `shard is parsed`() {
+    assertEquals(PluginsShard(3, 16), PluginsShard.parse("3/16"))
+  }
+
+  @Test(expected = IllegalArgumentException::class)
+  fun `shard number must not exceed the number of shards`() {
+    PluginsShard.parse("17/16")
+  }
+
+  private fun mockPluginInfo(pluginId: String, version: String): PluginInfo =
+    object : PluginInfo(pluginId, pluginId, version, null, null, null) {}
+}
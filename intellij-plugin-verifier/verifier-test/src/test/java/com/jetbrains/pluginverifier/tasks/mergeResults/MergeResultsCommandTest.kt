@@ -0,0 +1,111 @@
+package com.jetbrains.pluginverifier.tasks.mergeResults
+
+import com.jetbrains.pluginverifier.options.CmdOpts
+import com.jetbrains.pluginverifier.output.OutputOptions
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityLog
+import com.jetbrains.pluginverifier.output.teamcity.TeamCityResultPrinter
+import com.jetbrains.pluginverifier.reporting.PluginVerificationStatus
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.PrintWriter
+import java.io.StringWriter
+
+class MergeResultsCommandTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `shard directories inside the directory of the merged reports are rejected`() {
+    val reports = temporaryFolder.newFolder("reports")
+    val shard = temporaryFolder.newFolder("reports", "shard1")
+    assertThrows(IllegalArgumentException::class.java) {
+      MergeResultsCommand().validateOptions(reportsDir(reports.path), listOf(shard.path))
+    }
+  }
+
+  @Test
+  fun `shard directory containing the directory of the merged reports is rejected`() {
+    val shard = temporaryFolder.newFolder("shard1")
+    assertThrows(IllegalArgumentException::class.java) {
+      MergeResultsCommand().validateOptions(reportsDir(shard.resolve("merged").path), listOf(shard.path))
+    }
+  }
+
+  @Test
+  fun `shard directory used as the directory of the merged reports is rejected`() {
+    val shard = temporaryFolder.newFolder("shard1")
+    assertThrows(IllegalArgumentException::class.java) {
+      MergeResultsCommand().validateOptions(reportsDir(shard.resolve("../shard1").path), listOf(shard.path))
+    }
+  }
+
+  @Test
+  fun `sibling shard directories are accepted`() {
+    val firstShard = temporaryFolder.newFolder("shard1")
+    val secondShard = temporaryFolder.newFolder("shard2")
+    val merged = temporaryFolder.root.resolve("shard")
+    MergeResultsCommand().validateOptions(reportsDir(merged.path), listOf(firstShard.path, secondShard.path))
+  }
+
+  @Test
+  fun `build fails with the number of problems of verified plugins only`() {
+    val output = printTeamCityOutput(
+      TeamCityResultPrinter.GroupBy.BY_PLUGIN,
+      report("com.example.one", "1.0", PluginVerificationStatus.FAILED, mapOf("Invocation of unresolved method" to listOf("Method a.B.c() is not found"))),
+      report("com.example.two", "2.0", PluginVerificationStatus.FAILED, mapOf("Invocation of unresolved method" to listOf("Method a.B.d() is not found"))),
+      report("com.example.three", "3.0", PluginVerificationStatus.INVALID, emptyMap())
+    )
+    assertTrue(output, "buildStatus status='FAILURE' text='IDE IU-241.1 has 1 problem affecting 2 plugins'" in output)
+    assertTrue(output, "testFailed name='(3.0)' message='Plugin is invalid: Invalid descriptor'" in output)
+  }
+
+  @Test
+  fun `invalid plugins do not fail the build`() {
+    val output = printTeamCityOutput(
+      TeamCityResultPrinter.GroupBy.BY_PLUGIN,
+      report("com.example.one", "1.0", PluginVerificationStatus.PASSED, emptyMap()),
+      report("com.example.three", "3.0", PluginVerificationStatus.INVALID, emptyMap())
+    )
+    assertTrue(output, "buildStatus status='SUCCESS'" in output)
+  }
+
+  @Test
+  fun `results are grouped by problem type`() {
+    val output = printTeamCityOutput(
+      TeamCityResultPrinter.GroupBy.BY_PROBLEM_TYPE,
+      report("com.example.one", "1.0", PluginVerificationStatus.FAILED, mapOf("Invocation of unresolved method" to listOf("Method a.B.c() is not found"))),
+      report("com.example.two", "2.0", PluginVerificationStatus.PASSED, emptyMap())
+    )
+    assertTrue(output, "testSuiteStarted name='(Invocation of unresolved method)'" in output)
+    assertTrue(output, "testFailed name='(com.example.one:1.0)' message='Plugin: com.example.one:1.0' details='Method a.B.c() is not found'" in output)
+    assertFalse(output, "com.example.two" in output)
+  }
+
+  private fun printTeamCityOutput(groupBy: TeamCityResultPrinter.GroupBy, vararg reports: PluginVerificationReport): String =
+    StringWriter().use { stringWriter ->
+      val outputOptions = OutputOptions(temporaryFolder.newFolder().toPath(), TeamCityLog(PrintWriter(stringWriter)), groupBy, null)
+      MergeResultsResultPrinter().printResults(MergeResultsTaskResult(MergedVerificationReports(reports.toList(), emptyList())), outputOptions)
+      stringWriter.toString()
+    }
+
+  private fun report(pluginId: String, version: String, status: PluginVerificationStatus, problemsByType: Map<String, List<String>>) =
+    PluginVerificationReport(
+      "IU-241.1",
+      pluginId,
+      version,
+      status,
+      status.name,
+      problemsByType.values.flatten().joinToString(separator = "\n").takeIf { it.isNotEmpty() },
+      problemsByType,
+      "Invalid descriptor".takeIf { status == PluginVerificationStatus.INVALID },
+      null
+    )
+
+  private fun reportsDir(path: String) = CmdOpts().apply { verificationReportsDir = path }
+}
@@ -0,0 +1,110 @@
+package com.jetbrains.pluginverifier.tasks.mergeResults
+
+import com.jetbrains.plugin.structure.base.utils.create
+import com.jetbrains.plugin.structure.base.utils.readText
+import com.jetbrains.plugin.structure.base.utils.writeText
+import com.jetbrains.pluginverifier.reporting.PluginVerificationStatus
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Path
+
+class VerificationReportsMergerTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `reports of shards are merged`() {
+    val firstShard = temporaryFolder.newFolder("first").toPath()
+    firstShard.resolve("IU-241.1/all-ignored-problems.txt").create().writeText("ignored in first shard\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-verdict.txt").create().writeText("Compatible\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-status.txt").create().writeText("PASSED\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/telemetry.txt").create().writeText("Plugin ID: com.example.one\nVerification time (raw ms): 100\n")
+
+    val secondShard = temporaryFolder.newFolder("second").toPath()
+    secondShard.resolve("IU-241.1/all-ignored-problems.txt").create().writeText("ignored in second shard\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.two/2.0/verification-verdict.txt").create().writeText("1 compatibility problem\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.two/2.0/verification-status.txt").create().writeText("FAILED\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.two/2.0/compatibility-problems.txt").create().writeText("Invocation of unresolved method\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.two/2.0/compatibility-problems-by-type.txt").create()
+      .writeText("#Invocation of unresolved method\n    Method a.B.c() is not found\n    Method a.B.d() is not found\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.two/2.0/telemetry.txt").create().writeText("Plugin ID: com.example.two\nVerification time (raw ms): 50\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.three/3.0/verification-verdict.txt").create().writeText("1 missing mandatory dependency\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.three/3.0/verification-status.txt").create().writeText("FAILED\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.four/4.0/verification-verdict.txt").create().writeText("Plugin is invalid\n")
+    secondShard.resolve("IU-241.1/plugins/com.example.four/4.0/verification-status.txt").create().writeText("INVALID\n")
+
+    val targetDirectory = temporaryFolder.newFolder("merged").toPath()
+    val reports = VerificationReportsMerger(targetDirectory).merge(listOf(firstShard, secondShard)).pluginReports
+
+    assertEquals(listOf("com.example.four", "com.example.one", "com.example.three", "com.example.two"), reports.map { it.pluginId })
+    val (four, one, three, two) = reports
+    assertFalse(four.isFailed)
+    assertTrue(four.isInvalid)
+    assertFalse(one.isFailed)
+    assertEquals(100L, one.verificationTimeMillis)
+    assertTrue(two.isFailed)
+    assertEquals("Invocation of unresolved method", two.compatibilityProblems)
+    assertEquals(mapOf("Invocation of unresolved method" to listOf("Method a.B.c() is not found", "Method a.B.d() is not found")), two.problemsByType)
+    assertTrue(three.isFailed)
+    assertEquals(PluginVerificationStatus.FAILED, three.status)
+
+    val ide = targetDirectory.resolve("IU-241.1")
+    assertEquals("ignored in first shard\nignored in second shard\n", ide.resolve("all-ignored-problems.txt").readText())
+    assertEquals("Compatible\n", ide.readReport("com.example.one/1.0/verification-verdict.txt"))
+    assertEquals("Invocation of unresolved method\n", ide.readReport("com.example.two/2.0/compatibility-problems.txt"))
+    val allTelemetry = ide.resolve("all-telemetry.txt").readText()
+    assertTrue("com.example.one" in allTelemetry && "com.example.two" in allTelemetry)
+  }
+
+  @Test
+  fun `merging the same shards again does not duplicate aggregated reports`() {
+    val firstShard = temporaryFolder.newFolder("first").toPath()
+    firstShard.resolve("IU-241.1/all-ignored-plugins.txt").create().writeText("ignored in first shard\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-verdict.txt").create().writeText("Compatible\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-status.txt").create().writeText("PASSED\n")
+    val secondShard = temporaryFolder.newFolder("second").toPath()
+    secondShard.resolve("IU-241.1/all-ignored-plugins.txt").create().writeText("ignored in second shard\n")
+
+    val targetDirectory = temporaryFolder.newFolder("merged").toPath()
+    repeat(2) {
+      VerificationReportsMerger(targetDirectory).merge(listOf(firstShard, secondShard))
+    }
+
+    val ide = targetDirectory.resolve("IU-241.1")
+    assertEquals("ignored in first shard\nignored in second shard\n", ide.resolve("all-ignored-plugins.txt").readText())
+    assertEquals("Compatible\n", ide.readReport("com.example.one/1.0/verification-verdict.txt"))
+  }
+
+  @Test
+  fun `plugins without compatible versions are read from shards`() {
+    val firstShard = temporaryFolder.newFolder("first").toPath()
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-verdict.txt").create().writeText("Compatible\n")
+    firstShard.resolve("IU-241.1/plugins/com.example.one/1.0/verification-status.txt").create().writeText("PASSED\n")
+    val secondShard = temporaryFolder.newFolder("second").toPath()
+    secondShard.resolve("IU-241.1/plugins/com.example.two/missing-compatible-version.txt").create()
+      .writeText("For plugin 'com.example.two' there are no versions compatible with IU-241.1 in JetBrains Marketplace")
+
+    val targetDirectory = temporaryFolder.newFolder("merged").toPath()
+    val reports = VerificationReportsMerger(targetDirectory).merge(listOf(firstShard, secondShard))
+
+    assertEquals(listOf("com.example.one"), reports.pluginReports.map { it.pluginId })
+    assertEquals(
+      listOf(
+        MissingCompatibleVersionReport(
+          "IU-241.1",
+          "com.example.two",
+          "For plugin 'com.example.two' there are no versions compatible with IU-241.1 in JetBrains Marketplace"
+        )
+      ),
+      reports.missingCompatibleVersions
+    )
+  }
+
+  private fun Path.readReport(path: String) = resolve("plugins").resolve(path).readText()
+}
@@ -0,0 +1,103 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.pluginverifier.AdaptiveConcurrencyLimiter
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private val maxHeap = 1000L
+
+  @Test
+  fun `concurrency limit is halved on high heap occupancy and grows on low occupancy`() {
+    val limiter = AdaptiveConcurrencyLimiter(maxConcurrency = 5, initialConcurrency = 4, maxHeap = maxHeap, minAdjustmentInterval = Duration.ZERO)
+
+    limiter.onGarbageCollection(900)
+    assertEquals(2, limiter.concurrencyLimit)
+    limiter.onGarbageCollection(900)
+    limiter.onGarbageCollection(900)
+    assertEquals(1, limiter.concurrencyLimit)
+
+    limiter.onGarbageCollection(600)
+    assertEquals(1, limiter.concurrencyLimit)
+
+    repeat(10) { limiter.onGarbageCollection(100) }
+    assertEquals(5, limiter.concurrencyLimit)
+  }
+
+  @Test
+  fun `concurrency limit is adjusted at most once per interval`() {
+    val limiter = AdaptiveConcurrencyLimiter(maxConcurrency = 8, initialConcurrency = 8, maxHeap = maxHeap, minAdjustmentInterval = Duration.ofSeconds(10))
+    val start = TimeUnit.SECONDS.toNanos(100)
+
+    limiter.onGarbageCollection(900, start)
+    assertEquals(4, limiter.concurrencyLimit)
+    limiter.onGarbageCollection(900, start + TimeUnit.SECONDS.toNanos(1))
+    limiter.onGarbageCollection(100, start + TimeUnit.SECONDS.toNanos(2))
+    assertEquals(4, limiter.concurrencyLimit)
+
+    limiter.onGarbageCollection(900, start + TimeUnit.SECONDS.toNanos(10))
+    assertEquals(2, limiter.concurrencyLimit)
+  }
+
+  @Test
+  fun `verification that does not fit into free heap waits until running verifications finish`() {
+    val limiter = AdaptiveConcurrencyLimiter(maxConcurrency = 4, initialConcurrency = 4, maxHeap = maxHeap)
+    limiter.onGarbageCollection(300)
+
+    val smallStarted = CountDownLatch(1)
+    val finishSmall = CountDownLatch(1)
+    val small = thread {
+      limiter.withPermit(100) {
+        smallStarted.countDown()
+        finishSmall.await()
+      }
+    }
+    assertTrue(smallStarted.await(10, TimeUnit.SECONDS))
+
+    val bigStarted = CountDownLatch(1)
+    val big = thread {
+      limiter.withPermit(600) { bigStarted.countDown() }
+    }
+    assertFalse(bigStarted.await(200, TimeUnit.MILLISECONDS))
+
+    finishSmall.countDown()
+    assertTrue(bigStarted.await(10, TimeUnit.SECONDS))
+    small.join()
+    big.join()
+  }
+
+  @Test
+  fun `raised estimate of a running verification holds back other verifications`() {
+    val limiter = AdaptiveConcurrencyLimiter(maxConcurrency = 4, initialConcurrency = 4, maxHeap = maxHeap)
+    limiter.onGarbageCollection(300)
+
+    val loaded = CountDownLatch(1)
+    val finishLoaded = CountDownLatch(1)
+    val loadedVerification = thread {
+      limiter.withPermit(100) { permit ->
+        permit.updateEstimatedHeap(500)
+        loaded.countDown()
+        finishLoaded.await()
+      }
+    }
+    assertTrue(loaded.await(10, TimeUnit.SECONDS))
+
+    val nextStarted = CountDownLatch(1)
+    val next = thread {
+      limiter.withPermit(100) { nextStarted.countDown() }
+    }
+    assertFalse(nextStarted.await(200, TimeUnit.MILLISECONDS))
+
+    finishLoaded.countDown()
+    assertTrue(nextStarted.await(10, TimeUnit.SECONDS))
+    loadedVerification.join()
+    next.join()
+  }
+}
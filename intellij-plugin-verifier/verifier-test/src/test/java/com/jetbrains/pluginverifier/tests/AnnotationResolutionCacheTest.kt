@@ -0,0 +1,98 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolutionCache
+import com.jetbrains.pluginverifier.usages.annotation.AnnotationResolver
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+
+class AnnotationResolutionCacheTest {
+
+  private object PlatformOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object DependencyOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object PluginOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val annotationResolver = AnnotationResolver(ANNOTATION)
+
+  private val platformResolver = FixedClassesResolver.create(
+    listOf(
+      classNode("com/intellij/Outer").annotated(),
+      classNode("com/intellij/Outer\$Inner").apply { outerClass = "com/intellij/Outer" },
+      classNode("com/intellij/Plain")
+    ),
+    PlatformOrigin
+  )
+
+  @Test
+  fun `cached platform resolutions are reused without resolving classes again`() {
+    val cache = AnnotationResolutionCache(platformResolver)
+    val innerClass = platformResolver.resolveClassOrNull("com/intellij/Outer\$Inner")!!
+
+    assertTrue(annotationResolver.isEffectivelyAnnotated(innerClass, platformResolver, null, cache.createSession(shadowsPlatformClasses = false)))
+    assertEquals(AnnotationResolutionCache.Statistics(0, 1, 1), cache.statistics)
+
+    assertTrue(annotationResolver.isEffectivelyAnnotated(innerClass, EmptyResolver, null, cache.createSession(shadowsPlatformClasses = false)))
+    assertEquals(AnnotationResolutionCache.Statistics(1, 1, 1), cache.statistics)
+  }
+
+  @Test
+  fun `cached resolution is not reused if a missing class is found`() {
+    val cache = AnnotationResolutionCache(platformResolver)
+    val plainClass = platformResolver.resolveClassOrNull("com/intellij/Plain")!!
+
+    assertFalse(annotationResolver.isEffectivelyAnnotated(plainClass, platformResolver, null, cache.createSession(shadowsPlatformClasses = false)))
+    assertFalse(annotationResolver.isEffectivelyAnnotated(plainClass, platformResolver, null, cache.createSession(shadowsPlatformClasses = false)))
+    assertEquals(AnnotationResolutionCache.Statistics(1, 1, 1), cache.statistics)
+
+    val dependencyResolver = FixedClassesResolver.create(listOf(classNode("com/intellij/package-info").annotated()), DependencyOrigin)
+    val classResolver = CompositeResolver.create(platformResolver, dependencyResolver)
+    assertTrue(annotationResolver.isEffectivelyAnnotated(plainClass, classResolver, null, cache.createSession(shadowsPlatformClasses = false)))
+    assertEquals(AnnotationResolutionCache.Statistics(1, 2, 1), cache.statistics)
+  }
+
+  @Test
+  fun `verifications of plugins shadowing platform classes do not use the cache`() {
+    val cache = AnnotationResolutionCache(platformResolver)
+    val innerClass = platformResolver.resolveClassOrNull("com/intellij/Outer\$Inner")!!
+    annotationResolver.isEffectivelyAnnotated(innerClass, platformResolver, null, cache.createSession(shadowsPlatformClasses = false))
+
+    val pluginResolver = FixedClassesResolver.create(listOf(classNode("com/intellij/Outer")), PluginOrigin)
+    val classResolver = CompositeResolver.create(pluginResolver, platformResolver)
+    assertFalse(annotationResolver.isEffectivelyAnnotated(innerClass, classResolver, null, cache.createSession(shadowsPlatformClasses = true)))
+    assertEquals(AnnotationResolutionCache.Statistics(0, 1, 1), cache.statistics)
+  }
+
+  private fun ClassNode.annotated() = apply {
+    invisibleAnnotations = mutableListOf(AnnotationNode("L$ANNOTATION;"))
+  }
+
+  private fun classNode(name: String) =
+    ClassNode().apply {
+      this.version = Opcodes.V11
+      this.access = Opcodes.ACC_PUBLIC
+      this.name = name
+      this.superName = "java/lang/Object"
+      this.interfaces = mutableListOf()
+    }
+
+  private companion object {
+    const val ANNOTATION = "org/jetbrains/annotations/ApiStatus\$Internal"
+  }
+}
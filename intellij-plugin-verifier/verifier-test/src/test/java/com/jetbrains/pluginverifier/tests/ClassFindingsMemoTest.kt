@@ -0,0 +1,93 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.base.plugin.PluginCreationSuccess
+import com.jetbrains.plugin.structure.base.telemetry.CLASS_FINDINGS_MEMO_HITS
+import com.jetbrains.plugin.structure.base.telemetry.CLASS_FINDINGS_MEMO_MISSES
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.plugin.structure.intellij.plugin.IdePluginManager
+import com.jetbrains.pluginverifier.PluginVerificationResult
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+class ClassFindingsMemoTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `verification reusing memoized findings of classes finds the same problems and usages`() {
+    val expected = MockPluginFixture.verify()
+
+    lateinit var first: PluginVerificationResult.Verified
+    val second = MockPluginFixture.withPluginVerifier(PluginVerifierOptions(classFindingsMemoization = true)) { pluginVerifier ->
+      first = pluginVerifier.loadPluginAndVerify() as PluginVerificationResult.Verified
+      pluginVerifier.loadPluginAndVerify()
+    }
+
+    assertSameFindings(expected, first)
+    assertSameFindings(expected, second)
+
+    assertEquals(0L, first.telemetry[CLASS_FINDINGS_MEMO_HITS])
+    assertTrue(second.telemetry[CLASS_FINDINGS_MEMO_HITS] as Long > 0)
+    assertTrue(second.telemetry[CLASS_FINDINGS_MEMO_MISSES] as Long < first.telemetry[CLASS_FINDINGS_MEMO_MISSES] as Long)
+  }
+
+  @Test
+  fun `changed plugin class and classes looking it up are verified anew`() {
+    val changedPlugin = createPluginWithChangedClass("mock/plugin/inheritance/NoProblem")
+    val expected = VerificationRunner().runPluginVerification(MockPluginFixture.ide, changedPlugin) as PluginVerificationResult.Verified
+
+    val changed = VerificationRunner().withPluginVerifiers(MockPluginFixture.ide, options = PluginVerifierOptions(classFindingsMemoization = true)) { createPluginVerifier ->
+      createPluginVerifier(MockPluginFixture.plugin).loadPluginAndVerify()
+      createPluginVerifier(changedPlugin).loadPluginAndVerify() as PluginVerificationResult.Verified
+    }
+
+    assertSameFindings(expected, changed)
+
+    assertTrue(changed.telemetry[CLASS_FINDINGS_MEMO_HITS] as Long > 0)
+    // NoProblem itself and SubclassNoProblem, which looks it up
+    assertTrue(changed.telemetry[CLASS_FINDINGS_MEMO_MISSES] as Long >= 2)
+  }
+
+  /**
+   * Copies the mock plugin with a private field added to the class [className].
+   */
+  private fun createPluginWithChangedClass(className: String): IdePlugin {
+    val pluginJar: Path = temporaryFolder.newFile("changed-plugin.jar").toPath()
+    ZipInputStream(Files.newInputStream(findMockPluginJarPath())).use { input ->
+      ZipOutputStream(Files.newOutputStream(pluginJar)).use { output ->
+        generateSequence { input.nextEntry }.forEach { entry ->
+          var bytes = input.readBytes()
+          if (entry.name == "$className.class") {
+            val classWriter = ClassWriter(0)
+            val fieldAdder = object : ClassVisitor(Opcodes.ASM9, classWriter) {
+              override fun visitEnd() {
+                visitField(Opcodes.ACC_PRIVATE, "addedField", "I", null, null).visitEnd()
+                super.visitEnd()
+              }
+            }
+            ClassReader(bytes).accept(fieldAdder, 0)
+            bytes = classWriter.toByteArray()
+          }
+          output.putNextEntry(ZipEntry(entry.name))
+          output.write(bytes)
+          output.closeEntry()
+        }
+      }
+    }
+    return (IdePluginManager.createManager().createPlugin(pluginJar) as PluginCreationSuccess).plugin
+  }
+}
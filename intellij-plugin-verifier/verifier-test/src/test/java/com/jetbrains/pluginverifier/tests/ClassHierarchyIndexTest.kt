@@ -0,0 +1,90 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.verifiers.hierarchy.ClassHierarchyIndex
+import com.jetbrains.pluginverifier.verifiers.hierarchy.HierarchyIndexedResolver
+import com.jetbrains.pluginverifier.verifiers.isSubclassOf
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+
+class ClassHierarchyIndexTest {
+
+  private object PlatformOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object PluginOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val platformClasses = listOf(
+    classNode("java/lang/Object", null),
+    classNode("com/intellij/I"),
+    classNode("com/intellij/J", "java/lang/Object", "com/intellij/I"),
+    classNode("com/intellij/Base", "java/lang/Object", "com/intellij/J"),
+    classNode("com/intellij/Derived", "com/intellij/Base"),
+    classNode("com/intellij/DerivedFromMissing", "com/intellij/Missing"),
+    classNode("com/intellij/Cyclic1", "com/intellij/Cyclic2"),
+    classNode("com/intellij/Cyclic2", "com/intellij/Cyclic1")
+  )
+
+  private val platformResolver = FixedClassesResolver.create(platformClasses, PlatformOrigin)
+
+  @Test
+  fun `supertypes of platform classes are found in the index`() {
+    val index = ClassHierarchyIndex(platformResolver)
+    assertEquals(true, index.isSubclassOf("com/intellij/Derived", "com/intellij/Base"))
+    assertEquals(true, index.isSubclassOf("com/intellij/Derived", "com/intellij/I"))
+    assertEquals(true, index.isSubclassOf("com/intellij/Derived", "java/lang/Object"))
+    assertEquals(false, index.isSubclassOf("com/intellij/Base", "com/intellij/Derived"))
+    assertEquals(false, index.isSubclassOf("com/intellij/Derived", "com/intellij/Derived"))
+    assertEquals(false, index.isSubclassOf("com/intellij/I", "com/intellij/Unknown"))
+  }
+
+  @Test
+  fun `index answers the same as the hierarchy walk`() {
+    val index = ClassHierarchyIndex(platformResolver)
+    val classNames = platformClasses.map { it.name } + "com/intellij/Missing"
+    for (child in classNames) {
+      for (parent in classNames) {
+        val indexed = index.isSubclassOf(child, parent) ?: continue
+        assertEquals("$child -> $parent", platformResolver.isSubclassOf(child, parent), indexed || parent == "java/lang/Object")
+      }
+    }
+  }
+
+  @Test
+  fun `classes with incomplete or cyclic hierarchy are not indexed`() {
+    val index = ClassHierarchyIndex(platformResolver)
+    assertNull(index.isSubclassOf("com/intellij/DerivedFromMissing", "java/lang/Object"))
+    assertNull(index.isSubclassOf("com/intellij/Cyclic1", "com/intellij/Cyclic2"))
+    assertNull(index.isSubclassOf("com/intellij/Missing", "java/lang/Object"))
+  }
+
+  @Test
+  fun `index is not used if the plugin bundles a copy of a platform class`() {
+    val index = ClassHierarchyIndex(platformResolver)
+    val pluginResolver = FixedClassesResolver.create(listOf(classNode("com/intellij/Base")), PluginOrigin)
+    val resolver = HierarchyIndexedResolver(CompositeResolver.create(pluginResolver, platformResolver), index, pluginResolver)
+
+    assertNull(resolver.isSubclassOfByIndex("com/intellij/Derived", "com/intellij/I"))
+    assertFalse(resolver.isSubclassOf("com/intellij/Derived", "com/intellij/I"))
+    assertTrue(resolver.isSubclassOf("com/intellij/Derived", "com/intellij/Base"))
+  }
+
+  private fun classNode(name: String, superName: String? = "java/lang/Object", vararg interfaces: String) =
+    ClassNode().apply {
+      this.version = Opcodes.V11
+      this.access = Opcodes.ACC_PUBLIC
+      this.name = name
+      this.superName = superName
+      this.interfaces = interfaces.toMutableList()
+    }
+}
@@ -0,0 +1,149 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.classes.resolvers.CompositeResolver
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.problems.FieldNotFoundProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
+import com.jetbrains.pluginverifier.usages.ApiUsageProcessor
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.packages.DefaultPackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileAsm
+import com.jetbrains.pluginverifier.verifiers.resolution.FieldResolver
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
+import com.jetbrains.pluginverifier.verifiers.resolution.MethodAsm
+import com.jetbrains.pluginverifier.verifiers.resolution.resolveClassOrNull
+import com.jetbrains.pluginverifier.warnings.CompatibilityWarning
+import com.jetbrains.pluginverifier.warnings.WarningRegistrar
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+
+class MemberResolutionCacheTest {
+
+  private object PlatformOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object DependencyOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object PluginOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private val platformResolver = FixedClassesResolver.create(
+    listOf(
+      classNode("java/lang/Object", null),
+      classNode("com/intellij/Base").withField("field"),
+      classNode("com/intellij/Derived", "com/intellij/Base"),
+      classNode("com/intellij/DerivedFromDependency", "dependency/Base")
+    ),
+    PlatformOrigin
+  )
+
+  private val dependencyResolver = FixedClassesResolver.create(listOf(classNode("dependency/Base").withField("field")), DependencyOrigin)
+
+  private val callerMethod = MethodAsm(
+    ClassFileAsm(classNode("plugin/Caller"), PluginOrigin),
+    MethodNode(Opcodes.ACC_PUBLIC, "call", "()V", null, null)
+  )
+
+  @Test
+  fun `cached platform resolutions are reused without resolving classes again`() {
+    val cache = MemberResolutionCache(platformResolver)
+
+    val firstSession = cache.createSession(shadowsPlatformClasses = false)
+    assertNotNull(resolveField("com/intellij/Derived", TestContext(CompositeResolver.create(platformResolver, dependencyResolver), firstSession)))
+    assertEquals(MemberResolutionCache.Statistics(0, 1, 1), firstSession.statistics)
+
+    val secondSession = cache.createSession(shadowsPlatformClasses = false)
+    val context = TestContext(EmptyResolver, secondSession)
+    val field = resolveField("com/intellij/Derived", context)
+    assertEquals("com/intellij/Base", field!!.containingClassFile.name)
+    assertTrue(context.problems.isEmpty())
+    assertEquals(MemberResolutionCache.Statistics(1, 0, 1), secondSession.statistics)
+  }
+
+  @Test
+  fun `resolutions that visit dependency classes are not cached`() {
+    val cache = MemberResolutionCache(platformResolver)
+
+    repeat(2) {
+      val session = cache.createSession(shadowsPlatformClasses = false)
+      val field = resolveField("com/intellij/DerivedFromDependency", TestContext(CompositeResolver.create(platformResolver, dependencyResolver), session))
+      assertEquals("dependency/Base", field!!.containingClassFile.name)
+      assertEquals(MemberResolutionCache.Statistics(0, 1, 0), session.statistics)
+    }
+  }
+
+  @Test
+  fun `verifications of plugins shadowing platform classes do not use the cache`() {
+    val cache = MemberResolutionCache(platformResolver)
+    resolveField("com/intellij/Derived", TestContext(platformResolver, cache.createSession(shadowsPlatformClasses = false)))
+
+    val pluginResolver = FixedClassesResolver.create(listOf(classNode("com/intellij/Base")), PluginOrigin)
+    val session = cache.createSession(shadowsPlatformClasses = true)
+    val context = TestContext(CompositeResolver.create(pluginResolver, platformResolver), session)
+
+    assertNull(resolveField("com/intellij/Derived", context))
+    assertTrue(context.problems.single() is FieldNotFoundProblem)
+    assertEquals(MemberResolutionCache.Statistics(0, 0, 1), session.statistics)
+  }
+
+  private fun resolveField(className: String, context: TestContext) =
+    FieldResolver().resolveField(
+      platformResolver.resolveClassOrNull(className)!!,
+      FieldReference(ClassReference(className), "field", "I"),
+      context,
+      callerMethod,
+      Instruction.GET_FIELD
+    )
+
+  private class TestContext(
+    override val classResolver: Resolver,
+    override val memberResolutionCache: MemberResolutionCache.Session
+  ) : VerificationContext {
+    val problems = arrayListOf<CompatibilityProblem>()
+
+    override val externalClassesPackageFilter = DefaultPackageFilter(emptyList())
+
+    override val problemRegistrar = object : ProblemRegistrar {
+      override fun registerProblem(problem: CompatibilityProblem) {
+        problems += problem
+      }
+    }
+
+    override val warningRegistrar = object : WarningRegistrar {
+      override fun registerCompatibilityWarning(warning: CompatibilityWarning) = Unit
+    }
+
+    override val apiUsageProcessors = emptyList<ApiUsageProcessor>()
+  }
+
+  private fun ClassNode.withField(name: String) = apply {
+    fields.add(FieldNode(Opcodes.ACC_PUBLIC, name, "I", null, null))
+  }
+
+  private fun classNode(name: String, superName: String? = "java/lang/Object") =
+    ClassNode().apply {
+      this.version = Opcodes.V11
+      this.access = Opcodes.ACC_PUBLIC
+      this.name = name
+      this.superName = superName
+      this.interfaces = mutableListOf()
+    }
+}
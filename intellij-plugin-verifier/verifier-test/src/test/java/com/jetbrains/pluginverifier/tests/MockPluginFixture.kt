@@ -0,0 +1,47 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.base.plugin.PluginCreationSuccess
+import com.jetbrains.plugin.structure.ide.Ide
+import com.jetbrains.plugin.structure.ide.IdeManager
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.plugin.structure.intellij.plugin.IdePluginManager
+import com.jetbrains.pluginverifier.PluginVerificationResult
+import com.jetbrains.pluginverifier.PluginVerifier
+import org.junit.Assert.assertEquals
+
+/**
+ * Mock IDE and mock plugin, see [findMockIdePath] and [findMockPluginJarPath],
+ * for tests comparing verifications of the same plugin with different [PluginVerifierOptions].
+ */
+object MockPluginFixture {
+
+  init {
+    System.setProperty("plugin.verifier.test.private.interface.method.name", "privateInterfaceMethodTestName")
+  }
+
+  val ide: Ide by lazy { IdeManager.createManager().createIde(findMockIdePath()) }
+
+  val plugin: IdePlugin by lazy { (IdePluginManager.createManager().createPlugin(findMockPluginJarPath()) as PluginCreationSuccess).plugin }
+
+  fun verify(options: PluginVerifierOptions = PluginVerifierOptions(), ide: Ide = this.ide): PluginVerificationResult.Verified =
+    VerificationRunner().runPluginVerification(ide, plugin, options = options) as PluginVerificationResult.Verified
+
+  fun withPluginVerifier(
+    options: PluginVerifierOptions = PluginVerifierOptions(),
+    pluginVerifierHandler: (PluginVerifier) -> PluginVerificationResult
+  ): PluginVerificationResult.Verified =
+    VerificationRunner().withPluginVerifier(ide, plugin, options = options, pluginVerifierHandler = pluginVerifierHandler) as PluginVerificationResult.Verified
+}
+
+/**
+ * Asserts that the [actual] verification found the same problems, warnings and API usages as the [expected] one.
+ */
+fun assertSameFindings(expected: PluginVerificationResult.Verified, actual: PluginVerificationResult.Verified) {
+  assertEquals(expected.compatibilityProblems, actual.compatibilityProblems)
+  assertEquals(expected.compatibilityWarnings, actual.compatibilityWarnings)
+  assertEquals(expected.deprecatedUsages, actual.deprecatedUsages)
+  assertEquals(expected.experimentalApiUsages, actual.experimentalApiUsages)
+  assertEquals(expected.internalApiUsages, actual.internalApiUsages)
+  assertEquals(expected.nonExtendableApiUsages, actual.nonExtendableApiUsages)
+  assertEquals(expected.overrideOnlyMethodUsages, actual.overrideOnlyMethodUsages)
+}
@@ -0,0 +1,40 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.pluginverifier.tests.mocks.ClassRecordingResolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ParallelVerificationTest {
+
+  @Test
+  fun `parallel verification of plugin classes finds the same problems and usages as sequential one`() {
+    val sequential = MockPluginFixture.verify()
+    val parallel = MockPluginFixture.verify(PluginVerifierOptions(classVerificationParallelism = 4))
+
+    assertSameFindings(sequential, parallel)
+  }
+
+  @Test
+  fun `uncached reading of plugin classes finds the same problems and usages as cached one`() {
+    val cachedPluginResolvers = arrayListOf<ClassRecordingResolver>()
+    val cached = MockPluginFixture.verify(
+      PluginVerifierOptions(pluginResolverDecorator = { ClassRecordingResolver(it).also { cachedPluginResolvers += it } })
+    )
+    val uncachedPluginResolvers = arrayListOf<ClassRecordingResolver>()
+    val uncached = MockPluginFixture.verify(
+      PluginVerifierOptions(
+        uncachedPluginClassReading = true,
+        pluginResolverDecorator = { ClassRecordingResolver(it).also { uncachedPluginResolvers += it } }
+      )
+    )
+
+    assertSameFindings(cached, uncached)
+
+    val cachedPluginResolver = cachedPluginResolvers.single()
+    val uncachedPluginResolver = uncachedPluginResolvers.single()
+    assertEquals(emptySet<String>(), cachedPluginResolver.resolvedClasses)
+    assertTrue(uncachedPluginResolver.resolvedClasses.isNotEmpty())
+    assertTrue(uncachedPluginResolver.allClasses.containsAll(uncachedPluginResolver.resolvedClasses))
+  }
+}
@@ -0,0 +1,57 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.symbols.ResolverSymbolTable
+import com.jetbrains.pluginverifier.symbols.SymbolicReferences
+import com.jetbrains.pluginverifier.symbols.getFingerprint
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+
+class SymbolicReferencesTest {
+
+  private object IdeOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private object PluginOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  @Test
+  fun `fingerprint of a missing class depends on all its super-packages`() {
+    val references = SymbolicReferences(setOf("com/foo/bar/Missing"))
+    val ideWithParentPackage = ResolverSymbolTable(FixedClassesResolver.create(listOf(classNode("com/foo/Other")), IdeOrigin))
+    val anotherIdeWithParentPackage = ResolverSymbolTable(FixedClassesResolver.create(listOf(classNode("com/foo/Another")), IdeOrigin))
+    val ideWithoutParentPackage = ResolverSymbolTable(FixedClassesResolver.create(listOf(classNode("com/Other")), IdeOrigin))
+
+    assertEquals(ideWithParentPackage.getFingerprint(references), anotherIdeWithParentPackage.getFingerprint(references))
+    assertNotEquals(ideWithParentPackage.getFingerprint(references), ideWithoutParentPackage.getFingerprint(references))
+  }
+
+  @Test
+  fun `class-level annotations are referenced`() {
+    val annotatedClass = classNode("com/example/Annotated").apply {
+      visibleAnnotations = listOf(AnnotationNode("Lcom/foo/ClassAnnotation;"))
+      invisibleAnnotations = listOf(AnnotationNode("Lcom/foo/InvisibleClassAnnotation;"))
+    }
+    val pluginResolver = FixedClassesResolver.create(listOf(annotatedClass), PluginOrigin)
+
+    val references = SymbolicReferences.extract(setOf("com/example/Annotated"), pluginResolver)
+
+    assertTrue(references.classNames.toString(), "com/foo/ClassAnnotation" in references.classNames)
+    assertTrue(references.classNames.toString(), "com/foo/InvisibleClassAnnotation" in references.classNames)
+  }
+
+  private fun classNode(name: String) = ClassNode().apply {
+    version = Opcodes.V11
+    access = Opcodes.ACC_PUBLIC
+    this.name = name
+    superName = "java/lang/Object"
+  }
+}
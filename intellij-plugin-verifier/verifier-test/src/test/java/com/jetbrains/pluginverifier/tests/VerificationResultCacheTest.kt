@@ -0,0 +1,98 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.base.telemetry.VERIFICATION_RESULT_CACHE_HIT
+import com.jetbrains.plugin.structure.ide.IdeManager
+import com.jetbrains.pluginverifier.results.VerificationResultCache
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+class VerificationResultCacheTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  @Test
+  fun `verification result restored from the cache has the same problems and usages as computed one`() {
+    val cacheDirectory = temporaryFolder.newFolder("result-cache").toPath()
+    val resultCache = VerificationResultCache(cacheDirectory, "test")
+
+    val computed = MockPluginFixture.verify(PluginVerifierOptions(resultCache = resultCache))
+    val cachedFiles = Files.walk(cacheDirectory).use { paths -> paths.filter { Files.isRegularFile(it) }.toList() }
+    assertEquals(1, cachedFiles.count { it.startsWith(cacheDirectory.resolve("references")) })
+    assertEquals(2, cachedFiles.size)
+
+    val restored = MockPluginFixture.verify(PluginVerifierOptions(resultCache = resultCache))
+
+    assertEquals(false, computed.telemetry[VERIFICATION_RESULT_CACHE_HIT])
+    assertEquals(true, restored.telemetry[VERIFICATION_RESULT_CACHE_HIT])
+    assertNotEquals(0, computed.compatibilityProblems.size)
+    assertSameFindings(computed, restored)
+    assertEquals(
+      computed.deprecatedUsages.map { it.fullDescription }.toSet(),
+      restored.deprecatedUsages.map { it.fullDescription }.toSet()
+    )
+  }
+
+  @Test
+  fun `verification result is not restored from the cache if a class referenced by the plugin is removed from the IDE`() {
+    val resultCache = VerificationResultCache(temporaryFolder.newFolder("result-cache").toPath(), "test")
+    val computed = MockPluginFixture.verify(PluginVerifierOptions(resultCache = resultCache))
+
+    val changedIdePath = copyMockIde(temporaryFolder.newFolder("changed-ide").toPath())
+    removeJarEntry(changedIdePath.resolve("lib").resolve("additional-after-idea-1.0.jar"), "$REMOVED_IDE_CLASS.class")
+    val changedIde = IdeManager.createManager().createIde(changedIdePath)
+
+    val changed = MockPluginFixture.verify(PluginVerifierOptions(resultCache = resultCache), changedIde)
+    val expected = MockPluginFixture.verify(ide = changedIde)
+
+    assertEquals(false, changed.telemetry[VERIFICATION_RESULT_CACHE_HIT])
+    assertNotEquals(computed.compatibilityProblems, changed.compatibilityProblems)
+    assertTrue(changed.compatibilityProblems.any { it is ClassNotFoundProblem && it.unresolved.className == REMOVED_IDE_CLASS })
+    assertSameFindings(expected, changed)
+  }
+
+  private fun copyMockIde(destination: Path): Path {
+    val mockIdePath = findMockIdePath()
+    Files.walk(mockIdePath).use { paths ->
+      paths.forEach { path ->
+        val target = destination.resolve(mockIdePath.relativize(path).toString())
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(target)
+        } else {
+          Files.copy(path, target)
+        }
+      }
+    }
+    return destination
+  }
+
+  private fun removeJarEntry(jarFile: Path, entryName: String) {
+    val content = Files.readAllBytes(jarFile)
+    ZipInputStream(content.inputStream()).use { input ->
+      ZipOutputStream(Files.newOutputStream(jarFile)).use { output ->
+        generateSequence { input.nextEntry }
+          .filter { it.name != entryName }
+          .forEach { entry ->
+            output.putNextEntry(ZipEntry(entry.name))
+            input.copyTo(output)
+            output.closeEntry()
+          }
+      }
+    }
+  }
+
+  private companion object {
+    const val REMOVED_IDE_CLASS = "internal/otherPackage/NonInternalOverriddenOtherPackage"
+  }
+}
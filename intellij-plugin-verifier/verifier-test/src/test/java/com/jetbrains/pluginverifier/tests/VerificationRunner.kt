@@ -4,6 +4,7 @@
 
 package com.jetbrains.pluginverifier.tests
 
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.ide.Ide
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import com.jetbrains.pluginverifier.PluginVerificationDescriptor
@@ -16,13 +17,16 @@ import com.jetbrains.pluginverifier.ide.IdeDescriptor
 import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
 import com.jetbrains.pluginverifier.plugin.DefaultPluginDetailsProvider
+import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginFilesBank
 import com.jetbrains.pluginverifier.plugin.SizeLimitedPluginDetailsCache
 import com.jetbrains.pluginverifier.repository.cleanup.DiskSpaceSetting
 import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
 import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginInfo
 import com.jetbrains.pluginverifier.repository.repositories.marketplace.MarketplaceRepository
+import com.jetbrains.pluginverifier.resolution.ClassResolverProvider
 import com.jetbrains.pluginverifier.resolution.DefaultClassResolverProvider
+import com.jetbrains.pluginverifier.results.VerificationResultCache
 import com.jetbrains.pluginverifier.tests.mocks.TestJdkDescriptorProvider
 import com.jetbrains.pluginverifier.verifiers.filter.DynamicallyLoadedFilter
 import java.net.URL
@@ -32,7 +36,19 @@ import kotlin.io.path.createTempDirectory
 class VerificationRunner {
 
   fun withPluginVerifier(ide: Ide, idePlugin: IdePlugin, problemsFilters: List<ProblemsFilter> = emptyList(), apiUsageFilters: List<ApiUsageFilter> = emptyList(),
-                         pluginVerifierHandler: (PluginVerifier) -> PluginVerificationResult): PluginVerificationResult {
+                         options: PluginVerifierOptions = PluginVerifierOptions(),
+                         pluginVerifierHandler: (PluginVerifier) -> PluginVerificationResult): PluginVerificationResult =
+    withPluginVerifiers(ide, problemsFilters, apiUsageFilters, options) { createPluginVerifier ->
+      pluginVerifierHandler(createPluginVerifier(idePlugin))
+    }
+
+  /**
+   * Provides the [pluginVerifiersHandler] with a function that creates verifiers of plugins
+   * against the same [IdeDescriptor] of the [ide], so that they share the caches of the IDE.
+   */
+  fun <T> withPluginVerifiers(ide: Ide, problemsFilters: List<ProblemsFilter> = emptyList(), apiUsageFilters: List<ApiUsageFilter> = emptyList(),
+                              options: PluginVerifierOptions = PluginVerifierOptions(),
+                              pluginVerifiersHandler: (createPluginVerifier: (IdePlugin) -> PluginVerifier) -> T): T {
     val tempDownloadDir = createTempDirectory().toFile().apply { deleteOnExit() }.toPath()
     val pluginFilesBank = PluginFilesBank.create(MarketplaceRepository(URL("https://unused.com")), tempDownloadDir, DiskSpaceSetting(SpaceAmount.ZERO_SPACE))
 
@@ -45,28 +61,60 @@ class VerificationRunner {
     return IdeDescriptor.create(ide.idePath, jdkPath, null).use { ideDescriptor ->
       val externalClassesPackageFilter = OptionsParser.getExternalClassesPackageFilter(CmdOpts())
 
-      val classResolverProvider = DefaultClassResolverProvider(
+      val defaultClassResolverProvider = DefaultClassResolverProvider(
         BundledPluginDependencyFinder(ide, pluginDetailsCache),
         ideDescriptor,
         externalClassesPackageFilter
       )
-      val verificationDescriptor = PluginVerificationDescriptor.IDE(ideDescriptor, classResolverProvider, LocalPluginInfo(idePlugin))
-
-      val pluginVerifier = PluginVerifier(
-        verificationDescriptor,
-        problemsFilters,
-        pluginDetailsCache,
-        listOf(DynamicallyLoadedFilter()),
-        false,
-        apiUsageFilters
-      )
-      pluginVerifierHandler(pluginVerifier)
+      val classResolverProvider = options.pluginResolverDecorator
+        ?.let { PluginResolverDecoratingProvider(defaultClassResolverProvider, it) }
+        ?: defaultClassResolverProvider
+      pluginVerifiersHandler { idePlugin ->
+        PluginVerifier(
+          PluginVerificationDescriptor.IDE(ideDescriptor, classResolverProvider, LocalPluginInfo(idePlugin)),
+          problemsFilters,
+          pluginDetailsCache,
+          listOf(DynamicallyLoadedFilter()),
+          false,
+          apiUsageFilters,
+          options.classVerificationParallelism,
+          options.uncachedPluginClassReading,
+          options.resultCache,
+          options.classFindingsMemoization
+        )
+      }
     }
   }
 
-  fun runPluginVerification(ide: Ide, idePlugin: IdePlugin, problemsFilters: List<ProblemsFilter> = emptyList(), apiUsageFilters: List<ApiUsageFilter> = emptyList()): PluginVerificationResult {
-    return withPluginVerifier(ide, idePlugin, problemsFilters, apiUsageFilters) {
+  fun runPluginVerification(ide: Ide, idePlugin: IdePlugin, problemsFilters: List<ProblemsFilter> = emptyList(), apiUsageFilters: List<ApiUsageFilter> = emptyList(),
+                            options: PluginVerifierOptions = PluginVerifierOptions()): PluginVerificationResult {
+    return withPluginVerifier(ide, idePlugin, problemsFilters, apiUsageFilters, options) {
       it.loadPluginAndVerify()
     }
   }
-}
\ No newline at end of file
+}
+
+/**
+ * Options of the [PluginVerifier] created by the [VerificationRunner].
+ * By default, classes are verified sequentially without caches shared between verifications.
+ *
+ * If [pluginResolverDecorator] is specified, the verifier uses the resolver it returns for classes of the checked plugin.
+ */
+data class PluginVerifierOptions(
+  val classVerificationParallelism: Int = 1,
+  val uncachedPluginClassReading: Boolean = false,
+  val resultCache: VerificationResultCache? = null,
+  val classFindingsMemoization: Boolean = false,
+  val pluginResolverDecorator: ((Resolver) -> Resolver)? = null
+)
+
+private class PluginResolverDecoratingProvider(
+  private val delegate: ClassResolverProvider,
+  private val pluginResolverDecorator: (Resolver) -> Resolver
+) : ClassResolverProvider by delegate {
+
+  override fun provide(checkedPluginDetails: PluginDetails): ClassResolverProvider.Result {
+    val result = delegate.provide(checkedPluginDetails)
+    return result.copy(pluginResolver = pluginResolverDecorator(result.pluginResolver))
+  }
+}
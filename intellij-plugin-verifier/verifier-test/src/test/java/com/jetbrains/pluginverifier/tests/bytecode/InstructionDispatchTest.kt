@@ -0,0 +1,80 @@
+package com.jetbrains.pluginverifier.tests.bytecode
+
+import com.jetbrains.plugin.structure.classes.resolvers.FileOrigin
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.tests.mocks.MockVerificationContext
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.instruction.InstructionVerifier
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileAsm
+import com.jetbrains.pluginverifier.verifiers.resolution.Method
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AbstractInsnNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldInsnNode
+import org.objectweb.asm.tree.InsnNode
+import org.objectweb.asm.tree.LabelNode
+import org.objectweb.asm.tree.LdcInsnNode
+import org.objectweb.asm.tree.LineNumberNode
+import org.objectweb.asm.tree.MethodNode
+
+class InstructionDispatchTest {
+
+  private object TestOrigin : FileOrigin {
+    override val parent: FileOrigin? = null
+  }
+
+  private class RecordingVerifier(override val opcodes: Set<Int>?) : InstructionVerifier {
+    val instructions = arrayListOf<AbstractInsnNode>()
+
+    override fun verify(method: Method, instructionNode: AbstractInsnNode, context: VerificationContext) {
+      instructions += instructionNode
+    }
+  }
+
+  private val classNode = ClassNode().apply {
+    version = Opcodes.V11
+    access = Opcodes.ACC_PUBLIC
+    name = "test/Dispatched"
+    superName = "java/lang/Object"
+    interfaces = mutableListOf()
+    methods.add(MethodNode(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "run", "()V", null, null).apply {
+      val label = LabelNode()
+      instructions.add(label)
+      instructions.add(LineNumberNode(1, label))
+      instructions.add(FieldInsnNode(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;"))
+      instructions.add(LdcInsnNode("text"))
+      instructions.add(InsnNode(Opcodes.POP))
+      instructions.add(InsnNode(Opcodes.POP))
+      instructions.add(InsnNode(Opcodes.RETURN))
+    })
+  }
+
+  @Test
+  fun `instruction verifiers receive only instructions with their opcodes`() {
+    val ldcVerifier = RecordingVerifier(setOf(Opcodes.LDC))
+    val popVerifier = RecordingVerifier(setOf(Opcodes.POP, Opcodes.RETURN))
+    val allInstructionsVerifier = RecordingVerifier(null)
+
+    BytecodeVerifier(
+      additionalInstructionVerifiers = listOf(ldcVerifier, popVerifier, allInstructionsVerifier),
+      verifiedClassResolver = FixedClassesResolver.create(listOf(classNode), TestOrigin)
+    ).verify(setOf(classNode.name), MockVerificationContext()) { }
+
+    val allInstructions = classNode.methods.single().instructions.toArray().toList()
+    assertEquals(listOf(Opcodes.LDC), ldcVerifier.instructions.map { it.opcode })
+    assertEquals(listOf(Opcodes.POP, Opcodes.POP, Opcodes.RETURN), popVerifier.instructions.map { it.opcode })
+    assertEquals(allInstructions, allInstructionsVerifier.instructions)
+  }
+
+  @Test
+  fun `instructions of a method are passed in order`() {
+    val method = ClassFileAsm(classNode, TestOrigin).methods.single()
+    val passedInstructions = arrayListOf<AbstractInsnNode>()
+    method.forEachInstruction { passedInstructions += it }
+    assertEquals(method.instructions, passedInstructions)
+    assertEquals(7, passedInstructions.size)
+  }
+}
@@ -0,0 +1,43 @@
+package com.jetbrains.pluginverifier.tests.mocks
+
+import com.jetbrains.plugin.structure.classes.resolvers.ResolutionResult
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Resolver that delegates to the [delegate] and records names of classes resolved by [resolveClass].
+ */
+class ClassRecordingResolver(private val delegate: Resolver) : Resolver() {
+
+  val resolvedClasses: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+  override val readMode
+    get() = delegate.readMode
+
+  override val allClasses
+    get() = delegate.allClasses
+
+  override val allPackages
+    get() = delegate.allPackages
+
+  override val allBundleNameSet
+    get() = delegate.allBundleNameSet
+
+  override fun resolveClass(className: String): ResolutionResult<ClassNode> {
+    resolvedClasses += className
+    return delegate.resolveClass(className)
+  }
+
+  override fun resolveExactPropertyResourceBundle(baseName: String, locale: Locale) =
+    delegate.resolveExactPropertyResourceBundle(baseName, locale)
+
+  override fun containsClass(className: String) = delegate.containsClass(className)
+
+  override fun containsPackage(packageName: String) = delegate.containsPackage(packageName)
+
+  override fun processAllClasses(processor: (ResolutionResult<ClassNode>) -> Boolean) = delegate.processAllClasses(processor)
+
+  override fun close() = delegate.close()
+}